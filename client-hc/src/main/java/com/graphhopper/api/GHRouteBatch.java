@@ -0,0 +1,140 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.api;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Sends many route requests via {@link GraphHopperWeb#routeAsync(GHRequest)} while keeping at most
+ * {@link GraphHopperWeb#getMaxInFlight()} requests in flight. The requests are pulled from the iterator only when a
+ * slot is free, so arbitrarily long request streams can be sent without queuing them all in memory. POST request
+ * bodies that exceed {@link GraphHopperWeb#setMaxUnzippedLength(int)} are gzip compressed as for single requests.
+ */
+public class GHRouteBatch {
+    private final GraphHopperWeb client;
+
+    public GHRouteBatch(GraphHopperWeb client) {
+        this.client = client;
+    }
+
+    /**
+     * Sends all requests and blocks until every response arrived. The listener is called once per request from the
+     * threads of the HTTP client and in the order in which the responses arrive, so it must be thread safe.
+     */
+    public void route(Iterator<GHRequest> requests, Consumer<Result> listener) {
+        int maxInFlight = client.getMaxInFlight();
+        Semaphore window = new Semaphore(maxInFlight);
+        try {
+            int index = 0;
+            while (requests.hasNext()) {
+                GHRequest request = requests.next();
+                window.acquire();
+                final int requestIndex = index++;
+                final long start = System.nanoTime();
+                client.routeAsync(request).whenComplete((rsp, ex) -> {
+                    try {
+                        listener.accept(new Result(requestIndex, request, rsp, ex, System.nanoTime() - start));
+                    } finally {
+                        window.release();
+                    }
+                });
+            }
+            // wait for the remaining requests
+            window.acquire(maxInFlight);
+            window.release(maxInFlight);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for route responses", ex);
+        }
+    }
+
+    /**
+     * @return the results in the order of the requests
+     */
+    public List<Result> route(List<GHRequest> requests) {
+        Result[] results = new Result[requests.size()];
+        route(requests.iterator(), result -> results[result.getIndex()] = result);
+        return new ArrayList<>(Arrays.asList(results));
+    }
+
+    public static class Result {
+        private final int index;
+        private final GHRequest request;
+        private final GHResponse response;
+        private final Throwable error;
+        private final long latencyNanos;
+
+        Result(int index, GHRequest request, GHResponse response, Throwable error, long latencyNanos) {
+            this.index = index;
+            this.request = request;
+            this.response = response;
+            this.error = error;
+            this.latencyNanos = latencyNanos;
+        }
+
+        /**
+         * @return the position of the request in the batch
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public GHRequest getRequest() {
+            return request;
+        }
+
+        /**
+         * @return the response or null if the request failed, see {@link #getError()}. Note that the response can
+         * still contain errors returned by the server.
+         */
+        public GHResponse getResponse() {
+            return response;
+        }
+
+        /**
+         * @return the exception if the request could not be sent or its response could not be read, otherwise null
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        /**
+         * @return the time between sending the request and receiving its response
+         */
+        public long getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        public double getLatencyMillis() {
+            return latencyNanos / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return index + ": " + (error != null ? error.getMessage() : response) + ", " + getLatencyMillis() + "ms";
+        }
+    }
+}
@@ -30,14 +30,13 @@ import com.graphhopper.jackson.ResponsePathDeserializer;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.Parameters;
 import com.graphhopper.util.shapes.GHPoint;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.ResponseBody;
+import okhttp3.*;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import static com.graphhopper.api.GraphHopperMatrixWeb.*;
@@ -121,6 +120,25 @@ public class GraphHopperWeb {
         return this;
     }
 
+    /**
+     * Limits the number of requests of {@link #routeAsync(GHRequest)} that are executed at the same time, the
+     * default of OkHttp is 5 per host. This replaces the dispatcher of the current downloader.
+     */
+    public GraphHopperWeb setMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 1)
+            throw new IllegalArgumentException("maxInFlight must be at least 1 but was " + maxInFlight);
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxInFlight);
+        dispatcher.setMaxRequestsPerHost(maxInFlight);
+        downloader = downloader.newBuilder().dispatcher(dispatcher).build();
+        return this;
+    }
+
+    public int getMaxInFlight() {
+        Dispatcher dispatcher = downloader.dispatcher();
+        return Math.min(dispatcher.getMaxRequests(), dispatcher.getMaxRequestsPerHost());
+    }
+
     public OkHttpClient getDownloader() {
         return downloader;
     }
@@ -192,27 +210,75 @@ public class GraphHopperWeb {
 
             Request okRequest = postRequest ? createPostRequest(ghRequest) : createGetRequest(ghRequest);
             rspBody = getClientForRequest(ghRequest).newCall(okRequest).execute().body();
-            JsonNode json = objectMapper.reader().readTree(rspBody.byteStream());
+            return readResponse(rspBody, tmpElevation, tmpTurnDescription);
+        } catch (Exception ex) {
+            throw new RuntimeException("Problem while fetching path " + ghRequest.getPoints() + ": " + ex.getMessage(), ex);
+        } finally {
+            Helper.close(rspBody);
+        }
+    }
+
+    /**
+     * Same as {@link #route(GHRequest)} but does not block the calling thread. The request is executed by the
+     * dispatcher of the OkHttpClient, which also limits the number of requests that are in flight at the same time,
+     * see {@link #setMaxInFlight(int)}. Further requests are queued until a running one finishes. Cancelling the
+     * returned future cancels the HTTP call.
+     */
+    public CompletableFuture<GHResponse> routeAsync(GHRequest ghRequest) {
+        CompletableFuture<GHResponse> future = new CompletableFuture<>();
+        final Call call;
+        final boolean tmpElevation;
+        final boolean tmpTurnDescription;
+        try {
+            tmpElevation = ghRequest.getHints().getBool("elevation", elevation);
+            tmpTurnDescription = ghRequest.getHints().getBool("turn_description", true);
+            ghRequest.getHints().remove("turn_description"); // do not include in request
 
-            GHResponse res = new GHResponse();
-            res.addErrors(ResponsePathDeserializer.readErrors(objectMapper, json));
-            if (res.hasErrors())
-                return res;
+            Request okRequest = postRequest ? createPostRequest(ghRequest) : createGetRequest(ghRequest);
+            call = getClientForRequest(ghRequest).newCall(okRequest);
+        } catch (Exception ex) {
+            future.completeExceptionally(new RuntimeException("Problem while fetching path " + ghRequest.getPoints() + ": " + ex.getMessage(), ex));
+            return future;
+        }
 
-            JsonNode paths = json.get("paths");
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException ex) {
+                future.completeExceptionally(new RuntimeException("Problem while fetching path " + ghRequest.getPoints() + ": " + ex.getMessage(), ex));
+            }
 
-            for (JsonNode path : paths) {
-                ResponsePath altRsp = ResponsePathDeserializer.createResponsePath(objectMapper, path, tmpElevation, tmpTurnDescription);
-                res.add(altRsp);
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (ResponseBody rspBody = response.body()) {
+                    future.complete(readResponse(rspBody, tmpElevation, tmpTurnDescription));
+                } catch (Exception ex) {
+                    future.completeExceptionally(new RuntimeException("Problem while fetching path " + ghRequest.getPoints() + ": " + ex.getMessage(), ex));
+                }
             }
+        });
+        future.whenComplete((rsp, ex) -> {
+            if (future.isCancelled())
+                call.cancel();
+        });
+        return future;
+    }
 
+    private GHResponse readResponse(ResponseBody rspBody, boolean tmpElevation, boolean tmpTurnDescription) throws IOException {
+        JsonNode json = objectMapper.reader().readTree(rspBody.byteStream());
+
+        GHResponse res = new GHResponse();
+        res.addErrors(ResponsePathDeserializer.readErrors(objectMapper, json));
+        if (res.hasErrors())
             return res;
 
-        } catch (Exception ex) {
-            throw new RuntimeException("Problem while fetching path " + ghRequest.getPoints() + ": " + ex.getMessage(), ex);
-        } finally {
-            Helper.close(rspBody);
+        JsonNode paths = json.get("paths");
+
+        for (JsonNode path : paths) {
+            ResponsePath altRsp = ResponsePathDeserializer.createResponsePath(objectMapper, path, tmpElevation, tmpTurnDescription);
+            res.add(altRsp);
         }
+
+        return res;
     }
 
     OkHttpClient getClientForRequest(GHRequest request) {
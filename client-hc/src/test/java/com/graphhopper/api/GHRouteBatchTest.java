@@ -0,0 +1,164 @@
+package com.graphhopper.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.util.shapes.GHPoint;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the asynchronous API against a local stand-in server that returns the latitude of the first point as distance.
+ */
+public class GHRouteBatchTest {
+    private final ObjectMapper objectMapper = Jackson.newObjectMapper();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger gzipRequests = new AtomicInteger();
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String url;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/route", this::handle);
+        serverExecutor = Executors.newFixedThreadPool(10);
+        server.setExecutor(serverExecutor);
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/route";
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+            InputStream is = exchange.getRequestBody();
+            if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+                gzipRequests.incrementAndGet();
+                is = new GZIPInputStream(is);
+            }
+            JsonNode request = objectMapper.readTree(is);
+            double lat = request.get("points").get(0).get(1).asDouble();
+            Thread.sleep(20);
+            String json = lat < 0
+                    ? "{\"message\":\"Point 0 is out of bounds\"}"
+                    : "{\"paths\":[{\"distance\":" + lat + ",\"time\":1000}]}";
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(lat < 0 ? 400 : 200, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        } catch (InterruptedException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private static GHRequest createRequest(double lat) {
+        return new GHRequest(new GHPoint(lat, 1.5), new GHPoint(42.5, 1.6)).setProfile("car");
+    }
+
+    @Test
+    public void testRouteAsync() throws Exception {
+        GraphHopperWeb client = new GraphHopperWeb(url);
+        GHResponse rsp = client.routeAsync(createRequest(42)).get(5, TimeUnit.SECONDS);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(42, rsp.getBest().getDistance(), 1e-6);
+        assertEquals(1000, rsp.getBest().getTime());
+
+        rsp = client.routeAsync(createRequest(-1)).get(5, TimeUnit.SECONDS);
+        assertTrue(rsp.hasErrors());
+        assertEquals("Point 0 is out of bounds", rsp.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    public void testRouteAsyncConnectionFailure() throws Exception {
+        String closedUrl = url;
+        server.stop(0);
+        CompletableFuture<GHResponse> future = new GraphHopperWeb(closedUrl).routeAsync(createRequest(42));
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(ex.getCause().getMessage().startsWith("Problem while fetching path"), ex.getCause().getMessage());
+    }
+
+    @Test
+    public void testBatchKeepsOrderAndWindow() {
+        GraphHopperWeb client = new GraphHopperWeb(url).setMaxInFlight(3);
+        List<GHRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            requests.add(createRequest(i == 7 ? -1 : i));
+        }
+        List<GHRouteBatch.Result> results = new GHRouteBatch(client).route(requests);
+        assertEquals(20, results.size());
+        for (int i = 0; i < 20; i++) {
+            GHRouteBatch.Result result = results.get(i);
+            assertEquals(i, result.getIndex());
+            assertSame(requests.get(i), result.getRequest());
+            assertNull(result.getError());
+            assertTrue(result.getLatencyMillis() >= 20, result.toString());
+            if (i == 7)
+                assertTrue(result.getResponse().hasErrors());
+            else
+                assertEquals(i, result.getResponse().getBest().getDistance(), 1e-6);
+        }
+        assertTrue(maxInFlight.get() <= 3, "max in flight was " + maxInFlight.get());
+        assertEquals(0, gzipRequests.get());
+    }
+
+    @Test
+    public void testBatchPullsLazilyAndCompresses() {
+        // force gzip compression for every request body
+        GraphHopperWeb client = new GraphHopperWeb(url).setMaxInFlight(2).setMaxUnzippedLength(0);
+        AtomicInteger pulled = new AtomicInteger();
+        AtomicInteger maxAhead = new AtomicInteger();
+        AtomicInteger received = new AtomicInteger();
+        Iterator<GHRequest> requests = new Iterator<GHRequest>() {
+            @Override
+            public boolean hasNext() {
+                return pulled.get() < 10;
+            }
+
+            @Override
+            public GHRequest next() {
+                maxAhead.accumulateAndGet(pulled.get() - received.get(), Math::max);
+                return createRequest(pulled.incrementAndGet());
+            }
+        };
+        new GHRouteBatch(client).route(requests, result -> {
+            assertNull(result.getError());
+            received.incrementAndGet();
+        });
+        assertEquals(10, received.get());
+        // never more requests pulled than the window allows
+        assertTrue(maxAhead.get() <= 2, "max ahead was " + maxAhead.get());
+        assertEquals(10, gzipRequests.get());
+    }
+}
@@ -39,6 +39,8 @@ import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.util.countryrules.CountryRuleFactory;
 import com.graphhopper.routing.util.parsers.DefaultTagParserFactory;
 import com.graphhopper.routing.util.parsers.TagParserFactory;
+import com.graphhopper.routing.weighting.EdgeWeightColumn;
+import com.graphhopper.routing.weighting.PrecomputedWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomProfile;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
@@ -63,6 +65,9 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static com.graphhopper.util.GHUtility.readCountries;
@@ -93,6 +98,10 @@ public class GraphHopper {
     private String ghLocation = "";
     private DAType dataAccessDefaultType = DAType.RAM_STORE;
     private final LinkedHashMap<String, String> dataAccessConfig = new LinkedHashMap<>();
+    private int dataAccessLoadThreads = 1;
+    private boolean dataAccessVerifyChecksums = false;
+    private boolean mmapBackgroundPreload = false;
+    private volatile boolean mmapPreloading = false;
     private boolean sortGraph = false;
     private boolean elevation = false;
     private LockFactory lockFactory = new NativeFSLockFactory();
@@ -101,18 +110,26 @@ public class GraphHopper {
     private final OSMReaderConfig osmReaderConfig = new OSMReaderConfig();
     // for routing
     private final RouterConfig routerConfig = new RouterConfig();
+    private volatile ExecutorService legExecutor;
+    private final LinkedHashMap<String, String> blockAreaConfig = new LinkedHashMap<>();
+    private NamedBlockAreas namedBlockAreas;
     // for index
     private LocationIndex locationIndex;
     private int preciseIndexResolution = 300;
     private int maxRegionSearch = 4;
     // for prepare
     private int minNetworkSize = 200;
+    private int subnetworksThreads = 1;
 
     // preparation handlers
     private final LMPreparationHandler lmPreparationHandler = new LMPreparationHandler();
     private final CHPreparationHandler chPreparationHandler = new CHPreparationHandler();
     private Map<String, RoutingCHGraph> chGraphs = Collections.emptyMap();
     private Map<String, LandmarkStorage> landmarks = Collections.emptyMap();
+    private List<String> weightColumnProfiles = Collections.emptyList();
+    private Map<String, EdgeWeightColumn> weightColumns = Collections.emptyMap();
+    private boolean pillarLevelsEnabled = false;
+    private PillarLevels pillarLevels;
 
     // for data reader
     private String osmFile;
@@ -175,6 +192,36 @@ public class GraphHopper {
         return this;
     }
 
+    /**
+     * Precomputes the edge weights of the specified profiles after the import and stores them in the graph folder.
+     * Requests for these profiles that are not using CH read the weights instead of calculating them from the edge
+     * flags, unless the request modifies the weighting, e.g. via a custom model.
+     */
+    public GraphHopper setWeightColumnProfiles(List<String> weightColumnProfiles) {
+        ensureNotLoaded();
+        this.weightColumnProfiles = weightColumnProfiles;
+        return this;
+    }
+
+    public List<String> getWeightColumnProfiles() {
+        return weightColumnProfiles;
+    }
+
+    /**
+     * Precomputes a simplification level for every pillar node after the import and stores it in the graph folder.
+     * Route responses are then simplified by dropping the pillar nodes below the requested way point max distance
+     * instead of running Douglas-Peucker over the whole route.
+     */
+    public GraphHopper setPillarLevelsEnabled(boolean pillarLevelsEnabled) {
+        ensureNotLoaded();
+        this.pillarLevelsEnabled = pillarLevelsEnabled;
+        return this;
+    }
+
+    public boolean isPillarLevelsEnabled() {
+        return pillarLevelsEnabled;
+    }
+
     /**
      * Only valid option for in-memory graph and if you e.g. want to disable store on flush for unit
      * tests. Specify storeOnFlush to true if you want that existing data will be loaded FROM disc
@@ -339,6 +386,25 @@ public class GraphHopper {
         return locationIndex;
     }
 
+    /**
+     * The block areas that can be referenced by name in routing requests. Areas can be added or removed while the
+     * server is running.
+     *
+     * @throws IllegalStateException if the graph was not loaded yet
+     */
+    public NamedBlockAreas getNamedBlockAreas() {
+        if (namedBlockAreas == null)
+            throw new IllegalStateException("NamedBlockAreas not initialized");
+        return namedBlockAreas;
+    }
+
+    /**
+     * @return the simplification levels of the pillar nodes or null if they are not enabled
+     */
+    public PillarLevels getPillarLevels() {
+        return pillarLevels;
+    }
+
     protected void setLocationIndex(LocationIndex locationIndex) {
         this.locationIndex = locationIndex;
     }
@@ -452,7 +518,12 @@ public class GraphHopper {
                 dataAccessConfig.put(entry.getKey().substring("graph.dataaccess.type.".length()), entry.getValue().toString());
             if (entry.getKey().startsWith("graph.dataaccess.mmap.preload."))
                 dataAccessConfig.put(entry.getKey().substring("graph.dataaccess.mmap.".length()), entry.getValue().toString());
+            if (entry.getKey().startsWith(Routing.INIT_BLOCK_AREAS))
+                blockAreaConfig.put(entry.getKey().substring(Routing.INIT_BLOCK_AREAS.length()), entry.getValue().toString());
         }
+        dataAccessLoadThreads = ghConfig.getInt("graph.dataaccess.load_threads", dataAccessLoadThreads);
+        dataAccessVerifyChecksums = ghConfig.getBool("graph.dataaccess.verify_checksums", dataAccessVerifyChecksums);
+        mmapBackgroundPreload = ghConfig.getBool("graph.dataaccess.mmap.background_preload", mmapBackgroundPreload);
 
         sortGraph = ghConfig.getBool("graph.do_sort", sortGraph);
         removeZipped = ghConfig.getBool("graph.remove_zipped", removeZipped);
@@ -480,6 +551,7 @@ public class GraphHopper {
         osmReaderConfig.setSmoothElevation(ghConfig.getBool("graph.elevation.smoothing", osmReaderConfig.isSmoothElevation()));
         osmReaderConfig.setLongEdgeSamplingDistance(ghConfig.getDouble("graph.elevation.long_edge_sampling_distance", osmReaderConfig.getLongEdgeSamplingDistance()));
         osmReaderConfig.setElevationMaxWayPointDistance(ghConfig.getDouble("graph.elevation.way_point_max_distance", osmReaderConfig.getElevationMaxWayPointDistance()));
+        osmReaderConfig.setElevationThreads(ghConfig.getInt("graph.elevation.threads", osmReaderConfig.getElevationThreads()));
         routerConfig.setElevationWayPointMaxDistance(ghConfig.getDouble("graph.elevation.way_point_max_distance", routerConfig.getElevationWayPointMaxDistance()));
         ElevationProvider elevationProvider = createElevationProvider(ghConfig);
         setElevationProvider(elevationProvider);
@@ -489,6 +561,11 @@ public class GraphHopper {
 
         // optimizable prepare
         minNetworkSize = ghConfig.getInt("prepare.min_network_size", minNetworkSize);
+        subnetworksThreads = ghConfig.getInt("prepare.subnetworks.threads", subnetworksThreads);
+        String weightColumnsStr = ghConfig.getString("graph.weight_columns", "");
+        if (!weightColumnsStr.isEmpty())
+            setWeightColumnProfiles(Arrays.stream(weightColumnsStr.split(",")).map(String::trim).collect(Collectors.toList()));
+        setPillarLevelsEnabled(ghConfig.getBool("graph.pillar_levels", pillarLevelsEnabled));
 
         // prepare CH&LM
         chPreparationHandler.init(ghConfig);
@@ -506,6 +583,8 @@ public class GraphHopper {
 
         // routing
         routerConfig.setMaxVisitedNodes(ghConfig.getInt(Routing.INIT_MAX_VISITED_NODES, routerConfig.getMaxVisitedNodes()));
+        routerConfig.setTimeoutMillis(ghConfig.getLong(Routing.INIT_TIMEOUT_MS, routerConfig.getTimeoutMillis()));
+        routerConfig.setLegThreads(ghConfig.getInt(Routing.INIT_LEG_THREADS, routerConfig.getLegThreads()));
         routerConfig.setMaxRoundTripRetries(ghConfig.getInt(RoundTrip.INIT_MAX_RETRIES, routerConfig.getMaxRoundTripRetries()));
         routerConfig.setNonChMaxWaypointDistance(ghConfig.getInt(Parameters.NON_CH.MAX_NON_CH_POINT_DISTANCE, routerConfig.getNonChMaxWaypointDistance()));
         routerConfig.setInstructionsEnabled(ghConfig.getBool(Routing.INIT_INSTRUCTIONS, routerConfig.isInstructionsEnabled()));
@@ -747,8 +826,17 @@ public class GraphHopper {
             throw new IllegalStateException("graph is already successfully loaded");
 
         File tmpFileOrFolder = new File(ghLocation);
+        GraphSnapshot snapshot = null;
+        File snapshotFile = new File(ghLocation + ".ghs");
         if (!tmpFileOrFolder.isDirectory() && tmpFileOrFolder.exists()) {
             throw new IllegalArgumentException("GraphHopperLocation cannot be an existing file. Has to be either non-existing or a folder.");
+        } else if (snapshotFile.isFile() && !new File(tmpFileOrFolder, "properties").exists()) {
+            // the sections of the snapshot are memory mapped directly, so there is nothing to extract. the folder can
+            // already exist if it only contains DataAccess objects that are not part of the snapshot
+            snapshot = GraphSnapshot.open(snapshotFile);
+            if (dataAccessVerifyChecksums)
+                snapshot.verify();
+            logger.info("loading graph from snapshot " + snapshotFile.getAbsolutePath());
         } else {
             File compressed = new File(ghLocation + ".ghz");
             if (compressed.exists() && !compressed.isDirectory()) {
@@ -764,7 +852,7 @@ public class GraphHopper {
         if (!allowWrites && dataAccessDefaultType.isMMap())
             dataAccessDefaultType = DAType.MMAP_RO;
         if (tagParserManager == null) {
-            StorableProperties properties = new StorableProperties(new GHDirectory(ghLocation, dataAccessDefaultType));
+            StorableProperties properties = new StorableProperties(new GHDirectory(ghLocation, dataAccessDefaultType).setSnapshot(snapshot));
             tagParserManager = properties.loadExisting()
                     ? TagParserManager.create(emBuilder, encodedValueFactory, flagEncoderFactory, properties)
                     : buildEncodingManager(new GraphHopperConfig());
@@ -772,6 +860,8 @@ public class GraphHopper {
 
         GHDirectory directory = new GHDirectory(ghLocation, dataAccessDefaultType);
         directory.configure(dataAccessConfig);
+        directory.setVerifyChecksums(dataAccessVerifyChecksums);
+        directory.setSnapshot(snapshot);
         ghStorage = new GraphBuilder(tagParserManager)
                 .setDir(directory)
                 .set3D(hasElevation())
@@ -780,25 +870,26 @@ public class GraphHopper {
                 .build();
         checkProfilesConsistency();
 
-        if (!new File(ghLocation).exists())
+        if (snapshot == null && !new File(ghLocation).exists())
             return false;
 
         GHLock lock = null;
         try {
             // create locks only if writes are allowed, if they are not allowed a lock cannot be created
             // (e.g. on a read only filesystem locks would fail)
-            if (ghStorage.getDirectory().getDefaultType().isStoring() && isAllowWrites()) {
+            if (snapshot == null && ghStorage.getDirectory().getDefaultType().isStoring() && isAllowWrites()) {
                 lockFactory.setLockDir(new File(ghLocation));
                 lock = lockFactory.create(fileLockName, false);
                 if (!lock.tryLock())
                     throw new RuntimeException("To avoid reading partial data we need to obtain the read lock but it failed. In " + ghLocation, lock.getObtainFailedReason());
             }
 
-            if (!ghStorage.loadExisting())
+            if (!ghStorage.loadExisting(dataAccessLoadThreads))
                 return false;
 
             postProcessing(false);
-            directory.loadMMap();
+            directory.logLoadTimes();
+            preloadMMap(directory);
             setFullyLoaded();
             return true;
         } finally {
@@ -807,6 +898,34 @@ public class GraphHopper {
         }
     }
 
+    private void preloadMMap(GHDirectory directory) {
+        if (!mmapBackgroundPreload) {
+            directory.loadMMap();
+            return;
+        }
+        // avoid the page faults of the first requests without blocking the startup, see isMMapPreloading
+        mmapPreloading = true;
+        Thread thread = new Thread(() -> {
+            try {
+                directory.loadMMap();
+            } catch (Exception ex) {
+                logger.warn("Preloading the memory mapped files failed", ex);
+            } finally {
+                mmapPreloading = false;
+            }
+        }, "mmap-preload");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return true while the memory mapped files are still preloaded in the background, see
+     * graph.dataaccess.mmap.background_preload
+     */
+    public boolean isMMapPreloading() {
+        return mmapPreloading;
+    }
+
     private void checkProfilesConsistency() {
         TagParserManager encodingManager = getTagParserManager();
         for (Profile profile : profilesByName.values()) {
@@ -837,6 +956,11 @@ public class GraphHopper {
             }
         }
 
+        for (String profileName : weightColumnProfiles) {
+            if (!profilesByName.containsKey(profileName))
+                throw new IllegalArgumentException("Weight column references unknown profile '" + profileName + "'");
+        }
+
         Set<String> chProfileSet = new LinkedHashSet<>(chPreparationHandler.getCHProfiles().size());
         for (CHProfile chProfile : chPreparationHandler.getCHProfiles()) {
             boolean added = chProfileSet.add(chProfile.getProfile());
@@ -915,7 +1039,12 @@ public class GraphHopper {
      */
     protected void postProcessing(boolean closeEarly) {
         initLocationIndex();
+        if (!closeEarly)
+            initNamedBlockAreas();
         importPublicTransit();
+        loadOrPrepareWeightColumns();
+        if (pillarLevelsEnabled)
+            loadOrPreparePillarLevels();
 
         if (closeEarly) {
             boolean includesCustomProfiles = profilesByName.values().stream().anyMatch(p -> p instanceof CustomProfile);
@@ -939,6 +1068,14 @@ public class GraphHopper {
     protected void importPublicTransit() {
     }
 
+    private void initNamedBlockAreas() {
+        namedBlockAreas = new NamedBlockAreas(ghStorage.getBaseGraph(), locationIndex);
+        for (Map.Entry<String, String> entry : blockAreaConfig.entrySet()) {
+            NamedBlockAreas.Area area = namedBlockAreas.put(entry.getKey(), entry.getValue());
+            logger.info("Block area " + area);
+        }
+    }
+
     void interpolateBridgesTunnelsAndFerries() {
         if (ghStorage.getEncodingManager().hasEncodedValue(RoadEnvironment.KEY)) {
             EnumEncodedValue<RoadEnvironment> roadEnvEnc = ghStorage.getEncodingManager().getEnumEncodedValue(RoadEnvironment.KEY, RoadEnvironment.class);
@@ -961,13 +1098,24 @@ public class GraphHopper {
     }
 
     public final Weighting createWeighting(Profile profile, PMap hints, boolean disableTurnCosts) {
-        return createWeightingFactory().createWeighting(profile, hints, disableTurnCosts);
+        return createWeightingFactoryWithColumns().createWeighting(profile, hints, disableTurnCosts);
     }
 
     protected WeightingFactory createWeightingFactory() {
         return new DefaultWeightingFactory(ghStorage.getBaseGraph(), getEncodingManager());
     }
 
+    private WeightingFactory createWeightingFactoryWithColumns() {
+        WeightingFactory weightingFactory = createWeightingFactory();
+        if (weightColumns.isEmpty())
+            return weightingFactory;
+        return (profile, hints, disableTurnCosts) -> {
+            Weighting weighting = weightingFactory.createWeighting(profile, hints, disableTurnCosts);
+            EdgeWeightColumn column = weightColumns.get(profile.getName());
+            return column == null || !EdgeWeightColumn.isCompatible(hints) ? weighting : new PrecomputedWeighting(weighting, column);
+        };
+    }
+
     public GHResponse route(GHRequest request) {
         return createRouter().route(request);
     }
@@ -981,7 +1129,28 @@ public class GraphHopper {
             throw new IllegalStateException("Location index not initialized");
 
         return doCreateRouter(ghStorage, locationIndex, profilesByName, pathBuilderFactory,
-                trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks);
+                trMap, routerConfig, createWeightingFactoryWithColumns(), chGraphs, landmarks).
+                setLegExecutor(getLegExecutor()).
+                setNamedBlockAreas(namedBlockAreas).
+                setPillarLevels(pillarLevels);
+    }
+
+    private ExecutorService getLegExecutor() {
+        if (routerConfig.getLegThreads() <= 1)
+            return null;
+        if (legExecutor == null) {
+            synchronized (this) {
+                if (legExecutor == null) {
+                    AtomicInteger threadCount = new AtomicInteger();
+                    legExecutor = Executors.newFixedThreadPool(routerConfig.getLegThreads(), r -> {
+                        Thread thread = new Thread(r, "gh-leg-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return legExecutor;
     }
 
     protected Router doCreateRouter(GraphHopperStorage ghStorage, LocationIndex locationIndex, Map<String, Profile> profilesByName,
@@ -1030,6 +1199,41 @@ public class GraphHopper {
         ghStorage.getProperties().put("graph.profiles.lm." + profile + ".version", version);
     }
 
+    protected void loadOrPrepareWeightColumns() {
+        weightColumns = new LinkedHashMap<>();
+        for (String profileName : weightColumnProfiles) {
+            Profile profile = profilesByName.get(profileName);
+            EdgeWeightColumn column = new EdgeWeightColumn(profileName, profile.getVersion(), ghStorage.getBaseGraph(), ghStorage.getDirectory());
+            if (!column.loadExisting()) {
+                if (!allowWrites) {
+                    logger.warn("Weight column for profile '" + profileName + "' is missing or outdated and writes are disabled, the weights will be calculated on the fly");
+                    continue;
+                }
+                StopWatch sw = new StopWatch().start();
+                // no request hints and no turn costs, the same as for the preparations
+                column.prepare(createWeightingFactory().createWeighting(profile, new PMap(), true));
+                column.flush();
+                logger.info("Prepared weight column for profile '" + profileName + "' in " + sw.stop().getSeconds() + "s");
+            }
+            weightColumns.put(profileName, column);
+        }
+    }
+
+    protected void loadOrPreparePillarLevels() {
+        PillarLevels levels = new PillarLevels(ghStorage.getBaseGraph(), ghStorage.getDirectory());
+        if (!levels.loadExisting()) {
+            if (!allowWrites) {
+                logger.warn("Pillar levels are missing or outdated and writes are disabled, responses will be simplified with Douglas-Peucker");
+                return;
+            }
+            StopWatch sw = new StopWatch().start();
+            levels.prepare();
+            levels.flush();
+            logger.info("Prepared pillar levels in " + sw.stop().getSeconds() + "s");
+        }
+        pillarLevels = levels;
+    }
+
     protected void loadOrPrepareCH(boolean closeEarly) {
         for (CHProfile profile : chPreparationHandler.getCHProfiles())
             if (!getCHProfileVersion(profile.getProfile()).isEmpty()
@@ -1095,9 +1299,30 @@ public class GraphHopper {
                 landmarks.put(lmp.getProfile(), preparedLMS.get().getLandmarkStorage());
             } else
                 loadedLMS.ifPresent(landmarkStorage -> landmarks.put(lmp.getProfile(), landmarkStorage));
+            LandmarkStorage lms = landmarks.get(lmp.getProfile());
+            if (lmp.usesOtherPreparation() && lms != null)
+                lms.setWeightFactor(lmp.getProfile(), getLMWeightFactor(lmp, lms));
         }
     }
 
+    /**
+     * The weight factor of a profile that uses the landmarks of another profile only changes if one of the profiles
+     * changes, so we calculate it only once.
+     */
+    private double getLMWeightFactor(LMProfile lmProfile, LandmarkStorage lms) {
+        String key = "graph.profiles.lm." + lmProfile.getProfile() + ".weight_factor";
+        String versions = profilesByName.get(lmProfile.getProfile()).getVersion() + "_" + profilesByName.get(lmProfile.getPreparationProfile()).getVersion();
+        if (versions.equals(ghStorage.getProperties().get(key + "_versions")))
+            return Double.parseDouble(ghStorage.getProperties().get(key));
+
+        Weighting weighting = createWeighting(profilesByName.get(lmProfile.getProfile()), new PMap(), true);
+        double weightFactor = LandmarkStorage.calcWeightFactor(ghStorage.getBaseGraph(), lms.getWeighting(), weighting);
+        logger.info("LM profile " + lmProfile.getProfile() + " uses the landmarks of " + lmProfile.getPreparationProfile() + " with weight factor " + weightFactor);
+        ghStorage.getProperties().put(key, weightFactor);
+        ghStorage.getProperties().put(key + "_versions", versions);
+        return weightFactor;
+    }
+
     protected List<PrepareLandmarks> prepareLM(boolean closeEarly, List<LMConfig> configsToPrepare) {
         if (!configsToPrepare.isEmpty())
             ensureWriteAccess();
@@ -1111,6 +1336,7 @@ public class GraphHopper {
     protected void cleanUp() {
         PrepareRoutingSubnetworks preparation = new PrepareRoutingSubnetworks(ghStorage.getBaseGraph(), buildSubnetworkRemovalJobs());
         preparation.setMinNetworkSize(minNetworkSize);
+        preparation.setThreads(subnetworksThreads);
         preparation.doWork();
         logger.info("nodes: " + Helper.nf(ghStorage.getNodes()) + ", edges: " + Helper.nf(ghStorage.getEdges()));
     }
@@ -1138,11 +1364,19 @@ public class GraphHopper {
      * remove the files created in graphhopperLocation you have to call clean().
      */
     public void close() {
+        synchronized (this) {
+            if (legExecutor != null)
+                legExecutor.shutdownNow();
+            legExecutor = null;
+        }
         if (ghStorage != null)
             ghStorage.close();
 
         chGraphs.values().forEach(RoutingCHGraph::close);
         landmarks.values().forEach(LandmarkStorage::close);
+        weightColumns.values().forEach(EdgeWeightColumn::close);
+        if (pillarLevels != null)
+            pillarLevels.close();
 
         if (locationIndex != null)
             locationIndex.close();
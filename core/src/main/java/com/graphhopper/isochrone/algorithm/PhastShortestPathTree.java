@@ -0,0 +1,301 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.apache.commons.collections.IntFloatBinaryHeap;
+import com.graphhopper.routing.ch.ShortcutUnpacker;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.CancellationToken;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static com.graphhopper.isochrone.algorithm.ShortestPathTree.ExploreType.*;
+
+/**
+ * Computes a shortest path tree like {@link ShortestPathTree}, but uses the PHAST algorithm on a node-based CH graph:
+ * an upward search from the start node is followed by a single linear sweep over all nodes in descending CH level
+ * order that relaxes the downward edges. All nodes of the graph are reached without any priority queue operations
+ * apart from the (small) upward search, which is much faster than a Dijkstra for large limits.
+ * <p>
+ * Time and distance are not stored for shortcuts, so they are calculated for every node from its parent by unpacking
+ * the shortcut that was used to reach it. Time and distance only grow along the tree, so shortcuts below a node that
+ * is already beyond the time or distance limit are not unpacked. The labels passed to the consumer always refer to the
+ * original edge that leads to the node and the parent label is the adjacent node of this edge.
+ * <p>
+ * See Delling, Goldberg, Nowatzyk, Werneck: PHAST: Hardware-Accelerated Shortest Path Trees
+ */
+public class PhastShortestPathTree implements ShortestPathTreeSearch {
+    private final RoutingCHGraph graph;
+    private final Weighting weighting;
+    private final int[] nodeOrder;
+    private final boolean reverseFlow;
+    private final int baseNodes;
+    private final double[] weights;
+    // the CH edge and the adjacent node we used to reach a node, i.e. the edges of the PHAST tree
+    private final int[] parentEdges;
+    private final int[] parentNodes;
+    // these are calculated lazily, -1 means unknown
+    private final long[] times;
+    private final double[] distances;
+    private final int[] lastEdges;
+    private final ShortcutUnpacker unpacker;
+    private double limit = -1;
+    private ShortestPathTree.ExploreType exploreType = TIME;
+    private int visitedNodes;
+    private CancellationToken cancellation = CancellationToken.NONE;
+    private boolean alreadyRun;
+    // state for the unpacking
+    private long unpackedTime;
+    private double unpackedDistance;
+    private int firstEdge;
+    private int lastEdge;
+
+    /**
+     * @param graph     the node-based CH graph to search, usually a QueryRoutingCHGraph
+     * @param nodeOrder the nodes of the CH graph in descending level order, see {@link #createNodeOrder}
+     */
+    public PhastShortestPathTree(RoutingCHGraph graph, int[] nodeOrder, boolean reverseFlow) {
+        if (graph.isEdgeBased())
+            throw new IllegalArgumentException("PHAST is only supported for node-based CH graphs");
+        this.graph = graph;
+        this.weighting = graph.getWeighting();
+        this.nodeOrder = nodeOrder;
+        this.reverseFlow = reverseFlow;
+        this.baseNodes = nodeOrder.length;
+        int nodes = graph.getNodes();
+        weights = new double[nodes];
+        Arrays.fill(weights, Double.POSITIVE_INFINITY);
+        parentEdges = new int[nodes];
+        Arrays.fill(parentEdges, EdgeIterator.NO_EDGE);
+        parentNodes = new int[nodes];
+        times = new long[nodes];
+        Arrays.fill(times, -1);
+        distances = new double[nodes];
+        lastEdges = new int[nodes];
+        unpacker = new ShortcutUnpacker(graph, (edge, reverse, prevOrNextEdgeId) -> {
+            unpackedTime += weighting.calcEdgeMillis(edge, reverse);
+            unpackedDistance += edge.getDistance();
+            if (firstEdge == EdgeIterator.NO_EDGE)
+                firstEdge = edge.getEdge();
+            lastEdge = edge.getEdge();
+        }, false);
+    }
+
+    /**
+     * Sorts the nodes of the given CH graph by descending level. The levels of a fully contracted CH graph are unique,
+     * so this is just a linear pass.
+     *
+     * @return the node order or null if the graph is not fully contracted and cannot be used for PHAST
+     */
+    public static int[] createNodeOrder(RoutingCHGraph chGraph) {
+        if (chGraph.isEdgeBased())
+            return null;
+        int nodes = chGraph.getNodes();
+        int[] order = new int[nodes];
+        Arrays.fill(order, -1);
+        for (int node = 0; node < nodes; node++) {
+            int level = chGraph.getLevel(node);
+            if (level < 0 || level >= nodes || order[nodes - 1 - level] >= 0)
+                return null;
+            order[nodes - 1 - level] = node;
+        }
+        return order;
+    }
+
+    /**
+     * Time limit in milliseconds
+     */
+    @Override
+    public void setTimeLimit(double limit) {
+        exploreType = TIME;
+        this.limit = limit;
+    }
+
+    /**
+     * Distance limit in meter
+     */
+    @Override
+    public void setDistanceLimit(double limit) {
+        exploreType = DISTANCE;
+        this.limit = limit;
+    }
+
+    @Override
+    public void setWeightLimit(double limit) {
+        exploreType = WEIGHT;
+        this.limit = limit;
+    }
+
+    /**
+     * Stops the search with a SearchCancelledException when the specified token is cancelled.
+     */
+    @Override
+    public void setCancellation(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * Calculates the shortest path tree for all nodes and passes every node within the limit to the consumer.
+     */
+    @Override
+    public void search(int from, Consumer<ShortestPathTree.IsoLabel> consumer) {
+        if (alreadyRun)
+            throw new IllegalStateException("Create a new instance per call");
+        alreadyRun = true;
+
+        weights[from] = 0;
+        upwardSearch(from);
+        downwardSweep();
+
+        times[from] = 0;
+        distances[from] = 0;
+        lastEdges[from] = EdgeIterator.NO_EDGE;
+        for (int node = 0; node < weights.length; node++) {
+            if (Double.isInfinite(weights[node]) || (exploreType == WEIGHT && weights[node] > limit))
+                continue;
+            calcTimeAndDistance(node);
+            if (getExploreValue(node) > limit)
+                continue;
+            ShortestPathTree.IsoLabel parent = null;
+            if (node != from) {
+                int prevNode = graph.getBaseGraph().getOtherNode(lastEdges[node], node);
+                calcTimeAndDistance(prevNode);
+                parent = createLabel(prevNode, null);
+            }
+            consumer.accept(createLabel(node, parent));
+        }
+    }
+
+    private ShortestPathTree.IsoLabel createLabel(int node, ShortestPathTree.IsoLabel parent) {
+        return new ShortestPathTree.IsoLabel(node, lastEdges[node], weights[node], times[node], distances[node], parent);
+    }
+
+    private void upwardSearch(int from) {
+        IntFloatBinaryHeap heap = new IntFloatBinaryHeap(1000);
+        heap.insert(0, from);
+        RoutingCHEdgeExplorer explorer = reverseFlow ? graph.createInEdgeExplorer() : graph.createOutEdgeExplorer();
+        while (!heap.isEmpty()) {
+            float key = heap.peekKey();
+            int node = heap.poll();
+            // instead of updating the heap we insert duplicates and skip the outdated entries
+            if (key > (float) weights[node])
+                continue;
+            visitedNodes++;
+            cancellation.check(visitedNodes);
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                int adj = iter.getAdjNode();
+                if (!isUpward(node, adj, iter.isShortcut()))
+                    continue;
+                double weight = weights[node] + iter.getWeight(reverseFlow);
+                if (weight < weights[adj]) {
+                    weights[adj] = weight;
+                    parentEdges[adj] = iter.getEdge();
+                    parentNodes[adj] = node;
+                    heap.insert(weight, adj);
+                }
+            }
+        }
+    }
+
+    private void downwardSweep() {
+        RoutingCHEdgeExplorer explorer = reverseFlow ? graph.createOutEdgeExplorer() : graph.createInEdgeExplorer();
+        for (int node : nodeOrder) {
+            visitedNodes++;
+            cancellation.check(visitedNodes);
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                int adj = iter.getAdjNode();
+                // we only relax edges coming from higher level nodes, they were all processed already
+                if (!isUpward(node, adj, iter.isShortcut()) || Double.isInfinite(weights[adj]))
+                    continue;
+                double weight = weights[adj] + iter.getWeight(!reverseFlow);
+                if (weight < weights[node]) {
+                    weights[node] = weight;
+                    parentEdges[node] = iter.getEdge();
+                    parentNodes[node] = adj;
+                }
+            }
+        }
+    }
+
+    private boolean isUpward(int base, int adj, boolean shortcut) {
+        // virtual nodes have the highest level and shortcuts only lead to higher level nodes anyway
+        if (base >= baseNodes || adj >= baseNodes || shortcut)
+            return true;
+        return graph.getLevel(base) < graph.getLevel(adj);
+    }
+
+    private void calcTimeAndDistance(int node) {
+        if (times[node] >= 0)
+            return;
+        // collect the parents without time first to avoid a deep recursion
+        IntArrayList stack = new IntArrayList();
+        while (times[node] < 0) {
+            stack.add(node);
+            node = parentNodes[node];
+        }
+        for (int i = stack.size() - 1; i >= 0; i--) {
+            int child = stack.get(i);
+            int parent = parentNodes[child];
+            if (exploreType != WEIGHT && getExploreValue(parent) > limit) {
+                // the child is beyond the limit as well, so we do not unpack the shortcut and use the values of the
+                // parent as lower bound
+                times[child] = times[parent];
+                distances[child] = distances[parent];
+                lastEdges[child] = EdgeIterator.NO_EDGE;
+                continue;
+            }
+            unpackedTime = 0;
+            unpackedDistance = 0;
+            firstEdge = EdgeIterator.NO_EDGE;
+            lastEdge = EdgeIterator.NO_EDGE;
+            // we unpack the edge in the direction we are actually travelling
+            unpacker.visitOriginalEdgesFwd(parentEdges[child], reverseFlow ? parent : child, false, EdgeIterator.NO_EDGE);
+            times[child] = times[parent] + unpackedTime;
+            distances[child] = distances[parent] + unpackedDistance;
+            lastEdges[child] = reverseFlow ? firstEdge : lastEdge;
+        }
+    }
+
+    private double getExploreValue(int node) {
+        if (exploreType == TIME)
+            return times[node];
+        if (exploreType == WEIGHT)
+            return weights[node];
+        return distances[node];
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    /**
+     * @return the weight of every node after {@link #search} was called, unreachable nodes have an infinite weight
+     */
+    public double[] getWeights() {
+        return weights;
+    }
+}
@@ -49,7 +49,7 @@ import static java.util.Comparator.comparingDouble;
  * @author Peter Karich
  * @author Michael Zilske
  */
-public class ShortestPathTree extends AbstractRoutingAlgorithm {
+public class ShortestPathTree extends AbstractRoutingAlgorithm implements ShortestPathTreeSearch {
 
     enum ExploreType {TIME, DISTANCE, WEIGHT}
 
@@ -138,6 +138,7 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
             consumer.accept(currentLabel);
             currentLabel.deleted = true;
             visitedNodes++;
+            cancellation.check(visitedNodes);
 
             EdgeIterator iter = edgeExplorer.setBaseNode(currentLabel.node);
             while (iter.next()) {
@@ -0,0 +1,50 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.graphhopper.util.CancellationToken;
+
+import java.util.function.Consumer;
+
+/**
+ * Calculates a shortest path tree up to a time, distance or weight limit, either with a Dijkstra, see
+ * {@link ShortestPathTree}, or with PHAST on a CH graph, see {@link PhastShortestPathTree}.
+ */
+public interface ShortestPathTreeSearch {
+
+    /**
+     * Time limit in milliseconds
+     */
+    void setTimeLimit(double limit);
+
+    /**
+     * Distance limit in meter
+     */
+    void setDistanceLimit(double limit);
+
+    void setWeightLimit(double limit);
+
+    void setCancellation(CancellationToken cancellation);
+
+    /**
+     * Passes every node within the limit to the consumer.
+     */
+    void search(int from, Consumer<ShortestPathTree.IsoLabel> consumer);
+
+    int getVisitedNodes();
+}
@@ -37,7 +37,7 @@ public abstract class ReaderElement {
     private final Map<String, Object> properties;
 
     protected ReaderElement(long id, int type) {
-        this(id, type, new HashMap<>(4));
+        this(id, type, new TagMap());
     }
 
     protected ReaderElement(long id, int type, Map<String, Object> properties) {
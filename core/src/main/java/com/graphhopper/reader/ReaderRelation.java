@@ -19,8 +19,8 @@ package com.graphhopper.reader;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents a relation received from the reader.
@@ -32,7 +32,11 @@ public class ReaderRelation extends ReaderElement {
     protected List<Member> members;
 
     public ReaderRelation(long id) {
-        super(id, RELATION, new HashMap<>(2));
+        super(id, RELATION);
+    }
+
+    public ReaderRelation(long id, Map<String, Object> tags) {
+        super(id, RELATION, tags);
     }
 
     @Override
@@ -0,0 +1,238 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader;
+
+import java.util.*;
+
+/**
+ * A compact map for the tags of an OSM element. Keys and values are stored alternating in a single array that is
+ * searched linearly, which is faster than hashing for the few tags an element usually has and avoids the entry
+ * objects of a HashMap. Elements without tags do not allocate the array at all. The iteration order is the insertion
+ * order.
+ * <p>
+ * The keys are usually taken from the string table of the PBF block they were read from, so comparing references
+ * first is a cheap shortcut before calling equals.
+ */
+public final class TagMap extends AbstractMap<String, Object> {
+    private static final Object[] EMPTY = new Object[0];
+    private Object[] keyValues = EMPTY;
+    private int size;
+
+    public TagMap() {
+    }
+
+    public TagMap(int expectedSize) {
+        if (expectedSize > 0)
+            keyValues = new Object[2 * expectedSize];
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < 2 * size; i += 2) {
+            if (keyValues[i] == key)
+                return i;
+        }
+        if (key == null)
+            return -1;
+        for (int i = 0; i < 2 * size; i += 2) {
+            if (key.equals(keyValues[i]))
+                return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : keyValues[index + 1];
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        if (key == null)
+            throw new NullPointerException("Tag keys must not be null");
+        int index = indexOf(key);
+        if (index >= 0) {
+            Object old = keyValues[index + 1];
+            keyValues[index + 1] = value;
+            return old;
+        }
+        if (2 * size == keyValues.length)
+            keyValues = Arrays.copyOf(keyValues, Math.max(8, 2 * keyValues.length));
+        keyValues[2 * size] = key;
+        keyValues[2 * size + 1] = value;
+        size++;
+        return null;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int index = indexOf(key);
+        if (index < 0)
+            return null;
+        Object old = keyValues[index + 1];
+        removeAt(index);
+        return old;
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(keyValues, index + 2, keyValues, index, 2 * size - index - 2);
+        size--;
+        keyValues[2 * size] = null;
+        keyValues[2 * size + 1] = null;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keyValues, 0, 2 * size, null);
+        size = 0;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new TagIterator<Entry<String, Object>>() {
+                    @Override
+                    Entry<String, Object> get(int index) {
+                        return new TagEntry(index);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<String> keySet() {
+        // avoids creating an entry per key, e.g. for ReaderElement.getKeysWithPrefix
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new TagIterator<String>() {
+                    @Override
+                    String get(int index) {
+                        return (String) keyValues[index];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+        };
+    }
+
+    private abstract class TagIterator<T> implements Iterator<T> {
+        int next = 0;
+        int last = -1;
+
+        abstract T get(int index);
+
+        @Override
+        public boolean hasNext() {
+            return next < 2 * size;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            last = next;
+            next += 2;
+            return get(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0)
+                throw new IllegalStateException();
+            removeAt(last);
+            next = last;
+            last = -1;
+        }
+    }
+
+    private class TagEntry implements Entry<String, Object> {
+        private final int index;
+
+        TagEntry(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return (String) keyValues[index];
+        }
+
+        @Override
+        public Object getValue() {
+            return keyValues[index + 1];
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object old = keyValues[index + 1];
+            keyValues[index + 1] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry))
+                return false;
+            Entry<?, ?> e = (Entry<?, ?>) o;
+            return Objects.equals(getKey(), e.getKey()) && Objects.equals(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -39,8 +39,9 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
     private final int MAX_LAT;
     private final int WIDTH_BYTE_INDEX = 0;
     private final int DEGREE = 1;
-    // use a map as an array is not quite useful if we want to hold only parts of the world
-    private final GHIntObjectHashMap<HeightTile> cacheData = new GHIntObjectHashMap<>();
+    // use a map as an array is not quite useful if we want to hold only parts of the world. The map is replaced when a
+    // tile is added, so it can be read without locking.
+    private volatile GHIntObjectHashMap<HeightTile> cacheData = new GHIntObjectHashMap<>();
     private final double precision = 1e7;
     private final double invPrecision = 1 / precision;
 
@@ -60,8 +61,8 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
     }
 
     @Override
-    public void release() {
-        cacheData.clear();
+    public synchronized void release() {
+        cacheData = new GHIntObjectHashMap<>();
         if (dir != null) {
             // for memory mapped type we remove temporary files
             if (autoRemoveTemporary)
@@ -90,53 +91,76 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
         int intKey = calcIntKey(lat, lon);
         HeightTile demProvider = cacheData.get(intKey);
         if (demProvider == null) {
-            if (!cacheDir.exists())
-                cacheDir.mkdirs();
+            demProvider = loadTile(lat, lon, intKey);
+            if (demProvider == null)
+                return 0;
+        }
 
-            int minLat = down(lat);
-            int minLon = down(lon);
+        if (demProvider.isSeaLevel())
+            return 0;
 
-            String fileName = getFileName(lat, lon);
-            if (fileName == null)
-                return 0;
+        return demProvider.getHeight(lat, lon);
+    }
 
-            DataAccess heights = getDirectory().create("dem" + intKey);
-            boolean loadExisting = false;
-            try {
-                loadExisting = heights.loadExisting();
-            } catch (Exception ex) {
-                logger.warn("cannot load dem" + intKey + ", error:" + ex.getMessage());
-            }
+    /**
+     * Loads the tile for the specified coordinates. Only one tile is loaded at a time, while getEle can be called
+     * concurrently for the tiles that were already loaded.
+     *
+     * @return the tile or null if there is no file for these coordinates
+     */
+    private synchronized HeightTile loadTile(double lat, double lon, int intKey) {
+        HeightTile demProvider = cacheData.get(intKey);
+        if (demProvider != null)
+            return demProvider;
 
-            if (!loadExisting) {
-                try {
-                    updateHeightsFromFile(lat, lon, heights);
-                } catch (FileNotFoundException ex) {
-                    demProvider = new HeightTile(minLat, minLon, DEFAULT_WIDTH, DEFAULT_WIDTH, precision, DEGREE, DEGREE);
-                    cacheData.put(intKey, demProvider);
-                    demProvider.setHeights(heights);
-                    demProvider.setSeaLevel(true);
-                    // use small size on disc and in-memory
-                    heights.create(10)
-                            .flush();
-                    return 0;
-                }
-            }
+        if (!cacheDir.exists())
+            cacheDir.mkdirs();
 
-            int width = (int) (Math.sqrt(heights.getHeader(WIDTH_BYTE_INDEX)) + 0.5);
-            if (width == 0)
-                width = DEFAULT_WIDTH;
+        int minLat = down(lat);
+        int minLon = down(lon);
 
-            demProvider = new HeightTile(minLat, minLon, width, width, precision, DEGREE, DEGREE);
-            cacheData.put(intKey, demProvider);
-            demProvider.setInterpolate(interpolate);
-            demProvider.setHeights(heights);
+        String fileName = getFileName(lat, lon);
+        if (fileName == null)
+            return null;
+
+        DataAccess heights = getDirectory().create("dem" + intKey);
+        boolean loadExisting = false;
+        try {
+            loadExisting = heights.loadExisting();
+        } catch (Exception ex) {
+            logger.warn("cannot load dem" + intKey + ", error:" + ex.getMessage());
         }
 
-        if (demProvider.isSeaLevel())
-            return 0;
+        if (!loadExisting) {
+            try {
+                updateHeightsFromFile(lat, lon, heights);
+            } catch (FileNotFoundException ex) {
+                demProvider = new HeightTile(minLat, minLon, DEFAULT_WIDTH, DEFAULT_WIDTH, precision, DEGREE, DEGREE);
+                demProvider.setHeights(heights);
+                demProvider.setSeaLevel(true);
+                // use small size on disc and in-memory
+                heights.create(10)
+                        .flush();
+                return addTile(intKey, demProvider);
+            }
+        }
 
-        return demProvider.getHeight(lat, lon);
+        int width = (int) (Math.sqrt(heights.getHeader(WIDTH_BYTE_INDEX)) + 0.5);
+        if (width == 0)
+            width = DEFAULT_WIDTH;
+
+        demProvider = new HeightTile(minLat, minLon, width, width, precision, DEGREE, DEGREE);
+        demProvider.setInterpolate(interpolate);
+        demProvider.setHeights(heights);
+        return addTile(intKey, demProvider);
+    }
+
+    private HeightTile addTile(int intKey, HeightTile demProvider) {
+        GHIntObjectHashMap<HeightTile> copy = new GHIntObjectHashMap<>(cacheData.size() + 1);
+        copy.putAll(cacheData);
+        copy.put(intKey, demProvider);
+        cacheData = copy;
+        return demProvider;
     }
 
     private void updateHeightsFromFile(double lat, double lon, DataAccess heights) throws FileNotFoundException {
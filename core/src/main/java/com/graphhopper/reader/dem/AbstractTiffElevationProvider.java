@@ -33,7 +33,8 @@ import java.util.Map;
  * @author Robin Boldt
  */
 public abstract class AbstractTiffElevationProvider extends TileBasedElevationProvider {
-    private final Map<String, HeightTile> cacheData = new HashMap<>();
+    // the map is replaced when a tile is added, so it can be read without locking
+    private volatile Map<String, HeightTile> cacheData = new HashMap<>();
     final double precision = 1e7;
 
     private final int WIDTH;
@@ -55,8 +56,8 @@ public abstract class AbstractTiffElevationProvider extends TileBasedElevationPr
     }
 
     @Override
-    public void release() {
-        cacheData.clear();
+    public synchronized void release() {
+        cacheData = new HashMap<>();
         if (dir != null) {
             // for memory mapped type we remove temporary files
             if (autoRemoveTemporary)
@@ -106,52 +107,70 @@ public abstract class AbstractTiffElevationProvider extends TileBasedElevationPr
         lon = (int) (lon * precision) / precision;
         String name = getFileName(lat, lon);
         HeightTile demProvider = cacheData.get(name);
-        if (demProvider == null) {
-            if (!cacheDir.exists())
-                cacheDir.mkdirs();
-
-            int minLat = getMinLatForTile(lat);
-            int minLon = getMinLonForTile(lon);
-            // less restrictive against boundary checking
-            demProvider = new HeightTile(minLat, minLon, WIDTH, HEIGHT, LON_DEGREE * precision, LON_DEGREE, LAT_DEGREE);
-            demProvider.setInterpolate(interpolate);
-
-            cacheData.put(name, demProvider);
-            DataAccess heights = getDirectory().create(name + ".gh");
-            demProvider.setHeights(heights);
-            boolean loadExisting = false;
-            try {
-                loadExisting = heights.loadExisting();
-            } catch (Exception ex) {
-                logger.warn("cannot load " + name + ", error: " + ex.getMessage());
-            }
+        if (demProvider == null)
+            demProvider = loadTile(lat, lon, name);
 
-            if (!loadExisting) {
-                String zippedURL = getDownloadURL(lat, lon);
-                File file = new File(cacheDir, new File(getFileNameOfLocalFile(lat, lon)).getName());
+        if (demProvider.isSeaLevel())
+            return 0;
 
-                try {
-                    downloadFile(file, zippedURL);
-                } catch (IOException e) {
-                    demProvider.setSeaLevel(true);
-                    // use small size on disc and in-memory
-                    heights.create(10).flush();
-                    return 0;
-                }
+        return demProvider.getHeight(lat, lon);
+    }
+
+    /**
+     * Loads the tile for the specified coordinates. Only one tile is loaded at a time, while getEle can be called
+     * concurrently for the tiles that were already loaded.
+     */
+    private synchronized HeightTile loadTile(double lat, double lon, String name) {
+        HeightTile demProvider = cacheData.get(name);
+        if (demProvider != null)
+            return demProvider;
 
-                // short == 2 bytes
-                heights.create(2 * WIDTH * HEIGHT);
+        if (!cacheDir.exists())
+            cacheDir.mkdirs();
 
-                Raster raster = generateRasterFromFile(file, name + ".tif");
-                fillDataAccessWithElevationData(raster, heights, WIDTH);
+        int minLat = getMinLatForTile(lat);
+        int minLon = getMinLonForTile(lon);
+        // less restrictive against boundary checking
+        demProvider = new HeightTile(minLat, minLon, WIDTH, HEIGHT, LON_DEGREE * precision, LON_DEGREE, LAT_DEGREE);
+        demProvider.setInterpolate(interpolate);
 
-            } // loadExisting
+        DataAccess heights = getDirectory().create(name + ".gh");
+        demProvider.setHeights(heights);
+        boolean loadExisting = false;
+        try {
+            loadExisting = heights.loadExisting();
+        } catch (Exception ex) {
+            logger.warn("cannot load " + name + ", error: " + ex.getMessage());
         }
 
-        if (demProvider.isSeaLevel())
-            return 0;
+        if (!loadExisting) {
+            String zippedURL = getDownloadURL(lat, lon);
+            File file = new File(cacheDir, new File(getFileNameOfLocalFile(lat, lon)).getName());
 
-        return demProvider.getHeight(lat, lon);
+            try {
+                downloadFile(file, zippedURL);
+            } catch (IOException e) {
+                demProvider.setSeaLevel(true);
+                // use small size on disc and in-memory
+                heights.create(10).flush();
+                return addTile(name, demProvider);
+            }
+
+            // short == 2 bytes
+            heights.create(2 * WIDTH * HEIGHT);
+
+            Raster raster = generateRasterFromFile(file, name + ".tif");
+            fillDataAccessWithElevationData(raster, heights, WIDTH);
+
+        } // loadExisting
+        return addTile(name, demProvider);
+    }
+
+    private HeightTile addTile(String name, HeightTile demProvider) {
+        Map<String, HeightTile> copy = new HashMap<>(cacheData);
+        copy.put(name, demProvider);
+        cacheData = copy;
+        return demProvider;
     }
 
     abstract Raster generateRasterFromFile(File file, String tifName);
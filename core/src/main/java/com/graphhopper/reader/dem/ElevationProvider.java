@@ -20,6 +20,9 @@ package com.graphhopper.reader.dem;
 import com.graphhopper.reader.ReaderNode;
 
 /**
+ * Looks up the elevation of coordinates. Implementations only need to be thread-safe if the elevation is calculated
+ * with more than one thread, see OSMReaderConfig.setElevationThreads. All implementations of this package are.
+ *
  * @author Peter Karich
  */
 public interface ElevationProvider {
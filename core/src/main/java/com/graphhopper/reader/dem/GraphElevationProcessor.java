@@ -0,0 +1,156 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.graphhopper.util.Helper.nf;
+
+/**
+ * Sets the elevation of the pillar nodes of all edges after the graph was read and updates the edge distances. The
+ * tower nodes must already have their elevation. The elevation lookup, the smoothing and the sampling of long edges
+ * are done by several threads, which is where most of the time is spent, especially with bilinear interpolation. The
+ * threads only call the elevation provider and work on copies of the geometries, all changes to the graph are done by
+ * the calling thread in the order of the edge ids. So the result does not depend on the number of threads.
+ * <p>
+ * The elevation provider must be thread-safe if more than one thread is used.
+ */
+public class GraphElevationProcessor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GraphElevationProcessor.class);
+    private static final int CHUNK_SIZE = 10_000;
+    private static final double MAX_DISTANCE = (Integer.MAX_VALUE - 1) / 1000d;
+    private final BaseGraph graph;
+    private final ElevationProvider eleProvider;
+    private final DistanceCalc distCalc = DistanceCalcEarth.DIST_EARTH;
+    private boolean smoothElevation;
+    private double longEdgeSamplingDistance = Double.MAX_VALUE;
+    private DouglasPeucker simplifyAlgo;
+
+    public GraphElevationProcessor(BaseGraph graph, ElevationProvider eleProvider) {
+        if (!graph.getNodeAccess().is3D())
+            throw new IllegalArgumentException("Graph must support elevation");
+        this.graph = graph;
+        this.eleProvider = eleProvider;
+    }
+
+    public GraphElevationProcessor setSmoothElevation(boolean smoothElevation) {
+        this.smoothElevation = smoothElevation;
+        return this;
+    }
+
+    public GraphElevationProcessor setLongEdgeSamplingDistance(double longEdgeSamplingDistance) {
+        this.longEdgeSamplingDistance = longEdgeSamplingDistance;
+        return this;
+    }
+
+    /**
+     * Simplifies the geometries after the elevation was set, e.g. when the simplification should consider the
+     * elevation. By default the geometries are not simplified.
+     */
+    public GraphElevationProcessor setSimplifyAlgo(DouglasPeucker simplifyAlgo) {
+        this.simplifyAlgo = simplifyAlgo;
+        return this;
+    }
+
+    public void process(int threads) {
+        StopWatch sw = new StopWatch().start();
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            processEdges(executorService, 2 * threads);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+        LOGGER.info("Set elevation of " + nf(graph.getEdges()) + " edges with " + threads + " threads, took: "
+                + sw.stop().getSeconds() + "s");
+    }
+
+    private void processEdges(ExecutorService executorService, int maxPending) throws InterruptedException, ExecutionException {
+        Queue<Future<EdgeChunk>> pending = new ArrayDeque<>();
+        for (int start = 0; start < graph.getEdges(); start += CHUNK_SIZE) {
+            int end = Math.min(graph.getEdges(), start + CHUNK_SIZE);
+            EdgeChunk chunk = new EdgeChunk(start);
+            for (int edge = start; edge < end; edge++)
+                chunk.pointLists.add(graph.getEdgeIteratorState(edge, Integer.MIN_VALUE).fetchWayGeometry(FetchMode.ALL));
+            pending.add(executorService.submit(() -> {
+                for (int i = 0; i < chunk.pointLists.size(); i++)
+                    chunk.pointLists.set(i, processGeometry(chunk.pointLists.get(i)));
+                return chunk;
+            }));
+            if (pending.size() >= maxPending)
+                applyEdges(pending.poll().get());
+        }
+        while (!pending.isEmpty())
+            applyEdges(pending.poll().get());
+    }
+
+    private PointList processGeometry(PointList pointList) {
+        // the tower nodes already have their elevation
+        for (int i = 1; i < pointList.size() - 1; i++)
+            pointList.setElevation(i, eleProvider.getEle(pointList.getLat(i), pointList.getLon(i)));
+
+        // Smooth the elevation before calculating the distance because the distance will be incorrect if calculated afterwards
+        if (smoothElevation)
+            GraphElevationSmoothing.smoothElevation(pointList);
+
+        if (longEdgeSamplingDistance < Double.MAX_VALUE)
+            pointList = EdgeSampling.sample(pointList, longEdgeSamplingDistance, distCalc, eleProvider);
+
+        if (simplifyAlgo != null && pointList.size() > 2)
+            simplifyAlgo.simplify(pointList);
+        return pointList;
+    }
+
+    private void applyEdges(EdgeChunk chunk) {
+        for (int i = 0; i < chunk.pointLists.size(); i++) {
+            PointList pointList = chunk.pointLists.get(i);
+            EdgeIteratorState edge = graph.getEdgeIteratorState(chunk.start + i, Integer.MIN_VALUE);
+            // same bounds as for the distance calculated while reading the OSM file
+            double distance = distCalc.calcDistance(pointList);
+            if (distance < 0.001 || Double.isNaN(distance))
+                distance = Double.isNaN(distance) ? 1 : 0.001;
+            edge.setDistance(Math.min(distance, MAX_DISTANCE));
+            edge.setWayGeometry(pointList.size() > 2 ? pointList.shallowCopy(1, pointList.size() - 1, false) : null);
+        }
+    }
+
+    private static class EdgeChunk {
+        final int start;
+        final List<PointList> pointLists = new ArrayList<>(CHUNK_SIZE);
+
+        EdgeChunk(int start) {
+            this.start = start;
+        }
+    }
+}
@@ -28,7 +28,8 @@ import java.io.File;
 import java.io.IOException;
 
 /**
- * Provides basic methods that are usually used in an ElevationProvider using tiles from files.
+ * Provides basic methods that are usually used in an ElevationProvider using tiles from files. The tiles are loaded
+ * one at a time, but getEle can be called concurrently, see {@link GraphElevationProcessor}.
  *
  * @author Robin Boldt
  */
@@ -204,6 +204,13 @@ class OSMNodeData {
         return addTowerNode(osmNodeId, lat, lon, ele);
     }
 
+    void setTowerNodeElevation(int id, double ele) {
+        if (!isTowerNode(id))
+            throw new IllegalArgumentException("Not a tower node: " + id);
+        int tower = idToTowerNode(id);
+        towerNodes.setNode(tower, towerNodes.getLat(tower), towerNodes.getLon(tower), ele);
+    }
+
     public GHPoint3D getCoordinates(int id) {
         if (isTowerNode(id)) {
             int tower = idToTowerNode(id);
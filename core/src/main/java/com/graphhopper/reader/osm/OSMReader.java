@@ -23,9 +23,8 @@ import com.graphhopper.coll.GHIntLongHashMap;
 import com.graphhopper.coll.GHLongHashSet;
 import com.graphhopper.coll.GHLongLongHashMap;
 import com.graphhopper.reader.*;
-import com.graphhopper.reader.dem.EdgeSampling;
 import com.graphhopper.reader.dem.ElevationProvider;
-import com.graphhopper.reader.dem.GraphElevationSmoothing;
+import com.graphhopper.reader.dem.GraphElevationProcessor;
 import com.graphhopper.routing.OSMReaderConfig;
 import com.graphhopper.routing.ev.Country;
 import com.graphhopper.routing.util.AreaIndex;
@@ -151,6 +150,7 @@ public class OSMReader {
         WaySegmentParser waySegmentParser = new WaySegmentParser.Builder(baseGraph.getNodeAccess())
                 .setDirectory(baseGraph.getDirectory())
                 .setElevationProvider(eleProvider)
+                .setSkipPillarElevation(isProcessElevation())
                 .setWayFilter(this::acceptWay)
                 .setSplitNodeFilter(this::isBarrierNode)
                 .setWayPreprocessor(this::preprocessWay)
@@ -165,9 +165,33 @@ public class OSMReader {
             throw new RuntimeException("Graph after reading OSM must not be empty");
         LOGGER.info("Finished reading OSM file: {}, nodes: {}, edges: {}, zero distance edges: {}",
                 osmFile.getAbsolutePath(), nf(baseGraph.getNodes()), nf(baseGraph.getEdges()), nf(zeroCounter));
+        if (isProcessElevation())
+            new GraphElevationProcessor(baseGraph, eleProvider).
+                    setSmoothElevation(config.isSmoothElevation()).
+                    setLongEdgeSamplingDistance(config.getLongEdgeSamplingDistance()).
+                    setSimplifyAlgo(isSimplifyAfterElevation() ? simplifyAlgo : null).
+                    process(config.getElevationThreads());
         finishedReading();
     }
 
+    /**
+     * The elevation of the pillar nodes is not looked up while reading the OSM file, but afterwards for all edges in
+     * parallel, see {@link GraphElevationProcessor}. Until then their elevation is zero and the edge distances are 2D.
+     * The tower nodes get their elevation right away, because it is used in {@link TagParserManager#applyWayTags}.
+     */
+    private boolean isProcessElevation() {
+        return nodeAccess.is3D() && eleProvider != ElevationProvider.NOOP;
+    }
+
+    /**
+     * If the simplification considers the elevation, or if the elevation is smoothed or sampled along long edges, the
+     * geometries are simplified after these steps once the elevation is known.
+     */
+    private boolean isSimplifyAfterElevation() {
+        return config.getMaxWayPointDistance() > 0 && (config.getElevationMaxWayPointDistance() < Double.MAX_VALUE
+                || config.isSmoothElevation() || config.getLongEdgeSamplingDistance() < Double.MAX_VALUE);
+    }
+
     /**
      * @return the timestamp given in the OSM file header or null if not found
      */
@@ -282,23 +306,12 @@ public class OSMReader {
         if (pointList.getDimension() != nodeAccess.getDimension())
             throw new AssertionError("Dimension does not match for pointList vs. nodeAccess " + pointList.getDimension() + " <-> " + nodeAccess.getDimension());
 
-        // todo: in principle it should be possible to delay elevation calculation so we do not need to store
-        // elevations during import (saves memory in pillar info during import). also note that we already need to
-        // to do some kind of elevation processing (bridge+tunnel interpolation in GraphHopper class, maybe this can
-        // go together
-
-        // Smooth the elevation before calculating the distance because the distance will be incorrect if calculated afterwards
-        if (config.isSmoothElevation())
-            GraphElevationSmoothing.smoothElevation(pointList);
-
-        // sample points along long edges
-        if (config.getLongEdgeSamplingDistance() < Double.MAX_VALUE && pointList.is3D())
-            pointList = EdgeSampling.sample(pointList, config.getLongEdgeSamplingDistance(), distCalc, eleProvider);
-
-        if (config.getMaxWayPointDistance() > 0 && pointList.size() > 2)
+        // the elevation of the pillar nodes is not known yet, it is set together with the smoothing and long edge
+        // sampling later, see isProcessElevation. The distance is updated then as well.
+        if (config.getMaxWayPointDistance() > 0 && pointList.size() > 2 && !(isProcessElevation() && isSimplifyAfterElevation()))
             simplifyAlgo.simplify(pointList);
 
-        double distance = distCalc.calcDistance(pointList);
+        double distance = isProcessElevation() ? calcDistance2D(pointList) : distCalc.calcDistance(pointList);
 
         if (distance < 0.001) {
             // As investigation shows often two paths should have crossed via one identical point
@@ -340,7 +353,8 @@ public class OSMReader {
         }
         tagParserManager.applyWayTags(way, edge);
 
-        checkDistance(edge);
+        if (!isProcessElevation())
+            checkDistance(edge);
         if (osmWayIdSet.contains(way.getId())) {
             getEdgeIdToOsmWayIdMap().put(edge.getEdge(), way.getId());
         }
@@ -352,6 +366,13 @@ public class OSMReader {
             throw new IllegalStateException("Suspicious coordinates for node " + nodeIndex + ": (" + nodeAccess.getLat(nodeIndex) + "," + nodeAccess.getLon(nodeIndex) + ") vs. (" + point + ")");
     }
 
+    private double calcDistance2D(PointList pointList) {
+        double distance = 0;
+        for (int i = 1; i < pointList.size(); i++)
+            distance += distCalc.calcDist(pointList.getLat(i - 1), pointList.getLon(i - 1), pointList.getLat(i), pointList.getLon(i));
+        return distance;
+    }
+
     private void checkDistance(EdgeIteratorState edge) {
         final double tolerance = 1;
         final double edgeDistance = edge.getDistance();
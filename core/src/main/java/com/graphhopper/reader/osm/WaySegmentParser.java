@@ -70,6 +70,7 @@ public class WaySegmentParser {
     private static final Logger LOGGER = LoggerFactory.getLogger(WaySegmentParser.class);
 
     private final ElevationProvider eleProvider;
+    private final boolean skipPillarElevation;
     private final Predicate<ReaderWay> wayFilter;
     private final Predicate<ReaderNode> splitNodeFilter;
     private final WayPreprocessor wayPreprocessor;
@@ -81,11 +82,12 @@ public class WaySegmentParser {
     private final OSMNodeData nodeData;
     private Date timestamp;
 
-    private WaySegmentParser(PointAccess nodeAccess, Directory directory, ElevationProvider eleProvider,
+    private WaySegmentParser(PointAccess nodeAccess, Directory directory, ElevationProvider eleProvider, boolean skipPillarElevation,
                              Predicate<ReaderWay> wayFilter, Predicate<ReaderNode> splitNodeFilter, WayPreprocessor wayPreprocessor,
                              Consumer<ReaderRelation> relationPreprocessor, RelationProcessor relationProcessor,
                              EdgeHandler edgeHandler, int workerThreads) {
         this.eleProvider = eleProvider;
+        this.skipPillarElevation = skipPillarElevation;
         this.wayFilter = wayFilter;
         this.splitNodeFilter = splitNodeFilter;
         this.wayPreprocessor = wayPreprocessor;
@@ -218,7 +220,10 @@ public class WaySegmentParser {
                 LOGGER.info("pass2 - processed nodes: " + nf(nodeCounter) + ", accepted nodes: " + nf(acceptedNodes) +
                         ", " + Helper.getMemInfo());
 
-            int nodeType = nodeData.addCoordinatesIfMapped(node.getId(), node.getLat(), node.getLon(), eleProvider.getEle(node));
+            // the elevation of nodes that remain pillar nodes can be looked up later, barrier nodes become tower nodes
+            double ele = skipPillarElevation && nodeData.getId(node.getId()) == INTERMEDIATE_NODE && !splitNodeFilter.test(node)
+                    ? 0 : eleProvider.getEle(node);
+            int nodeType = nodeData.addCoordinatesIfMapped(node.getId(), node.getLat(), node.getLon(), ele);
             if (nodeType == EMPTY_NODE)
                 return;
 
@@ -350,6 +355,11 @@ public class WaySegmentParser {
                 if (isPillarNode(id) && (i == 0 || i == segment.size() - 1)) {
                     id = nodeData.convertPillarToTowerNode(id, node.osmNodeId);
                     node.id = id;
+                    if (skipPillarElevation) {
+                        // the elevation of pillar nodes is set after the import, but this one is a tower node now
+                        GHPoint3D point = nodeData.getCoordinates(id);
+                        nodeData.setTowerNodeElevation(id, eleProvider.getEle(point.getLat(), point.getLon()));
+                    }
                 }
 
                 if (i == 0)
@@ -410,6 +420,7 @@ public class WaySegmentParser {
         private final PointAccess nodeAccess;
         private Directory directory = new RAMDirectory();
         private ElevationProvider elevationProvider = ElevationProvider.NOOP;
+        private boolean skipPillarElevation = false;
         private Predicate<ReaderWay> wayFilter = way -> true;
         private Predicate<ReaderNode> splitNodeFilter = node -> false;
         private WayPreprocessor wayPreprocessor = (way, supplier) -> {
@@ -446,6 +457,16 @@ public class WaySegmentParser {
             return this;
         }
 
+        /**
+         * @param skipPillarElevation if true the elevation is only determined for OSM nodes that might become tower
+         *                            nodes. All other nodes get zero elevation and it needs to be set later, e.g. using
+         *                            {@link com.graphhopper.reader.dem.GraphElevationProcessor}
+         */
+        public Builder setSkipPillarElevation(boolean skipPillarElevation) {
+            this.skipPillarElevation = skipPillarElevation;
+            return this;
+        }
+
         /**
          * @param wayFilter return true for OSM ways that should be considered and false otherwise
          */
@@ -504,7 +525,7 @@ public class WaySegmentParser {
 
         public WaySegmentParser build() {
             return new WaySegmentParser(
-                    nodeAccess, directory, elevationProvider, wayFilter, splitNodeFilter, wayPreprocessor, relationPreprocessor, relationProcessor,
+                    nodeAccess, directory, elevationProvider, skipPillarElevation, wayFilter, splitNodeFilter, wayPreprocessor, relationPreprocessor, relationProcessor,
                     edgeHandler, workerThreads
             );
         }
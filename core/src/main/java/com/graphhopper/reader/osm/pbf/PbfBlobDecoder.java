@@ -1,12 +1,13 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package com.graphhopper.reader.osm.pbf;
 
-import com.carrotsearch.hppc.LongIndexedContainer;
+import com.carrotsearch.hppc.LongArrayList;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.graphhopper.reader.ReaderElement;
 import com.graphhopper.reader.ReaderNode;
 import com.graphhopper.reader.ReaderRelation;
 import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.reader.TagMap;
 import com.graphhopper.reader.osm.OSMFileHeader;
 import com.graphhopper.util.Helper;
 import org.openstreetmap.osmosis.osmbinary.Fileformat;
@@ -116,37 +117,26 @@ public class PbfBlobDecoder implements Runnable {
          */
     }
 
-    private Map<String, String> buildTags(List<Integer> keys, List<Integer> values, PbfFieldDecoder fieldDecoder) {
-
+    private void checkTagCount(int keys, int values) {
         // Ensure parallel lists are of equal size.
         if (checkData) {
-            if (keys.size() != values.size()) {
-                throw new RuntimeException("Number of tag keys (" + keys.size() + ") and tag values ("
-                        + values.size() + ") don't match");
+            if (keys != values) {
+                throw new RuntimeException("Number of tag keys (" + keys + ") and tag values ("
+                        + values + ") don't match");
             }
         }
-
-        Iterator<Integer> keyIterator = keys.iterator();
-        Iterator<Integer> valueIterator = values.iterator();
-        if (keyIterator.hasNext()) {
-            Map<String, String> tags = new HashMap<>(keys.size());
-            while (keyIterator.hasNext()) {
-                String key = fieldDecoder.decodeString(keyIterator.next());
-                String value = fieldDecoder.decodeString(valueIterator.next());
-                tags.put(key, value);
-            }
-            return tags;
-        }
-        return null;
     }
 
     private void processNodes(List<Osmformat.Node> nodes, PbfFieldDecoder fieldDecoder) {
         for (Osmformat.Node node : nodes) {
-            Map<String, String> tags = buildTags(node.getKeysList(), node.getValsList(), fieldDecoder);
+            checkTagCount(node.getKeysCount(), node.getValsCount());
+            TagMap tags = new TagMap(node.getKeysCount());
+            for (int i = 0; i < node.getKeysCount(); i++) {
+                tags.put(fieldDecoder.decodeKey(node.getKeys(i)), fieldDecoder.decodeString(node.getVals(i)));
+            }
 
             ReaderNode osmNode = new ReaderNode(node.getId(), fieldDecoder.decodeLatitude(node
-                    .getLat()), fieldDecoder.decodeLatitude(node.getLon()));
-            osmNode.setTags(tags);
+                    .getLat()), fieldDecoder.decodeLatitude(node.getLon()), tags);
 
             // Add the bound object to the results.
             decodedEntities.add(osmNode);
@@ -154,19 +144,19 @@ public class PbfBlobDecoder implements Runnable {
     }
 
     private void processNodes(Osmformat.DenseNodes nodes, PbfFieldDecoder fieldDecoder) {
-        List<Long> idList = nodes.getIdList();
-        List<Long> latList = nodes.getLatList();
-        List<Long> lonList = nodes.getLonList();
+        int nodeCount = nodes.getIdCount();
 
         // Ensure parallel lists are of equal size.
         if (checkData) {
-            if ((idList.size() != latList.size()) || (idList.size() != lonList.size())) {
-                throw new RuntimeException("Number of ids (" + idList.size() + "), latitudes (" + latList.size()
-                        + "), and longitudes (" + lonList.size() + ") don't match");
+            if ((nodeCount != nodes.getLatCount()) || (nodeCount != nodes.getLonCount())) {
+                throw new RuntimeException("Number of ids (" + nodeCount + "), latitudes (" + nodes.getLatCount()
+                        + "), and longitudes (" + nodes.getLonCount() + ") don't match");
             }
         }
 
-        Iterator<Integer> keysValuesIterator = nodes.getKeysValsList().iterator();
+        // the indexed getters avoid boxing every id, coordinate and string index
+        int keysValsCount = nodes.getKeysValsCount();
+        int keysValsIndex = 0;
 
         /*
          Osmformat.DenseInfo denseInfo;
@@ -183,11 +173,11 @@ public class PbfBlobDecoder implements Runnable {
 //		int userSid = 0;
 //		long timestamp = 0;
 //		long changesetId = 0;
-        for (int i = 0; i < idList.size(); i++) {
+        for (int i = 0; i < nodeCount; i++) {
             // Delta decode node fields.
-            nodeId += idList.get(i);
-            latitude += latList.get(i);
-            longitude += lonList.get(i);
+            nodeId += nodes.getId(i);
+            latitude += nodes.getLat(i);
+            longitude += nodes.getLon(i);
 
             /*
              if (denseInfo != null) {
@@ -215,30 +205,24 @@ public class PbfBlobDecoder implements Runnable {
             // Build the tags. The key and value string indexes are sequential
             // in the same PBF array. Each set of tags is delimited by an index
             // with a value of 0.
-            Map<String, String> tags = null;
-            while (keysValuesIterator.hasNext()) {
-                int keyIndex = keysValuesIterator.next();
+            // Most nodes have no tags and the TagMap does not allocate its array until the first tag is added.
+            TagMap tags = new TagMap();
+            while (keysValsIndex < keysValsCount) {
+                int keyIndex = nodes.getKeysVals(keysValsIndex++);
                 if (keyIndex == 0) {
                     break;
                 }
                 if (checkData) {
-                    if (!keysValuesIterator.hasNext()) {
+                    if (keysValsIndex >= keysValsCount) {
                         throw new RuntimeException(
                                 "The PBF DenseInfo keys/values list contains a key with no corresponding value.");
                     }
                 }
-                int valueIndex = keysValuesIterator.next();
-
-                if (tags == null) {
-                    // divide by 2 as key&value, multiple by 2 because of the better approximation
-                    tags = new HashMap<>(Math.max(3, 2 * (nodes.getKeysValsList().size() / 2) / idList.size()));
-                }
-
-                tags.put(fieldDecoder.decodeString(keyIndex), fieldDecoder.decodeString(valueIndex));
+                int valueIndex = nodes.getKeysVals(keysValsIndex++);
+                tags.put(fieldDecoder.decodeKey(keyIndex), fieldDecoder.decodeString(valueIndex));
             }
 
-            ReaderNode node = new ReaderNode(nodeId, fieldDecoder.decodeLatitude(latitude), fieldDecoder.decodeLongitude(longitude));
-            node.setTags(tags);
+            ReaderNode node = new ReaderNode(nodeId, fieldDecoder.decodeLatitude(latitude), fieldDecoder.decodeLongitude(longitude), tags);
 
             // Add the bound object to the results.
             decodedEntities.add(node);
@@ -247,17 +231,21 @@ public class PbfBlobDecoder implements Runnable {
 
     private void processWays(List<Osmformat.Way> ways, PbfFieldDecoder fieldDecoder) {
         for (Osmformat.Way way : ways) {
-            Map<String, String> tags = buildTags(way.getKeysList(), way.getValsList(), fieldDecoder);
-            ReaderWay osmWay = new ReaderWay(way.getId());
-            osmWay.setTags(tags);
+            checkTagCount(way.getKeysCount(), way.getValsCount());
+            TagMap tags = new TagMap(way.getKeysCount());
+            for (int i = 0; i < way.getKeysCount(); i++) {
+                tags.put(fieldDecoder.decodeKey(way.getKeys(i)), fieldDecoder.decodeString(way.getVals(i)));
+            }
+            ReaderWay osmWay = new ReaderWay(way.getId(), tags);
 
             // Build up the list of way nodes for the way. The node ids are
             // delta encoded meaning that each id is stored as a delta against
             // the previous one.
             long nodeId = 0;
-            LongIndexedContainer wayNodes = osmWay.getNodes();
-            for (long nodeIdOffset : way.getRefsList()) {
-                nodeId += nodeIdOffset;
+            LongArrayList wayNodes = osmWay.getNodes();
+            wayNodes.ensureCapacity(way.getRefsCount());
+            for (int i = 0; i < way.getRefsCount(); i++) {
+                nodeId += way.getRefs(i);
                 wayNodes.add(nodeId);
             }
 
@@ -308,10 +296,13 @@ public class PbfBlobDecoder implements Runnable {
 
     private void processRelations(List<Osmformat.Relation> relations, PbfFieldDecoder fieldDecoder) {
         for (Osmformat.Relation relation : relations) {
-            Map<String, String> tags = buildTags(relation.getKeysList(), relation.getValsList(), fieldDecoder);
+            checkTagCount(relation.getKeysCount(), relation.getValsCount());
+            TagMap tags = new TagMap(relation.getKeysCount());
+            for (int i = 0; i < relation.getKeysCount(); i++) {
+                tags.put(fieldDecoder.decodeKey(relation.getKeys(i)), fieldDecoder.decodeString(relation.getVals(i)));
+            }
 
-            ReaderRelation osmRelation = new ReaderRelation(relation.getId());
-            osmRelation.setTags(tags);
+            ReaderRelation osmRelation = new ReaderRelation(relation.getId(), tags);
 
             buildRelationMembers(osmRelation, relation.getMemidsList(), relation.getRolesSidList(),
                     relation.getTypesList(), fieldDecoder);
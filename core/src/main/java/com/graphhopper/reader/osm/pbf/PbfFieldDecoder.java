@@ -15,6 +15,7 @@ import java.util.Date;
 public class PbfFieldDecoder {
     private static final double COORDINATE_SCALING_FACTOR = 0.000000001;
     private String[] strings;
+    private String[] keys;
     private int coordGranularity;
     private long coordLatitudeOffset;
     private long coordLongitudeOffset;
@@ -37,6 +38,7 @@ public class PbfFieldDecoder {
         for (int i = 0; i < strings.length; i++) {
             strings[i] = stringTable.getS(i).toStringUtf8();
         }
+        keys = new String[strings.length];
     }
 
     /**
@@ -82,4 +84,16 @@ public class PbfFieldDecoder {
     public String decodeString(int rawString) {
         return strings[rawString];
     }
+
+    /**
+     * Decodes a raw string that is used as tag key. Tag keys are interned so that all elements share the same
+     * instance across blocks and so that lookups with string literals, like in the tag parsers, can be answered
+     * by comparing references. This is done at most once per key and block.
+     */
+    public String decodeKey(int rawString) {
+        String key = keys[rawString];
+        if (key == null)
+            keys[rawString] = key = strings[rawString].intern();
+        return key;
+    }
 }
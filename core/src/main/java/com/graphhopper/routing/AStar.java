@@ -83,6 +83,7 @@ public class AStar extends AbstractRoutingAlgorithm {
     private void runAlgo() {
         double currWeightToGoal, estimationFullWeight;
         while (true) {
+            cancellation.check(visitedNodes);
             visitedNodes++;
             if (isMaxVisitedNodesExceeded() || finished())
                 break;
@@ -20,6 +20,7 @@ package com.graphhopper.routing;
 import com.carrotsearch.hppc.IntObjectMap;
 import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.util.CancellationToken;
 import com.graphhopper.util.EdgeIterator;
 
 import java.util.Collections;
@@ -43,6 +44,7 @@ public abstract class AbstractBidirAlgo implements BidirRoutingAlgorithm {
     protected SPTEntry bestBwdEntry;
     protected double bestWeight = Double.MAX_VALUE;
     protected int maxVisitedNodes = Integer.MAX_VALUE;
+    protected CancellationToken cancellation = CancellationToken.NONE;
     PriorityQueue<SPTEntry> pqOpenSetFrom;
     PriorityQueue<SPTEntry> pqOpenSetTo;
     protected boolean updateBestPath = true;
@@ -146,7 +148,9 @@ public abstract class AbstractBidirAlgo implements BidirRoutingAlgorithm {
     protected abstract void postInitTo();
 
     protected void runAlgo() {
+        int iteration = 0;
         while (!finished() && !isMaxVisitedNodesExceeded()) {
+            cancellation.check(iteration++);
             if (!finishedFrom)
                 finishedFrom = !fillEdgesFrom();
 
@@ -265,6 +269,11 @@ public abstract class AbstractBidirAlgo implements BidirRoutingAlgorithm {
         this.maxVisitedNodes = numberOfNodes;
     }
 
+    @Override
+    public void setCancellation(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+    }
+
     protected void checkAlreadyRun() {
         if (alreadyRun)
             throw new IllegalStateException("Create a new instance per call");
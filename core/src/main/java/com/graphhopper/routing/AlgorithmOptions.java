@@ -18,6 +18,7 @@
 package com.graphhopper.routing;
 
 import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.util.CancellationToken;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.Parameters;
 
@@ -29,6 +30,7 @@ public class AlgorithmOptions {
     private String algorithm = Parameters.Algorithms.DIJKSTRA_BI;
     private TraversalMode traversalMode = TraversalMode.NODE_BASED;
     private int maxVisitedNodes = Integer.MAX_VALUE;
+    private CancellationToken cancellation = CancellationToken.NONE;
 
     public AlgorithmOptions() {
     }
@@ -37,6 +39,7 @@ public class AlgorithmOptions {
         setAlgorithm(b.getAlgorithm());
         setTraversalMode(b.getTraversalMode());
         setMaxVisitedNodes(b.getMaxVisitedNodes());
+        setCancellation(b.getCancellation());
         setHints(b.getHints());
     }
 
@@ -55,6 +58,11 @@ public class AlgorithmOptions {
         return this;
     }
 
+    public AlgorithmOptions setCancellation(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+        return this;
+    }
+
     public AlgorithmOptions setHints(PMap pMap) {
         this.hints = new PMap(pMap);
         return this;
@@ -72,6 +80,10 @@ public class AlgorithmOptions {
         return maxVisitedNodes;
     }
 
+    public CancellationToken getCancellation() {
+        return cancellation;
+    }
+
     public PMap getHints() {
         return hints;
     }
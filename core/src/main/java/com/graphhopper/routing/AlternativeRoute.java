@@ -25,6 +25,7 @@ import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.WeightApproximator;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
+import com.graphhopper.util.CancellationToken;
 import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
@@ -69,6 +70,7 @@ public class AlternativeRoute implements RoutingAlgorithm {
     private final TraversalMode traversalMode;
     private int visitedNodes;
     private int maxVisitedNodes = Integer.MAX_VALUE;
+    private CancellationToken cancellation = CancellationToken.NONE;
     private double maxWeightFactor = 1.4;
     // the higher the maxWeightFactor the higher the explorationFactor needs to be
     // 1 is default for bidir Dijkstra, 0.8 seems to be a very similar value for bidir A* but roughly 1/2 of the nodes explored
@@ -119,6 +121,11 @@ public class AlternativeRoute implements RoutingAlgorithm {
         this.maxVisitedNodes = numberOfNodes;
     }
 
+    @Override
+    public void setCancellation(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+    }
+
     /**
      * Increasing this factor results in returning more alternatives. E.g. if the factor is 2 than
      * all alternatives with a weight 2 times longer than the optimal weight are return. (default is
@@ -170,6 +177,7 @@ public class AlternativeRoute implements RoutingAlgorithm {
         AlternativeBidirSearch altBidirDijktra = new AlternativeBidirSearch(
                 graph, weighting, traversalMode, maxExplorationFactor * 2);
         altBidirDijktra.setMaxVisitedNodes(maxVisitedNodes);
+        altBidirDijktra.setCancellation(cancellation);
         if (weightApproximator != null) {
             altBidirDijktra.setApproximation(weightApproximator);
         }
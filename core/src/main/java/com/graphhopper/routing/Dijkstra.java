@@ -68,6 +68,7 @@ public class Dijkstra extends AbstractRoutingAlgorithm {
 
     protected void runAlgo() {
         while (true) {
+            cancellation.check(visitedNodes);
             visitedNodes++;
             if (isMaxVisitedNodesExceeded() || finished())
                 break;
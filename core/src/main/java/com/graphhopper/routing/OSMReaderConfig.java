@@ -18,6 +18,8 @@
 
 package com.graphhopper.routing;
 
+import com.graphhopper.reader.dem.ElevationProvider;
+
 public class OSMReaderConfig {
     private boolean parseWayNames = true;
     private String preferredLanguage = "";
@@ -26,6 +28,7 @@ public class OSMReaderConfig {
     private boolean smoothElevation = false;
     private double longEdgeSamplingDistance = Double.MAX_VALUE;
     private int workerThreads = 2;
+    private int elevationThreads = 1;
 
     public String getPreferredLanguage() {
         return preferredLanguage;
@@ -113,4 +116,19 @@ public class OSMReaderConfig {
         this.workerThreads = workerThreads;
         return this;
     }
+
+    public int getElevationThreads() {
+        return elevationThreads;
+    }
+
+    /**
+     * Sets the number of threads used to look up, smooth and sample the elevation after reading the OSM file. The
+     * default is 1. The elevation provider must be thread-safe if this is larger than 1, see {@link ElevationProvider}.
+     */
+    public OSMReaderConfig setElevationThreads(int elevationThreads) {
+        if (elevationThreads < 1)
+            throw new IllegalArgumentException("elevation threads must be at least 1, but was: " + elevationThreads);
+        this.elevationThreads = elevationThreads;
+        return this;
+    }
 }
@@ -19,6 +19,7 @@
 package com.graphhopper.routing;
 
 import com.carrotsearch.hppc.cursors.IntCursor;
+import com.carrotsearch.hppc.cursors.LongCursor;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.ResponsePath;
@@ -32,11 +33,14 @@ import com.graphhopper.routing.lm.LandmarkStorage;
 import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.BlockAreaWeighting;
+import com.graphhopper.routing.weighting.NamedBlockAreaWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomProfile;
 import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.GraphEdgeIdFinder;
+import com.graphhopper.storage.NamedBlockAreas;
+import com.graphhopper.storage.PillarLevels;
 import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
@@ -45,10 +49,12 @@ import com.graphhopper.util.details.PathDetailsBuilderFactory;
 import com.graphhopper.util.exceptions.PointDistanceExceededException;
 import com.graphhopper.util.exceptions.PointNotFoundException;
 import com.graphhopper.util.exceptions.PointOutOfBoundsException;
+import com.graphhopper.util.exceptions.SearchCancelledException;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 import static com.graphhopper.routing.weighting.Weighting.INFINITE_U_TURN_COSTS;
 import static com.graphhopper.util.DistanceCalcEarth.DIST_EARTH;
@@ -71,6 +77,9 @@ public class Router {
     private final Map<String, LandmarkStorage> landmarks;
     private final boolean chEnabled;
     private final boolean lmEnabled;
+    private ExecutorService legExecutor;
+    private NamedBlockAreas namedBlockAreas;
+    private PillarLevels pillarLevels;
 
     public Router(BaseGraph graph, EncodingManager encodingManager, LocationIndex locationIndex,
                   Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
@@ -97,6 +106,31 @@ public class Router {
         }
     }
 
+    /**
+     * Calculates the legs of routes with via points concurrently using the given executor, null disables this.
+     */
+    public Router setLegExecutor(ExecutorService legExecutor) {
+        this.legExecutor = legExecutor;
+        return this;
+    }
+
+    /**
+     * Sets the block areas that requests can reference via {@link Parameters.Routing#BLOCK_AREA_NAMES}.
+     */
+    public Router setNamedBlockAreas(NamedBlockAreas namedBlockAreas) {
+        this.namedBlockAreas = namedBlockAreas;
+        return this;
+    }
+
+    /**
+     * Sets the precomputed simplification levels that are used to simplify the response instead of Douglas-Peucker,
+     * unless the request sets an elevation way point max distance.
+     */
+    public Router setPillarLevels(PillarLevels pillarLevels) {
+        this.pillarLevels = pillarLevels;
+        return this;
+    }
+
     public GHResponse route(GHRequest request) {
         try {
             checkNoLegacyParameters(request);
@@ -126,7 +160,7 @@ public class Router {
                 ghRsp.addError(new PointNotFoundException("Cannot find point " + p.value + ": " + request.getPoints().get(p.value), p.value));
             }
             return ghRsp;
-        } catch (IllegalArgumentException ex) {
+        } catch (IllegalArgumentException | SearchCancelledException ex) {
             GHResponse ghRsp = new GHResponse();
             ghRsp.addError(ex);
             return ghRsp;
@@ -189,9 +223,9 @@ public class Router {
         if (chEnabled && !disableCH) {
             return new CHSolver(request, profilesByName, routerConfig, encodingManager, chGraphs);
         } else if (lmEnabled && !disableLM) {
-            return new LMSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, graph, locationIndex, landmarks);
+            return new LMSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, graph, locationIndex, namedBlockAreas, landmarks);
         } else {
-            return new FlexSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, graph, locationIndex);
+            return new FlexSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, graph, locationIndex, namedBlockAreas);
         }
     }
 
@@ -259,11 +293,13 @@ public class Router {
         // (base) query graph used to resolve headings, curbsides etc. this is not necessarily the same thing as
         // the (possibly implementation specific) query graph used by PathCalculator
         QueryGraph queryGraph = QueryGraph.create(graph, snaps);
-        PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
         boolean passThrough = getPassThrough(request.getHints());
         boolean forceCurbsides = getForceCurbsides(request.getHints());
-        ViaRouting.Result result = ViaRouting.calcPaths(request.getPoints(), queryGraph, snaps, directedEdgeFilter,
-                pathCalculator, request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
+        ViaRouting.Result result = legExecutor == null
+                ? ViaRouting.calcPaths(request.getPoints(), queryGraph, snaps, directedEdgeFilter,
+                solver.createPathCalculator(queryGraph), request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough)
+                : ViaRouting.calcPaths(request.getPoints(), queryGraph, snaps, directedEdgeFilter,
+                () -> solver.createPathCalculator(queryGraph), legExecutor, request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
 
         if (request.getPoints().size() != result.paths.size() + 1)
             throw new RuntimeException("There should be exactly one more point than paths. points:" + request.getPoints().size() + ", paths:" + result.paths.size());
@@ -274,6 +310,13 @@ public class Router {
         ghRsp.add(responsePath);
         ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (snaps.size() - 1));
+        if (result.concurrent) {
+            // only interesting to see how evenly the work was spread over the legs
+            List<Float> legTimes = new ArrayList<>(result.legNanos.size());
+            for (LongCursor c : result.legNanos)
+                legTimes.add(c.value / 1_000_000f);
+            ghRsp.getHints().putObject("leg_times_ms", legTimes);
+        }
         return ghRsp;
     }
 
@@ -292,6 +335,9 @@ public class Router {
                 setEnableInstructions(enableInstructions).
                 setPathDetailsBuilders(pathDetailsBuilderFactory, request.getPathDetails()).
                 setSimplifyResponse(routerConfig.isSimplifyResponse() && wayPointMaxDistance > 0);
+        // the levels only consider the horizontal distance
+        if (pillarLevels != null && elevationWayPointMaxDistance == Double.MAX_VALUE)
+            pathMerger.setPillarLevels(pillarLevels);
 
         if (!request.getHeadings().isEmpty())
             pathMerger.setFavoredHeading(request.getHeadings().get(0));
@@ -333,6 +379,7 @@ public class Router {
         private final RouterConfig routerConfig;
         protected Profile profile;
         protected Weighting weighting;
+        protected CancellationToken cancellation = CancellationToken.NONE;
         protected final EncodedValueLookup lookup;
 
         public Solver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig, EncodedValueLookup lookup) {
@@ -358,6 +405,7 @@ public class Router {
         }
 
         private void init() {
+            cancellation = CancellationToken.fromHints(request.getHints(), routerConfig.getTimeoutMillis());
             profile = getProfile();
             checkProfileCompatibility();
             weighting = createWeighting();
@@ -432,6 +480,9 @@ public class Router {
             if (request.getHints().has(Parameters.Routing.BLOCK_AREA))
                 throw new IllegalArgumentException("The '" + Parameters.Routing.BLOCK_AREA + "' parameter is currently not supported for speed mode, you need to disable speed mode with `ch.disable=true`.");
 
+            if (request.getHints().has(Parameters.Routing.BLOCK_AREA_NAMES))
+                throw new IllegalArgumentException("The '" + Parameters.Routing.BLOCK_AREA_NAMES + "' parameter is currently not supported for speed mode, you need to disable speed mode with `ch.disable=true`.");
+
             if (request.getCustomModel() != null)
                 throw new IllegalArgumentException("The 'custom_model' parameter is currently not supported for speed mode, you need to disable speed mode with `ch.disable=true`.");
 
@@ -455,6 +506,7 @@ public class Router {
             PMap opts = new PMap(request.getHints());
             opts.putObject(ALGORITHM, request.getAlgorithm());
             opts.putObject(MAX_VISITED_NODES, getMaxVisitedNodes(request.getHints()));
+            opts.putObject(CANCELLATION, cancellation);
             return new CHPathCalculator(new CHRoutingAlgorithmFactory(getRoutingCHGraph(profile.getName()), queryGraph), opts);
         }
 
@@ -473,14 +525,17 @@ public class Router {
         private final WeightingFactory weightingFactory;
         private final BaseGraph baseGraph;
         private final LocationIndex locationIndex;
+        private final NamedBlockAreas namedBlockAreas;
 
         FlexSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig,
-                   EncodedValueLookup lookup, WeightingFactory weightingFactory, BaseGraph graph, LocationIndex locationIndex) {
+                   EncodedValueLookup lookup, WeightingFactory weightingFactory, BaseGraph graph, LocationIndex locationIndex,
+                   NamedBlockAreas namedBlockAreas) {
             super(request, profilesByName, routerConfig, lookup);
             this.routerConfig = routerConfig;
             this.weightingFactory = weightingFactory;
             this.baseGraph = graph;
             this.locationIndex = locationIndex;
+            this.namedBlockAreas = namedBlockAreas;
         }
 
         @Override
@@ -499,6 +554,13 @@ public class Router {
                         request.getPoints(), requestHints, new FiniteWeightFilter(weighting));
                 weighting = new BlockAreaWeighting(weighting, blockArea);
             }
+            if (requestHints.has(Parameters.Routing.BLOCK_AREA_NAMES)) {
+                if (namedBlockAreas == null)
+                    throw new IllegalArgumentException("The '" + Parameters.Routing.BLOCK_AREA_NAMES + "' parameter cannot be used, because no block areas are available");
+                // in contrast to block_area we do not complain about query points inside the areas: the blocked edges
+                // are never snapped to, so the points are moved out of the areas
+                weighting = new NamedBlockAreaWeighting(weighting, namedBlockAreas.getAll(requestHints.getString(Parameters.Routing.BLOCK_AREA_NAMES, "")));
+            }
             return weighting;
         }
 
@@ -513,6 +575,7 @@ public class Router {
                     setAlgorithm(request.getAlgorithm()).
                     setTraversalMode(profile.isTurnCosts() ? TraversalMode.EDGE_BASED : TraversalMode.NODE_BASED).
                     setMaxVisitedNodes(getMaxVisitedNodes(request.getHints())).
+                    setCancellation(cancellation).
                     setHints(request.getHints());
 
             // use A* for round trips
@@ -548,8 +611,9 @@ public class Router {
         private final Map<String, LandmarkStorage> landmarks;
 
         LMSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig, EncodedValueLookup lookup,
-                 WeightingFactory weightingFactory, BaseGraph graph, LocationIndex locationIndex, Map<String, LandmarkStorage> landmarks) {
-            super(request, profilesByName, routerConfig, lookup, weightingFactory, graph, locationIndex);
+                 WeightingFactory weightingFactory, BaseGraph graph, LocationIndex locationIndex, NamedBlockAreas namedBlockAreas,
+                 Map<String, LandmarkStorage> landmarks) {
+            super(request, profilesByName, routerConfig, lookup, weightingFactory, graph, locationIndex, namedBlockAreas);
             this.landmarks = landmarks;
         }
 
@@ -561,7 +625,8 @@ public class Router {
                 throw new IllegalArgumentException("Cannot find LM preparation for the requested profile: '" + profile.getName() + "'" +
                         "\nYou can try disabling LM using " + Parameters.Landmark.DISABLE + "=true" +
                         "\navailable LM profiles: " + landmarks.keySet());
-            RoutingAlgorithmFactory routingAlgorithmFactory = new LMRoutingAlgorithmFactory(landmarkStorage).setDefaultActiveLandmarks(routerConfig.getActiveLandmarkCount());
+            RoutingAlgorithmFactory routingAlgorithmFactory = new LMRoutingAlgorithmFactory(landmarkStorage).setDefaultActiveLandmarks(routerConfig.getActiveLandmarkCount()).
+                    setWeightFactor(landmarkStorage.getWeightFactor(profile.getName()));
             return new FlexiblePathCalculator(queryGraph, routingAlgorithmFactory, weighting, getAlgoOpts());
         }
     }
@@ -30,6 +30,8 @@ public class RouterConfig {
     private boolean simplifyResponse = true;
     private double elevationWayPointMaxDistance = Double.MAX_VALUE;
     private int activeLandmarkCount = 8;
+    private long timeoutMillis = 0;
+    private int legThreads = 1;
 
     public int getMaxVisitedNodes() {
         return maxVisitedNodes;
@@ -43,6 +45,32 @@ public class RouterConfig {
         this.maxVisitedNodes = maxVisitedNodes;
     }
 
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Stops searches that take longer than the specified time, 0 means no time limit. Requests can use a smaller
+     * limit via the timeout_ms parameter.
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public int getLegThreads() {
+        return legThreads;
+    }
+
+    /**
+     * The number of threads that are shared by all requests to calculate the legs of a route with via points
+     * concurrently. 1 means the legs are calculated one after another in the request thread.
+     */
+    public void setLegThreads(int legThreads) {
+        if (legThreads < 1)
+            throw new IllegalArgumentException("leg threads must be at least 1 but was " + legThreads);
+        this.legThreads = legThreads;
+    }
+
     public int getMaxRoundTripRetries() {
         return maxRoundTripRetries;
     }
@@ -17,6 +17,8 @@
  */
 package com.graphhopper.routing;
 
+import com.graphhopper.util.CancellationToken;
+
 import java.util.List;
 
 /**
@@ -45,6 +47,11 @@ public interface RoutingAlgorithm {
      */
     void setMaxVisitedNodes(int numberOfNodes);
 
+    /**
+     * Stops the search with a SearchCancelledException when the specified token is cancelled.
+     */
+    void setCancellation(CancellationToken cancellation);
+
     /**
      * @return name of this algorithm
      */
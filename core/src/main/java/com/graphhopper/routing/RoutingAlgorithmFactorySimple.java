@@ -75,6 +75,7 @@ public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
         }
 
         ra.setMaxVisitedNodes(opts.getMaxVisitedNodes());
+        ra.setCancellation(opts.getCancellation());
         return ra;
     }
 
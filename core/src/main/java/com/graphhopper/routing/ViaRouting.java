@@ -18,6 +18,7 @@
 package com.graphhopper.routing;
 
 import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.LongArrayList;
 import com.graphhopper.routing.ev.EncodedValueLookup;
 import com.graphhopper.routing.ev.EnumEncodedValue;
 import com.graphhopper.routing.ev.RoadClass;
@@ -28,10 +29,15 @@ import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.Helper;
+import com.graphhopper.util.StopWatch;
 import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 import static com.graphhopper.util.EdgeIterator.NO_EDGE;
@@ -93,25 +99,10 @@ public class ViaRouting {
     }
 
     public static Result calcPaths(List<GHPoint> points, QueryGraph queryGraph, List<Snap> snaps, DirectedEdgeFilter directedEdgeFilter, PathCalculator pathCalculator, List<String> curbsides, boolean forceCurbsides, List<Double> headings, boolean passThrough) {
-        if (!curbsides.isEmpty() && curbsides.size() != points.size())
-            throw new IllegalArgumentException("If you pass " + CURBSIDE + ", you need to pass exactly one curbside for every point, empty curbsides will be ignored");
-        if (!curbsides.isEmpty() && !headings.isEmpty())
-            throw new IllegalArgumentException("You cannot use curbsides and headings or pass_through at the same time");
-
+        checkCurbsidesAndHeadings(points, curbsides, headings);
         final int legs = snaps.size() - 1;
         Result result = new Result(legs);
         for (int leg = 0; leg < legs; ++leg) {
-            Snap fromSnap = snaps.get(leg);
-            Snap toSnap = snaps.get(leg + 1);
-
-            // enforce headings
-            // at via-nodes and the target node the heading parameter is interpreted as the direction we want
-            // to enforce for arriving (not starting) at this node. the starting direction is not enforced at
-            // all for these points (unless using pass through). see this forum discussion:
-            // https://discuss.graphhopper.com/t/meaning-of-heading-parameter-for-via-routing/5643/6
-            double fromHeading = (leg == 0 && !headings.isEmpty()) ? headings.get(0) : Double.NaN;
-            double toHeading = (snaps.size() == headings.size() && !Double.isNaN(headings.get(leg + 1))) ? headings.get(leg + 1) : Double.NaN;
-
             // enforce pass-through
             int incomingEdge = NO_EDGE;
             if (leg != 0) {
@@ -120,48 +111,140 @@ public class ViaRouting {
                 if (prevRoute.getEdgeCount() > 0)
                     incomingEdge = prevRoute.getFinalEdge().getEdge();
             }
+            addLeg(result, calcLeg(leg, queryGraph, snaps, directedEdgeFilter, pathCalculator, curbsides, forceCurbsides, headings, passThrough, incomingEdge));
+        }
+        return result;
+    }
 
-            // enforce curbsides
-            final String fromCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg);
-            final String toCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg + 1);
-
-            EdgeRestrictions edgeRestrictions = buildEdgeRestrictions(queryGraph, fromSnap, toSnap,
-                    fromHeading, toHeading, incomingEdge, passThrough,
-                    fromCurbside, toCurbside, directedEdgeFilter);
+    /**
+     * Same as {@link #calcPaths(List, QueryGraph, List, DirectedEdgeFilter, PathCalculator, List, boolean, List, boolean)},
+     * but calculates the legs concurrently using the given executor. Every leg uses its own PathCalculator, which is
+     * created in the calling thread, and all legs share the same QueryGraph. The legs are only independent of each other
+     * if pass_through is disabled and there are no headings (the heading restrictions are stored in the QueryGraph),
+     * otherwise the legs are calculated one after another. The returned result is the same as the one of the
+     * sequential calculation, and if several legs fail the exception of the first of them is thrown.
+     */
+    public static Result calcPaths(List<GHPoint> points, QueryGraph queryGraph, List<Snap> snaps, DirectedEdgeFilter directedEdgeFilter, Supplier<PathCalculator> pathCalculatorSupplier, ExecutorService executor, List<String> curbsides, boolean forceCurbsides, List<Double> headings, boolean passThrough) {
+        final int legs = snaps.size() - 1;
+        if (legs < 2 || passThrough || !headings.isEmpty())
+            return calcPaths(points, queryGraph, snaps, directedEdgeFilter, pathCalculatorSupplier.get(), curbsides, forceCurbsides, headings, passThrough);
+
+        checkCurbsidesAndHeadings(points, curbsides, headings);
+        List<Future<Leg>> futures = new ArrayList<>(legs);
+        try {
+            for (int leg = 0; leg < legs; ++leg) {
+                final int legIndex = leg;
+                final PathCalculator pathCalculator = pathCalculatorSupplier.get();
+                futures.add(executor.submit(() -> calcLeg(legIndex, queryGraph, snaps, directedEdgeFilter, pathCalculator,
+                        curbsides, forceCurbsides, headings, false, NO_EDGE)));
+            }
+            Result result = new Result(legs);
+            result.concurrent = true;
+            for (Future<Leg> future : futures)
+                addLeg(result, future.get());
+            return result;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            if (ex.getCause() instanceof Error)
+                throw (Error) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while calculating the legs", ex);
+        } finally {
+            // no-op for completed legs, but we do not want to keep the remaining ones busy if a leg failed
+            for (Future<Leg> future : futures)
+                future.cancel(false);
+        }
+    }
 
-            edgeRestrictions.setSourceOutEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getSourceOutEdge(), leg, forceCurbsides));
-            edgeRestrictions.setTargetInEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getTargetInEdge(), leg + 1, forceCurbsides));
+    private static void checkCurbsidesAndHeadings(List<GHPoint> points, List<String> curbsides, List<Double> headings) {
+        if (!curbsides.isEmpty() && curbsides.size() != points.size())
+            throw new IllegalArgumentException("If you pass " + CURBSIDE + ", you need to pass exactly one curbside for every point, empty curbsides will be ignored");
+        if (!curbsides.isEmpty() && !headings.isEmpty())
+            throw new IllegalArgumentException("You cannot use curbsides and headings or pass_through at the same time");
+    }
 
-            // calculate paths
-            List<Path> paths = pathCalculator.calcPaths(fromSnap.getClosestNode(), toSnap.getClosestNode(), edgeRestrictions);
-            result.debug += pathCalculator.getDebugString();
+    private static Leg calcLeg(int leg, QueryGraph queryGraph, List<Snap> snaps, DirectedEdgeFilter directedEdgeFilter, PathCalculator pathCalculator, List<String> curbsides, boolean forceCurbsides, List<Double> headings, boolean passThrough, int incomingEdge) {
+        StopWatch sw = new StopWatch().start();
+        Snap fromSnap = snaps.get(leg);
+        Snap toSnap = snaps.get(leg + 1);
+
+        // enforce headings
+        // at via-nodes and the target node the heading parameter is interpreted as the direction we want
+        // to enforce for arriving (not starting) at this node. the starting direction is not enforced at
+        // all for these points (unless using pass through). see this forum discussion:
+        // https://discuss.graphhopper.com/t/meaning-of-heading-parameter-for-via-routing/5643/6
+        double fromHeading = (leg == 0 && !headings.isEmpty()) ? headings.get(0) : Double.NaN;
+        double toHeading = (snaps.size() == headings.size() && !Double.isNaN(headings.get(leg + 1))) ? headings.get(leg + 1) : Double.NaN;
+
+        // enforce curbsides
+        final String fromCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg);
+        final String toCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg + 1);
+
+        EdgeRestrictions edgeRestrictions = buildEdgeRestrictions(queryGraph, fromSnap, toSnap,
+                fromHeading, toHeading, incomingEdge, passThrough,
+                fromCurbside, toCurbside, directedEdgeFilter);
+
+        edgeRestrictions.setSourceOutEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getSourceOutEdge(), leg, forceCurbsides));
+        edgeRestrictions.setTargetInEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getTargetInEdge(), leg + 1, forceCurbsides));
+
+        // calculate paths
+        List<Path> paths = pathCalculator.calcPaths(fromSnap.getClosestNode(), toSnap.getClosestNode(), edgeRestrictions);
+        return new Leg(paths, pathCalculator.getDebugString(), pathCalculator.getVisitedNodes(), sw.stop().getNanos());
+    }
 
-            // for alternative routing we get multiple paths and add all of them (which is ok, because we do not allow
-            // via-points for alternatives at the moment). otherwise we would have to return a list<list<path>> and find
-            // a good method to decide how to combine the different legs
-            for (int i = 0; i < paths.size(); i++) {
-                Path path = paths.get(i);
-                if (path.getTime() < 0)
-                    throw new RuntimeException("Time was negative " + path.getTime() + " for index " + i);
+    private static void addLeg(Result result, Leg leg) {
+        result.debug += leg.debug;
 
-                result.paths.add(path);
-                result.debug += ", " + path.getDebugInfo();
-            }
+        // for alternative routing we get multiple paths and add all of them (which is ok, because we do not allow
+        // via-points for alternatives at the moment). otherwise we would have to return a list<list<path>> and find
+        // a good method to decide how to combine the different legs
+        for (int i = 0; i < leg.paths.size(); i++) {
+            Path path = leg.paths.get(i);
+            if (path.getTime() < 0)
+                throw new RuntimeException("Time was negative " + path.getTime() + " for index " + i);
 
-            result.visitedNodes += pathCalculator.getVisitedNodes();
-            result.debug += "visited nodes sum: " + result.visitedNodes;
+            result.paths.add(path);
+            result.debug += ", " + path.getDebugInfo();
         }
 
-        return result;
+        result.visitedNodes += leg.visitedNodes;
+        result.legNanos.add(leg.nanos);
+        result.debug += "visited nodes sum: " + result.visitedNodes;
+    }
+
+    private static class Leg {
+        final List<Path> paths;
+        final String debug;
+        final int visitedNodes;
+        final long nanos;
+
+        Leg(List<Path> paths, String debug, int visitedNodes, long nanos) {
+            this.paths = paths;
+            this.debug = debug;
+            this.visitedNodes = visitedNodes;
+            this.nanos = nanos;
+        }
     }
 
     public static class Result {
         public List<Path> paths;
         public long visitedNodes;
+        /**
+         * the time it took to calculate each leg in nanoseconds
+         */
+        public LongArrayList legNanos;
+        /**
+         * true if the legs were calculated concurrently
+         */
+        public boolean concurrent;
         public String debug = "";
 
         Result(int legs) {
             paths = new ArrayList<>(legs);
+            legNanos = new LongArrayList(legs);
         }
     }
 
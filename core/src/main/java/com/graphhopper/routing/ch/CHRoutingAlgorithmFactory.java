@@ -23,6 +23,7 @@ import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.CancellationToken;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PMap;
 
@@ -51,6 +52,7 @@ public class CHRoutingAlgorithmFactory {
                 : createAlgoNodeBased(routingCHGraph, opts);
         if (opts.has(MAX_VISITED_NODES))
             algo.setMaxVisitedNodes(opts.getInt(MAX_VISITED_NODES, Integer.MAX_VALUE));
+        algo.setCancellation(CancellationToken.fromHints(opts));
         return algo;
     }
 
@@ -39,6 +39,7 @@ public class LMApproximator implements WeightApproximator {
     private int[] weightsFromActiveLandmarksToT;
     private int[] weightsFromTToActiveLandmarks;
     private double epsilon = 1;
+    private double weightFactor = 1;
     private int towerNodeNextToT = -1;
     private double weightFromTToTowerNode;
     private boolean recalculateActiveLandmarks = true;
@@ -81,10 +82,20 @@ public class LMApproximator implements WeightApproximator {
         return this;
     }
 
+    /**
+     * Landmarks can be shared between profiles. If the landmarks were prepared for a different weighting the
+     * approximation is multiplied with this factor, which must be chosen so that the weight of every edge is at least
+     * the factor times the weight of the edge used for the preparation. See LandmarkStorage.calcWeightFactor.
+     */
+    public LMApproximator setWeightFactor(double weightFactor) {
+        this.weightFactor = weightFactor;
+        return this;
+    }
+
     @Override
     public double approximate(final int v) {
         if (!recalculateActiveLandmarks && fallback || lms.isEmpty())
-            return fallBackApproximation.approximate(v);
+            return fallBackApproximation.approximate(v) * weightFactor;
 
         if (v >= maxBaseNodes) {
             // handle virtual node
@@ -99,17 +110,23 @@ public class LMApproximator implements WeightApproximator {
         if (recalculateActiveLandmarks) {
             recalculateActiveLandmarks = false;
             if (lms.chooseActiveLandmarks(v, towerNodeNextToT, activeLandmarkIndices, reverse)) {
+                // the stored weights are rounded, so we subtract rounded up and add rounded down weights, see
+                // approximateForLandmark, to stay an underestimator
                 for (int i = 0; i < activeLandmarkIndices.length; i++) {
-                    weightsFromActiveLandmarksToT[i] = lms.getFromWeight(activeLandmarkIndices[i], towerNodeNextToT);
-                    weightsFromTToActiveLandmarks[i] = lms.getToWeight(activeLandmarkIndices[i], towerNodeNextToT);
+                    weightsFromActiveLandmarksToT[i] = reverse
+                            ? lms.getFromWeightUpper(activeLandmarkIndices[i], towerNodeNextToT)
+                            : lms.getFromWeight(activeLandmarkIndices[i], towerNodeNextToT);
+                    weightsFromTToActiveLandmarks[i] = reverse
+                            ? lms.getToWeight(activeLandmarkIndices[i], towerNodeNextToT)
+                            : lms.getToWeightUpper(activeLandmarkIndices[i], towerNodeNextToT);
                 }
             } else {
                 // note: fallback==true means forever true!
                 fallback = true;
-                return fallBackApproximation.approximate(v);
+                return fallBackApproximation.approximate(v) * weightFactor;
             }
         }
-        return Math.max(0.0, (getRemainingWeightUnderestimationUpToTowerNode(v) - weightFromTToTowerNode) * epsilon);
+        return Math.max(0.0, (getRemainingWeightUnderestimationUpToTowerNode(v) - weightFromTToTowerNode) * weightFactor * epsilon);
     }
 
     private double getRemainingWeightUnderestimationUpToTowerNode(int v) {
@@ -118,8 +135,7 @@ public class LMApproximator implements WeightApproximator {
             int resultInt = approximateForLandmark(i, v);
             maxWeightInt = Math.max(maxWeightInt, resultInt);
         }
-        // Round down, we need to be an underestimator.
-        return (maxWeightInt - 1) * factor;
+        return maxWeightInt * factor;
     }
 
     private int approximateForLandmark(int i, int v) {
@@ -152,17 +168,19 @@ public class LMApproximator implements WeightApproximator {
         //   IV)  d(v,LM) + d(t,v)  >= d(t,LM), so d(t,v) >= d(t,LM) - d(v,LM)
         //
         // ...and we can get the right-hand sides of III) and IV) by multiplying those of II) and I) by -1.
+        //
+        // The stored weights are rounded, so we always use the rounded down weight for the distance we subtract from
+        // and the rounded up weight for the distance we subtract.
 
-        int rhs1Int = weightsFromActiveLandmarksToT[i] - lms.getFromWeight(activeLandmarkIndices[i], v);
-        int rhs2Int = lms.getToWeight(activeLandmarkIndices[i], v) - weightsFromTToActiveLandmarks[i];
-
-        int resultInt;
         if (reverse) {
-            resultInt = Math.max(-rhs2Int, -rhs1Int);
+            int rhs3Int = lms.getFromWeight(activeLandmarkIndices[i], v) - weightsFromActiveLandmarksToT[i];
+            int rhs4Int = weightsFromTToActiveLandmarks[i] - lms.getToWeightUpper(activeLandmarkIndices[i], v);
+            return Math.max(rhs3Int, rhs4Int);
         } else {
-            resultInt = Math.max(rhs1Int, rhs2Int);
+            int rhs1Int = weightsFromActiveLandmarksToT[i] - lms.getFromWeightUpper(activeLandmarkIndices[i], v);
+            int rhs2Int = lms.getToWeight(activeLandmarkIndices[i], v) - weightsFromTToActiveLandmarks[i];
+            return Math.max(rhs1Int, rhs2Int);
         }
-        return resultInt;
     }
 
     @Override
@@ -191,12 +209,13 @@ public class LMApproximator implements WeightApproximator {
 
     @Override
     public WeightApproximator reverse() {
-        return new LMApproximator(graph, weighting, maxBaseNodes, lms, activeLandmarkIndices.length, factor, !reverse);
+        return new LMApproximator(graph, weighting, maxBaseNodes, lms, activeLandmarkIndices.length, factor, !reverse).
+                setWeightFactor(weightFactor);
     }
 
     @Override
     public double getSlack() {
-        return lms.getFactor();
+        return lms.getFactor() * weightFactor;
     }
 
     /**
@@ -57,6 +57,7 @@ public class LMPreparationHandler {
     private final List<String> lmSuggestionsLocations = new ArrayList<>(5);
     private int preparationThreads;
     private boolean logDetails = false;
+    private boolean compact = false;
     private AreaIndex<SplitArea> areaIndex;
 
     public LMPreparationHandler() {
@@ -74,6 +75,7 @@ public class LMPreparationHandler {
 
         landmarkCount = ghConfig.getInt(Parameters.Landmark.COUNT, landmarkCount);
         logDetails = ghConfig.getBool(Landmark.PREPARE + "log_details", false);
+        compact = ghConfig.getBool(Landmark.PREPARE + "compact", false);
         minNodes = ghConfig.getInt(Landmark.PREPARE + "min_network_size", -1);
 
         for (String loc : ghConfig.getString(Landmark.PREPARE + "suggestions_location", "").split(",")) {
@@ -102,6 +104,19 @@ public class LMPreparationHandler {
         return !lmProfiles.isEmpty();
     }
 
+    /**
+     * Stores the landmark weights in one instead of two bytes, see {@link LandmarkStorage#setCompact(boolean)}. This
+     * only applies to new preparations, existing landmarks are loaded as they were stored.
+     */
+    public LMPreparationHandler setCompact(boolean compact) {
+        this.compact = compact;
+        return this;
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
     public int getPreparationThreads() {
         return preparationThreads;
     }
@@ -221,6 +236,7 @@ public class LMPreparationHandler {
                     lmConfig, landmarkCount).
                     setLandmarkSuggestions(lmSuggestions).
                     setMaximumWeight(maximumWeight).
+                    setCompact(compact).
                     setLogDetails(logDetails);
             if (minNodes > 1)
                 prepareLandmarks.setMinimumNodes(minNodes);
@@ -31,6 +31,7 @@ import static com.graphhopper.util.Parameters.Algorithms.AltRoute.*;
 public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
     private final LandmarkStorage lms;
     private int defaultActiveLandmarks;
+    private double weightFactor = 1;
 
     public LMRoutingAlgorithmFactory(LandmarkStorage lms) {
         this.lms = lms;
@@ -42,6 +43,14 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
         return this;
     }
 
+    /**
+     * @see LMApproximator#setWeightFactor(double)
+     */
+    public LMRoutingAlgorithmFactory setWeightFactor(double weightFactor) {
+        this.weightFactor = weightFactor;
+        return this;
+    }
+
     @Override
     public RoutingAlgorithm createAlgo(Graph g, Weighting w, AlgorithmOptions opts) {
         if (!lms.isInitialized())
@@ -54,12 +63,14 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
             AStar algo = new AStar(g, weighting, opts.getTraversalMode());
             algo.setApproximation(getApproximator(g, activeLM, epsilon));
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
+            algo.setCancellation(opts.getCancellation());
             return algo;
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) {
             double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStarBi.EPSILON, 1);
             AStarBidirection algo = new AStarBidirection(g, weighting, opts.getTraversalMode());
             algo.setApproximation(getApproximator(g, activeLM, epsilon));
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
+            algo.setCancellation(opts.getCancellation());
             return algo;
         } else if (ALT_ROUTE.equalsIgnoreCase(algoStr)) {
             double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStarBi.EPSILON, 1);
@@ -73,6 +84,7 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
             // can decrease this exploration factor further (1->dijkstra, 0.8->bidir. A*)
             algo.setMaxExplorationFactor(0.6);
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
+            algo.setCancellation(opts.getCancellation());
             return algo;
         } else {
             throw new IllegalArgumentException("Landmarks algorithm only supports algorithm="
@@ -81,6 +93,6 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
     }
 
     private LMApproximator getApproximator(Graph g, int activeLM, double epsilon) {
-        return LMApproximator.forLandmarks(g, lms, activeLM).setEpsilon(epsilon);
+        return LMApproximator.forLandmarks(g, lms, activeLM).setEpsilon(epsilon).setWeightFactor(weightFactor);
     }
 }
@@ -61,6 +61,9 @@ public class LandmarkStorage {
     private static final int SHORT_INFINITY = Short.MAX_VALUE * 2 + 1;
     // We have large values that do not fit into a short, use a specific maximum value
     private static final int SHORT_MAX = SHORT_INFINITY - 1;
+    // the same for the compact storage with one unsigned byte per weight
+    private static final int BYTE_INFINITY = 255;
+    private static final int BYTE_MAX = BYTE_INFINITY - 1;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(LandmarkStorage.class);
     // This value is used to identify nodes where no subnetwork is associated
@@ -70,11 +73,16 @@ public class LandmarkStorage {
     // one node has an associated landmark information ('one landmark row'): the forward and backward weight
     private long LM_ROW_LENGTH;
     private int landmarks;
-    private final int FROM_OFFSET;
-    private final int TO_OFFSET;
+    // the number of bytes of one weight: 2 or 1 for the compact storage
+    private int WEIGHT_LENGTH;
+    private final int FROM_OFFSET = 0;
+    private int TO_OFFSET;
     private final DataAccess landmarkWeightDA;
     // every subnetwork has its own landmark mapping but the count of landmarks is always the same
     private final List<int[]> landmarkIDs;
+    // for the compact storage every subnetwork has its own scale: a stored byte b means a weight between b * scale
+    // and (b + 1) * scale in units of the factor
+    private final IntArrayList compactScales = new IntArrayList();
     private double factor = -1;
     private final static double DOUBLE_MLTPL = 1e6;
     private final BaseGraph graph;
@@ -90,6 +98,8 @@ public class LandmarkStorage {
     private List<LandmarkSuggestion> landmarkSuggestions = Collections.emptyList();
     private AreaIndex<SplitArea> areaIndex;
     private boolean logDetails = false;
+    // profiles that use these landmarks although they were prepared for a different weighting
+    private final Map<String, Double> weightFactors = new HashMap<>();
     /**
      * 'to' and 'from' fit into 32 bit => 16 bit for each of them => 65536
      */
@@ -132,9 +142,7 @@ public class LandmarkStorage {
 
         this.landmarks = landmarks;
         // one short per landmark and two directions => 2*2 byte
-        this.LM_ROW_LENGTH = landmarks * 4;
-        this.FROM_OFFSET = 0;
-        this.TO_OFFSET = 2;
+        setWeightLength(2);
         this.landmarkIDs = new ArrayList<>();
         this.subnetworkStorage = new SubnetworkStorage(dir.create("landmarks_subnetwork_" + lmConfig.getName()));
     }
@@ -158,6 +166,29 @@ public class LandmarkStorage {
         return this;
     }
 
+    /**
+     * The compact storage uses one byte instead of two bytes per weight, i.e. it needs half of the memory. The weights
+     * of every subnetwork are stored with their own precision, which is about 1/254 of the maximum weight of the
+     * subnetwork. Compared to the default precision of 1/65534 of the maximum weight of all subnetworks this makes the
+     * weight approximation less tight and the queries slower, especially for short routes.
+     */
+    public LandmarkStorage setCompact(boolean compact) {
+        if (isInitialized())
+            throw new IllegalStateException("Cannot change the storage after the landmarks were created or loaded");
+        setWeightLength(compact ? 1 : 2);
+        return this;
+    }
+
+    public boolean isCompact() {
+        return WEIGHT_LENGTH == 1;
+    }
+
+    private void setWeightLength(int weightLength) {
+        this.WEIGHT_LENGTH = weightLength;
+        this.LM_ROW_LENGTH = 2L * landmarks * weightLength;
+        this.TO_OFFSET = weightLength;
+    }
+
     /**
      * By default do not log many details.
      */
@@ -215,6 +246,53 @@ public class LandmarkStorage {
         return lmConfig;
     }
 
+    /**
+     * Allows using these landmarks for the specified profile, see {@link #calcWeightFactor(Graph, Weighting, Weighting)}.
+     * This must be called before the landmarks are used for routing.
+     */
+    public void setWeightFactor(String profile, double weightFactor) {
+        if (!(weightFactor >= 0) || Double.isInfinite(weightFactor))
+            throw new IllegalArgumentException("Illegal weight factor " + weightFactor + " for profile " + profile);
+        weightFactors.put(profile, weightFactor);
+    }
+
+    /**
+     * @return the factor the approximation has to be multiplied with to be used for the specified profile, 1 for the
+     * profile these landmarks were prepared for
+     */
+    public double getWeightFactor(String profile) {
+        return weightFactors.getOrDefault(profile, 1.0);
+    }
+
+    /**
+     * Calculates the largest factor so that the weight of every edge is at least this factor times the weight used for
+     * the landmark preparation. Multiplying the approximation with this factor makes these landmarks usable for the
+     * specified weighting, e.g. for a faster profile of the same vehicle. The approximation is not guaranteed to be a
+     * lower bound if the specified weighting allows edges that the weighting of the preparation does not allow.
+     */
+    public static double calcWeightFactor(Graph graph, Weighting lmWeighting, Weighting weighting) {
+        double weightFactor = Double.POSITIVE_INFINITY;
+        int inaccessible = 0;
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            for (int i = 0; i < 2; i++) {
+                boolean reverse = i == 1;
+                double weight = weighting.calcEdgeWeightWithAccess(iter, reverse);
+                if (Double.isInfinite(weight))
+                    continue;
+                double lmWeight = lmWeighting.calcEdgeWeightWithAccess(iter, reverse);
+                if (Double.isInfinite(lmWeight))
+                    inaccessible++;
+                else if (lmWeight > 0)
+                    weightFactor = Math.min(weightFactor, weight / lmWeight);
+            }
+        }
+        if (inaccessible > 0)
+            LOGGER.warn(inaccessible + " edges are accessible for " + weighting + " but not for the landmark preparation with "
+                    + lmWeighting + ". Routes with these edges can be suboptimal.");
+        return Double.isInfinite(weightFactor) ? 1 : weightFactor;
+    }
+
     boolean isInitialized() {
         return initialized;
     }
@@ -231,13 +309,20 @@ public class LandmarkStorage {
         this.landmarkWeightDA.create(2000);
         this.landmarkWeightDA.ensureCapacity(maxBytes);
 
-        for (long pointer = 0; pointer < maxBytes; pointer += 2) {
-            landmarkWeightDA.setShort(pointer, (short) SHORT_INFINITY);
+        if (isCompact()) {
+            for (long pointer = 0; pointer < maxBytes; pointer++) {
+                landmarkWeightDA.setByte(pointer, (byte) BYTE_INFINITY);
+            }
+        } else {
+            for (long pointer = 0; pointer < maxBytes; pointer += 2) {
+                landmarkWeightDA.setShort(pointer, (short) SHORT_INFINITY);
+            }
         }
 
         int[] empty = new int[landmarks];
         Arrays.fill(empty, UNSET_SUBNETWORK);
         landmarkIDs.add(empty);
+        compactScales.add(1);
 
         byte[] subnetworks = new byte[graph.getNodes()];
         Arrays.fill(subnetworks, (byte) UNSET_SUBNETWORK);
@@ -273,6 +358,10 @@ public class LandmarkStorage {
             LOGGER.info("Calculated " + graphComponents.getComponents().size() + " subnetworks via tarjan in " + sw.stop().getSeconds() + "s, " + Helper.getMemInfo());
 
         String additionalInfo = "";
+        // the compact storage needs the maximum weight of every subnetwork, so we always estimate it
+        double[] maxWeights = factor <= 0 || isCompact()
+                ? estimateMaxWeights(graphComponents.getComponents(), accessFilter)
+                : new double[graphComponents.getComponents().size()];
         // guess the factor
         if (factor <= 0) {
             // A 'factor' is necessary to store the weight in just a short value but without losing too much precision.
@@ -280,7 +369,9 @@ public class LandmarkStorage {
             // see estimateMaxWeight. If we pick the distance too big for small areas this could lead to (slightly)
             // suboptimal routes as there will be too big rounding errors. But picking it too small is bad for performance
             // e.g. for Germany at least 1500km is very important otherwise speed is at least twice as slow e.g. for 1000km
-            double maxWeight = estimateMaxWeight(graphComponents.getComponents(), accessFilter);
+            double maxWeight = 0;
+            for (double weight : maxWeights)
+                maxWeight = Math.max(maxWeight, weight);
             setMaximumWeight(maxWeight);
             additionalInfo = ", maxWeight:" + maxWeight + " from quick estimation";
         }
@@ -289,7 +380,8 @@ public class LandmarkStorage {
             LOGGER.info("init landmarks for subnetworks with node count greater than " + minimumNodes + " with factor:" + factor + additionalInfo);
 
         int nodes = 0;
-        for (IntArrayList subnetworkIds : graphComponents.getComponents()) {
+        for (int component = 0; component < graphComponents.getComponents().size(); component++) {
+            IntArrayList subnetworkIds = graphComponents.getComponents().get(component);
             nodes += subnetworkIds.size();
             if (subnetworkIds.size() < minimumNodes)
                 continue;
@@ -297,6 +389,7 @@ public class LandmarkStorage {
                 throw new IllegalStateException("factor wasn't initialized " + factor + ", subnetworks:"
                         + graphComponents.getComponents().size() + ", minimumNodes:" + minimumNodes + ", current size:" + subnetworkIds.size());
 
+            int scale = isCompact() ? calcCompactScale(maxWeights[component]) : 1;
             int index = subnetworkIds.size() - 1;
             // ensure start node is reachable from both sides and no subnetwork is associated
             for (; index >= 0; index--) {
@@ -308,7 +401,7 @@ public class LandmarkStorage {
                                 + ", " + Helper.getMemInfo() + ((areaIndex == null) ? "" : " area:" + areaIndex.query(p.lat, p.lon)));
                     }
 
-                    if (createLandmarksForSubnetwork(nextStartNode, subnetworks, accessFilter))
+                    if (createLandmarksForSubnetwork(nextStartNode, subnetworks, accessFilter, scale))
                         break;
                 }
             }
@@ -317,8 +410,9 @@ public class LandmarkStorage {
         }
 
         int subnetworkCount = landmarkIDs.size();
-        // store all landmark node IDs and one int for the factor itself.
-        this.landmarkWeightDA.ensureCapacity(maxBytes /* landmark weights */ + subnetworkCount * landmarks /* landmark mapping per subnetwork */);
+        // store all landmark node IDs and for the compact storage the scale of every subnetwork
+        this.landmarkWeightDA.ensureCapacity(maxBytes /* landmark weights */ + 4L * subnetworkCount * landmarks /* landmark mapping per subnetwork */
+                + (isCompact() ? 4L * subnetworkCount : 0) /* scale per subnetwork */);
 
         // calculate offset to point into landmark mapping
         long bytePos = maxBytes;
@@ -328,6 +422,12 @@ public class LandmarkStorage {
                 bytePos += 4L;
             }
         }
+        if (isCompact()) {
+            for (int i = 0; i < subnetworkCount; i++) {
+                landmarkWeightDA.setInt(bytePos, compactScales.get(i));
+                bytePos += 4L;
+            }
+        }
 
         landmarkWeightDA.setHeader(0 * 4, graph.getNodes());
         landmarkWeightDA.setHeader(1 * 4, landmarks);
@@ -335,6 +435,7 @@ public class LandmarkStorage {
         if (factor * DOUBLE_MLTPL > Integer.MAX_VALUE)
             throw new UnsupportedOperationException("landmark weight factor cannot be bigger than Integer.MAX_VALUE " + factor * DOUBLE_MLTPL);
         landmarkWeightDA.setHeader(3 * 4, (int) Math.round(factor * DOUBLE_MLTPL));
+        landmarkWeightDA.setHeader(4 * 4, WEIGHT_LENGTH);
 
         // serialize fast byte[] into DataAccess
         subnetworkStorage.create(graph.getNodes());
@@ -348,9 +449,11 @@ public class LandmarkStorage {
     }
 
     /**
-     * This method returns the maximum weight for the graph starting from the landmarks
+     * This method returns the maximum weight for every component of the graph starting from the landmarks. The weight
+     * is 0 for components that are too small.
      */
-    private double estimateMaxWeight(List<IntArrayList> graphComponents, EdgeFilter accessFilter) {
+    private double[] estimateMaxWeights(List<IntArrayList> graphComponents, EdgeFilter accessFilter) {
+        double[] maxWeights = new double[graphComponents.size()];
         double maxWeight = 0;
         int searchedSubnetworks = 0;
         Random random = new Random(0);
@@ -358,7 +461,8 @@ public class LandmarkStorage {
         // all landmarks. See #2027 (1st commit) where only 1 landmark was sufficient when multiplied with 1.01 at the end
         // TODO instead of calculating the landmarks again here we could store them in landmarkIDs and do this for all here
         int[] tmpLandmarkNodeIds = new int[3];
-        for (IntArrayList subnetworkIds : graphComponents) {
+        for (int component = 0; component < graphComponents.size(); component++) {
+            IntArrayList subnetworkIds = graphComponents.get(component);
             if (subnetworkIds.size() < minimumNodes)
                 continue;
 
@@ -380,8 +484,9 @@ public class LandmarkStorage {
                     explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
                     explorer.setStartNode(lmNodeId);
                     explorer.runAlgo();
-                    maxWeight = Math.max(maxWeight, explorer.getLastEntry().weight);
+                    maxWeights[component] = Math.max(maxWeights[component], explorer.getLastEntry().weight);
                 }
+                maxWeight = Math.max(maxWeight, maxWeights[component]);
                 break;
             }
         }
@@ -391,7 +496,18 @@ public class LandmarkStorage {
 
         // we have to increase maxWeight slightly as it is only an approximation towards the maximum weight,
         // especially when external landmarks are provided, but also because we do not traverse all landmarks
-        return maxWeight * 1.008;
+        for (int i = 0; i < maxWeights.length; i++)
+            maxWeights[i] *= 1.008;
+        return maxWeights;
+    }
+
+    /**
+     * @return the scale for the compact storage of a subnetwork with the specified maximum weight. Weights that are
+     * larger than the maximum weight of all subnetworks are maxed out like for the default storage.
+     */
+    private int calcCompactScale(double maxWeight) {
+        double maxUnits = Math.min(maxWeight > 0 ? maxWeight / factor : SHORT_MAX, SHORT_MAX);
+        return Math.max(1, Math.min((int) Math.ceil(maxUnits / BYTE_MAX), SHORT_MAX / BYTE_MAX));
     }
 
     /**
@@ -399,7 +515,7 @@ public class LandmarkStorage {
      *
      * @return landmark mapping
      */
-    private boolean createLandmarksForSubnetwork(final int startNode, final byte[] subnetworks, EdgeFilter accessFilter) {
+    private boolean createLandmarksForSubnetwork(final int startNode, final byte[] subnetworks, EdgeFilter accessFilter, int scale) {
         final int subnetworkId = landmarkIDs.size();
         int[] tmpLandmarkNodeIds = new int[landmarks];
         int logOffset = Math.max(1, landmarks / 2);
@@ -449,7 +565,7 @@ public class LandmarkStorage {
             LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
             explorer.setStartNode(lmNodeId);
             explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
+            explorer.initLandmarkWeights(lmIdx, lmNodeId, FROM_OFFSET, scale);
 
             // set subnetwork id to all explored nodes, but do this only for the first landmark
             if (lmIdx == 0) {
@@ -460,7 +576,7 @@ public class LandmarkStorage {
             explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, true);
             explorer.setStartNode(lmNodeId);
             explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+            explorer.initLandmarkWeights(lmIdx, lmNodeId, TO_OFFSET, scale);
 
             if (lmIdx == 0) {
                 if (explorer.setSubnetworks(subnetworks, subnetworkId))
@@ -474,6 +590,7 @@ public class LandmarkStorage {
 
         // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
         landmarkIDs.add(tmpLandmarkNodeIds);
+        compactScales.add(scale);
         return true;
     }
 
@@ -514,12 +631,19 @@ public class LandmarkStorage {
         return factor;
     }
 
+    long getPointer(int node, int landmarkIndex, int offset) {
+        return node * LM_ROW_LENGTH + 2L * landmarkIndex * WEIGHT_LENGTH + offset;
+    }
+
     /**
      * @return the weight from the landmark to the specified node. Where the landmark integer is not
-     * a node ID but the internal index of the landmark array.
+     * a node ID but the internal index of the landmark array. The weight is rounded down, i.e. the real
+     * weight is between this weight and {@link #getFromWeightUpper(int, int)}.
      */
     int getFromWeight(int landmarkIndex, int node) {
-        int res = (int) landmarkWeightDA.getShort((long) node * LM_ROW_LENGTH + landmarkIndex * 4 + FROM_OFFSET)
+        if (isCompact())
+            return getCompactWeight(node, getPointer(node, landmarkIndex, FROM_OFFSET), false);
+        int res = (int) landmarkWeightDA.getShort(getPointer(node, landmarkIndex, FROM_OFFSET))
                 & 0x0000FFFF;
         if (res == SHORT_INFINITY)
             // TODO can happen if endstanding oneway
@@ -533,10 +657,12 @@ public class LandmarkStorage {
     }
 
     /**
-     * @return the weight from the specified node to the landmark (specified *as index*)
+     * @return the weight from the specified node to the landmark (specified *as index*), rounded down
      */
     int getToWeight(int landmarkIndex, int node) {
-        int res = (int) landmarkWeightDA.getShort((long) node * LM_ROW_LENGTH + landmarkIndex * 4 + TO_OFFSET)
+        if (isCompact())
+            return getCompactWeight(node, getPointer(node, landmarkIndex, TO_OFFSET), false);
+        int res = (int) landmarkWeightDA.getShort(getPointer(node, landmarkIndex, TO_OFFSET))
                 & 0x0000FFFF;
         if (res == SHORT_INFINITY)
             return SHORT_MAX;
@@ -544,14 +670,59 @@ public class LandmarkStorage {
         return res;
     }
 
+    /**
+     * @return the weight from the landmark to the specified node, rounded up
+     */
+    int getFromWeightUpper(int landmarkIndex, int node) {
+        if (isCompact())
+            return getCompactWeight(node, getPointer(node, landmarkIndex, FROM_OFFSET), true);
+        return getFromWeight(landmarkIndex, node) + 1;
+    }
+
+    /**
+     * @return the weight from the specified node to the landmark, rounded up
+     */
+    int getToWeightUpper(int landmarkIndex, int node) {
+        if (isCompact())
+            return getCompactWeight(node, getPointer(node, landmarkIndex, TO_OFFSET), true);
+        return getToWeight(landmarkIndex, node) + 1;
+    }
+
+    private int getCompactWeight(int node, long pointer, boolean upper) {
+        int res = (int) landmarkWeightDA.getByte(pointer) & 0xFF;
+        // like for the default storage we return the maximum value in units of the factor for infinity
+        if (res == BYTE_INFINITY)
+            return upper ? SHORT_MAX + 1 : SHORT_MAX;
+        int subnetwork = subnetworkStorage.getSubnetwork(node);
+        int scale = subnetwork <= UNCLEAR_SUBNETWORK ? 1 : compactScales.get(subnetwork);
+        return (upper ? res + 1 : res) * scale;
+    }
+
     /**
      * @return false if the value capacity was reached and instead of the real value the SHORT_MAX was stored.
      */
     final boolean setWeight(long pointer, double value) {
+        return setWeight(pointer, value, 1);
+    }
+
+    /**
+     * @param scale the scale of the subnetwork, only used for the compact storage
+     */
+    final boolean setWeight(long pointer, double value, int scale) {
         double tmpVal = value / factor;
         if (tmpVal > Integer.MAX_VALUE)
             throw new UnsupportedOperationException("Cannot store infinity explicitly, pointer=" + pointer + ", value=" + value + ", factor=" + factor);
 
+        if (isCompact()) {
+            tmpVal /= scale;
+            if (tmpVal >= BYTE_MAX) {
+                landmarkWeightDA.setByte(pointer, (byte) BYTE_MAX);
+                return false;
+            }
+            landmarkWeightDA.setByte(pointer, (byte) tmpVal);
+            return true;
+        }
+
         if (tmpVal >= SHORT_MAX) {
             landmarkWeightDA.setShort(pointer, (short) SHORT_MAX);
             return false;
@@ -562,6 +733,8 @@ public class LandmarkStorage {
     }
 
     boolean isInfinity(long pointer) {
+        if (isCompact())
+            return ((int) landmarkWeightDA.getByte(pointer) & 0xFF) == BYTE_INFINITY;
         return ((int) landmarkWeightDA.getShort(pointer) & 0x0000FFFF) == SHORT_INFINITY;
     }
 
@@ -689,7 +862,9 @@ public class LandmarkStorage {
             landmarks = landmarkWeightDA.getHeader(1 * 4);
             int subnetworks = landmarkWeightDA.getHeader(2 * 4);
             factor = landmarkWeightDA.getHeader(3 * 4) / DOUBLE_MLTPL;
-            LM_ROW_LENGTH = landmarks * 4;
+            // landmark data created before the compact storage existed has no weight length
+            int weightLength = landmarkWeightDA.getHeader(4 * 4);
+            setWeightLength(weightLength == 0 ? 2 : weightLength);
             long maxBytes = LM_ROW_LENGTH * nodes;
             long bytePos = maxBytes;
 
@@ -702,6 +877,14 @@ public class LandmarkStorage {
                 }
                 landmarkIDs.add(tmpLandmarks);
             }
+            for (int j = 0; j < subnetworks; j++) {
+                if (isCompact()) {
+                    compactScales.add(landmarkWeightDA.getInt(bytePos));
+                    bytePos += 4;
+                } else {
+                    compactScales.add(1);
+                }
+            }
 
             initialized = true;
             return true;
@@ -858,7 +1041,7 @@ public class LandmarkStorage {
             return failed.get();
         }
 
-        public void initLandmarkWeights(final int lmIdx, int lmNodeId, final long rowSize, final int offset) {
+        public void initLandmarkWeights(final int lmIdx, int lmNodeId, final int offset, final int scale) {
             IntObjectMap<SPTEntry> map = reverse ? bestWeightMapTo : bestWeightMapFrom;
             final AtomicInteger maxedout = new AtomicInteger(0);
             final Map.Entry<Double, Double> finalMaxWeight = new MapEntry<>(0d, 0d);
@@ -866,7 +1049,7 @@ public class LandmarkStorage {
             map.forEach(new IntObjectProcedure<SPTEntry>() {
                 @Override
                 public void apply(int nodeId, SPTEntry b) {
-                    if (!lms.setWeight(nodeId * rowSize + lmIdx * 4 + offset, b.weight)) {
+                    if (!lms.setWeight(lms.getPointer(nodeId, lmIdx, offset), b.weight, scale)) {
                         maxedout.incrementAndGet();
                         finalMaxWeight.setValue(Math.max(b.weight, finalMaxWeight.getValue()));
                     }
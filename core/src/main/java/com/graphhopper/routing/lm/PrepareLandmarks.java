@@ -73,6 +73,14 @@ public class PrepareLandmarks {
         return this;
     }
 
+    /**
+     * @see LandmarkStorage#setCompact(boolean)
+     */
+    public PrepareLandmarks setCompact(boolean compact) {
+        lms.setCompact(compact);
+        return this;
+    }
+
     /**
      * @see LandmarkStorage#setLMSelectionWeighting(Weighting)
      */
@@ -112,7 +120,7 @@ public class PrepareLandmarks {
             throw new IllegalStateException("Call doWork only once!");
         prepared = true;
         StopWatch sw = new StopWatch().start();
-        LOGGER.info("Start calculating " + lms.getLandmarkCount() + " landmarks, weighting:" + lms.getLmSelectionWeighting() + ", " + Helper.getMemInfo());
+        LOGGER.info("Start calculating " + lms.getLandmarkCount() + " landmarks, weighting:" + lms.getLmSelectionWeighting() + (lms.isCompact() ? ", compact" : "") + ", " + Helper.getMemInfo());
 
         lms.createLandmarks();
         lms.flush();
@@ -23,6 +23,7 @@ import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.routing.weighting.custom.CustomWeighting;
 import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
@@ -31,7 +32,9 @@ import com.graphhopper.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Detects and marks 'subnetworks' with a dedicated subnetwork encoded value. Subnetworks are parts of the road network
@@ -61,6 +64,7 @@ public class PrepareRoutingSubnetworks {
     private final BaseGraph graph;
     private final List<PrepareJob> prepareJobs;
     private int minNetworkSize = 200;
+    private int threads = 1;
 
     public PrepareRoutingSubnetworks(BaseGraph graph, List<PrepareJob> prepareJobs) {
         this.graph = graph;
@@ -76,6 +80,17 @@ public class PrepareRoutingSubnetworks {
         return this;
     }
 
+    /**
+     * The jobs are run concurrently with the specified number of threads. Jobs with equal weightings share the search
+     * for the connected components, see {@link #getComponentsKey}.
+     */
+    public PrepareRoutingSubnetworks setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive but was " + threads);
+        this.threads = threads;
+        return this;
+    }
+
     /**
      * Finds and marks all subnetworks according to {@link #setMinNetworkSize(int)}
      *
@@ -88,30 +103,79 @@ public class PrepareRoutingSubnetworks {
         }
         StopWatch sw = new StopWatch().start();
         logger.info("Start marking subnetworks, prepare.min_network_size: " + minNetworkSize + ", nodes: " +
-                Helper.nf(graph.getNodes()) + ", edges: " + Helper.nf(graph.getEdges()) + ", jobs: " + prepareJobs + ", " + Helper.getMemInfo());
-        int total = 0;
+                Helper.nf(graph.getNodes()) + ", edges: " + Helper.nf(graph.getEdges()) + ", jobs: " + prepareJobs
+                + ", threads: " + threads + ", " + Helper.getMemInfo());
+        Map<String, List<PrepareJob>> jobsByComponentsKey = new LinkedHashMap<>();
         for (PrepareJob job : prepareJobs)
-            total += setSubnetworks(job.weighting, job.subnetworkEnc);
-        logger.info("Finished finding and marking subnetworks for " + prepareJobs.size() + " jobs, took: " + sw.stop().getSeconds() + "s, " + Helper.getMemInfo());
-        return total;
+            jobsByComponentsKey.computeIfAbsent(getComponentsKey(job), k -> new ArrayList<>()).add(job);
+
+        AtomicInteger total = new AtomicInteger();
+        Map<String, Float> jobSeconds = Collections.synchronizedMap(new LinkedHashMap<>());
+        List<Callable<String>> callables = new ArrayList<>();
+        for (List<PrepareJob> jobs : jobsByComponentsKey.values()) {
+            callables.add(() -> {
+                StopWatch jobSW = new StopWatch().start();
+                EdgeBasedTarjanSCC.ConnectedComponents ccs = findComponents(jobs.get(0));
+                for (PrepareJob job : jobs) {
+                    // different subnetwork encoded values can be stored in the same int, so we must not write concurrently
+                    synchronized (this) {
+                        total.addAndGet(setSubnetworks(ccs, job.weighting, job.subnetworkEnc));
+                    }
+                    jobSeconds.put(job.subnetworkEnc.getName().replaceAll("_subnetwork", ""), jobSW.getCurrentSeconds());
+                }
+                return jobs.toString();
+            });
+        }
+        if (threads == 1)
+            // we do not need a thread pool and keep the exceptions unwrapped
+            for (Callable<String> callable : callables) {
+                try {
+                    callable.call();
+                } catch (RuntimeException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        else
+            GHUtility.runConcurrently(callables, threads);
+        logger.info("Finished finding and marking subnetworks for " + prepareJobs.size() + " jobs (" + jobsByComponentsKey.size()
+                + " component searches), took: " + sw.stop().getSeconds() + "s, per job: " + jobSeconds + ", " + Helper.getMemInfo());
+        return total.get();
     }
 
-    private int setSubnetworks(Weighting weighting, BooleanEncodedValue subnetworkEnc) {
+    /**
+     * Jobs with the same key have the same accessible edges and turn restrictions and therefore the same connected
+     * components. This is the case if their weightings are equal, except for custom weightings whose equality does not
+     * take the custom model into account.
+     */
+    private static String getComponentsKey(PrepareJob job) {
+        if (job.weighting instanceof CustomWeighting)
+            return job.subnetworkEnc.getName();
+        return job.weighting + "|turn_costs=" + job.weighting.hasTurnCosts();
+    }
+
+    private EdgeBasedTarjanSCC.ConnectedComponents findComponents(PrepareJob job) {
         // partition graph into strongly connected components using Tarjan's algorithm
         StopWatch sw = new StopWatch().start();
+        Weighting weighting = job.weighting;
         EdgeBasedTarjanSCC.ConnectedComponents ccs = EdgeBasedTarjanSCC.findComponents(graph,
                 (prev, edge) -> Double.isFinite(GHUtility.calcWeightWithTurnWeightWithAccess(weighting, edge, false, prev)),
                 false);
+        logger.info(job.subnetworkEnc.getName().replaceAll("_subnetwork", "") + " - Found " + ccs.getTotalComponents() + " subnetworks (" + ccs.getSingleEdgeComponents().cardinality() + " single edges and "
+                + ccs.getComponents().size() + " components with more than one edge, total nodes: " + ccs.getEdgeKeys() + "), took: " + sw.stop().getSeconds() + "s");
+        return ccs;
+    }
+
+    private int setSubnetworks(EdgeBasedTarjanSCC.ConnectedComponents ccs, Weighting weighting, BooleanEncodedValue subnetworkEnc) {
         List<IntArrayList> components = ccs.getComponents();
         BitSet singleEdgeComponents = ccs.getSingleEdgeComponents();
         long numSingleEdgeComponents = singleEdgeComponents.cardinality();
-        logger.info(subnetworkEnc.getName().replaceAll("_subnetwork", "") + " - Found " + ccs.getTotalComponents() + " subnetworks (" + numSingleEdgeComponents + " single edges and "
-                + components.size() + " components with more than one edge, total nodes: " + ccs.getEdgeKeys() + "), took: " + sw.stop().getSeconds() + "s");
 
         final int minNetworkSizeEdgeKeys = 2 * minNetworkSize;
 
         // make all small components subnetworks, but keep the biggest (even when its smaller than the given min_network_size)
-        sw = new StopWatch().start();
+        StopWatch sw = new StopWatch().start();
         int subnetworks = 0;
         int markedEdges = 0;
         int smallestNonSubnetwork = ccs.getBiggestComponent().size();
@@ -28,8 +28,7 @@ import java.util.HashSet;
 import java.util.Set;
 import java.util.TreeMap;
 
-import static com.graphhopper.routing.util.PriorityCode.AVOID;
-import static com.graphhopper.routing.util.PriorityCode.VERY_NICE;
+import static com.graphhopper.routing.util.PriorityCode.*;
 
 /**
  * A flag encoder for wheelchairs.
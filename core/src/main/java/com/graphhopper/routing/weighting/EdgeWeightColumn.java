@@ -0,0 +1,136 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.CustomModel;
+import com.graphhopper.util.PMap;
+
+/**
+ * Stores the weight of every edge in both directions as calculated by the weighting of one profile. Reading the weight
+ * from this column is much cheaper than decoding several encoded values from the edge flags, which is what e.g.
+ * CustomWeighting or PriorityWeighting do for every edge. See {@link PrecomputedWeighting}.
+ * <p>
+ * The version of the profile is stored in the header and the column is only loaded if it matches the current profile
+ * version, so it is recalculated automatically whenever the profile changes.
+ */
+public class EdgeWeightColumn {
+    private final String profile;
+    private final Graph graph;
+    private final Directory dir;
+    private DataAccess da;
+    private final int profileVersion;
+    private int edges = -1;
+
+    public EdgeWeightColumn(String profile, int profileVersion, Graph graph, Directory dir) {
+        this.profile = profile;
+        this.profileVersion = profileVersion;
+        this.graph = graph;
+        this.dir = dir;
+        this.da = dir.create("weights_" + profile);
+    }
+
+    /**
+     * Calculates the weights of all edges with the given weighting. The weighting must not include request specific
+     * adjustments like block areas.
+     */
+    public EdgeWeightColumn prepare(Weighting weighting) {
+        if (da.isClosed()) {
+            // an outdated column was found in loadExisting, replace it
+            String name = da.getName();
+            dir.remove(name);
+            da = dir.create(name);
+        }
+        edges = graph.getEdges();
+        da.create(8L * edges);
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            // the state of the all edges iterator always has the storage direction, so its edge key is 2 * edge
+            long pointer = 8L * iter.getEdge();
+            da.setInt(pointer, Float.floatToRawIntBits((float) weighting.calcEdgeWeight(iter, false)));
+            da.setInt(pointer + 4, Float.floatToRawIntBits((float) weighting.calcEdgeWeight(iter, true)));
+        }
+        da.setHeader(0, edges);
+        da.setHeader(4, profileVersion);
+        return this;
+    }
+
+    /**
+     * @return false if there is no column for this profile or if it was created for a different version of the
+     * profile or graph and has to be prepared again.
+     */
+    public boolean loadExisting() {
+        if (!da.loadExisting())
+            return false;
+        if (da.getHeader(0) != graph.getEdges() || da.getHeader(4) != profileVersion) {
+            da.close();
+            return false;
+        }
+        edges = da.getHeader(0);
+        return true;
+    }
+
+    /**
+     * @return the weight of the edge with the given edge key, i.e. the edge in the direction encoded in the key
+     */
+    public double getWeight(int edgeKey) {
+        return Float.intBitsToFloat(da.getInt(4L * edgeKey));
+    }
+
+    /**
+     * @return the number of edges in this column. Edges with a larger id, like virtual edges, are not contained.
+     */
+    public int getEdges() {
+        return edges;
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    /**
+     * The column was calculated with the weighting of the profile and without any request hints. This method returns
+     * false if the request hints change the weight of the (non-virtual) edges so the column cannot be used.
+     */
+    public static boolean isCompatible(PMap requestHints) {
+        return requestHints.getObject(CustomModel.KEY, null) == null
+                && !requestHints.has("road_access_destination_factor")
+                && !requestHints.has("road_access_private_factor")
+                && !requestHints.has(ShortFastestWeighting.TIME_FACTOR)
+                && !requestHints.has(ShortFastestWeighting.DISTANCE_FACTOR);
+    }
+
+    public void flush() {
+        da.flush();
+    }
+
+    public void close() {
+        da.close();
+    }
+
+    public boolean isClosed() {
+        return da.isClosed();
+    }
+
+    public long getCapacity() {
+        return da.getCapacity();
+    }
+}
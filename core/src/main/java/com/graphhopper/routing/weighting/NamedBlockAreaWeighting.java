@@ -0,0 +1,51 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.storage.NamedBlockAreas;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.List;
+
+/**
+ * This weighting is a wrapper for every weighting to support block_area_names. In contrast to
+ * {@link BlockAreaWeighting} the edges of the areas are known up-front, so no geometry is needed here.
+ */
+public class NamedBlockAreaWeighting extends AbstractAdjustedWeighting {
+
+    private final NamedBlockAreas.Area[] areas;
+
+    public NamedBlockAreaWeighting(Weighting superWeighting, List<NamedBlockAreas.Area> areas) {
+        super(superWeighting);
+        this.areas = areas.toArray(new NamedBlockAreas.Area[0]);
+    }
+
+    @Override
+    public double calcEdgeWeight(EdgeIteratorState edgeState, boolean reverse) {
+        for (NamedBlockAreas.Area area : areas) {
+            if (area.intersects(edgeState))
+                return Double.POSITIVE_INFINITY;
+        }
+        return superWeighting.calcEdgeWeight(edgeState, reverse);
+    }
+
+    @Override
+    public String getName() {
+        return "block_area_names";
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.util.EdgeIteratorState;
+
+/**
+ * Reads the edge weights from an {@link EdgeWeightColumn} instead of calculating them. Virtual edges, the time and
+ * the turn costs are still calculated by the wrapped weighting, which must be the weighting the column was created
+ * with.
+ */
+public class PrecomputedWeighting extends AbstractAdjustedWeighting {
+    private final EdgeWeightColumn column;
+    private final int edges;
+
+    public PrecomputedWeighting(Weighting superWeighting, EdgeWeightColumn column) {
+        super(superWeighting);
+        this.column = column;
+        this.edges = column.getEdges();
+    }
+
+    @Override
+    public double calcEdgeWeight(EdgeIteratorState edgeState, boolean reverse) {
+        if (edgeState.getEdge() >= edges)
+            return superWeighting.calcEdgeWeight(edgeState, reverse);
+        int edgeKey = edgeState.getEdgeKey();
+        return column.getWeight(reverse ? edgeKey ^ 1 : edgeKey);
+    }
+
+    @Override
+    public String getName() {
+        return superWeighting.getName();
+    }
+
+    @Override
+    public String toString() {
+        return superWeighting.toString();
+    }
+}
@@ -17,6 +17,7 @@
  */
 package com.graphhopper.search;
 
+import com.graphhopper.coll.GHObjectIntHashMap;
 import com.graphhopper.storage.DataAccess;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.util.BitUtil;
@@ -27,38 +28,57 @@ import com.graphhopper.util.Helper;
 import java.util.*;
 
 /**
+ * Stores the key-value pairs of an edge, like the street name. Every distinct value is stored only once in a value
+ * dictionary and the entries only reference it, so the many edges of a street share its name. Reading a value goes
+ * through a small cache of String instances, so repeated lookups of the same street name do not allocate anything.
+ * <p>
+ * Graphs of the previous version without the dictionary can still be read, but not modified.
+ *
  * @author Peter Karich
  */
 public class StringIndex {
     private static final long EMPTY_POINTER = 0, START_POINTER = 1;
-    // Store the key index in 2 bytes. Use negative values for marking the value as duplicate.
+    // the layout without the value dictionary, still supported for reading
+    private static final int LEGACY_VERSION = 6;
+    // Store the key index in 2 bytes as signed short, see the legacy layout below
     static final int MAX_UNIQUE_KEYS = (1 << 15);
     // Store string value as byte array and store the length into 1 byte
     private static final int MAX_LENGTH = (1 << 8) - 1;
+    // the value pointer is stored as unsigned int
+    private static final long MAX_DICT_POINTER = 0xFFFF_FFFFL;
+    private static final int VALUE_CACHE_BITS = 14;
     boolean throwExceptionIfTooLong = false;
     private final DataAccess keys;
     // storage layout per entry:
-    // 1 byte    | 2 bytes  | 1 byte      | x    | 2 bytes  | 1 byte      | x    | 2 bytes  (dup example) | 4 bytes | ...
-    // vals count| key_idx_0| val_length_0| val_0| key_idx_1| val_length_1| val_1| -key_idx_2             | delta_2 | key_idx_3 | val_length_3 | val_3
-    // Drawback: we need to loop through the entries to get the start of val_x.
-    // Note, that we detect duplicate values via smallCache and then use the negative key index as 'duplicate' marker.
-    // We then store only the delta (signed int) instead the absolute unsigned long value to reduce memory usage when duplicate entries.
+    // 1 byte    | 2 bytes  | 4 bytes    | 2 bytes  | 4 bytes    | ...
+    // vals count| key_idx_0| val_ptr_0  | key_idx_1| val_ptr_1  | ...
+    // where val_ptr_x points into the value dictionary. All entries have the same size, so skipping keys is cheap.
     private final DataAccess vals;
-    // array.indexOf could be faster than hashmap.get if not too many keys or even sort keys and use binarySearch
-    private final Map<String, Integer> keysInMem = new LinkedHashMap<>();
+    // storage layout of the value dictionary, the empty string is always stored at pointer 0:
+    // 1 byte      | x    | 1 byte      | x    | ...
+    // val_length_0| val_0| val_length_1| val_1| ...
+    private final DataAccess dict;
+    private final GHObjectIntHashMap<String> keysInMem = new GHObjectIntHashMap<>();
     private final List<String> keyList = new ArrayList<>();
+    // the dictionary pointers of recently added values, a larger cache finds more duplicates while adding
     private final Map<String, Long> smallCache;
+    // a direct mapped cache for the decoded values, the entries are immutable so it can be read concurrently
+    private final CachedValue[] valueCache = new CachedValue[1 << VALUE_CACHE_BITS];
+    private boolean legacy;
     private long bytePointer = START_POINTER;
+    private long dictBytePointer = 1;
     private long lastEntryPointer = -1;
     private Map<String, String> lastEntryMap;
 
     /**
-     * Specify a larger cacheSize to reduce disk usage. Note that this increases the memory usage of this object.
+     * Specify a larger cacheSize to reduce disk usage. Note that this increases the memory usage of this object while
+     * adding values.
      */
     public StringIndex(Directory dir, final int cacheSize, final int segmentSize) {
         keys = dir.create("string_index_keys", segmentSize);
         vals = dir.create("string_index_vals", segmentSize);
-        smallCache = new LinkedHashMap<String, Long>(cacheSize, 0.75f, true) {
+        dict = dir.create("string_index_dict", segmentSize);
+        smallCache = new LinkedHashMap<String, Long>(Math.min(cacheSize, 1000), 0.75f, true) {
             @Override
             protected boolean removeEldestEntry(Map.Entry<String, Long> entry) {
                 return size() > cacheSize;
@@ -69,9 +89,11 @@ public class StringIndex {
     public StringIndex create(long initBytes) {
         keys.create(initBytes);
         vals.create(initBytes);
-        // add special empty case to have a reliable duplicate detection via negative keyIndex
-        keysInMem.put("", 0);
-        keyList.add("");
+        dict.create(initBytes);
+        // the empty value
+        dict.setByte(0, (byte) 0);
+        // the empty key has the index 0, so the key indices are the same as in the legacy layout
+        addKey("");
         return this;
     }
 
@@ -81,8 +103,15 @@ public class StringIndex {
                 throw new IllegalStateException("Loaded values but cannot load keys");
             int stringIndexKeysVersion = keys.getHeader(0);
             int stringIndexValsVersion = vals.getHeader(0);
-            GHUtility.checkDAVersion(keys.getName(), Constants.VERSION_STRING_IDX, stringIndexKeysVersion);
-            GHUtility.checkDAVersion(vals.getName(), Constants.VERSION_STRING_IDX, stringIndexValsVersion);
+            legacy = stringIndexValsVersion == LEGACY_VERSION && stringIndexKeysVersion == LEGACY_VERSION;
+            if (!legacy) {
+                GHUtility.checkDAVersion(keys.getName(), Constants.VERSION_STRING_IDX, stringIndexKeysVersion);
+                GHUtility.checkDAVersion(vals.getName(), Constants.VERSION_STRING_IDX, stringIndexValsVersion);
+                if (!dict.loadExisting())
+                    throw new IllegalStateException("Loaded values but cannot load value dictionary");
+                GHUtility.checkDAVersion(dict.getName(), Constants.VERSION_STRING_IDX, dict.getHeader(0));
+                dictBytePointer = BitUtil.LITTLE.combineIntsToLong(dict.getHeader(4), dict.getHeader(8));
+            }
             bytePointer = BitUtil.LITTLE.combineIntsToLong(vals.getHeader(4), vals.getHeader(8));
 
             // load keys into memory
@@ -94,9 +123,7 @@ public class StringIndex {
 
                 byte[] keyBytes = new byte[keyLength];
                 keys.getBytes(keyBytePointer, keyBytes, keyLength);
-                String valueStr = new String(keyBytes, Helper.UTF_CS);
-                keysInMem.put(valueStr, keysInMem.size());
-                keyList.add(valueStr);
+                addKey(new String(keyBytes, Helper.UTF_CS));
                 keyBytePointer += keyLength;
             }
             return true;
@@ -105,8 +132,23 @@ public class StringIndex {
         return false;
     }
 
-    Set<String> getKeys() {
-        return keysInMem.keySet();
+    private int addKey(String key) {
+        int keyIndex = keyList.size();
+        keysInMem.put(key, keyIndex);
+        keyList.add(key);
+        return keyIndex;
+    }
+
+    List<String> getKeys() {
+        return keyList;
+    }
+
+    /**
+     * @return true if this index was created by a previous version without value dictionary. It can be read but not
+     * modified. Import the graph again to use the new layout.
+     */
+    public boolean isLegacy() {
+        return legacy;
     }
 
     /**
@@ -115,6 +157,8 @@ public class StringIndex {
      * @return entryPointer to later fetch the entryMap via get
      */
     public long add(Map<String, String> entryMap) {
+        if (legacy)
+            throw new IllegalStateException("Cannot add values to a string index of version " + LEGACY_VERSION + ", import the graph again");
         if (entryMap.isEmpty())
             return EMPTY_POINTER;
         else if (entryMap.size() > 200)
@@ -124,66 +168,73 @@ public class StringIndex {
         if (entryMap.equals(lastEntryMap))
             return lastEntryPointer;
 
-        lastEntryMap = entryMap;
-        lastEntryPointer = bytePointer;
-        // while adding there could be exceptions and we need to avoid that the bytePointer is modified
-        long currentPointer = bytePointer;
-
-        vals.ensureCapacity(currentPointer + 1);
-        vals.setByte(currentPointer, (byte) entryMap.size());
-        currentPointer += 1;
-        for (Map.Entry<String, String> entry : entryMap.entrySet()) {
-            String key = entry.getKey(), value = entry.getValue();
-            Integer keyIndex = keysInMem.get(key);
-            if (keyIndex == null) {
-                keyIndex = keysInMem.size();
-                if (keyIndex >= MAX_UNIQUE_KEYS)
+        // check the keys first, to avoid that the entry is only partially written
+        for (String key : entryMap.keySet()) {
+            if (!keysInMem.containsKey(key)) {
+                if (keyList.size() >= MAX_UNIQUE_KEYS)
                     throw new IllegalArgumentException("Cannot store more than " + MAX_UNIQUE_KEYS + " unique keys");
-                keysInMem.put(key, keyIndex);
-                keyList.add(key);
+                addKey(key);
             }
+        }
 
-            if (value == null || value.isEmpty()) {
-                vals.ensureCapacity(currentPointer + 3);
-                vals.setShort(currentPointer, keyIndex.shortValue());
-                // ensure that also in case of MMap value is set to 0
-                vals.setByte(currentPointer + 2, (byte) 0);
-                currentPointer += 3;
-            } else {
-                Long existingRef = smallCache.get(value);
-                if (existingRef != null) {
-                    long delta = lastEntryPointer - existingRef;
-                    if (delta < Integer.MAX_VALUE && delta > Integer.MIN_VALUE) {
-                        vals.ensureCapacity(currentPointer + 2 + 4);
-                        vals.setShort(currentPointer, (short) -keyIndex);
-                        currentPointer += 2;
-                        // do not store valueBytes.length as we know it already: it is 4!
-                        byte[] valueBytes = new byte[4];
-                        BitUtil.LITTLE.fromInt(valueBytes, (int) delta);
-                        vals.setBytes(currentPointer, valueBytes, valueBytes.length);
-                        currentPointer += valueBytes.length;
-                        continue;
-                    } else {
-                        smallCache.remove(value);
-                    }
-                }
-
-                byte[] valueBytes = getBytesForString("Value for key" + key, value);
-                // only cache value if storing via duplicate marker is valuable (the delta costs 4 bytes minus 1 due to omitted valueBytes.length storage)
-                if (valueBytes.length > 3)
-                    smallCache.put(value, currentPointer);
-
-                vals.ensureCapacity(currentPointer + 2 + 1 + valueBytes.length);
-                vals.setShort(currentPointer, keyIndex.shortValue());
-                currentPointer += 2;
-                vals.setByte(currentPointer, (byte) valueBytes.length);
-                currentPointer++;
-                vals.setBytes(currentPointer, valueBytes, valueBytes.length);
-                currentPointer += valueBytes.length;
-            }
+        long entryPointer = bytePointer;
+        vals.ensureCapacity(entryPointer + 1 + 6L * entryMap.size());
+        vals.setByte(entryPointer, (byte) entryMap.size());
+        long currentPointer = entryPointer + 1;
+        for (Map.Entry<String, String> entry : entryMap.entrySet()) {
+            vals.setShort(currentPointer, (short) keysInMem.get(entry.getKey()));
+            vals.setInt(currentPointer + 2, (int) getOrAddValue(entry.getKey(), entry.getValue()));
+            currentPointer += 6;
         }
+        lastEntryMap = entryMap;
+        lastEntryPointer = entryPointer;
         bytePointer = currentPointer;
-        return lastEntryPointer;
+        return entryPointer;
+    }
+
+    private long getOrAddValue(String key, String value) {
+        if (value == null || value.isEmpty())
+            return 0;
+        Long existingPointer = smallCache.get(value);
+        if (existingPointer != null)
+            return existingPointer;
+
+        byte[] valueBytes = getBytesForString("Value for key" + key, value);
+        long pointer = dictBytePointer;
+        if (pointer + 1 + valueBytes.length > MAX_DICT_POINTER)
+            throw new IllegalStateException("Cannot store more than " + MAX_DICT_POINTER + " bytes of distinct values");
+        dict.ensureCapacity(pointer + 1 + valueBytes.length);
+        dict.setByte(pointer, (byte) valueBytes.length);
+        dict.setBytes(pointer + 1, valueBytes, valueBytes.length);
+        dictBytePointer = pointer + 1 + valueBytes.length;
+        smallCache.put(value, pointer);
+        return pointer;
+    }
+
+    private String getValue(long dictPointer) {
+        if (dictPointer == 0)
+            return "";
+        int slot = (int) ((dictPointer * 0x9E3779B97F4A7C15L) >>> (64 - VALUE_CACHE_BITS));
+        CachedValue cached = valueCache[slot];
+        if (cached != null && cached.pointer == dictPointer)
+            return cached.value;
+
+        int valueLength = dict.getByte(dictPointer) & 0xFF;
+        byte[] valueBytes = new byte[valueLength];
+        dict.getBytes(dictPointer + 1, valueBytes, valueBytes.length);
+        String value = new String(valueBytes, Helper.UTF_CS);
+        valueCache[slot] = new CachedValue(dictPointer, value);
+        return value;
+    }
+
+    private static final class CachedValue {
+        final long pointer;
+        final String value;
+
+        CachedValue(long pointer, String value) {
+            this.pointer = pointer;
+            this.value = value;
+        }
     }
 
     public Map<String, String> getAll(final long entryPointer) {
@@ -192,6 +243,8 @@ public class StringIndex {
 
         if (entryPointer == EMPTY_POINTER)
             return Collections.emptyMap();
+        if (legacy)
+            return getAllLegacy(entryPointer);
 
         int keyCount = vals.getByte(entryPointer) & 0xFF;
         if (keyCount == 0)
@@ -200,46 +253,14 @@ public class StringIndex {
         Map<String, String> map = new LinkedHashMap<>(keyCount);
         long tmpPointer = entryPointer + 1;
         for (int i = 0; i < keyCount; i++) {
-            int currentKeyIndex = vals.getShort(tmpPointer);
-            tmpPointer += 2;
-
-            if (currentKeyIndex < 0) {
-                currentKeyIndex = -currentKeyIndex;
-                byte[] valueBytes = new byte[4];
-                vals.getBytes(tmpPointer, valueBytes, valueBytes.length);
-                tmpPointer += 4;
-
-                long dupPointer = entryPointer - BitUtil.LITTLE.toInt(valueBytes);
-                dupPointer += 2;
-                if (dupPointer > bytePointer)
-                    throw new IllegalStateException("dup marker should exist but points into not yet allocated area " + dupPointer + " > " + bytePointer);
-                putIntoMap(map, dupPointer, currentKeyIndex);
-            } else {
-                int valueLength = putIntoMap(map, tmpPointer, currentKeyIndex);
-                tmpPointer += 1 + valueLength;
-            }
+            int keyIndex = vals.getShort(tmpPointer);
+            long dictPointer = vals.getInt(tmpPointer + 2) & 0xFFFF_FFFFL;
+            map.put(keyList.get(keyIndex), getValue(dictPointer));
+            tmpPointer += 6;
         }
-
-        // value for specified key does not existing for the specified pointer
         return map;
     }
 
-    private int putIntoMap(Map<String, String> map, long tmpPointer, int currentKeyIndex) {
-        int valueLength = vals.getByte(tmpPointer) & 0xFF;
-        tmpPointer++;
-        String valueStr;
-        if (valueLength == 0) {
-            valueStr = "";
-        } else {
-            byte[] valueBytes = new byte[valueLength];
-            vals.getBytes(tmpPointer, valueBytes, valueBytes.length);
-            valueStr = new String(valueBytes, Helper.UTF_CS);
-        }
-
-        map.put(keyList.get(currentKeyIndex), valueStr);
-        return valueLength;
-    }
-
     public String get(final long entryPointer, String key) {
         if (entryPointer < 0)
             throw new IllegalStateException("Pointer to access StringIndex cannot be negative:" + entryPointer);
@@ -251,42 +272,88 @@ public class StringIndex {
         if (keyCount == 0)
             return null;
 
-        Integer keyIndex = keysInMem.get(key);
+        int keyIndex = keysInMem.getOrDefault(key, -1);
         // specified key is not known to the StringIndex
-        if (keyIndex == null)
+        if (keyIndex < 0)
             return null;
+        if (legacy)
+            return getLegacy(entryPointer, keyCount, keyIndex);
+
+        long tmpPointer = entryPointer + 1;
+        for (int i = 0; i < keyCount; i++) {
+            if (vals.getShort(tmpPointer) == keyIndex)
+                return getValue(vals.getInt(tmpPointer + 2) & 0xFFFF_FFFFL);
+            tmpPointer += 6;
+        }
+
+        // value for specified key does not exist for the specified pointer
+        return null;
+    }
+
+    // The legacy layout stores the values in the entries:
+    // 1 byte    | 2 bytes  | 1 byte      | x    | 2 bytes  | 1 byte      | x    | 2 bytes  (dup example) | 4 bytes | ...
+    // vals count| key_idx_0| val_length_0| val_0| key_idx_1| val_length_1| val_1| -key_idx_2             | delta_2 | key_idx_3 | val_length_3 | val_3
+    // A negative key index marks a duplicate and is followed by the delta to the entry that contains the value. The empty
+    // key always has the index 0 as it cannot be negated, and key indices are limited to MAX_UNIQUE_KEYS.
+    private Map<String, String> getAllLegacy(final long entryPointer) {
+        int keyCount = vals.getByte(entryPointer) & 0xFF;
+        if (keyCount == 0)
+            return Collections.emptyMap();
 
+        Map<String, String> map = new LinkedHashMap<>(keyCount);
         long tmpPointer = entryPointer + 1;
         for (int i = 0; i < keyCount; i++) {
             int currentKeyIndex = vals.getShort(tmpPointer);
             tmpPointer += 2;
-            if (Math.abs(currentKeyIndex) == keyIndex) {
-                if (currentKeyIndex < 0) {
-                    byte[] valueBytes = new byte[4];
-                    vals.getBytes(tmpPointer, valueBytes, valueBytes.length);
-                    tmpPointer = entryPointer - BitUtil.LITTLE.toInt(valueBytes);
-                    tmpPointer += 2;
-                    if (tmpPointer > bytePointer)
-                        throw new IllegalStateException("dup marker " + bytePointer + " should exist but points into not yet allocated area " + tmpPointer);
-                }
-
-                int valueLength = vals.getByte(tmpPointer) & 0xFF;
-                if (valueLength == 0)
-                    return "";
-
-                tmpPointer++;
-                byte[] valueBytes = new byte[valueLength];
-                vals.getBytes(tmpPointer, valueBytes, valueBytes.length);
-                return new String(valueBytes, Helper.UTF_CS);
+
+            if (currentKeyIndex < 0) {
+                long dupPointer = getLegacyDupPointer(entryPointer, tmpPointer);
+                tmpPointer += 4;
+                map.put(keyList.get(-currentKeyIndex), getLegacyValue(dupPointer));
+            } else {
+                map.put(keyList.get(currentKeyIndex), getLegacyValue(tmpPointer));
+                tmpPointer += 1 + (vals.getByte(tmpPointer) & 0xFF);
             }
-            int valueLength = vals.getByte(tmpPointer) & 0xFF;
-            tmpPointer += 1 + valueLength;
         }
+        return map;
+    }
 
-        // value for specified key does not exist for the specified pointer
+    private String getLegacy(final long entryPointer, int keyCount, int keyIndex) {
+        long tmpPointer = entryPointer + 1;
+        for (int i = 0; i < keyCount; i++) {
+            int currentKeyIndex = vals.getShort(tmpPointer);
+            tmpPointer += 2;
+            if (Math.abs(currentKeyIndex) == keyIndex) {
+                if (currentKeyIndex < 0)
+                    tmpPointer = getLegacyDupPointer(entryPointer, tmpPointer);
+                return getLegacyValue(tmpPointer);
+            }
+            if (currentKeyIndex < 0)
+                tmpPointer += 4;
+            else
+                tmpPointer += 1 + (vals.getByte(tmpPointer) & 0xFF);
+        }
         return null;
     }
 
+    private long getLegacyDupPointer(long entryPointer, long deltaPointer) {
+        byte[] valueBytes = new byte[4];
+        vals.getBytes(deltaPointer, valueBytes, valueBytes.length);
+        long dupPointer = entryPointer - BitUtil.LITTLE.toInt(valueBytes) + 2;
+        if (dupPointer > bytePointer)
+            throw new IllegalStateException("dup marker should exist but points into not yet allocated area " + dupPointer + " > " + bytePointer);
+        return dupPointer;
+    }
+
+    private String getLegacyValue(long pointer) {
+        int valueLength = vals.getByte(pointer) & 0xFF;
+        if (valueLength == 0)
+            return "";
+        byte[] valueBytes = new byte[valueLength];
+        vals.getBytes(pointer + 1, valueBytes, valueBytes.length);
+        return new String(valueBytes, Helper.UTF_CS);
+    }
+
     private byte[] getBytesForString(String info, String name) {
         byte[] bytes = name.getBytes(Helper.UTF_CS);
         if (bytes.length > MAX_LENGTH) {
@@ -300,11 +367,17 @@ public class StringIndex {
     }
 
     public void flush() {
+        if (legacy) {
+            // the legacy layout is read-only, keep the files unchanged
+            keys.flush();
+            vals.flush();
+            return;
+        }
         keys.setHeader(0, Constants.VERSION_STRING_IDX);
         keys.ensureCapacity(2);
-        keys.setShort(0, (short) keysInMem.size());
+        keys.setShort(0, (short) keyList.size());
         long keyBytePointer = 2;
-        for (String key : keysInMem.keySet()) {
+        for (String key : keyList) {
             byte[] keyBytes = getBytesForString("key", key);
             keys.ensureCapacity(keyBytePointer + 2 + keyBytes.length);
             keys.setShort(keyBytePointer, (short) keyBytes.length);
@@ -319,19 +392,25 @@ public class StringIndex {
         vals.setHeader(4, BitUtil.LITTLE.getIntLow(bytePointer));
         vals.setHeader(8, BitUtil.LITTLE.getIntHigh(bytePointer));
         vals.flush();
+
+        dict.setHeader(0, Constants.VERSION_STRING_IDX);
+        dict.setHeader(4, BitUtil.LITTLE.getIntLow(dictBytePointer));
+        dict.setHeader(8, BitUtil.LITTLE.getIntHigh(dictBytePointer));
+        dict.flush();
     }
 
     public void close() {
         keys.close();
         vals.close();
+        dict.close();
     }
 
     public boolean isClosed() {
-        return vals.isClosed() && keys.isClosed();
+        return vals.isClosed() && keys.isClosed() && dict.isClosed();
     }
 
     public long getCapacity() {
-        return vals.getCapacity() + keys.getCapacity();
+        return vals.getCapacity() + keys.getCapacity() + dict.getCapacity();
     }
 
 }
@@ -22,7 +22,9 @@ import com.graphhopper.util.Helper;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 
 /**
  * @author Peter Karich
@@ -42,6 +44,10 @@ public abstract class AbstractDataAccess implements DataAccess {
     protected int segmentSizePower;
     protected int indexDivisor;
     protected boolean closed = false;
+    // CRC32 of the data area as read from the file header, 0 means no checksum was stored
+    protected int storedChecksum;
+    protected boolean verifyChecksum = false;
+    protected long loadMillis = -1;
 
     public AbstractDataAccess(String name, String location, int segmentSize) {
         this.name = name;
@@ -89,6 +95,14 @@ public abstract class AbstractDataAccess implements DataAccess {
      * Writes some internal data into the beginning of the specified file.
      */
     protected void writeHeader(RandomAccessFile file, long length, int segmentSize) throws IOException {
+        writeHeader(file, length, segmentSize, 0);
+    }
+
+    /**
+     * Writes some internal data into the beginning of the specified file. The checksum is stored in the last four
+     * bytes of the header and is 0 if it is unknown.
+     */
+    protected void writeHeader(RandomAccessFile file, long length, int segmentSize, int checksum) throws IOException {
         file.seek(0);
         file.writeUTF("GH");
         file.writeLong(length);
@@ -96,12 +110,20 @@ public abstract class AbstractDataAccess implements DataAccess {
         for (int i = 0; i < header.length; i++) {
             file.writeInt(header[i]);
         }
+        file.writeInt(checksum);
     }
 
     protected long readHeader(RandomAccessFile raFile) throws IOException {
-        raFile.seek(0);
-        if (raFile.length() == 0)
+        return readHeader(raFile, 0);
+    }
+
+    /**
+     * Reads the header that starts at the specified position of the file.
+     */
+    protected long readHeader(RandomAccessFile raFile, long offset) throws IOException {
+        if (raFile.length() <= offset)
             return -1;
+        raFile.seek(offset);
 
         String versionHint = raFile.readUTF();
         if (!"GH".equals(versionHint))
@@ -112,9 +134,52 @@ public abstract class AbstractDataAccess implements DataAccess {
         for (int i = 0; i < header.length; i++) {
             header[i] = raFile.readInt();
         }
+        storedChecksum = raFile.readInt();
         return bytes;
     }
 
+    /**
+     * Reads from the channel until the buffer is full or the end of the file is reached.
+     *
+     * @return the number of bytes read
+     */
+    protected static int readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int read = 0;
+        while (buffer.hasRemaining()) {
+            int tmp = channel.read(buffer);
+            if (tmp < 0)
+                break;
+            read += tmp;
+        }
+        return read;
+    }
+
+    /**
+     * Compares the specified checksum of the loaded data with the one stored in the header. Files written without
+     * a checksum are accepted.
+     */
+    protected void checkChecksum(int checksum) {
+        if (storedChecksum != 0 && storedChecksum != checksum)
+            throw new IllegalStateException("Checksum of " + getFullName() + " does not match. Expected "
+                    + storedChecksum + " but was " + checksum + ". The file is corrupt or was not completely written.");
+    }
+
+    /**
+     * If enabled the data read in loadExisting is verified against the checksum stored on flush. This only applies to
+     * the in-memory implementations as they read all data anyway.
+     */
+    DataAccess setVerifyChecksum(boolean verifyChecksum) {
+        this.verifyChecksum = verifyChecksum;
+        return this;
+    }
+
+    /**
+     * @return the time in milliseconds the last successful call of loadExisting took or -1 if nothing was loaded
+     */
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
     protected void copyHeader(DataAccess da) {
         for (int h = 0; h < header.length * 4; h += 4) {
             da.setHeader(h, getHeader(h));
@@ -27,7 +27,10 @@ import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
 
 import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 import static com.graphhopper.util.Helper.nf;
 
@@ -62,7 +65,7 @@ public class BaseGraph implements Graph, Closeable {
         this.dir = dir;
         this.bitUtil = BitUtil.LITTLE;
         this.wayGeometry = dir.create("geometry", segmentSize);
-        this.stringIndex = new StringIndex(dir, 1000, segmentSize);
+        this.stringIndex = new StringIndex(dir, 100_000, segmentSize);
         this.store = new BaseGraphNodesAndEdges(dir, intsForFlags, withElevation, withTurnCosts, segmentSize);
         this.nodeAccess = new GHNodeAccess(store);
         this.segmentSize = segmentSize;
@@ -224,20 +227,65 @@ public class BaseGraph implements Graph, Closeable {
         return maxGeoRef;
     }
 
-    public void loadExisting() {
-        checkNotInitialized();
+    /**
+     * @return the position of the pillar nodes of the given edge in the geometry storage or 0 if it has none
+     */
+    long getGeoRef(int edge) {
+        return Helper.toUnsignedLong(store.getGeoRef(store.toEdgePointer(edge)));
+    }
 
-        if (!store.loadExisting())
-            throw new IllegalStateException("Cannot load edges or nodes. corrupt file or directory? " + dir);
+    int getPillarCount(long geoRef) {
+        return geoRef == 0 ? 0 : wayGeometry.getInt(geoRef * 4L);
+    }
 
-        if (!wayGeometry.loadExisting())
-            throw new IllegalStateException("Cannot load geometry. corrupt file or directory? " + dir);
+    public void loadExisting() {
+        loadExisting(1);
+    }
 
-        if (!stringIndex.loadExisting())
-            throw new IllegalStateException("Cannot load name index. corrupt file or directory? " + dir);
+    /**
+     * Loads the existing data. The nodes, edges, way geometry, names and turn costs are independent of each other and
+     * are loaded concurrently if more than one thread is specified.
+     */
+    public void loadExisting(int threads) {
+        checkNotInitialized();
 
-        if (supportsTurnCosts() && !turnCostStorage.loadExisting())
-            throw new IllegalStateException("Cannot load turn cost storage. corrupt file or directory? " + dir);
+        List<Callable<String>> callables = new ArrayList<>();
+        callables.add(() -> {
+            if (!store.loadExisting())
+                throw new IllegalStateException("Cannot load edges or nodes. corrupt file or directory? " + dir);
+            return "nodes_and_edges";
+        });
+        callables.add(() -> {
+            if (!wayGeometry.loadExisting())
+                throw new IllegalStateException("Cannot load geometry. corrupt file or directory? " + dir);
+            return wayGeometry.getName();
+        });
+        callables.add(() -> {
+            if (!stringIndex.loadExisting())
+                throw new IllegalStateException("Cannot load name index. corrupt file or directory? " + dir);
+            return "string_index";
+        });
+        if (supportsTurnCosts())
+            callables.add(() -> {
+                if (!turnCostStorage.loadExisting())
+                    throw new IllegalStateException("Cannot load turn cost storage. corrupt file or directory? " + dir);
+                return "turn_costs";
+            });
+
+        if (threads > 1) {
+            GHUtility.runConcurrently(callables, Math.min(threads, callables.size()));
+        } else {
+            // keep the exceptions unwrapped when loading sequentially
+            for (Callable<String> callable : callables) {
+                try {
+                    callable.call();
+                } catch (RuntimeException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        }
 
         setInitialized();
         loadWayGeometryHeader();
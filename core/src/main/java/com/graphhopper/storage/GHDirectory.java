@@ -17,11 +17,11 @@
  */
 package com.graphhopper.storage;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.File;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.*;
 
 import static com.graphhopper.storage.DAType.RAM_INT;
 import static com.graphhopper.storage.DAType.RAM_INT_STORE;
@@ -33,12 +33,15 @@ import static com.graphhopper.util.Helper.*;
  * @author Peter Karich
  */
 public class GHDirectory implements Directory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GHDirectory.class);
     protected final String location;
     private final DAType typeFallback;
     // first rule matches => LinkedHashMap
     private final Map<String, DAType> defaultTypes = new LinkedHashMap<>();
     private final Map<String, Integer> mmapPreloads = new LinkedHashMap<>();
     private final Map<String, DataAccess> map = Collections.synchronizedMap(new HashMap<>());
+    private boolean verifyChecksums = false;
+    private GraphSnapshot snapshot;
 
     public GHDirectory(String _location, DAType defaultType) {
         this.typeFallback = defaultType;
@@ -87,14 +90,66 @@ public class GHDirectory implements Directory {
         return 0;
     }
 
+    /**
+     * Loads the configured percentage of the memory mapped DataAccess objects into physical memory and reports the
+     * progress after every file. This can be called from a background thread while the DataAccess objects are already
+     * in use.
+     */
     public void loadMMap() {
-        for (DataAccess da : map.values()) {
-            if (!(da instanceof MMapDataAccess))
-                continue;
+        List<MMapDataAccess> toLoad = new ArrayList<>();
+        synchronized (map) {
+            for (DataAccess da : map.values())
+                if (da instanceof MMapDataAccess && getPreload(da.getName()) > 0)
+                    toLoad.add((MMapDataAccess) da);
+        }
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < toLoad.size(); i++) {
+            MMapDataAccess da = toLoad.get(i);
             int preload = getPreload(da.getName());
-            if (preload > 0)
-                ((MMapDataAccess) da).load(preload);
+            da.load(preload);
+            LOGGER.info("preloaded " + da.getName() + " (" + preload + "%, " + da.getCapacity() / MB + "MB), "
+                    + (i + 1) + "/" + toLoad.size() + " files, " + (System.currentTimeMillis() - start) / 1000 + "s");
+        }
+    }
+
+    /**
+     * If enabled the in-memory DataAccess objects verify the checksum of their data when they are loaded. As the
+     * DataAccess objects are loaded concurrently the verification is done in parallel too.
+     */
+    public GHDirectory setVerifyChecksums(boolean verifyChecksums) {
+        this.verifyChecksums = verifyChecksums;
+        return this;
+    }
+
+    /**
+     * Reads the DataAccess objects from the sections of the specified snapshot file instead of the separate files in
+     * the location of this directory. The sections are memory mapped read only, regardless of the configured DAType.
+     * DataAccess objects that are not part of the snapshot are still created in the location of this directory.
+     */
+    public GHDirectory setSnapshot(GraphSnapshot snapshot) {
+        this.snapshot = snapshot;
+        return this;
+    }
+
+    /**
+     * Logs the time it took to load every DataAccess object of this directory, slowest first.
+     */
+    public void logLoadTimes() {
+        List<AbstractDataAccess> loaded = new ArrayList<>();
+        synchronized (map) {
+            for (DataAccess da : map.values())
+                if (da instanceof AbstractDataAccess && ((AbstractDataAccess) da).getLoadMillis() >= 0)
+                    loaded.add((AbstractDataAccess) da);
+        }
+        loaded.sort(Comparator.comparingLong(AbstractDataAccess::getLoadMillis).reversed());
+        StringBuilder sb = new StringBuilder();
+        for (AbstractDataAccess da : loaded) {
+            if (sb.length() > 0)
+                sb.append(", ");
+            sb.append(da.getName()).append(": ").append(da.getLoadMillis()).append("ms (")
+                    .append(da.getCapacity() / MB).append("MB)");
         }
+        LOGGER.info("loaded " + loaded.size() + " files from " + location + " " + sb);
     }
 
     @Override
@@ -129,7 +184,10 @@ public class GHDirectory implements Directory {
             throw new IllegalStateException("DataAccess " + name + " has already been created");
 
         DataAccess da;
-        if (type.isInMemory()) {
+        GraphSnapshot.Section section = snapshot == null ? null : snapshot.getSection(name);
+        if (section != null) {
+            da = new MMapDataAccess(name, location, snapshot.getFile(), section.offset, segmentSize);
+        } else if (type.isInMemory()) {
             if (type.isInteg()) {
                 if (type.isStoring())
                     da = new RAMIntDataAccess(name, location, true, segmentSize);
@@ -145,6 +203,7 @@ public class GHDirectory implements Directory {
             throw new IllegalArgumentException("DAType not supported " + type);
         }
 
+        ((AbstractDataAccess) da).setVerifyChecksum(verifyChecksums);
         map.put(name, da);
         return da;
     }
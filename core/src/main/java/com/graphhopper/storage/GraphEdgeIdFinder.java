@@ -81,7 +81,7 @@ public class GraphEdgeIdFinder {
     /**
      * This method creates an edgeIds hashset with edgeIds found inside the specified shape
      */
-    private GHIntHashSet findEdgesInShape(final Shape shape, EdgeFilter filter) {
+    public GHIntHashSet findEdgesInShape(final Shape shape, EdgeFilter filter) {
         GHIntHashSet edgeIds = new GHIntHashSet();
         locationIndex.query(shape.getBounds(), edgeId -> {
             EdgeIteratorState edge = graph.getEdgeIteratorStateForKey(edgeId * 2);
@@ -103,6 +103,40 @@ public class GraphEdgeIdFinder {
         return blockArea;
     }
 
+    /**
+     * Parses a single shape of a block area string, i.e. a point lat,lon, a circle lat,lon,radius, a rectangle
+     * lat1,lon1,lat2,lon2 or a polygon lat1,lon1,lat2,lon2,...
+     *
+     * @param index the position of the shape in the block area string, only used for the error message
+     */
+    public static Shape parseShape(String objectAsString, int index) {
+        String[] splittedObject = objectAsString.split(",");
+        if (splittedObject.length > 4) {
+            return Polygon.parsePoints(objectAsString);
+        } else if (splittedObject.length == 4) {
+            final BBox bbox = BBox.parseTwoPoints(objectAsString);
+            final RectangleLineIntersector cachedIntersector = new RectangleLineIntersector(toEnvelope(bbox));
+            return new BBox(bbox.minLon, bbox.maxLon, bbox.minLat, bbox.maxLat) {
+                @Override
+                public boolean intersects(PointList pointList) {
+                    return BBox.intersects(cachedIntersector, pointList);
+                }
+            };
+        } else if (splittedObject.length == 3) {
+            double lat = Double.parseDouble(splittedObject[0]);
+            double lon = Double.parseDouble(splittedObject[1]);
+            int radius = Integer.parseInt(splittedObject[2]);
+            return new Circle(lat, lon, radius);
+        } else if (splittedObject.length == 2) {
+            double lat = Double.parseDouble(splittedObject[0]);
+            double lon = Double.parseDouble(splittedObject[1]);
+            return new Circle(lat, lon, P_RADIUS);
+        } else {
+            throw new IllegalArgumentException(objectAsString + " at index " + index + " need to be defined as lat,lon "
+                    + "or as a circle lat,lon,radius or rectangular lat1,lon1,lat2,lon2");
+        }
+    }
+
     /**
      * This method reads the blockAreaString and creates a Collection of Shapes or a set of found edges if area is small enough.
      *
@@ -110,7 +144,6 @@ public class GraphEdgeIdFinder {
      */
     public BlockArea parseBlockArea(String blockAreaString, EdgeFilter filter, double useEdgeIdsUntilAreaSize) {
         final String objectSeparator = ";";
-        final String innerObjSep = ",";
         BlockArea blockArea = new BlockArea(graph);
 
         // Add blocked circular areas or points
@@ -118,38 +151,9 @@ public class GraphEdgeIdFinder {
             String[] blockedCircularAreasArr = blockAreaString.split(objectSeparator);
             for (int i = 0; i < blockedCircularAreasArr.length; i++) {
                 String objectAsString = blockedCircularAreasArr[i];
-                String[] splittedObject = objectAsString.split(innerObjSep);
-
-                Shape shape;
-                boolean point = false;
                 // always add the shape as we'll need this for virtual edges and for debugging.
-                if (splittedObject.length > 4) {
-                    shape = Polygon.parsePoints(objectAsString);
-                } else if (splittedObject.length == 4) {
-                    final BBox bbox = BBox.parseTwoPoints(objectAsString);
-                    final RectangleLineIntersector cachedIntersector = new RectangleLineIntersector(toEnvelope(bbox));
-                    shape = new BBox(bbox.minLon, bbox.maxLon, bbox.minLat, bbox.maxLat) {
-                        @Override
-                        public boolean intersects(PointList pointList) {
-                            return BBox.intersects(cachedIntersector, pointList);
-                        }
-                    };
-                } else if (splittedObject.length == 3) {
-                    double lat = Double.parseDouble(splittedObject[0]);
-                    double lon = Double.parseDouble(splittedObject[1]);
-                    int radius = Integer.parseInt(splittedObject[2]);
-                    shape = new Circle(lat, lon, radius);
-                } else if (splittedObject.length == 2) {
-                    double lat = Double.parseDouble(splittedObject[0]);
-                    double lon = Double.parseDouble(splittedObject[1]);
-                    shape = new Circle(lat, lon, P_RADIUS);
-                    point = true;
-                } else {
-                    throw new IllegalArgumentException(objectAsString + " at index " + i + " need to be defined as lat,lon "
-                            + "or as a circle lat,lon,radius or rectangular lat1,lon1,lat2,lon2");
-                }
-                
-                
+                Shape shape = parseShape(objectAsString, i);
+                boolean point = objectAsString.split(",").length == 2;
                 if (point || calculateArea(shape) <= useEdgeIdsUntilAreaSize) {
                     GHIntHashSet blockedEdges = findEdgesInShape(shape, filter);
                     if (!blockedEdges.isEmpty()) {
@@ -95,6 +95,13 @@ public final class GraphHopperStorage implements Graph, Closeable {
     }
 
     public boolean loadExisting() {
+        return loadExisting(1);
+    }
+
+    /**
+     * @param threads the number of threads used to load the files of the base graph concurrently
+     */
+    public boolean loadExisting(int threads) {
         baseGraph.checkNotInitialized();
         if (properties.loadExisting()) {
             if (properties.containsVersion())
@@ -117,7 +124,7 @@ public final class GraphHopperStorage implements Graph, Closeable {
                         + "\nGraph: " + encodedValueStr
                         + "\nChange configuration to match the graph or delete " + dir.getLocation());
             }
-            baseGraph.loadExisting();
+            baseGraph.loadExisting(threads);
             return true;
         }
         return false;
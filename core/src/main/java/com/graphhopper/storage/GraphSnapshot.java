@@ -0,0 +1,217 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.Helper;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * A single file that contains all DataAccess files of a graph folder. The file starts with a table of contents
+ * followed by the unchanged DataAccess files, each aligned to a page boundary so that {@link GHDirectory} can
+ * memory map them directly (see {@link GHDirectory#setSnapshot}). This makes it cheap to distribute a prepared graph
+ * to several machines: only one file needs to be copied and nothing needs to be extracted or read into the heap.
+ * <p>
+ * Every section has a CRC32 checksum that is checked in {@link #verify()} or when extracting.
+ */
+public class GraphSnapshot {
+    private static final String MARKER = "GHSNAPSHOT";
+    private static final int VERSION = 1;
+    private static final int ALIGNMENT = 4096;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final File file;
+    private final Map<String, Section> sections;
+
+    private GraphSnapshot(File file, Map<String, Section> sections) {
+        this.file = file;
+        this.sections = sections;
+    }
+
+    static class Section {
+        final String name;
+        final long offset;
+        final long length;
+        final int checksum;
+
+        Section(String name, long offset, long length, int checksum) {
+            this.name = name;
+            this.offset = offset;
+            this.length = length;
+            this.checksum = checksum;
+        }
+    }
+
+    /**
+     * Writes all files of the specified graph folder into one snapshot file. Lock files are skipped. The graph must
+     * not be modified while exporting it.
+     */
+    public static void export(File graphFolder, File snapshotFile) {
+        File[] files = graphFolder.listFiles(f -> f.isFile() && !f.getName().endsWith(".lock"));
+        if (files == null || files.length == 0)
+            throw new IllegalArgumentException("Graph folder " + graphFolder + " does not exist or is empty");
+        Arrays.sort(files, Comparator.comparing(File::getName));
+
+        // the offsets depend on the size of the table of contents, so we calculate it first
+        long tocSize = 2 + MARKER.length() + 4 + 4;
+        for (File f : files)
+            tocSize += 2 + f.getName().getBytes(Helper.UTF_CS).length + 8 + 8 + 4;
+
+        File tmpFile = new File(snapshotFile.getAbsolutePath() + ".tmp");
+        try (RandomAccessFile raFile = new RandomAccessFile(tmpFile, "rw")) {
+            raFile.setLength(0);
+            List<Section> list = new ArrayList<>(files.length);
+            long offset = align(tocSize);
+            FileChannel target = raFile.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            for (File f : files) {
+                CRC32 crc = new CRC32();
+                long length = 0;
+                try (FileChannel source = new FileInputStream(f).getChannel()) {
+                    target.position(offset);
+                    while (true) {
+                        buffer.clear();
+                        if (source.read(buffer) < 0)
+                            break;
+                        buffer.flip();
+                        crc.update(buffer.array(), 0, buffer.limit());
+                        while (buffer.hasRemaining())
+                            length += target.write(buffer);
+                    }
+                }
+                list.add(new Section(f.getName(), offset, length, (int) crc.getValue()));
+                offset = align(offset + length);
+            }
+            raFile.setLength(offset);
+
+            raFile.seek(0);
+            raFile.writeUTF(MARKER);
+            raFile.writeInt(VERSION);
+            raFile.writeInt(list.size());
+            for (Section section : list) {
+                raFile.writeUTF(section.name);
+                raFile.writeLong(section.offset);
+                raFile.writeLong(section.length);
+                raFile.writeInt(section.checksum);
+            }
+            raFile.getFD().sync();
+        } catch (IOException ex) {
+            throw new RuntimeException("Couldn't export " + graphFolder + " to " + snapshotFile, ex);
+        }
+        // replicas should never see a partially written snapshot
+        if (snapshotFile.exists() && !snapshotFile.delete() || !tmpFile.renameTo(snapshotFile))
+            throw new RuntimeException("Couldn't rename " + tmpFile + " to " + snapshotFile);
+    }
+
+    /**
+     * Reads the table of contents of the specified snapshot file.
+     */
+    public static GraphSnapshot open(File snapshotFile) {
+        try (RandomAccessFile raFile = new RandomAccessFile(snapshotFile, "r")) {
+            String marker = raFile.readUTF();
+            if (!MARKER.equals(marker))
+                throw new IllegalArgumentException("Not a GraphHopper snapshot: " + snapshotFile);
+            int version = raFile.readInt();
+            if (version != VERSION)
+                throw new IllegalArgumentException("Snapshot " + snapshotFile + " has version " + version + " but expected " + VERSION);
+            int count = raFile.readInt();
+            Map<String, Section> sections = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                Section section = new Section(raFile.readUTF(), raFile.readLong(), raFile.readLong(), raFile.readInt());
+                if (section.offset % ALIGNMENT != 0 || section.offset + section.length > raFile.length())
+                    throw new IllegalStateException("Section " + section.name + " of " + snapshotFile + " is out of bounds. The file is incomplete.");
+                sections.put(section.name, section);
+            }
+            return new GraphSnapshot(snapshotFile, sections);
+        } catch (IOException ex) {
+            throw new RuntimeException("Couldn't open snapshot " + snapshotFile, ex);
+        }
+    }
+
+    /**
+     * Reads all sections and throws an IllegalStateException if a checksum does not match.
+     */
+    public void verify() {
+        try (RandomAccessFile raFile = new RandomAccessFile(file, "r")) {
+            for (Section section : sections.values()) {
+                copySection(raFile, section, null);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Couldn't verify snapshot " + file, ex);
+        }
+    }
+
+    /**
+     * Writes all sections as separate files into the specified folder, e.g. to use the graph with writes enabled.
+     */
+    public void extract(File graphFolder) {
+        graphFolder.mkdirs();
+        try (RandomAccessFile raFile = new RandomAccessFile(file, "r")) {
+            for (Section section : sections.values()) {
+                try (OutputStream os = new BufferedOutputStream(new FileOutputStream(new File(graphFolder, section.name)))) {
+                    copySection(raFile, section, os);
+                }
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Couldn't extract snapshot " + file + " to " + graphFolder, ex);
+        }
+    }
+
+    private void copySection(RandomAccessFile raFile, Section section, OutputStream os) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] bytes = new byte[BUFFER_SIZE];
+        raFile.seek(section.offset);
+        long remaining = section.length;
+        while (remaining > 0) {
+            int read = raFile.read(bytes, 0, (int) Math.min(bytes.length, remaining));
+            if (read < 0)
+                throw new EOFException("Unexpected end of " + file + " in section " + section.name);
+            crc.update(bytes, 0, read);
+            if (os != null)
+                os.write(bytes, 0, read);
+            remaining -= read;
+        }
+        if ((int) crc.getValue() != section.checksum)
+            throw new IllegalStateException("Checksum of section " + section.name + " in " + file + " does not match. The file is corrupt.");
+    }
+
+    private static long align(long offset) {
+        return (offset + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    Section getSection(String name) {
+        return sections.get(name);
+    }
+
+    public Set<String> getNames() {
+        return sections.keySet();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public String toString() {
+        return file.getAbsolutePath();
+    }
+}
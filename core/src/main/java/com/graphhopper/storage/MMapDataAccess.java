@@ -44,7 +44,9 @@ import java.util.StringTokenizer;
  * <p>
  * Java presents the mapped memory as a ByteBuffer, and ByteBuffer is not
  * thread-safe, which means that access to a ByteBuffer must be externally
- * synchronized.
+ * synchronized if its position is involved. All read methods use the absolute
+ * get methods only, which do not modify the buffer state, and therefore do not
+ * need any locking. Writes are still synchronized per segment.
  * <p>
  * This class itself is intended to be as thread-safe as other DataAccess
  * implementations are.
@@ -59,12 +61,28 @@ public final class MMapDataAccess extends AbstractDataAccess {
     private static final Logger LOGGER = LoggerFactory.getLogger(MMapDataAccess.class);
 
     private final boolean allowWrites;
+    // the file and the position within it where the DataAccess starts, only differs for snapshot sections
+    private final File file;
+    private final long fileOffset;
     private RandomAccessFile raFile;
     private final List<MappedByteBuffer> segments = new ArrayList<>();
 
     MMapDataAccess(String name, String location, boolean allowWrites, int segmentSize) {
         super(name, location, segmentSize);
         this.allowWrites = allowWrites;
+        this.file = new File(getFullName());
+        this.fileOffset = 0;
+    }
+
+    /**
+     * Creates a read only DataAccess that maps a section of a {@link GraphSnapshot} file, starting at the specified
+     * offset.
+     */
+    MMapDataAccess(String name, String location, File snapshotFile, long fileOffset, int segmentSize) {
+        super(name, location, segmentSize);
+        this.allowWrites = false;
+        this.file = snapshotFile;
+        this.fileOffset = fileOffset;
     }
 
     public static boolean jreIsMinimumJava9() {
@@ -160,7 +178,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
 
         try {
             // raFile necessary for loadExisting and create
-            raFile = new RandomAccessFile(getFullName(), allowWrites ? "rw" : "r");
+            raFile = new RandomAccessFile(file, allowWrites ? "rw" : "r");
         } catch (IOException ex) {
             throw new RuntimeException(ex);
         }
@@ -171,6 +189,8 @@ public final class MMapDataAccess extends AbstractDataAccess {
         if (!segments.isEmpty()) {
             throw new IllegalThreadStateException("already created");
         }
+        if (fileOffset > 0)
+            throw new IllegalStateException("Cannot create " + name + " in the read only snapshot " + file);
         initRandomAccessFile();
         bytes = Math.max(10 * 4, bytes);
         ensureCapacity(bytes);
@@ -179,7 +199,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
 
     @Override
     public boolean ensureCapacity(long bytes) {
-        return mapIt(HEADER_OFFSET, bytes);
+        return mapIt(fileOffset + HEADER_OFFSET, bytes);
     }
 
     private boolean mapIt(long offset, long byteCount) {
@@ -270,17 +290,18 @@ public final class MMapDataAccess extends AbstractDataAccess {
         if (isClosed())
             throw new IllegalStateException("already closed");
 
-        File file = new File(getFullName());
         if (!file.exists() || file.length() == 0)
             return false;
 
+        long start = System.currentTimeMillis();
         initRandomAccessFile();
         try {
-            long byteCount = readHeader(raFile);
+            long byteCount = readHeader(raFile, fileOffset);
             if (byteCount < 0)
                 return false;
 
-            mapIt(HEADER_OFFSET, byteCount - HEADER_OFFSET);
+            mapIt(fileOffset + HEADER_OFFSET, byteCount - HEADER_OFFSET);
+            loadMillis = System.currentTimeMillis() - start;
             return true;
         } catch (IOException ex) {
             throw new RuntimeException("Problem while loading " + getFullName(), ex);
@@ -315,12 +336,17 @@ public final class MMapDataAccess extends AbstractDataAccess {
             throw new IllegalArgumentException("Percentage for MMapDataAccess.load for " + getName() + " must be in [0,100] but was " + percentage);
         int max = Math.round(segments.size() * percentage / 100f);
         for (int i = 0; i < max; i++) {
-            segments.get(i).load();
+            // this method can be called from a background thread, so we must never touch an already unmapped segment
+            synchronized (this) {
+                if (isClosed())
+                    return;
+                segments.get(i).load();
+            }
         }
     }
 
     @Override
-    public void close() {
+    public synchronized void close() {
         super.close();
         clean(0, segments.size());
         segments.clear();
@@ -345,10 +371,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
         int index = (int) (bytePos & indexDivisor);
         if (index + 4 > segmentSizeInBytes)
             throw new IllegalStateException("Padding required. Currently an int cannot be distributed over two segments. " + bytePos);
-        ByteBuffer byteBuffer = segments.get(bufferIndex);
-        synchronized (byteBuffer) {
-            return byteBuffer.getInt(index);
-        }
+        return segments.get(bufferIndex).getInt(index);
     }
 
     @Override
@@ -375,18 +398,9 @@ public final class MMapDataAccess extends AbstractDataAccess {
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
         ByteBuffer byteBuffer = segments.get(bufferIndex);
-        if (index + 2 > segmentSizeInBytes) {
-            ByteBuffer byteBufferNext = segments.get(bufferIndex + 1);
-            // never lock byteBuffer and byteBufferNext in a different order to avoid deadlocks (shouldn't happen)
-            synchronized (byteBuffer) {
-                synchronized (byteBufferNext) {
-                    return (short) ((byteBufferNext.get(0) & 0xFF) << 8 | byteBuffer.get(index) & 0xFF);
-                }
-            }
-        }
-        synchronized (byteBuffer) {
-            return byteBuffer.getShort(index);
-        }
+        if (index + 2 > segmentSizeInBytes)
+            return (short) ((segments.get(bufferIndex + 1).get(0) & 0xFF) << 8 | byteBuffer.get(index) & 0xFF);
+        return byteBuffer.getShort(index);
     }
 
     @Override
@@ -420,22 +434,17 @@ public final class MMapDataAccess extends AbstractDataAccess {
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
         int delta = index + length - segmentSizeInBytes;
-        final ByteBuffer bb1 = segments.get(bufferIndex);
-        synchronized (bb1) {
-            bb1.position(index);
-            if (delta > 0) {
-                length -= delta;
-                bb1.get(values, 0, length);
-            } else {
-                bb1.get(values, 0, length);
-            }
-        }
+        // a bulk get requires the position, so we use a duplicate which shares the content but not the position
+        final ByteBuffer bb1 = segments.get(bufferIndex).duplicate();
+        bb1.position(index);
         if (delta > 0) {
-            final ByteBuffer bb2 = segments.get(bufferIndex + 1);
-            synchronized (bb2) {
-                bb2.position(0);
-                bb2.get(values, length, delta);
-            }
+            length -= delta;
+            bb1.get(values, 0, length);
+            final ByteBuffer bb2 = segments.get(bufferIndex + 1).duplicate();
+            bb2.position(0);
+            bb2.get(values, length, delta);
+        } else {
+            bb1.get(values, 0, length);
         }
     }
 
@@ -454,11 +463,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
     public byte getByte(long bytePos) {
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
-        final ByteBuffer bb1 = segments.get(bufferIndex);
-        synchronized (bb1) {
-            bb1.position(index);
-            return bb1.get();
-        }
+        return segments.get(bufferIndex).get(index);
     }
 
     @Override
@@ -0,0 +1,158 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.coll.GHBitSetImpl;
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.Shape;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Block areas that are known by name and referenced by requests via
+ * {@link com.graphhopper.util.Parameters.Routing#BLOCK_AREA_NAMES}. Unlike the block_area request parameter, which is
+ * parsed and intersected with the graph for every request, the edges of a named area are collected only once when it
+ * is added and stored in a bitset, so checking if an edge is blocked is a single bit lookup.
+ * <p>
+ * Areas can be added, replaced and removed at any time. An area is never modified after it was created, so requests
+ * that already use an area are not affected by an update.
+ */
+public class NamedBlockAreas {
+    private final Graph graph;
+    private final LocationIndex locationIndex;
+    private final Map<String, Area> areas = new ConcurrentHashMap<>();
+
+    public NamedBlockAreas(Graph graph, LocationIndex locationIndex) {
+        this.graph = graph;
+        this.locationIndex = locationIndex;
+    }
+
+    /**
+     * Adds or replaces the area with the given name.
+     *
+     * @param blockAreaString the shapes of the area in the format of the block_area request parameter
+     */
+    public Area put(String name, String blockAreaString) {
+        if (Helper.isEmpty(name) || name.contains(","))
+            throw new IllegalArgumentException("The name of a block area must not be empty or contain a comma: '" + name + "'");
+        if (Helper.isEmpty(blockAreaString))
+            throw new IllegalArgumentException("The block area '" + name + "' must not be empty");
+        GraphEdgeIdFinder finder = new GraphEdgeIdFinder(graph, locationIndex);
+        GHBitSetImpl edges = new GHBitSetImpl(graph.getEdges());
+        String[] objects = blockAreaString.split(";");
+        for (int i = 0; i < objects.length; i++) {
+            Shape shape = GraphEdgeIdFinder.parseShape(objects[i], i);
+            for (IntCursor edge : finder.findEdgesInShape(shape, EdgeFilter.ALL_EDGES))
+                edges.add(edge.value);
+        }
+        Area area = new Area(name, blockAreaString, edges, graph.getEdges());
+        areas.put(name, area);
+        return area;
+    }
+
+    /**
+     * @return the removed area or null if there was no area with this name
+     */
+    public Area remove(String name) {
+        return areas.remove(name);
+    }
+
+    public Area get(String name) {
+        return areas.get(name);
+    }
+
+    /**
+     * @param names the comma separated names of the areas
+     * @throws IllegalArgumentException if one of the areas does not exist
+     */
+    public List<Area> getAll(String names) {
+        List<Area> result = new ArrayList<>();
+        for (String name : names.split(",")) {
+            name = name.trim();
+            if (name.isEmpty())
+                continue;
+            Area area = areas.get(name);
+            if (area == null)
+                throw new IllegalArgumentException("The block area '" + name + "' does not exist. Available block areas: " + getNames());
+            result.add(area);
+        }
+        return result;
+    }
+
+    /**
+     * @return the names of all areas in alphabetical order
+     */
+    public List<String> getNames() {
+        return new ArrayList<>(new TreeMap<>(areas).keySet());
+    }
+
+    public static class Area {
+        private final String name;
+        private final String blockAreaString;
+        private final GHBitSetImpl edges;
+        private final int baseEdgeCount;
+
+        Area(String name, String blockAreaString, GHBitSetImpl edges, int baseEdgeCount) {
+            this.name = name;
+            this.blockAreaString = blockAreaString;
+            this.edges = edges;
+            this.baseEdgeCount = baseEdgeCount;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getBlockAreaString() {
+            return blockAreaString;
+        }
+
+        public int getEdgeCount() {
+            return edges.getCardinality();
+        }
+
+        /**
+         * @return true if the given edge is blocked. A virtual edge is blocked if the edge it was created from is
+         * blocked.
+         */
+        public final boolean intersects(EdgeIteratorState edgeState) {
+            int edge = edgeState.getEdge();
+            if (edge >= baseEdgeCount) {
+                // the query graph passes its iterator, detaching is cheap and returns the current virtual edge
+                EdgeIteratorState virtualEdge = edgeState instanceof VirtualEdgeIteratorState ? edgeState : edgeState.detach(false);
+                edge = GHUtility.getEdgeFromEdgeKey(((VirtualEdgeIteratorState) virtualEdge).getOriginalEdgeKey());
+            }
+            return edges.contains(edge);
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + getEdgeCount() + " edges";
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.util.*;
+
+/**
+ * Stores a simplification level for every pillar node, which is the largest maximum distance for which Douglas-Peucker
+ * would keep the point when simplifying the geometry of its edge. A simplified geometry for any maximum distance can
+ * then be obtained by dropping the pillar nodes with a smaller level in a single pass, see
+ * {@link PrecomputedDouglasPeucker}. The tower nodes are always kept, so the result contains slightly more points than
+ * Douglas-Peucker applied to a complete route.
+ * <p>
+ * The levels are stored with one byte per pillar node using a logarithmic scale and are rounded up, so a point is never
+ * dropped if Douglas-Peucker would keep it. They are indexed like the way geometry and have to be prepared again
+ * whenever the geometry changes.
+ */
+public class PillarLevels {
+    private static final double MIN_LEVEL = 0.01;
+    // the level doubles every 8 steps, i.e. every step is ~9% larger than the previous one
+    private static final double STEPS_PER_DOUBLING = 8;
+    private static final double[] LEVELS = new double[256];
+
+    static {
+        LEVELS[0] = 0;
+        for (int i = 1; i < 255; i++) {
+            LEVELS[i] = MIN_LEVEL * Math.pow(2, (i - 1) / STEPS_PER_DOUBLING);
+        }
+        LEVELS[255] = Double.POSITIVE_INFINITY;
+    }
+
+    private final BaseGraph graph;
+    private final Directory dir;
+    private final BitUtil bitUtil = BitUtil.LITTLE;
+    private DataAccess da;
+
+    public PillarLevels(BaseGraph graph, Directory dir) {
+        this.graph = graph;
+        this.dir = dir;
+        this.da = dir.create("pillar_levels");
+    }
+
+    /**
+     * Calculates the levels of the pillar nodes of all edges.
+     */
+    public PillarLevels prepare() {
+        if (da.isClosed()) {
+            // outdated levels were found in loadExisting, replace them
+            String name = da.getName();
+            dir.remove(name);
+            da = dir.create(name);
+        }
+        long maxGeoRef = graph.getMaxGeoRef();
+        da.create(maxGeoRef);
+        da.ensureCapacity(maxGeoRef);
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            long geoRef = graph.getGeoRef(iter.getEdge());
+            if (geoRef == 0)
+                continue;
+            // the state of the all edges iterator always has the storage direction, so the pillar nodes are in the
+            // order in which they are stored
+            double[] levels = calcLevels(iter.fetchWayGeometry(FetchMode.ALL));
+            for (int i = 1; i < levels.length - 1; i++) {
+                da.setByte(geoRef + i - 1, toByte(levels[i]));
+            }
+        }
+        da.setHeader(0, graph.getEdges());
+        da.setHeader(4, bitUtil.getIntLow(maxGeoRef));
+        da.setHeader(8, bitUtil.getIntHigh(maxGeoRef));
+        return this;
+    }
+
+    /**
+     * @return false if there are no levels or if they were created for a different graph and have to be prepared
+     * again.
+     */
+    public boolean loadExisting() {
+        if (!da.loadExisting())
+            return false;
+        long maxGeoRef = bitUtil.combineIntsToLong(da.getHeader(4), da.getHeader(8));
+        if (da.getHeader(0) != graph.getEdges() || maxGeoRef != graph.getMaxGeoRef()) {
+            da.close();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Adds the levels of the pillar nodes of the given edge in the direction of the edge state and
+     * Double.POSITIVE_INFINITY for its adjacent node, i.e. one level for every point of
+     * {@code edge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ)}. The levels of virtual edges are calculated on the fly.
+     */
+    public void addLevels(EdgeIteratorState edge, DoubleArrayList levels) {
+        int edgeId = edge.getEdge();
+        if (edgeId >= graph.getEdges()) {
+            double[] virtualLevels = calcLevels(edge.fetchWayGeometry(FetchMode.ALL));
+            levels.add(virtualLevels, 1, virtualLevels.length - 1);
+            return;
+        }
+        long geoRef = graph.getGeoRef(edgeId);
+        int count = graph.getPillarCount(geoRef);
+        if (edge.getEdgeKey() % 2 == 0) {
+            for (int i = 0; i < count; i++) {
+                levels.add(LEVELS[da.getByte(geoRef + i) & 0xFF]);
+            }
+        } else {
+            for (int i = count - 1; i >= 0; i--) {
+                levels.add(LEVELS[da.getByte(geoRef + i) & 0xFF]);
+            }
+        }
+        levels.add(Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * @return the geometry of the given edge including its tower nodes without the pillar nodes that Douglas-Peucker
+     * would remove for the given maximum distance in meters
+     */
+    public PointList fetchWayGeometry(EdgeIteratorState edge, double maxDistance) {
+        PointList points = edge.fetchWayGeometry(FetchMode.ALL);
+        DoubleArrayList levels = new DoubleArrayList(points.size());
+        levels.add(Double.POSITIVE_INFINITY);
+        addLevels(edge, levels);
+        PointList result = new PointList(points.size(), points.is3D());
+        for (int i = 0; i < points.size(); i++) {
+            if (levels.get(i) >= maxDistance)
+                result.add(points, i);
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the level of every point of the given line. The first and the last point get the level
+     * Double.POSITIVE_INFINITY. The level of every other point is the distance of the point to the line between the
+     * end points of the interval in which Douglas-Peucker picks this point, but not larger than the level of the points
+     * that were picked before, because the point is removed together with them.
+     */
+    public static double[] calcLevels(PointList points) {
+        double[] levels = new double[points.size()];
+        if (points.isEmpty())
+            return levels;
+        levels[0] = Double.POSITIVE_INFINITY;
+        levels[levels.length - 1] = Double.POSITIVE_INFINITY;
+        calcLevels(points, 0, levels.length - 1, Double.POSITIVE_INFINITY, levels);
+        return levels;
+    }
+
+    private static void calcLevels(PointList points, int fromIndex, int lastIndex, double parentLevel, double[] levels) {
+        if (lastIndex - fromIndex < 2)
+            return;
+        DistanceCalc calc = DistancePlaneProjection.DIST_PLANE;
+        double firstLat = points.getLat(fromIndex);
+        double firstLon = points.getLon(fromIndex);
+        double lastLat = points.getLat(lastIndex);
+        double lastLon = points.getLon(lastIndex);
+        int indexWithMaxDist = -1;
+        double maxDist = -1;
+        for (int i = fromIndex + 1; i < lastIndex; i++) {
+            double dist = calc.calcNormalizedEdgeDistance(points.getLat(i), points.getLon(i), firstLat, firstLon, lastLat, lastLon);
+            if (maxDist < dist) {
+                indexWithMaxDist = i;
+                maxDist = dist;
+            }
+        }
+        double level = Math.min(parentLevel, calc.calcDenormalizedDist(maxDist));
+        levels[indexWithMaxDist] = level;
+        calcLevels(points, fromIndex, indexWithMaxDist, level, levels);
+        calcLevels(points, indexWithMaxDist, lastIndex, level, levels);
+    }
+
+    /**
+     * @return the smallest stored level that is not smaller than the given level
+     */
+    static byte toByte(double level) {
+        if (level <= 0)
+            return 0;
+        double steps = Math.ceil(STEPS_PER_DOUBLING * Math.log(level / MIN_LEVEL) / Math.log(2));
+        int value = (int) Math.max(1, Math.min(255, 1 + steps));
+        // compensate rounding errors of log and pow
+        while (value < 255 && LEVELS[value] < level)
+            value++;
+        return (byte) value;
+    }
+
+    static double toLevel(byte value) {
+        return LEVELS[value & 0xFF];
+    }
+
+    public void flush() {
+        da.flush();
+    }
+
+    public void close() {
+        da.close();
+    }
+
+    public boolean isClosed() {
+        return da.isClosed();
+    }
+
+    public long getCapacity() {
+        return da.getCapacity();
+    }
+}
@@ -20,7 +20,10 @@ package com.graphhopper.storage;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
+import java.util.zip.CRC32;
 
 /**
  * This is an in-memory byte-based data structure with the possibility to be stored on flush().
@@ -103,27 +106,36 @@ public class RAMDataAccess extends AbstractDataAccess {
         if (!file.exists() || file.length() == 0)
             return false;
 
+        long start = System.currentTimeMillis();
         try {
             try (RandomAccessFile raFile = new RandomAccessFile(getFullName(), "r")) {
                 long byteCount = readHeader(raFile) - HEADER_OFFSET;
                 if (byteCount < 0)
                     return false;
 
-                raFile.seek(HEADER_OFFSET);
-                // raFile.readInt() <- too slow
+                // read the segments directly via the channel to avoid copying through intermediate buffers
+                FileChannel channel = raFile.getChannel();
+                channel.position(HEADER_OFFSET);
                 int segmentCount = (int) (byteCount / segmentSizeInBytes);
                 if (byteCount % segmentSizeInBytes != 0)
                     segmentCount++;
 
-                segments = new byte[segmentCount][];
+                CRC32 crc = verifyChecksum ? new CRC32() : null;
+                byte[][] newSegments = new byte[segmentCount][];
                 for (int s = 0; s < segmentCount; s++) {
                     byte[] bytes = new byte[segmentSizeInBytes];
-                    int read = raFile.read(bytes);
+                    int read = readFully(channel, ByteBuffer.wrap(bytes));
                     if (read <= 0)
                         throw new IllegalStateException("segment " + s + " is empty? " + toString());
+                    if (crc != null)
+                        crc.update(bytes, 0, read);
 
-                    segments[s] = bytes;
+                    newSegments[s] = bytes;
                 }
+                if (crc != null)
+                    checkChecksum((int) crc.getValue());
+                segments = newSegments;
+                loadMillis = System.currentTimeMillis() - start;
                 return true;
             }
         } catch (IOException ex) {
@@ -142,13 +154,16 @@ public class RAMDataAccess extends AbstractDataAccess {
         try {
             try (RandomAccessFile raFile = new RandomAccessFile(getFullName(), "rw")) {
                 long len = getCapacity();
-                writeHeader(raFile, len, segmentSizeInBytes);
+                CRC32 crc = new CRC32();
                 raFile.seek(HEADER_OFFSET);
                 // raFile.writeInt() <- too slow, so copy into byte array
                 for (int s = 0; s < segments.length; s++) {
                     byte[] area = segments[s];
+                    crc.update(area);
                     raFile.write(area);
                 }
+                // the header is written last so that it contains the checksum of the data
+                writeHeader(raFile, len, segmentSizeInBytes, (int) crc.getValue());
             }
         } catch (Exception ex) {
             throw new RuntimeException("Couldn't store bytes to " + toString(), ex);
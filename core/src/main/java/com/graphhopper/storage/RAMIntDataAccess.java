@@ -20,7 +20,10 @@ package com.graphhopper.storage;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
+import java.util.zip.CRC32;
 
 /**
  * This is an in-memory data structure based on an integer array. With the possibility to be stored
@@ -105,28 +108,36 @@ class RAMIntDataAccess extends AbstractDataAccess {
         if (!file.exists() || file.length() == 0) {
             return false;
         }
+        long start = System.currentTimeMillis();
         try {
             try (RandomAccessFile raFile = new RandomAccessFile(getFullName(), "r")) {
                 long byteCount = readHeader(raFile) - HEADER_OFFSET;
                 if (byteCount < 0) {
                     return false;
                 }
-                byte[] bytes = new byte[segmentSizeInBytes];
-                raFile.seek(HEADER_OFFSET);
-                // raFile.readInt() <- too slow
+                ByteBuffer buffer = ByteBuffer.allocate(segmentSizeInBytes).order(byteOrder);
+                FileChannel channel = raFile.getChannel();
+                channel.position(HEADER_OFFSET);
                 int segmentCount = (int) (byteCount / segmentSizeInBytes);
                 if (byteCount % segmentSizeInBytes != 0)
                     segmentCount++;
 
-                segments = new int[segmentCount][];
+                CRC32 crc = verifyChecksum ? new CRC32() : null;
+                int[][] newSegments = new int[segmentCount][];
                 for (int s = 0; s < segmentCount; s++) {
-                    int read = raFile.read(bytes) / 4;
-                    int[] area = new int[read];
-                    for (int j = 0; j < read; j++) {
-                        area[j] = bitUtil.toInt(bytes, j * 4);
-                    }
-                    segments[s] = area;
+                    buffer.clear();
+                    int readBytes = readFully(channel, buffer);
+                    if (crc != null)
+                        crc.update(buffer.array(), 0, readBytes);
+                    buffer.flip();
+                    int[] area = new int[readBytes / 4];
+                    buffer.asIntBuffer().get(area);
+                    newSegments[s] = area;
                 }
+                if (crc != null)
+                    checkChecksum((int) crc.getValue());
+                segments = newSegments;
+                loadMillis = System.currentTimeMillis() - start;
                 return true;
             }
         } catch (IOException ex) {
@@ -145,7 +156,7 @@ class RAMIntDataAccess extends AbstractDataAccess {
         try {
             try (RandomAccessFile raFile = new RandomAccessFile(getFullName(), "rw")) {
                 long len = getCapacity();
-                writeHeader(raFile, len, segmentSizeInBytes);
+                CRC32 crc = new CRC32();
                 raFile.seek(HEADER_OFFSET);
                 // raFile.writeInt() <- too slow, so copy into byte array
                 for (int s = 0; s < segments.length; s++) {
@@ -155,8 +166,11 @@ class RAMIntDataAccess extends AbstractDataAccess {
                     for (int i = 0; i < intLen; i++) {
                         bitUtil.fromInt(byteArea, area[i], i * 4);
                     }
+                    crc.update(byteArea);
                     raFile.write(byteArea);
                 }
+                // the header is written last so that it contains the checksum of the data
+                writeHeader(raFile, len, segmentSizeInBytes, (int) crc.getValue());
             }
         } catch (Exception ex) {
             throw new RuntimeException("Couldn't store integers to " + toString(), ex);
@@ -72,7 +72,7 @@ public class Constants {
     public static final int VERSION_NODE_CH = 0;
     public static final int VERSION_GEOMETRY = 6;
     public static final int VERSION_LOCATION_IDX = 5;
-    public static final int VERSION_STRING_IDX = 6;
+    public static final int VERSION_STRING_IDX = 7;
     /**
      * The version without the snapshot string
      */
@@ -58,6 +58,10 @@ public class DouglasPeucker {
         return this;
     }
 
+    public double getMaxDistance() {
+        return maxDistance;
+    }
+
     /**
      * maximum elevation distance of discrepancy (from the normal way) in meters
      */
@@ -17,12 +17,14 @@
  */
 package com.graphhopper.util;
 
+import com.carrotsearch.hppc.DoubleArrayList;
 import com.graphhopper.ResponsePath;
 import com.graphhopper.routing.InstructionsFromEdges;
 import com.graphhopper.routing.Path;
 import com.graphhopper.routing.ev.EncodedValueLookup;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.PillarLevels;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
 import com.graphhopper.util.details.PathDetailsFromEdges;
 import com.graphhopper.util.exceptions.ConnectionNotFoundException;
@@ -56,6 +58,7 @@ public class PathMerger {
     private PathDetailsBuilderFactory pathBuilderFactory;
     private List<String> requestedPathDetails = Collections.emptyList();
     private double favoredHeading = Double.NaN;
+    private PillarLevels pillarLevels;
 
     public PathMerger(Graph graph, Weighting weighting) {
         this.graph = graph;
@@ -72,6 +75,15 @@ public class PathMerger {
         return this;
     }
 
+    /**
+     * Simplifies the points using the precomputed levels of the pillar nodes instead of running Douglas-Peucker. The
+     * maximum distance is taken from the DouglasPeucker and its elevation distance is ignored.
+     */
+    public PathMerger setPillarLevels(PillarLevels pillarLevels) {
+        this.pillarLevels = pillarLevels;
+        return this;
+    }
+
     public PathMerger setPathDetailsBuilders(PathDetailsBuilderFactory pathBuilderFactory, List<String> requestedPathDetails) {
         this.pathBuilderFactory = pathBuilderFactory;
         this.requestedPathDetails = requestedPathDetails;
@@ -98,6 +110,7 @@ public class PathMerger {
 
         InstructionList fullInstructions = new InstructionList(tr);
         PointList fullPoints = PointList.EMPTY;
+        DoubleArrayList fullLevels = pillarLevels == null ? null : new DoubleArrayList();
         List<String> description = new ArrayList<>();
         for (int pathIndex = 0; pathIndex < paths.size(); pathIndex++) {
             Path path = paths.get(pathIndex);
@@ -135,6 +148,12 @@ public class PathMerger {
                 }
 
                 fullPoints.add(tmpPoints);
+                if (fullLevels != null) {
+                    DoubleArrayList tmpLevels = calcLevels(path);
+                    if (pathIndex + 1 < paths.size())
+                        tmpLevels.elementsCount--;
+                    fullLevels.addAll(tmpLevels);
+                }
                 responsePath.addPathDetails(PathDetailsFromEdges.calcDetails(path, evLookup, weighting, requestedPathDetails, pathBuilderFactory, origPoints));
                 origPoints = fullPoints.size();
             }
@@ -165,11 +184,37 @@ public class PathMerger {
                 setWaypoints(waypoints);
 
         if (allFound && simplifyResponse && (calcPoints || enableInstructions)) {
-            PathSimplification.simplify(responsePath, douglasPeucker, enableInstructions);
+            DouglasPeucker simplifier = fullLevels == null ? douglasPeucker
+                    : new PrecomputedDouglasPeucker(fullLevels).setMaxDistance(douglasPeucker.getMaxDistance());
+            PathSimplification.simplify(responsePath, simplifier, enableInstructions);
         }
         return responsePath;
     }
 
+    /**
+     * @return the level of every point of {@link Path#calcPoints()}
+     */
+    private DoubleArrayList calcLevels(Path path) {
+        final DoubleArrayList levels = new DoubleArrayList(path.getEdgeCount() + 1);
+        if (path.getEdgeCount() == 0) {
+            if (path.isFound())
+                levels.add(Double.POSITIVE_INFINITY);
+            return levels;
+        }
+        levels.add(Double.POSITIVE_INFINITY);
+        path.forEveryEdge(new Path.EdgeVisitor() {
+            @Override
+            public void next(EdgeIteratorState edge, int index, int prevEdgeId) {
+                pillarLevels.addLevels(edge, levels);
+            }
+
+            @Override
+            public void finish() {
+            }
+        });
+        return levels;
+    }
+
     /**
      * This method iterates over all instructions and uses the available context to improve the instructions.
      * If the requests contains a heading, this method can transform the first continue to a u-turn if the heading
@@ -0,0 +1,54 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.util;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.graphhopper.storage.PillarLevels;
+
+/**
+ * Simplifies a list of points without calculating any distances: a point is removed if its level, which was calculated
+ * in advance by {@link PillarLevels}, is smaller than the maximum distance. This takes a single pass over the points
+ * instead of the recursion of {@link DouglasPeucker}. The elevation is ignored.
+ */
+public class PrecomputedDouglasPeucker extends DouglasPeucker {
+    private final DoubleArrayList levels;
+
+    /**
+     * @param levels the level of every point of the list that will be simplified
+     */
+    public PrecomputedDouglasPeucker(DoubleArrayList levels) {
+        this.levels = levels;
+    }
+
+    @Override
+    public int simplify(PointList points, int fromIndex, int lastIndex, boolean compress) {
+        if (points.size() != levels.size())
+            throw new IllegalStateException("The number of levels " + levels.size() + " does not match the number of points " + points.size());
+        double maxDistance = getMaxDistance();
+        int removed = 0;
+        for (int i = fromIndex + 1; i < lastIndex; i++) {
+            if (levels.get(i) < maxDistance && !Double.isNaN(points.getLat(i))) {
+                points.set(i, Double.NaN, Double.NaN, Double.NaN);
+                removed++;
+            }
+        }
+        if (removed > 0 && compress)
+            removeNaN(points);
+        return removed;
+    }
+}
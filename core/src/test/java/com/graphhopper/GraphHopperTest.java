@@ -29,6 +29,7 @@ import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.util.countryrules.CountryRuleFactory;
 import com.graphhopper.routing.util.parsers.OSMMaxSpeedParser;
 import com.graphhopper.routing.util.parsers.OSMRoadEnvironmentParser;
+import com.graphhopper.routing.weighting.PrecomputedWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomProfile;
 import com.graphhopper.storage.*;
@@ -624,6 +625,52 @@ public class GraphHopperTest {
         assertTrue(rsp.hasErrors(), "expected errors");
     }
 
+    @Test
+    public void testNorthBayreuthNamedBlockAreas() {
+        final String profile = "profile";
+        final String someArea = "49.97986,11.472902,50.003946,11.534357";
+
+        GraphHopperConfig config = new GraphHopperConfig();
+        config.putObject("graph.location", GH_LOCATION);
+        config.putObject("datareader.file", BAYREUTH);
+        config.putObject(Routing.INIT_BLOCK_AREAS + "some_area", someArea);
+        config.setProfiles(Collections.singletonList(new Profile(profile).setVehicle("car").setWeighting("fastest")));
+        GraphHopper hopper = new GraphHopper().init(config);
+        hopper.importOrLoad();
+
+        GHRequest req = new GHRequest(49.975845, 11.522598, 50.026821, 11.497364).
+                setProfile(profile);
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(6685, rsp.getBest().getDistance(), 1);
+
+        // the configured area blocks the same roads as the block_area parameter
+        req.putHint(Routing.BLOCK_AREA_NAMES, "some_area");
+        rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(13988, rsp.getBest().getDistance(), 1);
+
+        // areas can be added at runtime and combined
+        hopper.getNamedBlockAreas().put("point", "50.017578,11.547527");
+        req.putHint(Routing.BLOCK_AREA_NAMES, "some_area,point");
+        rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(14601, rsp.getBest().getDistance(), 1);
+
+        // ... and replaced
+        hopper.getNamedBlockAreas().put("some_area", "49.979929,11.520066,200");
+        req.putHint(Routing.BLOCK_AREA_NAMES, "some_area");
+        rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(12173, rsp.getBest().getDistance(), 1);
+
+        hopper.getNamedBlockAreas().remove("some_area");
+        rsp = hopper.route(req);
+        assertTrue(rsp.hasErrors(), "expected errors");
+        assertTrue(rsp.getErrors().get(0).getMessage().contains("The block area 'some_area' does not exist. Available block areas: [point]"),
+                rsp.getErrors().toString());
+    }
+
     @Test
     public void testCustomModel() {
         final String vehicle = "car";
@@ -670,6 +717,51 @@ public class GraphHopperTest {
         assertEquals(expectedDistance, rsp.getBest().getDistance(), 1);
     }
 
+    @Test
+    public void testMonacoViaConcurrentLegs() {
+        final String profile = "profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest").setTurnCosts(true)).
+                setStoreOnFlush(true).
+                importOrLoad();
+
+        Random rnd = new Random(123);
+        GHRequest req = new GHRequest().setProfile(profile);
+        for (int i = 0; i < 12; i++)
+            req.addPoint(new GHPoint(43.727 + rnd.nextDouble() * 0.02, 7.410 + rnd.nextDouble() * 0.025));
+        List<String> curbsides = new ArrayList<>();
+        for (int i = 0; i < req.getPoints().size(); i++)
+            curbsides.add(i % 3 == 0 ? "right" : "any");
+
+        for (boolean withCurbsides : new boolean[]{false, true}) {
+            req.setCurbsides(withCurbsides ? curbsides : new ArrayList<>());
+            hopper.getRouterConfig().setLegThreads(1);
+            GHResponse sequential = hopper.route(req);
+            assertFalse(sequential.hasErrors(), sequential.getErrors().toString());
+            hopper.getRouterConfig().setLegThreads(4);
+            GHResponse concurrent = hopper.route(req);
+            assertFalse(concurrent.hasErrors(), concurrent.getErrors().toString());
+
+            assertEquals(sequential.getBest().getDistance(), concurrent.getBest().getDistance(), 1.e-6);
+            assertEquals(sequential.getBest().getTime(), concurrent.getBest().getTime());
+            assertEquals(sequential.getBest().getRouteWeight(), concurrent.getBest().getRouteWeight(), 1.e-6);
+            assertEquals(sequential.getBest().getPoints(), concurrent.getBest().getPoints());
+            assertEquals(sequential.getHints().getLong("visited_nodes.sum", -1), concurrent.getHints().getLong("visited_nodes.sum", -2));
+            assertFalse(sequential.getHints().has("leg_times_ms"));
+            assertEquals(11, ((List<?>) concurrent.getHints().getObject("leg_times_ms", null)).size());
+        }
+
+        // errors of the legs are reported just like for the sequential calculation
+        curbsides.set(5, "left");
+        req.setCurbsides(curbsides);
+        GHResponse rsp = hopper.route(req);
+        assertEquals(1, rsp.getErrors().size());
+        assertEquals("Impossible curbside constraint: 'curbside=left' at point 5", rsp.getErrors().get(0).getMessage());
+        hopper.close();
+    }
+
     @Test
     public void testMonacoVia() {
         final String profile = "profile";
@@ -1132,7 +1224,7 @@ public class GraphHopperTest {
         assertEquals(67.4, arsp.getDescend(), 1e-1);
 
         assertEquals(60, arsp.getPoints().size());
-        assertEquals(new GHPoint3D(43.73068455771767, 7.421283689825812, 55.82900047302246), arsp.getPoints().get(0));
+        assertEquals(new GHPoint3D(43.730684662577524, 7.421283725164733, 55.82950019836426), arsp.getPoints().get(0));
         assertEquals(new GHPoint3D(43.727679637988224, 7.419198521975086, 12.274499893188477), arsp.getPoints().get(arsp.getPoints().size() - 1));
 
         assertEquals(55.83, arsp.getPoints().get(0).getEle(), 1e-2);
@@ -1569,11 +1661,10 @@ public class GraphHopperTest {
 
         // LM (should be the same as flex, but with less visited nodes!)
         testCrossQueryAssert(profile1, hopper, 528.3, 74, false);
-        testCrossQueryAssert(profile2, hopper, 635.8, 124, false);
-        // this is actually interesting: the number of visited nodes *increases* once again (while it strictly decreases
-        // with rising distance factor for flex): cross-querying 'works', but performs *worse*, because the landmarks
-        // were not customized for the weighting in use. Creating a separate LM preparation for profile3 yields 74
-        testCrossQueryAssert(profile3, hopper, 815.2, 162, false);
+        testCrossQueryAssert(profile2, hopper, 635.8, 84, false);
+        // the landmark weights are scaled with the minimum ratio of the profile weight and the weight of the preparation
+        // profile, so cross-querying still performs better than flex (a separate LM preparation for profile3 yields 74)
+        testCrossQueryAssert(profile3, hopper, 815.2, 120, false);
     }
 
     private void testCrossQueryAssert(String profile, GraphHopper hopper, double expectedWeight, int expectedVisitedNodes, boolean disableLM) {
@@ -2515,4 +2606,107 @@ public class GraphHopperTest {
         Helper.close(graph);
     }
 
+    @Test
+    public void testWeightColumns() {
+        final String profileName = "profile";
+        CustomModel customModel = new CustomModel().setDistanceInfluence(70);
+        customModel.getPriority().add(Statement.If("road_class == PRIMARY", Statement.Op.MULTIPLY, 0.5));
+        Profile profile = new CustomProfile(profileName).setCustomModel(customModel).setVehicle("car");
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profileName);
+
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(profile).
+                setStoreOnFlush(true);
+        hopper.importOrLoad();
+        ResponsePath expected = hopper.route(req).getBest();
+        hopper.close();
+
+        hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setProfiles(profile).
+                setWeightColumnProfiles(Collections.singletonList(profileName)).
+                setStoreOnFlush(true);
+        assertTrue(hopper.load());
+        assertTrue(new File(GH_LOCATION, "weights_" + profileName).exists());
+        assertTrue(hopper.createWeighting(profile, new PMap()) instanceof PrecomputedWeighting);
+        // a custom model in the request changes the weighting so the column cannot be used
+        assertFalse(hopper.createWeighting(profile, new PMap().putObject(CustomModel.KEY, new CustomModel())) instanceof PrecomputedWeighting);
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(expected.getDistance(), rsp.getBest().getDistance(), 1.e-3);
+        assertEquals(expected.getTime(), rsp.getBest().getTime());
+        assertEquals(expected.getRouteWeight(), rsp.getBest().getRouteWeight(), 1.e-3);
+        hopper.close();
+
+        // the column is calculated again when the profile changes
+        customModel.setDistanceInfluence(0);
+        profile = new CustomProfile(profileName).setCustomModel(customModel).setVehicle("car");
+        hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setProfiles(profile).
+                setStoreOnFlush(true);
+        assertTrue(hopper.load());
+        expected = hopper.route(req).getBest();
+        hopper.close();
+
+        hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setProfiles(profile).
+                setWeightColumnProfiles(Collections.singletonList(profileName)).
+                setStoreOnFlush(true);
+        assertTrue(hopper.load());
+        assertEquals(expected.getRouteWeight(), hopper.route(req).getBest().getRouteWeight(), 1.e-3);
+        hopper.close();
+    }
+
+
+    @Test
+    public void testPillarLevels() {
+        final String profile = "profile";
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile).
+                setPathDetails(Arrays.asList("street_name", "max_speed"));
+        req.putHint("way_point_max_distance", 5);
+
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest")).
+                setStoreOnFlush(true);
+        hopper.importOrLoad();
+        ResponsePath expected = hopper.route(req).getBest();
+        ResponsePath full = hopper.route(new GHRequest(req.getPoints()).setProfile(profile).
+                putHint("way_point_max_distance", 0)).getBest();
+        hopper.close();
+
+        hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest")).
+                setPillarLevelsEnabled(true).
+                setStoreOnFlush(true);
+        assertTrue(hopper.load());
+        assertNotNull(hopper.getPillarLevels());
+        assertTrue(new File(GH_LOCATION, "pillar_levels").exists());
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        ResponsePath path = rsp.getBest();
+        assertEquals(expected.getDistance(), path.getDistance(), 1.e-3);
+        assertEquals(expected.getInstructions().size(), path.getInstructions().size());
+        assertEquals(expected.getPathDetails().get("street_name").size(), path.getPathDetails().get("street_name").size());
+        // the tower nodes are always kept, so there are a few more points than for Douglas-Peucker on the whole route
+        assertTrue(path.getPoints().size() >= expected.getPoints().size(), path.getPoints().size() + " vs. " + expected.getPoints().size());
+        assertTrue(path.getPoints().size() < full.getPoints().size(), path.getPoints().size() + " vs. " + full.getPoints().size());
+        int index = 0;
+        for (GHPoint3D point : path.getPoints()) {
+            while (!point.equals(full.getPoints().get(index)))
+                index++;
+        }
+
+        // without simplification all points are returned
+        req.putHint("way_point_max_distance", 0);
+        assertEquals(full.getPoints().size(), hopper.route(req).getBest().getPoints().size());
+        hopper.close();
+    }
+
 }
@@ -0,0 +1,128 @@
+package com.graphhopper.isochrone.algorithm;
+
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PhastShortestPathTreeTest {
+
+    private final EncodingManager encodingManager = EncodingManager.create("car");
+    private final FlagEncoder carEncoder = encodingManager.getEncoder("car");
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void compareWithShortestPathTree(boolean reverseFlow) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        for (int run = 0; run < 10; run++) {
+            BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+            GHUtility.buildRandomGraph(graph, rnd, 100, 2.2, false, false,
+                    carEncoder.getAccessEnc(), carEncoder.getAverageSpeedEnc(), null, 0.7, 0.8, 0.8);
+            graph.freeze();
+            Weighting weighting = new FastestWeighting(carEncoder);
+            PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, CHConfig.nodeBased("car", weighting)).doWork();
+            RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+            int[] nodeOrder = PhastShortestPathTree.createNodeOrder(chGraph);
+            assertNotNull(nodeOrder);
+
+            LocationIndexTree index = new LocationIndexTree(graph, new RAMDirectory());
+            index.prepareIndex();
+            Snap snap = index.findClosest(49.4 + rnd.nextDouble() * 0.01, 9.7 + rnd.nextDouble() * 0.01, EdgeFilter.ALL_EDGES);
+            if (!snap.isValid())
+                continue;
+            QueryGraph queryGraph = QueryGraph.create(graph, snap);
+
+            Map<Integer, ShortestPathTree.IsoLabel> expected = new HashMap<>();
+            ShortestPathTree spt = new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, TraversalMode.NODE_BASED);
+            spt.setTimeLimit(Double.MAX_VALUE);
+            spt.search(snap.getClosestNode(), l -> expected.put(l.node, l));
+
+            Map<Integer, ShortestPathTree.IsoLabel> actual = new HashMap<>();
+            PhastShortestPathTree phast = new PhastShortestPathTree(new QueryRoutingCHGraph(chGraph, queryGraph), nodeOrder, reverseFlow);
+            phast.setTimeLimit(Double.MAX_VALUE);
+            phast.search(snap.getClosestNode(), l -> actual.put(l.node, l));
+
+            String msg = "seed: " + seed + ", run: " + run;
+            assertEquals(expected.keySet(), actual.keySet(), msg);
+            for (ShortestPathTree.IsoLabel e : expected.values()) {
+                ShortestPathTree.IsoLabel a = actual.get(e.node);
+                // shortcut weights are stored with limited precision
+                assertEquals(e.weight, a.weight, 1.e-2, msg);
+                assertEquals(e.time, a.time, 10, msg);
+                if (a.parent != null)
+                    assertTrue(queryGraph.isAdjacentToNode(a.edge, a.parent.node), msg);
+            }
+            graph.close();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void limitOnlyRemovesNodes(boolean distanceLimit) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        for (int run = 0; run < 10; run++) {
+            BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+            GHUtility.buildRandomGraph(graph, rnd, 100, 2.2, false, false,
+                    carEncoder.getAccessEnc(), carEncoder.getAverageSpeedEnc(), null, 0.7, 0.8, 0.8);
+            graph.freeze();
+            Weighting weighting = new FastestWeighting(carEncoder);
+            PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, CHConfig.nodeBased("car", weighting)).doWork();
+            RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+            int[] nodeOrder = PhastShortestPathTree.createNodeOrder(chGraph);
+            int from = rnd.nextInt(graph.getNodes());
+
+            Map<Integer, ShortestPathTree.IsoLabel> all = new HashMap<>();
+            PhastShortestPathTree phast = new PhastShortestPathTree(chGraph, nodeOrder, false);
+            phast.setTimeLimit(Double.MAX_VALUE);
+            phast.search(from, l -> all.put(l.node, l));
+            double maxValue = all.values().stream().mapToDouble(l -> distanceLimit ? l.distance : l.time).max().orElse(0);
+            double limit = maxValue / 2;
+
+            // shortcuts below nodes beyond the limit are not unpacked, but this must not change the labels
+            Map<Integer, ShortestPathTree.IsoLabel> actual = new HashMap<>();
+            phast = new PhastShortestPathTree(chGraph, nodeOrder, false);
+            if (distanceLimit)
+                phast.setDistanceLimit(limit);
+            else
+                phast.setTimeLimit(limit);
+            phast.search(from, l -> actual.put(l.node, l));
+
+            String msg = "seed: " + seed + ", run: " + run;
+            for (ShortestPathTree.IsoLabel e : all.values()) {
+                ShortestPathTree.IsoLabel a = actual.get(e.node);
+                if ((distanceLimit ? e.distance : e.time) > limit) {
+                    assertNull(a, msg);
+                    continue;
+                }
+                assertNotNull(a, msg);
+                assertEquals(e.time, a.time, msg);
+                assertEquals(e.distance, a.distance, 1.e-6, msg);
+                assertEquals(e.edge, a.edge, msg);
+                if (e.parent != null) {
+                    assertEquals(e.parent.node, a.parent.node, msg);
+                    assertEquals(e.parent.time, a.parent.time, msg);
+                }
+            }
+            graph.close();
+        }
+    }
+}
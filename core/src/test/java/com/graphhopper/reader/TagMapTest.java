@@ -0,0 +1,65 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TagMapTest {
+    @Test
+    public void testBehavesLikeMap() {
+        Map<String, Object> expected = new LinkedHashMap<>();
+        TagMap map = new TagMap();
+        assertTrue(map.isEmpty());
+        Random rnd = new Random(123);
+        for (int i = 0; i < 1000; i++) {
+            // new String to make sure we do not rely on identity
+            String key = new String("k" + rnd.nextInt(12));
+            if (rnd.nextInt(4) == 0)
+                assertEquals(expected.remove(key), map.remove(key));
+            else
+                assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+            assertEquals(expected, map);
+            assertEquals(map, expected);
+            assertEquals(expected.hashCode(), map.hashCode());
+            assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+        }
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get("k1"));
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        TagMap map = new TagMap(2);
+        map.put("highway", "primary");
+        map.put("maxspeed", "50");
+        map.put("name", "Main Street");
+        map.keySet().removeIf(k -> k.startsWith("max"));
+        assertEquals("{highway=primary, name=Main Street}", map.toString());
+        map.entrySet().iterator().next().setValue("secondary");
+        assertEquals("secondary", map.get("highway"));
+
+        ReaderWay way = new ReaderWay(1, map);
+        assertTrue(way.hasTag("highway", "secondary"));
+        assertEquals(Collections.singletonList("name"), way.getKeysWithPrefix("na"));
+    }
+}
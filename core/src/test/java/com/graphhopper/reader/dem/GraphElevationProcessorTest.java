@@ -0,0 +1,120 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class GraphElevationProcessorTest {
+    // an elevation provider that can be called concurrently
+    private final ElevationProvider elevation = new ElevationProvider() {
+        @Override
+        public double getEle(double lat, double lon) {
+            return Math.round(1000 * Math.abs(Math.sin(lat * 100) + Math.cos(lon * 100)));
+        }
+
+        @Override
+        public boolean canInterpolate() {
+            return false;
+        }
+
+        @Override
+        public void release() {
+        }
+    };
+
+    @Test
+    public void setElevation() {
+        BaseGraph graph = new BaseGraph.Builder(1).set3D(true).create();
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 50.0, 10.0, 100);
+        na.setNode(1, 50.01, 10.0, 200);
+        PointList pillars = new PointList(1, true);
+        pillars.add(50.005, 10.0, 0);
+        graph.edge(0, 1).setDistance(1).setWayGeometry(pillars);
+
+        new GraphElevationProcessor(graph, elevation).process(2);
+        // the elevation of the tower nodes does not change
+        assertEquals(100, na.getEle(0), 1.e-3);
+        assertEquals(200, na.getEle(1), 1.e-3);
+        EdgeIteratorState edge = graph.getEdgeIteratorState(0, 1);
+        PointList pointList = edge.fetchWayGeometry(FetchMode.ALL);
+        assertEquals(3, pointList.size());
+        assertEquals(elevation.getEle(pointList.getLat(1), pointList.getLon(1)), pointList.getEle(1), 1.e-3);
+        assertEquals(DistanceCalcEarth.DIST_EARTH.calcDistance(pointList), edge.getDistance(), 1.e-3);
+    }
+
+    @Test
+    public void sampleLongEdges() {
+        BaseGraph graph = new BaseGraph.Builder(1).set3D(true).create();
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 50.0, 10.0, 0);
+        na.setNode(1, 50.01, 10.0, 0);
+        graph.edge(0, 1).setDistance(1);
+
+        new GraphElevationProcessor(graph, elevation).setLongEdgeSamplingDistance(100).process(1);
+        PointList pointList = graph.getEdgeIteratorState(0, 1).fetchWayGeometry(FetchMode.ALL);
+        // the edge is roughly 1112m long
+        assertEquals(12, pointList.size());
+        assertEquals(elevation.getEle(pointList.getLat(5), pointList.getLon(5)), pointList.getEle(5), 1.e-3);
+    }
+
+    @Test
+    public void sameResultForAnyNumberOfThreads() {
+        long seed = new Random().nextLong();
+        BaseGraph graph1 = createRandomGraph(new Random(seed));
+        BaseGraph graph2 = createRandomGraph(new Random(seed));
+        new GraphElevationProcessor(graph1, elevation).setSmoothElevation(true).setLongEdgeSamplingDistance(50).
+                setSimplifyAlgo(new DouglasPeucker().setMaxDistance(1).setElevationMaxDistance(5)).process(1);
+        new GraphElevationProcessor(graph2, elevation).setSmoothElevation(true).setLongEdgeSamplingDistance(50).
+                setSimplifyAlgo(new DouglasPeucker().setMaxDistance(1).setElevationMaxDistance(5)).process(4);
+
+        for (int node = 0; node < graph1.getNodes(); node++) {
+            assertEquals(graph1.getNodeAccess().getEle(node), graph2.getNodeAccess().getEle(node), "seed: " + seed);
+        }
+        for (int edge = 0; edge < graph1.getEdges(); edge++) {
+            EdgeIteratorState edge1 = graph1.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            EdgeIteratorState edge2 = graph2.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            assertEquals(edge1.getDistance(), edge2.getDistance(), "seed: " + seed);
+            assertEquals(edge1.fetchWayGeometry(FetchMode.ALL), edge2.fetchWayGeometry(FetchMode.ALL), "seed: " + seed);
+        }
+    }
+
+    private BaseGraph createRandomGraph(Random random) {
+        BaseGraph graph = new BaseGraph.Builder(1).set3D(true).create();
+        int nodes = 5_000;
+        for (int node = 0; node < nodes; node++) {
+            graph.getNodeAccess().setNode(node, 50 + random.nextDouble() * 0.02, 10 + random.nextDouble() * 0.02, 0);
+        }
+        // more edges than the chunk size
+        for (int i = 0; i < 25_000; i++) {
+            int from = random.nextInt(nodes), to = random.nextInt(nodes);
+            PointList pillars = new PointList(3, true);
+            for (int j = random.nextInt(4); j > 0; j--)
+                pillars.add(50 + random.nextDouble() * 0.02, 10 + random.nextDouble() * 0.02, 0);
+            graph.edge(from, to).setDistance(1).setWayGeometry(pillars);
+        }
+        return graph;
+    }
+}
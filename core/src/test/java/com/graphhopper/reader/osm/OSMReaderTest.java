@@ -467,6 +467,33 @@ public class OSMReaderTest {
         checkLoop(new GraphHopperFacade("test-avoid-loops4.xml").importOrLoad());
     }
 
+    @Test
+    public void testEleOfPillarNodeThatBecomesTowerNode() {
+        GraphHopper hopper = new GraphHopperFacade("test-avoid-loops.xml");
+        hopper.setElevationProvider(new ElevationProvider() {
+            @Override
+            public double getEle(double lat, double lon) {
+                return lat * 10;
+            }
+
+            @Override
+            public boolean canInterpolate() {
+                return false;
+            }
+
+            @Override
+            public void release() {
+            }
+        });
+        hopper.importOrLoad();
+        // C or D is a pillar node that is converted to a tower node when the loop is split, it still needs its elevation
+        GraphHopperStorage graph = hopper.getGraphHopperStorage();
+        NodeAccess na = graph.getNodeAccess();
+        assertEquals(4, graph.getNodes());
+        for (int node = 0; node < graph.getNodes(); node++)
+            assertEquals(na.getLat(node) * 10, na.getEle(node), 1e-1);
+    }
+
     @Test
     public void testBarriersOnTowerNodes() {
         GraphHopper hopper = new GraphHopperFacade(fileBarriers).
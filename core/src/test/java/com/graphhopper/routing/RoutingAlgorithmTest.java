@@ -38,8 +38,10 @@ import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
+import com.graphhopper.util.exceptions.SearchCancelledException;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtensionContext;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
@@ -50,6 +52,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.stream.Stream;
@@ -574,6 +577,29 @@ public class RoutingAlgorithmTest {
         assertFalse(p.isFound());
     }
 
+    @Test
+    public void testCancellation() {
+        EncodingManager em = EncodingManager.create("car");
+        FlagEncoder encoder = em.getEncoder("car");
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        initBiGraph(graph, encoder);
+        Weighting weighting = new ShortestWeighting(encoder);
+        List<RoutingAlgorithm> algos = Arrays.asList(new Dijkstra(graph, weighting, NODE_BASED),
+                new AStar(graph, weighting, NODE_BASED), new DijkstraBidirectionRef(graph, weighting, NODE_BASED),
+                new AStarBidirection(graph, weighting, NODE_BASED));
+        CancellationToken token = CancellationToken.create();
+        token.cancel("stop");
+        for (RoutingAlgorithm algo : algos) {
+            algo.setCancellation(token);
+            SearchCancelledException ex = assertThrows(SearchCancelledException.class, () -> algo.calcPath(0, 4), algo.getName());
+            assertEquals("stop", ex.getMessage());
+        }
+
+        RoutingAlgorithm algo = new DijkstraBidirectionRef(graph, weighting, NODE_BASED);
+        algo.setCancellation(CancellationToken.create());
+        assertTrue(algo.calcPath(0, 4).isFound());
+    }
+
     @ParameterizedTest
     @ArgumentsSource(FixtureProvider.class)
     public void testBidirectional2(Fixture f) {
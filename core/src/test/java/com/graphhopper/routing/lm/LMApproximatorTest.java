@@ -30,8 +30,10 @@ import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.RAMDirectory;
 import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
 import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
 
 import java.util.Random;
 
@@ -42,10 +44,16 @@ public class LMApproximatorTest {
     @RepeatedTest(value = 10)
     public void randomGraph() {
         final long seed = System.nanoTime();
-        run(seed);
+        run(seed, false);
     }
 
-    private void run(long seed) {
+    @RepeatedTest(value = 10)
+    public void randomGraphCompact() {
+        final long seed = System.nanoTime();
+        run(seed, true);
+    }
+
+    private void run(long seed, boolean compact) {
         Directory dir = new RAMDirectory();
         CarFlagEncoder encoder = new CarFlagEncoder(5, 5, 1);
         EncodingManager encodingManager = new EncodingManager.Builder().add(encoder).add(Subnetwork.create("car")).build();
@@ -59,6 +67,7 @@ public class LMApproximatorTest {
 
         PrepareLandmarks lm = new PrepareLandmarks(dir, graph, new LMConfig("car", weighting), 16);
         lm.setMaximumWeight(10000);
+        lm.setCompact(compact);
         lm.doWork();
         LandmarkStorage landmarkStorage = lm.getLandmarkStorage();
 
@@ -104,29 +113,32 @@ public class LMApproximatorTest {
                         nOverApproximatedWeights++;
                     }
 
-                    // Triangle inequality for approximator. This is what makes it 'consistent'.
-                    // That's a requirement for normal A*-implementations, because if it is violated,
-                    // the heap-weight of settled nodes can decrease, and that would mean our
-                    // stopping criterion is not sufficient.
-                    EdgeIterator neighbors = graph.createEdgeExplorer(AccessFilter.outEdges(encoder.getAccessEnc())).setBaseNode(v);
-                    while (neighbors.next()) {
-                        int w = neighbors.getAdjNode();
-                        double vw = weighting.calcEdgeWeight(neighbors, false);
-                        double vwApprox = lmApproximator.approximate(v) - lmApproximator.approximate(w);
-                        if (vwApprox - lm.getLandmarkStorage().getFactor() > vw) {
-                            System.out.printf("%f\t%f\n", vwApprox - lm.getLandmarkStorage().getFactor(), vw);
-                            nInconsistentWeights++;
+                    // The compact storage rounds the weights much more, so the approximation is only a lower bound
+                    if (!compact) {
+                        // Triangle inequality for approximator. This is what makes it 'consistent'.
+                        // That's a requirement for normal A*-implementations, because if it is violated,
+                        // the heap-weight of settled nodes can decrease, and that would mean our
+                        // stopping criterion is not sufficient.
+                        EdgeIterator neighbors = graph.createEdgeExplorer(AccessFilter.outEdges(encoder.getAccessEnc())).setBaseNode(v);
+                        while (neighbors.next()) {
+                            int w = neighbors.getAdjNode();
+                            double vw = weighting.calcEdgeWeight(neighbors, false);
+                            double vwApprox = lmApproximator.approximate(v) - lmApproximator.approximate(w);
+                            if (vwApprox - lm.getLandmarkStorage().getFactor() > vw) {
+                                System.out.printf("%f\t%f\n", vwApprox - lm.getLandmarkStorage().getFactor(), vw);
+                                nInconsistentWeights++;
+                            }
                         }
-                    }
 
-                    neighbors = graph.createEdgeExplorer(AccessFilter.outEdges(encoder.getAccessEnc())).setBaseNode(v);
-                    while (neighbors.next()) {
-                        int w = neighbors.getAdjNode();
-                        double vw = weighting.calcEdgeWeight(neighbors, false);
-                        double vwApprox = balancedWeightApproximator.approximate(v, false) - balancedWeightApproximator.approximate(w, false);
-                        if (vwApprox - lm.getLandmarkStorage().getFactor() > vw) {
-                            System.out.printf("%f\t%f\n", vwApprox - lm.getLandmarkStorage().getFactor(), vw);
-                            nInconsistentWeights++;
+                        neighbors = graph.createEdgeExplorer(AccessFilter.outEdges(encoder.getAccessEnc())).setBaseNode(v);
+                        while (neighbors.next()) {
+                            int w = neighbors.getAdjNode();
+                            double vw = weighting.calcEdgeWeight(neighbors, false);
+                            double vwApprox = balancedWeightApproximator.approximate(v, false) - balancedWeightApproximator.approximate(w, false);
+                            if (vwApprox - lm.getLandmarkStorage().getFactor() > vw) {
+                                System.out.printf("%f\t%f\n", vwApprox - lm.getLandmarkStorage().getFactor(), vw);
+                                nInconsistentWeights++;
+                            }
                         }
                     }
                 }
@@ -161,4 +173,42 @@ public class LMApproximatorTest {
         }
     }
 
+    @Test
+    public void weightFactor() {
+        Directory dir = new RAMDirectory();
+        CarFlagEncoder encoder = new CarFlagEncoder(5, 5, 1);
+        EncodingManager encodingManager = new EncodingManager.Builder().add(encoder).add(Subnetwork.create("car")).build();
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).setDir(dir).create();
+        GHUtility.buildRandomGraph(graph, new Random(42), 100, 2.2, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.8, 0.8);
+
+        // the landmarks are prepared for a weighting that is slower than the one we use for routing
+        Weighting weighting = new FastestWeighting(encoder);
+        Weighting slowWeighting = new FastestWeighting(encoder) {
+            @Override
+            public double calcEdgeWeight(EdgeIteratorState edgeState, boolean reverse) {
+                return 2.5 * super.calcEdgeWeight(edgeState, reverse);
+            }
+        };
+        PrepareLandmarks lm = new PrepareLandmarks(dir, graph, new LMConfig("car", slowWeighting), 8);
+        lm.setMaximumWeight(25000);
+        lm.doWork();
+        LandmarkStorage landmarkStorage = lm.getLandmarkStorage();
+        double weightFactor = LandmarkStorage.calcWeightFactor(graph, slowWeighting, weighting);
+        assertEquals(0.4, weightFactor, 1.e-6);
+
+        int nOverApproximatedWeights = 0;
+        for (int t = 0; t < graph.getNodes(); t++) {
+            LMApproximator lmApproximator = new LMApproximator(graph, slowWeighting, graph.getNodes(), landmarkStorage, 4, landmarkStorage.getFactor(), false).
+                    setWeightFactor(weightFactor);
+            lmApproximator.setTo(t);
+            for (int v = 0; v < graph.getNodes(); v++) {
+                Path path = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(v, t);
+                if (path.isFound() && lmApproximator.approximate(v) > path.getWeight() + 1.e-6)
+                    nOverApproximatedWeights++;
+            }
+        }
+        assertEquals(0, nOverApproximatedWeights);
+    }
+
 }
\ No newline at end of file
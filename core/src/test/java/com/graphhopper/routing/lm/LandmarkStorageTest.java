@@ -17,6 +17,7 @@
  */
 package com.graphhopper.routing.lm;
 
+import com.graphhopper.routing.Dijkstra;
 import com.graphhopper.routing.RoutingAlgorithmTest;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.Subnetwork;
@@ -24,6 +25,7 @@ import com.graphhopper.routing.subnetwork.PrepareRoutingSubnetworks;
 import com.graphhopper.routing.util.AreaIndex;
 import com.graphhopper.routing.util.CarFlagEncoder;
 import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.FastestWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.BaseGraph;
@@ -111,6 +113,55 @@ public class LandmarkStorageTest {
         assertFalse(lms.isInfinity(0));
     }
 
+    @Test
+    public void testSetGetWeightCompact() {
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(40.1));
+        Directory dir = new RAMDirectory();
+        LandmarkStorage lms = new LandmarkStorage(graph, dir, new LMConfig("c1", new FastestWeighting(encoder)), 4).
+                setMaximumWeight(LandmarkStorage.PRECISION).setCompact(true);
+        lms._getInternalDA().create(2000);
+        // one byte per weight and the scale is the number of units of the factor per byte
+        lms.setWeight(0, 1000, 10);
+        assertEquals(100, lms._getInternalDA().getByte(0));
+        lms.setWeight(0, 1009, 10);
+        assertEquals(100, lms._getInternalDA().getByte(0));
+        // 255 is infinity and 254 the maximum value
+        assertFalse(lms.setWeight(0, 2540, 10));
+        assertEquals(254, lms._getInternalDA().getByte(0) & 0xFF);
+        assertFalse(lms.isInfinity(0));
+        lms._getInternalDA().setByte(0, (byte) 255);
+        assertTrue(lms.isInfinity(0));
+    }
+
+    @Test
+    public void testCompact() {
+        //  0-1-2-3-4
+        //  |       |
+        //  5-6-7-8-9
+        for (int i = 0; i < 4; i++) {
+            GHUtility.setSpeed(60, true, true, encoder, graph.edge(i, i + 1).setDistance(100 * (i + 1)));
+            GHUtility.setSpeed(60, true, true, encoder, graph.edge(i + 5, i + 6).setDistance(100));
+        }
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 5).setDistance(300));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(4, 9).setDistance(300));
+        Weighting weighting = new FastestWeighting(encoder);
+        subnetworkRemoval(weighting, 1);
+
+        LandmarkStorage storage = new LandmarkStorage(graph, new RAMDirectory(), new LMConfig("car", weighting), 2).setCompact(true);
+        storage.setMinimumNodes(2);
+        storage.createLandmarks();
+        assertTrue(storage.isCompact());
+        // the stored weights are bounds of the real weights
+        for (int lm = 0; lm < 2; lm++) {
+            int lmNode = storage.getLandmarks(1)[lm];
+            for (int node = 0; node < 10; node++) {
+                double weight = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(lmNode, node).getWeight();
+                assertTrue(storage.getFromWeight(lm, node) * storage.getFactor() <= weight + 1.e-6);
+                assertTrue(storage.getFromWeightUpper(lm, node) * storage.getFactor() >= weight);
+            }
+        }
+    }
+
     @Test
     public void testWithSubnetworks() {
         // 0-1-2..4-5->6
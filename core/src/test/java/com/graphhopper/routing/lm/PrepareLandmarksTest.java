@@ -216,4 +216,42 @@ public class PrepareLandmarksTest {
 
         Helper.removeDir(new File(fileStr));
     }
+
+    @Test
+    public void testStoreAndLoadCompact() {
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(80_000));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 2).setDistance(80_000));
+        String fileStr = "./target/tmp-lm-compact";
+        Helper.removeDir(new File(fileStr));
+
+        Directory dir = new RAMDirectory(fileStr, true).create();
+        Weighting weighting = new FastestWeighting(encoder);
+        LMConfig lmConfig = new LMConfig("car", weighting);
+        PrepareLandmarks plm = new PrepareLandmarks(dir, graph, lmConfig, 2).setCompact(true);
+        plm.setMinimumNodes(2);
+        plm.doWork();
+
+        LandmarkStorage lms = plm.getLandmarkStorage();
+        double expectedFactor = lms.getFactor();
+        int expectedWeight = lms.getFromWeight(0, 1);
+        int expectedUpperWeight = lms.getFromWeightUpper(0, 1);
+        // the real weight is 4800
+        assertTrue(expectedWeight * expectedFactor <= 4800 && expectedUpperWeight * expectedFactor >= 4800);
+        assertTrue(expectedUpperWeight > expectedWeight + 1);
+
+        dir = new RAMDirectory(fileStr, true);
+        // the storage mode is read from the file
+        plm = new PrepareLandmarks(dir, graph, lmConfig, 2);
+        assertTrue(plm.loadExisting());
+        lms = plm.getLandmarkStorage();
+        assertTrue(lms.isCompact());
+        assertEquals(expectedFactor, lms.getFactor(), 1e-6);
+        assertEquals(Arrays.toString(new int[]{
+                2, 0
+        }), Arrays.toString(lms.getLandmarks(1)));
+        assertEquals(expectedWeight, lms.getFromWeight(0, 1));
+        assertEquals(expectedUpperWeight, lms.getFromWeightUpper(0, 1));
+
+        Helper.removeDir(new File(fileStr));
+    }
 }
@@ -134,6 +134,36 @@ public class PrepareRoutingSubnetworksTest {
         assertEquals(IntArrayList.from(7, 8, 9), getSubnetworkEdges(g, bikeEncoder));
     }
 
+    @Test
+    public void testPrepareSubnetworks_concurrently() {
+        FlagEncoder carEncoder = new DefaultFlagEncoderFactory().createFlagEncoder("car", new PMap());
+        FlagEncoder bikeEncoder = new DefaultFlagEncoderFactory().createFlagEncoder("bike", new PMap());
+        // two profiles with the same weighting share the component search
+        EncodingManager em = new EncodingManager.Builder().add(carEncoder).add(bikeEncoder)
+                .add(Subnetwork.create("car")).add(Subnetwork.create("car2")).add(Subnetwork.create("bike")).build();
+        BaseGraph g = createSubnetworkTestStorage(em);
+        EdgeIteratorState edge = GHUtility.getEdge(g, 3, 4);
+        GHUtility.setSpeed(10, false, false, carEncoder, edge);
+        GHUtility.setSpeed(5, true, true, bikeEncoder, edge);
+        BooleanEncodedValue car2SubnetworkEnc = em.getBooleanEncodedValue(Subnetwork.key("car2"));
+        List<PrepareRoutingSubnetworks.PrepareJob> prepareJobs = Arrays.asList(
+                createJob(em, carEncoder, NO_TURN_COST_PROVIDER),
+                new PrepareRoutingSubnetworks.PrepareJob(car2SubnetworkEnc, new FastestWeighting(carEncoder)),
+                createJob(em, bikeEncoder, NO_TURN_COST_PROVIDER)
+        );
+        PrepareRoutingSubnetworks instance = new PrepareRoutingSubnetworks(g, prepareJobs).setThreads(2);
+        instance.setMinNetworkSize(5);
+        assertEquals(6, instance.doWork());
+        assertEquals(IntArrayList.from(7, 8, 9), getSubnetworkEdges(g, carEncoder));
+        assertEquals(IntArrayList.from(), getSubnetworkEdges(g, bikeEncoder));
+        AllEdgesIterator iter = g.getAllEdges();
+        IntArrayList car2Edges = new IntArrayList();
+        while (iter.next())
+            if (iter.get(car2SubnetworkEnc))
+                car2Edges.add(iter.getEdge());
+        assertEquals(IntArrayList.from(7, 8, 9), car2Edges);
+    }
+
     @Test
     public void testPrepareSubnetwork_withTurnCosts() {
         EncodingManager em = createEncodingManager("car|turn_costs=true");
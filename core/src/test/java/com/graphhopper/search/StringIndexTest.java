@@ -1,6 +1,8 @@
 package com.graphhopper.search;
 
 import com.carrotsearch.hppc.LongArrayList;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.RAMDirectory;
 import com.graphhopper.util.Helper;
 import org.junit.jupiter.api.RepeatedTest;
@@ -57,11 +59,11 @@ public class StringIndexTest {
     public void putEmpty() {
         StringIndex index = create();
         assertEquals(1, index.add(createMap("", "")));
-        assertEquals(5, index.add(createMap("", null)));
-        assertEquals(9, index.add(createMap(null, null)));
+        assertEquals(8, index.add(createMap("", null)));
+        assertEquals(15, index.add(createMap(null, null)));
         assertEquals("", index.get(0, ""));
 
-        assertEquals(13, index.add(createMap("else", "else")));
+        assertEquals(22, index.add(createMap("else", "else")));
     }
 
     @Test
@@ -102,11 +104,10 @@ public class StringIndexTest {
         StringIndex index = create();
         long aPointer = index.add(createMap("a", "longer name", "b", "longer name"));
         long bPointer = index.add(createMap("c", "longer other name"));
-        // value storage: 1 byte for count, 2 bytes for keyIndex and 4 bytes for delta of dup_marker and 3 bytes (keyIndex + length for "longer name")
-        assertEquals(aPointer + 1 + (2 + 4) + 3 + "longer name".getBytes(Helper.UTF_CS).length, bPointer);
-        // no de-duplication as too short:
+        // value storage: 1 byte for count and 2 bytes for keyIndex and 4 bytes for the value pointer per key
+        assertEquals(aPointer + 1 + 2 * (2 + 4), bPointer);
         long cPointer = index.add(createMap("temp", "temp"));
-        assertEquals(bPointer + 1 + 3 + "longer other name".getBytes(Helper.UTF_CS).length, cPointer);
+        assertEquals(bPointer + 1 + (2 + 4), cPointer);
         assertEquals("longer name", index.get(aPointer, "a"));
         assertEquals("longer name", index.get(aPointer, "b"));
         assertEquals("longer other name", index.get(bPointer, "c"));
@@ -122,6 +123,69 @@ public class StringIndexTest {
         assertEquals("{a=longer name, b=longer name}", index.getAll(cPointer).toString());
     }
 
+    @Test
+    public void testValueDictionary() {
+        StringIndex index = create();
+        long aPointer = index.add(createMap("name", "Main Street", "ref", "B 1"));
+        long capacity = index.getCapacity();
+        long bPointer = index.add(createMap("name", "Main Street"));
+        long cPointer = index.add(createMap("ref", "Main Street", "name", "Other Street"));
+        assertEquals(capacity, index.getCapacity());
+
+        assertEquals("Main Street", index.get(bPointer, "name"));
+        assertEquals("Main Street", index.get(cPointer, "ref"));
+        // decoded values are cached and not allocated again
+        assertSame(index.get(aPointer, "name"), index.get(bPointer, "name"));
+        assertSame(index.get(aPointer, "name"), index.get(cPointer, "ref"));
+        assertEquals("{ref=Main Street, name=Other Street}", index.getAll(cPointer).toString());
+    }
+
+    @Test
+    public void testLoadLegacy() {
+        String location = "./target/stringindex-legacy";
+        Helper.removeDir(new File(location));
+
+        // write the layout of version 6 that stored the values in the entries
+        Directory dir = new RAMDirectory(location, true).create();
+        DataAccess keys = dir.create("string_index_keys").create(100);
+        keys.setHeader(0, 6);
+        keys.setShort(0, (short) 2);
+        keys.setShort(2, (short) 0);
+        byte[] nameBytes = "name".getBytes(Helper.UTF_CS);
+        keys.setShort(4, (short) nameBytes.length);
+        keys.setBytes(6, nameBytes, nameBytes.length);
+        keys.flush();
+
+        DataAccess vals = dir.create("string_index_vals").create(100);
+        byte[] valueBytes = "Main Street".getBytes(Helper.UTF_CS);
+        vals.setByte(1, (byte) 1);
+        vals.setShort(2, (short) 1);
+        vals.setByte(4, (byte) valueBytes.length);
+        vals.setBytes(5, valueBytes, valueBytes.length);
+        long dupPointer = 5 + valueBytes.length;
+        vals.setByte(dupPointer, (byte) 1);
+        vals.setShort(dupPointer + 1, (short) -1);
+        // the delta from the entry to the key index of the duplicate value
+        vals.setInt(dupPointer + 3, (int) (dupPointer - 2));
+        long bytePointer = dupPointer + 7;
+        vals.setHeader(0, 6);
+        vals.setHeader(4, (int) bytePointer);
+        vals.flush();
+        dir.close();
+
+        StringIndex index = new StringIndex(new RAMDirectory(location, true), 1000, -1);
+        assertTrue(index.loadExisting());
+        assertTrue(index.isLegacy());
+        assertEquals("Main Street", index.get(1, "name"));
+        assertEquals("Main Street", index.get(dupPointer, "name"));
+        assertNull(index.get(dupPointer, "ref"));
+        assertEquals("{name=Main Street}", index.getAll(dupPointer).toString());
+        assertThrows(IllegalStateException.class, () -> index.add(createMap("name", "test")));
+        index.close();
+
+        Helper.removeDir(new File(location));
+    }
+
     @Test
     public void testNoErrorOnLargeName() {
         StringIndex index = create();
@@ -174,7 +238,7 @@ public class StringIndexTest {
         assertEquals("test", index.get(pointer, ""));
         // make sure bytePointer is correctly set after loadExisting
         long newPointer = index.add(createMap("", "testing"));
-        assertEquals(pointer + 1 + 3 + "test".getBytes().length, newPointer, newPointer + ">" + pointer);
+        assertEquals(pointer + 1 + 2 + 4, newPointer, newPointer + ">" + pointer);
         index.close();
 
         Helper.removeDir(new File(location));
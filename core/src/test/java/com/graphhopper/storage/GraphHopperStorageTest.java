@@ -21,6 +21,7 @@ import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.io.IOException;
 
 import static com.graphhopper.util.EdgeIteratorState.REVERSE_STATE;
@@ -84,6 +85,74 @@ public class GraphHopperStorageTest extends AbstractGraphStorageTester {
         checkGraph(graph);
     }
 
+    @Test
+    public void testLoadConcurrently() {
+        graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), true).create(defaultSize);
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 10, 10, 0);
+        na.setNode(1, 11, 20, 1);
+        na.setNode(2, 12, 12, 0.4);
+        EdgeIteratorState iter = GHUtility.setSpeed(60, true, true, carEncoder, graph.edge(0, 1).setDistance(100));
+        iter.setWayGeometry(Helper.createPointList3D(1.5, 1, 0, 2, 3, 0));
+        iter.setName("named street");
+        GHUtility.setSpeed(60, true, false, carEncoder, graph.edge(1, 2).setDistance(120));
+        graph.flush();
+        graph.close();
+
+        GHDirectory dir = new RAMDirectory(defaultGraphLoc, true).setVerifyChecksums(true);
+        graph = newGHStorage(dir, true);
+        assertTrue(graph.loadExisting(4));
+        assertEquals(3, graph.getNodes());
+        assertEquals(2, graph.getEdges());
+        EdgeIteratorState loaded = graph.getEdgeIteratorState(iter.getEdge(), iter.getAdjNode());
+        assertEquals("named street", loaded.getName());
+        assertEquals(2, loaded.fetchWayGeometry(FetchMode.PILLAR_ONLY).size());
+    }
+
+    @Test
+    public void testLoadFromSnapshot() {
+        graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), true).create(defaultSize);
+        graph.getNodeAccess().setNode(0, 10, 10, 0);
+        graph.getNodeAccess().setNode(1, 11, 20, 1);
+        EdgeIteratorState iter = GHUtility.setSpeed(60, true, true, carEncoder, graph.edge(0, 1).setDistance(100));
+        iter.setName("named street");
+        graph.flush();
+        graph.close();
+
+        File snapshotFile = new File(defaultGraphLoc + ".ghs");
+        GraphSnapshot.export(new File(defaultGraphLoc), snapshotFile);
+        Helper.removeDir(new File(defaultGraphLoc));
+        try {
+            GraphSnapshot snapshot = GraphSnapshot.open(snapshotFile);
+            assertTrue(snapshot.getNames().contains("nodes"));
+            snapshot.verify();
+
+            // the DAType is ignored for the sections, they are always memory mapped
+            GHDirectory dir = new RAMDirectory(defaultGraphLoc, true).setSnapshot(snapshot);
+            graph = newGHStorage(dir, true);
+            assertTrue(graph.loadExisting());
+            assertFalse(new File(defaultGraphLoc).exists());
+            assertEquals(2, graph.getNodes());
+            assertEquals(11, graph.getNodeAccess().getLat(1), 1e-6);
+            assertEquals("named street", graph.getEdgeIteratorState(iter.getEdge(), iter.getAdjNode()).getName());
+            // DataAccess objects that are not part of the snapshot are stored in the location of the directory
+            DataAccess extra = dir.create().create("not_in_snapshot");
+            extra.create(100);
+            extra.setInt(0, 5);
+            extra.flush();
+            assertTrue(new File(defaultGraphLoc, "not_in_snapshot").exists());
+            extra.close();
+            graph.close();
+
+            snapshot.extract(new File(defaultGraphLoc));
+            graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), true);
+            assertTrue(graph.loadExisting());
+            assertEquals(1, graph.getEdges());
+        } finally {
+            snapshotFile.delete();
+        }
+    }
+
     @Test
     public void testSave_and_Freeze() throws IOException {
         graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), true).create(defaultSize);
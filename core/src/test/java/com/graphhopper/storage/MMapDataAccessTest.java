@@ -19,6 +19,13 @@ package com.graphhopper.storage;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -59,4 +66,47 @@ public class MMapDataAccessTest extends DataAccessTest {
         assertEquals(123, da.getInt(7 * 4));
         da.close();
     }
+
+    @Test
+    public void testConcurrentReads() throws Exception {
+        DataAccess da = createDataAccess(name);
+        da.create(10_000);
+        for (int i = 0; i < 2500; i++)
+            da.setInt(i * 4L, i);
+        byte[] expected = new byte[]{1, 2, 3, 4, 5, 6};
+        // crosses the segment border
+        da.setBytes(125, expected, expected.length);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Callable<Boolean>> readers = new ArrayList<>();
+        for (int t = 0; t < 8; t++)
+            readers.add(() -> {
+                byte[] bytes = new byte[expected.length];
+                for (int run = 0; run < 100; run++) {
+                    for (int i = 33; i < 2500; i++)
+                        if (da.getInt(i * 4L) != i)
+                            return false;
+                    da.getBytes(125, bytes, bytes.length);
+                    for (int i = 0; i < bytes.length; i++)
+                        if (bytes[i] != expected[i] || da.getByte(125 + i) != expected[i])
+                            return false;
+                }
+                return true;
+            });
+        for (Future<Boolean> future : executor.invokeAll(readers))
+            assertTrue(future.get());
+        executor.shutdown();
+        da.close();
+    }
+
+    @Test
+    public void testLoadAfterClose() {
+        MMapDataAccess da = (MMapDataAccess) createDataAccess(name);
+        da.create(1000);
+        da.flush();
+        da.load(100);
+        da.close();
+        // preloading in the background could still be running, it must not touch the unmapped segments
+        da.load(100);
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.graphhopper.util.GHUtility.updateDistancesFor;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NamedBlockAreasTest {
+
+    @Test
+    public void testPutAndRemove() {
+        EncodingManager em = EncodingManager.create(new CarFlagEncoder());
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        // 0-1-2
+        // | |
+        // 3-4
+        EdgeIteratorState edge01 = graph.edge(0, 1);
+        EdgeIteratorState edge12 = graph.edge(1, 2);
+        EdgeIteratorState edge34 = graph.edge(3, 4);
+        EdgeIteratorState edge03 = graph.edge(0, 3);
+        EdgeIteratorState edge14 = graph.edge(1, 4);
+        updateDistancesFor(graph, 0, 0.01, 0.00);
+        updateDistancesFor(graph, 1, 0.01, 0.01);
+        updateDistancesFor(graph, 2, 0.01, 0.02);
+        updateDistancesFor(graph, 3, 0.00, 0.00);
+        updateDistancesFor(graph, 4, 0.00, 0.01);
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, new RAMDirectory());
+        locationIndex.prepareIndex();
+
+        NamedBlockAreas namedBlockAreas = new NamedBlockAreas(graph, locationIndex);
+        NamedBlockAreas.Area area = namedBlockAreas.put("a", "0.01,0.005,1");
+        assertEquals(1, area.getEdgeCount());
+        assertTrue(area.intersects(edge01));
+        assertFalse(area.intersects(edge12));
+
+        // multiple shapes, the second one is a rectangle that contains the lower edge only
+        area = namedBlockAreas.put("b", "0.01,0.015,1;-0.001,0.002,0.001,0.008");
+        assertEquals(2, area.getEdgeCount());
+        assertTrue(area.intersects(edge12));
+        assertTrue(area.intersects(edge34));
+        assertFalse(area.intersects(edge03));
+        assertFalse(area.intersects(edge14));
+
+        // virtual edges are blocked if their original edge is blocked
+        Snap snap = locationIndex.findClosest(0.01, 0.015, e -> true);
+        QueryGraph queryGraph = QueryGraph.create(graph, snap);
+        EdgeIterator iter = queryGraph.createEdgeExplorer().setBaseNode(snap.getClosestNode());
+        int virtualEdges = 0;
+        while (iter.next()) {
+            assertTrue(area.intersects(iter));
+            virtualEdges++;
+        }
+        assertEquals(2, virtualEdges);
+
+        assertEquals(Arrays.asList("a", "b"), namedBlockAreas.getNames());
+        assertEquals(2, namedBlockAreas.getAll("b, a").size());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> namedBlockAreas.getAll("a,c"));
+        assertEquals("The block area 'c' does not exist. Available block areas: [a, b]", e.getMessage());
+
+        assertNotNull(namedBlockAreas.remove("a"));
+        assertNull(namedBlockAreas.remove("a"));
+        assertEquals(Collections.singletonList("b"), namedBlockAreas.getNames());
+
+        assertThrows(IllegalArgumentException.class, () -> namedBlockAreas.put("x,y", "0.01,0.005,1"));
+        assertThrows(IllegalArgumentException.class, () -> namedBlockAreas.put("x", "0.01"));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.util.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.graphhopper.util.GHUtility.updateDistancesFor;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PillarLevelsTest {
+
+    @Test
+    public void testLevelsMatchDouglasPeucker() {
+        Random rand = new Random(42);
+        for (int run = 0; run < 100; run++) {
+            PointList points = new PointList();
+            double lat = 49.9, lon = 11.5;
+            int size = 2 + rand.nextInt(100);
+            for (int i = 0; i < size; i++) {
+                lat += (rand.nextDouble() - 0.5) * 0.001;
+                lon += rand.nextDouble() * 0.001;
+                points.add(lat, lon);
+            }
+            double[] levels = PillarLevels.calcLevels(points);
+            assertEquals(Double.POSITIVE_INFINITY, levels[0]);
+            assertEquals(Double.POSITIVE_INFINITY, levels[size - 1]);
+            for (double maxDistance : new double[]{0.5, 1, 5, 20, 100}) {
+                PointList expected = points.clone(false);
+                new DouglasPeucker().setMaxDistance(maxDistance).simplify(expected);
+                PointList actual = new PointList();
+                for (int i = 0; i < size; i++) {
+                    if (levels[i] >= maxDistance)
+                        actual.add(points, i);
+                }
+                assertEquals(expected, actual, "run " + run + ", max distance " + maxDistance);
+            }
+        }
+    }
+
+    @Test
+    public void testQuantizationRoundsUp() {
+        assertEquals(0, PillarLevels.toLevel(PillarLevels.toByte(0)));
+        assertEquals(0.01, PillarLevels.toLevel(PillarLevels.toByte(0.001)), 1.e-9);
+        for (double level = 0.005; level < 1e6; level *= 1.37) {
+            double stored = PillarLevels.toLevel(PillarLevels.toByte(level));
+            assertTrue(stored >= level, level + " was stored as " + stored);
+            assertTrue(stored < Math.max(0.01, level) * 1.1, level + " was stored as " + stored);
+        }
+        assertEquals(Double.POSITIVE_INFINITY, PillarLevels.toLevel(PillarLevels.toByte(1e12)));
+    }
+
+    @Test
+    public void testEdges() {
+        EncodingManager em = EncodingManager.create(new CarFlagEncoder());
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        // 0-1 has a zig-zag geometry, 1-2 a nearly straight one and 2-3 none
+        EdgeIteratorState edge01 = graph.edge(0, 1).setWayGeometry(Helper.createPointList(50.0001, 10.001, 49.9999, 10.002, 50.001, 10.003));
+        EdgeIteratorState edge12 = graph.edge(1, 2).setWayGeometry(Helper.createPointList(50.00001, 10.005, 50, 10.006));
+        EdgeIteratorState edge23 = graph.edge(2, 3);
+        updateDistancesFor(graph, 0, 50, 10);
+        updateDistancesFor(graph, 1, 50, 10.004);
+        updateDistancesFor(graph, 2, 50, 10.007);
+        updateDistancesFor(graph, 3, 50, 10.008);
+
+        PillarLevels pillarLevels = new PillarLevels(graph, new RAMDirectory()).prepare();
+        for (EdgeIteratorState edge : new EdgeIteratorState[]{edge01, edge12, edge23}) {
+            for (EdgeIteratorState state : new EdgeIteratorState[]{edge, edge.detach(true)}) {
+                PointList points = state.fetchWayGeometry(FetchMode.ALL);
+                double[] expected = PillarLevels.calcLevels(points);
+                DoubleArrayList levels = new DoubleArrayList();
+                levels.add(Double.POSITIVE_INFINITY);
+                pillarLevels.addLevels(state, levels);
+                assertEquals(points.size(), levels.size());
+                for (int i = 0; i < points.size(); i++) {
+                    assertEquals(PillarLevels.toLevel(PillarLevels.toByte(expected[i])), levels.get(i), 1.e-9);
+                }
+            }
+        }
+
+        // the zig-zag is kept but the 1m deviation of edge 1-2 is dropped for a larger max distance
+        assertEquals(5, pillarLevels.fetchWayGeometry(edge01, 5).size());
+        assertEquals(4, pillarLevels.fetchWayGeometry(edge12, 0.5).size());
+        assertEquals(2, pillarLevels.fetchWayGeometry(edge12, 5).size());
+        assertEquals(2, pillarLevels.fetchWayGeometry(edge23, 5).size());
+        PointList reverse = pillarLevels.fetchWayGeometry(edge12.detach(true), 0.5);
+        assertEquals(edge12.detach(true).fetchWayGeometry(FetchMode.ALL), reverse);
+    }
+
+    @Test
+    public void testPrecomputedDouglasPeucker() {
+        PointList points = Helper.createPointList(50, 10, 50.00051, 10.001, 50.001, 10.002, 50, 10.003);
+        DoubleArrayList levels = new DoubleArrayList();
+        levels.add(PillarLevels.calcLevels(points));
+        DouglasPeucker simplifier = new PrecomputedDouglasPeucker(levels).setMaxDistance(5);
+        assertEquals(1, simplifier.simplify(points, 0, 3, false));
+        assertEquals(4, points.size());
+        assertTrue(Double.isNaN(points.getLat(1)));
+        assertEquals(50.001, points.getLat(2), 1.e-6);
+
+        points = Helper.createPointList(50, 10, 50.00051, 10.001, 50.001, 10.002, 50, 10.003);
+        assertEquals(0, new PrecomputedDouglasPeucker(levels).setMaxDistance(5).simplify(points, 0, 1));
+        assertEquals(1, new PrecomputedDouglasPeucker(levels).setMaxDistance(5).simplify(points, 0, 3));
+        assertEquals(3, points.size());
+    }
+}
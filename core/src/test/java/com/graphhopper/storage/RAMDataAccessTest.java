@@ -17,6 +17,13 @@
  */
 package com.graphhopper.storage;
 
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
 /**
  * @author Peter Karich
  */
@@ -25,4 +32,38 @@ public class RAMDataAccessTest extends DataAccessTest {
     public DataAccess createDataAccess(String name, int segmentSize) {
         return new RAMDataAccess(name, directory, true, segmentSize);
     }
+
+    @Test
+    public void testVerifyChecksum() throws IOException {
+        DataAccess da = createDataAccess(name);
+        da.create(300);
+        da.setInt(2 * 4, 321);
+        da.flush();
+        da.close();
+
+        da = createDataAccess(name);
+        ((AbstractDataAccess) da).setVerifyChecksum(true);
+        assertTrue(da.loadExisting());
+        assertEquals(321, da.getInt(2 * 4));
+        da.close();
+
+        // corrupt a single byte of the data area
+        try (RandomAccessFile raFile = new RandomAccessFile(directory + name, "rw")) {
+            raFile.seek(AbstractDataAccess.HEADER_OFFSET + 2 * 4);
+            raFile.write(42);
+        }
+
+        da = createDataAccess(name);
+        ((AbstractDataAccess) da).setVerifyChecksum(true);
+        DataAccess corrupt = da;
+        IllegalStateException ex = assertThrows(IllegalStateException.class, corrupt::loadExisting);
+        assertTrue(ex.getMessage().contains("Checksum"), ex.getMessage());
+        da.close();
+
+        // without verification the data is loaded as it is
+        da = createDataAccess(name);
+        assertTrue(da.loadExisting());
+        assertNotEquals(321, da.getInt(2 * 4));
+        da.close();
+    }
 }
@@ -0,0 +1,317 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.bmw.hmm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Variant of {@link ViterbiAlgorithm} that identifies the state candidates of every time step by
+ * their index instead of using them as keys of hash maps. Emission log probabilities are passed as
+ * arrays and transition log probabilities as dense matrices, and the back pointers are stored as
+ * int arrays. This avoids the boxing and hashing of the generic version, which is a large part of
+ * the run time and memory usage for long observation sequences.
+ *
+ * <p>Like the generic version it expects logarithmic probabilities. The most likely sequence is
+ * returned as the index of the chosen candidate for every time step, so the caller needs to keep
+ * the candidates (and the transition descriptors of the chosen back pointers, see
+ * {@link #getBackPointers()}) itself. Unlike for the generic version the back pointers of all time
+ * steps are kept in memory, which requires one int per candidate and time step.
+ *
+ * <p>Ties are resolved in favor of the candidate with the smaller index, which makes the result
+ * identical to the one of the generic version with the candidates in the same order.
+ */
+public class IndexedViterbiAlgorithm {
+
+    /**
+     * The back pointers of every time step after the first one. backPointers.get(t - 1)[j] is the
+     * index of the previous candidate of candidate j of time step t in the most likely sequence
+     * ending in this candidate, or -1 if candidate j cannot be reached.
+     */
+    private final List<int[]> backPointers = new ArrayList<>();
+
+    /**
+     * message[j] is the log probability of the most likely sequence ending in candidate j of the
+     * current time step.
+     */
+    private double[] message;
+
+    /**
+     * The number of candidates of the first time step that is kept, see
+     * {@link #removeConvergedTimeSteps(int)}.
+     */
+    private int firstCandidates;
+
+    private boolean isBroken = false;
+
+    /**
+     * Lets the HMM computation start with the given log probabilities of the initial candidates,
+     * which are either initial state probabilities or the emission probabilities of the first
+     * observation.
+     *
+     * @throws IllegalStateException if this method has already been called
+     */
+    public void startWithInitialObservation(double[] initialLogProbabilities) {
+        if (message != null) {
+            throw new IllegalStateException("Initial probabilities have already been set.");
+        }
+        isBroken = hmmBreak(initialLogProbabilities);
+        if (isBroken) return;
+        message = initialLogProbabilities.clone();
+        firstCandidates = message.length;
+    }
+
+    /**
+     * Processes the next time step. Must not be called if the HMM is broken.
+     *
+     * @param emissionLogProbabilities the emission log probability of every candidate of this time
+     * step. The length of this array defines the number of candidates.
+     * @param transitionLogProbabilities transitionLogProbabilities[i][j] is the transition log
+     * probability from candidate i of the previous time step to candidate j of this time step. Use
+     * {@link Double#NEGATIVE_INFINITY} for impossible transitions.
+     *
+     * @throws IllegalStateException if {@link #startWithInitialObservation(double[])} has not been
+     * called before or if this method is called after an HMM break has occurred
+     */
+    public void nextStep(double[] emissionLogProbabilities, double[][] transitionLogProbabilities) {
+        if (message == null) {
+            throw new IllegalStateException("startWithInitialObservation() must be called first.");
+        }
+        if (isBroken) {
+            throw new IllegalStateException("Method must not be called after an HMM break.");
+        }
+        final int prevCandidates = message.length;
+        final int curCandidates = emissionLogProbabilities.length;
+        if (transitionLogProbabilities.length != prevCandidates) {
+            throw new IllegalArgumentException("Expected transition probabilities for "
+                    + prevCandidates + " previous candidates but got "
+                    + transitionLogProbabilities.length);
+        }
+
+        final double[] newMessage = new double[curCandidates];
+        final int[] newBackPointers = new int[curCandidates];
+        for (int j = 0; j < curCandidates; j++) {
+            double maxLogProbability = Double.NEGATIVE_INFINITY;
+            int maxPrev = -1;
+            for (int i = 0; i < prevCandidates; i++) {
+                final double logProbability = message[i] + transitionLogProbabilities[i][j];
+                if (logProbability > maxLogProbability) {
+                    maxLogProbability = logProbability;
+                    maxPrev = i;
+                }
+            }
+            newMessage[j] = maxLogProbability + emissionLogProbabilities[j];
+            newBackPointers[j] = maxPrev;
+        }
+
+        isBroken = hmmBreak(newMessage);
+        if (isBroken) return;
+        message = newMessage;
+        backPointers.add(newBackPointers);
+    }
+
+    /**
+     * Returns the index of the candidate of every time step in the most likely sequence. This
+     * includes the initial time step. If an HMM break occurred in the last time step t, then the
+     * most likely sequence up to t-1 is returned.
+     */
+    public int[] computeMostLikelySequence() {
+        if (message == null) {
+            return new int[0];
+        }
+        final int[] result = new int[backPointers.size() + 1];
+        int candidate = mostLikelyCandidate();
+        for (int t = backPointers.size(); t > 0; t--) {
+            result[t] = candidate;
+            candidate = backPointers.get(t - 1)[candidate];
+        }
+        result[0] = candidate;
+        return result;
+    }
+
+    /**
+     * Removes the time steps at the beginning of the sequence whose candidate in the most likely
+     * sequence is fixed and returns these candidates. A candidate is fixed once the most likely
+     * sequences ending in all possible candidates of the last time step pass through it, because
+     * then it cannot change anymore when further time steps are added. This allows to decode long
+     * or unbounded observation sequences online and with bounded memory.
+     *
+     * <p>If the sequences have not converged and more than maxTimeSteps time steps are kept, the
+     * earliest time steps are fixed to the most likely sequence ending in the currently most
+     * likely candidate (fixed-lag decoding). Candidates of the last time step that are no longer
+     * reachable are discarded.
+     *
+     * <p>The last time step is never removed. The indices returned by
+     * {@link #computeMostLikelySequence()} and {@link #getTimeSteps()} only refer to the time
+     * steps that are kept.
+     *
+     * @param maxTimeSteps the maximum number of time steps that are kept
+     * @return the candidate indices of the removed time steps in order
+     */
+    public int[] removeConvergedTimeSteps(int maxTimeSteps) {
+        if (maxTimeSteps < 1) {
+            throw new IllegalArgumentException("At least one time step must be kept");
+        }
+        if (message == null || backPointers.isEmpty()) {
+            return new int[0];
+        }
+
+        // Walk back from all reachable candidates of the last time step until the most likely
+        // sequences merge into a single candidate.
+        final int lastTimeStep = backPointers.size();
+        int converged = -1;
+        int convergedCandidate = -1;
+        boolean[] reachable = new boolean[message.length];
+        for (int j = 0; j < message.length; j++) {
+            reachable[j] = message[j] != Double.NEGATIVE_INFINITY;
+        }
+        for (int t = lastTimeStep; t > 0; t--) {
+            final int[] stepBackPointers = backPointers.get(t - 1);
+            final boolean[] prevReachable = new boolean[candidates(t - 1)];
+            int count = 0;
+            int candidate = -1;
+            for (int j = 0; j < stepBackPointers.length; j++) {
+                if (reachable[j] && !prevReachable[stepBackPointers[j]]) {
+                    prevReachable[stepBackPointers[j]] = true;
+                    candidate = stepBackPointers[j];
+                    count++;
+                }
+            }
+            if (count == 1) {
+                converged = t - 1;
+                convergedCandidate = candidate;
+                break;
+            }
+            reachable = prevReachable;
+        }
+
+        final int forced = lastTimeStep - maxTimeSteps;
+        if (converged < forced) {
+            converged = forced;
+            convergedCandidate = mostLikelyCandidate();
+            for (int t = lastTimeStep; t > converged; t--) {
+                convergedCandidate = backPointers.get(t - 1)[convergedCandidate];
+            }
+            discardUnreachable(converged, convergedCandidate);
+        }
+        if (converged < 0) {
+            return new int[0];
+        }
+
+        final int[] result = new int[converged + 1];
+        int candidate = convergedCandidate;
+        for (int t = converged; t > 0; t--) {
+            result[t] = candidate;
+            candidate = backPointers.get(t - 1)[candidate];
+        }
+        result[0] = candidate;
+
+        // The back pointers of the new first time step are not needed anymore because they all
+        // point to the removed candidate.
+        firstCandidates = backPointers.get(converged).length;
+        backPointers.subList(0, converged + 1).clear();
+        return result;
+    }
+
+    /**
+     * Discards all candidates whose most likely sequence does not pass through the specified
+     * candidate of time step t.
+     */
+    private void discardUnreachable(int t, int candidate) {
+        boolean[] reachable = new boolean[candidates(t)];
+        reachable[candidate] = true;
+        for (int step = t + 1; step <= backPointers.size(); step++) {
+            final int[] stepBackPointers = backPointers.get(step - 1);
+            final boolean[] nextReachable = new boolean[stepBackPointers.length];
+            for (int j = 0; j < stepBackPointers.length; j++) {
+                if (stepBackPointers[j] >= 0 && reachable[stepBackPointers[j]]) {
+                    nextReachable[j] = true;
+                } else {
+                    stepBackPointers[j] = -1;
+                }
+            }
+            reachable = nextReachable;
+        }
+        for (int j = 0; j < message.length; j++) {
+            if (!reachable[j]) {
+                message[j] = Double.NEGATIVE_INFINITY;
+            }
+        }
+    }
+
+    private int candidates(int t) {
+        return t == 0 ? firstCandidates : backPointers.get(t - 1).length;
+    }
+
+    /**
+     * Returns whether an HMM break occurred in the last time step, i.e. the probability of all
+     * candidates equals zero.
+     */
+    public boolean isBroken() {
+        return isBroken;
+    }
+
+    /**
+     * Returns the back pointers of the last successful time step, see {@link #backPointers}. This
+     * can be used to keep only the transition descriptors that can be part of the most likely
+     * sequence. Returns null if there was no time step after the initial one. Must not be
+     * modified.
+     */
+    public int[] getBackPointers() {
+        return backPointers.isEmpty() ? null : backPointers.get(backPointers.size() - 1);
+    }
+
+    /**
+     * Returns the log probabilities of the most likely sequences ending in the candidates of the
+     * last successful time step or null if the HMM broke initially. Must not be modified.
+     */
+    public double[] getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the number of successfully processed time steps including the initial one, minus
+     * the time steps removed by {@link #removeConvergedTimeSteps(int)}.
+     */
+    public int getTimeSteps() {
+        return message == null ? 0 : backPointers.size() + 1;
+    }
+
+    private int mostLikelyCandidate() {
+        int result = -1;
+        double maxLogProbability = Double.NEGATIVE_INFINITY;
+        for (int j = 0; j < message.length; j++) {
+            if (message[j] > maxLogProbability) {
+                result = j;
+                maxLogProbability = message[j];
+            }
+        }
+        assert result >= 0; // Otherwise an HMM break would have occurred.
+        return result;
+    }
+
+    private static boolean hmmBreak(double[] message) {
+        for (double logProbability : message) {
+            if (logProbability != Double.NEGATIVE_INFINITY) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -19,7 +19,6 @@ package com.bmw.hmm;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -43,13 +42,9 @@ import java.util.Map;
  * from t*n² to t*n since only one transition descriptor is stored per back pointer,
  * where t is the number of time steps and n the number of candidates per time step.
  *
- * <p>For long observation sequences, back pointers usually converge to a single path after a
- * certain number of time steps. For instance, when matching GPS coordinates to roads, the last
- * GPS positions in the trace usually do not affect the first road matches anymore.
- * This implementation exploits this fact by letting the Java garbage collector
- * take care of unreachable back pointers. If back pointers converge to a single path after a
- * constant number of time steps, only O(t) back pointers and transition descriptors need to be
- * stored in memory.
+ * <p>This class maps the states of every time step to indices and delegates the computation to
+ * {@link IndexedViterbiAlgorithm}. Callers that can provide the probabilities as arrays should use
+ * the indexed version directly to avoid the hash maps.
  *
  * @param <S> the state type
  * @param <O> the observation type
@@ -58,68 +53,16 @@ import java.util.Map;
  */
 public class ViterbiAlgorithm<S, O, D> {
 
-    /**
-     * Stores addition information for each candidate.
-     */
-    private static class ExtendedState<S, O, D> {
-
-        S state;
-
-        /**
-         * Back pointer to previous state candidate in the most likely sequence.
-         * Back pointers are chained using plain Java references.
-         * This allows garbage collection of unreachable back pointers.
-         */
-        ExtendedState<S, O, D> backPointer;
-
-        O observation;
-        D transitionDescriptor;
-
-        ExtendedState(S state,
-                ExtendedState<S, O, D> backPointer,
-                O observation, D transitionDescriptor) {
-            this.state = state;
-            this.backPointer = backPointer;
-            this.observation = observation;
-            this.transitionDescriptor = transitionDescriptor;
-        }
-    }
-
-    private static class ForwardStepResult<S, O, D> {
-        final Map<S, Double> newMessage;
-
-        /**
-         * Includes back pointers to previous state candidates for retrieving the most likely
-         * sequence after the forward pass.
-         */
-        final Map<S, ExtendedState<S, O, D>> newExtendedStates;
-
-        ForwardStepResult(int numberStates) {
-            newMessage = new LinkedHashMap<>(Utils.initialHashMapCapacity(numberStates));
-            newExtendedStates = new LinkedHashMap<>(Utils.initialHashMapCapacity(numberStates));
-        }
-    }
+    private final IndexedViterbiAlgorithm viterbi = new IndexedViterbiAlgorithm();
 
     /**
-     * Allows to retrieve the most likely sequence using back pointers.
-     */
-    private Map<S, ExtendedState<S, O, D>> lastExtendedStates;
-
-    private Collection<S> prevCandidates;
-
-    /**
-     * For each state s_t of the current time step t, message.get(s_t) contains the log
-     * probability of the most likely sequence ending in state s_t with given observations
-     * o_1, ..., o_t.
-     *
-     * Formally, this is max log p(s_1, ..., s_t, o_1, ..., o_t) w.r.t. s_1, ..., s_{t-1}.
-     * Note that to compute the most likely state sequence, it is sufficient and more
-     * efficient to compute in each time step the joint probability of states and observations
-     * instead of computing the conditional probability of states given the observations.
+     * The candidates, observations and the transition descriptors of the back pointers of every
+     * successfully processed time step, which are needed to retrieve the most likely sequence.
+     * The descriptors of the first time step are null.
      */
-    private Map<S, Double> message;
-
-    private boolean isBroken = false;
+    private final List<List<S>> candidatesPerStep = new ArrayList<>();
+    private final List<O> observations = new ArrayList<>();
+    private final List<List<D>> descriptorsPerStep = new ArrayList<>();
 
     private List<Map<S, Double>> messageHistory; // For debugging only.
 
@@ -202,28 +145,44 @@ public class ViterbiAlgorithm<S, O, D> {
             Map<S, Double> emissionLogProbabilities,
             Map<Transition<S>, Double> transitionLogProbabilities,
             Map<Transition<S>, D> transitionDescriptors) {
-        if (message == null) {
+        if (candidatesPerStep.isEmpty()) {
             throw new IllegalStateException(
                     "startWithInitialStateProbabilities() or startWithInitialObservation() "
                     + "must be called first.");
         }
-        if (isBroken) {
+        if (viterbi.isBroken()) {
             throw new IllegalStateException("Method must not be called after an HMM break.");
         }
 
-        // Forward step
-        ForwardStepResult<S, O, D> forwardStepResult = forwardStep(observation, prevCandidates,
-                candidates, message, emissionLogProbabilities, transitionLogProbabilities,
-                transitionDescriptors);
-        isBroken = hmmBreak(forwardStepResult.newMessage);
-        if (isBroken) return;
-        if (messageHistory != null) {
-            messageHistory.add(forwardStepResult.newMessage);
+        final List<S> prevCandidates = candidatesPerStep.get(candidatesPerStep.size() - 1);
+        final List<S> curCandidates = new ArrayList<>(candidates); // Defensive copy.
+        final double[] emissions = new double[curCandidates.size()];
+        final double[][] transitions = new double[prevCandidates.size()][curCandidates.size()];
+        for (int j = 0; j < curCandidates.size(); j++) {
+            // Throws NullPointerException if the candidate is not stored in the map.
+            emissions[j] = emissionLogProbabilities.get(curCandidates.get(j));
         }
-        message = forwardStepResult.newMessage;
-        lastExtendedStates = forwardStepResult.newExtendedStates;
+        for (int i = 0; i < prevCandidates.size(); i++) {
+            for (int j = 0; j < curCandidates.size(); j++) {
+                final Double transitionLogProbability = transitionLogProbabilities.get(
+                        new Transition<>(prevCandidates.get(i), curCandidates.get(j)));
+                // A missing transition has zero probability.
+                transitions[i][j] = transitionLogProbability == null
+                        ? Double.NEGATIVE_INFINITY : transitionLogProbability;
+            }
+        }
+
+        viterbi.nextStep(emissions, transitions);
+        if (viterbi.isBroken()) return;
 
-        prevCandidates = new ArrayList<>(candidates); // Defensive copy.
+        // Only keep the transition descriptors of the back pointers, see class comment.
+        final int[] backPointers = viterbi.getBackPointers();
+        final List<D> descriptors = new ArrayList<>(curCandidates.size());
+        for (int j = 0; j < curCandidates.size(); j++) {
+            descriptors.add(backPointers[j] < 0 ? null : transitionDescriptors.get(
+                    new Transition<>(prevCandidates.get(backPointers[j]), curCandidates.get(j))));
+        }
+        addTimeStep(observation, curCandidates, descriptors);
     }
 
     /**
@@ -246,13 +205,16 @@ public class ViterbiAlgorithm<S, O, D> {
      * o_t is the observation at time step t and T is the number of time steps.
      */
     public List<SequenceState<S, O, D>> computeMostLikelySequence() {
-        if (message == null) {
-            // Return empty most likely sequence if there are no time steps or if initial
-            // observations caused an HMM break.
-            return new ArrayList<>();
-        } else {
-            return retrieveMostLikelySequence();
+        // Returns an empty most likely sequence if there are no time steps or if initial
+        // observations caused an HMM break.
+        final int[] sequence = viterbi.computeMostLikelySequence();
+        final List<SequenceState<S, O, D>> result = new ArrayList<>(sequence.length);
+        for (int t = 0; t < sequence.length; t++) {
+            final List<D> descriptors = descriptorsPerStep.get(t);
+            result.add(new SequenceState<>(candidatesPerStep.get(t).get(sequence[t]),
+                    observations.get(t), descriptors == null ? null : descriptors.get(sequence[t])));
         }
+        return result;
     }
 
     /**
@@ -261,7 +223,7 @@ public class ViterbiAlgorithm<S, O, D> {
      * An HMM break means that the probability of all states equals zero.
      */
     public boolean isBroken() {
-        return isBroken;
+        return viterbi.isBroken();
     }
 
     /**
@@ -291,152 +253,44 @@ public class ViterbiAlgorithm<S, O, D> {
         return sb.toString();
     }
 
-    /**
-     * Returns whether the specified message is either empty or only contains state candidates
-     * with zero probability and thus causes the HMM to break.
-     */
-    private boolean hmmBreak(Map<S, Double> message) {
-        for (double logProbability : message.values()) {
-            if (logProbability != Double.NEGATIVE_INFINITY) {
-                return false;
-            }
-        }
-        return true;
-    }
-
     /**
      * @param observation Use only if HMM only starts with first observation.
      */
     private void initializeStateProbabilities(O observation, Collection<S> candidates,
             Map<S, Double> initialLogProbabilities) {
-        if (message != null) {
+        if (!candidatesPerStep.isEmpty()) {
             throw new IllegalStateException("Initial probabilities have already been set.");
         }
 
-        // Set initial log probability for each start state candidate based on first observation.
-        // Do not assign initialLogProbabilities directly to message to not rely on its iteration
-        // order.
-        final Map<S, Double> initialMessage = new LinkedHashMap<>();
-        for (S candidate : candidates) {
-            final Double logProbability = initialLogProbabilities.get(candidate);
+        final List<S> initialCandidates = new ArrayList<>(candidates); // Defensive copy.
+        final double[] initialMessage = new double[initialCandidates.size()];
+        for (int j = 0; j < initialCandidates.size(); j++) {
+            final Double logProbability = initialLogProbabilities.get(initialCandidates.get(j));
             if (logProbability == null) {
-                throw new NullPointerException("No initial probability for " + candidate);
-            }
-            initialMessage.put(candidate, logProbability);
-        }
-
-        isBroken = hmmBreak(initialMessage);
-        if (isBroken) return;
-
-        message = initialMessage;
-        if (messageHistory != null) {
-            messageHistory.add(message);
-        }
-
-        lastExtendedStates = new LinkedHashMap<>();
-        for (S candidate : candidates) {
-            lastExtendedStates.put(candidate,
-                    new ExtendedState<S, O, D>(candidate, null, observation, null));
-        }
-
-        prevCandidates = new ArrayList<>(candidates); // Defensive copy.
-    }
-
-    /**
-     * Computes the new forward message and the back pointers to the previous states.
-     *
-     * @throws NullPointerException if any emission probability is missing
-     */
-    private ForwardStepResult<S, O, D> forwardStep(O observation, Collection<S> prevCandidates,
-            Collection<S> curCandidates, Map<S, Double> message,
-            Map<S, Double> emissionLogProbabilities,
-            Map<Transition<S>, Double> transitionLogProbabilities,
-            Map<Transition<S>,D> transitionDescriptors) {
-        final ForwardStepResult<S, O, D> result = new ForwardStepResult<>(curCandidates.size());
-        assert !prevCandidates.isEmpty();
-
-        for (S curState : curCandidates) {
-            double maxLogProbability = Double.NEGATIVE_INFINITY;
-            S maxPrevState = null;
-            for (S prevState : prevCandidates) {
-                final double logProbability = message.get(prevState) + transitionLogProbability(
-                        prevState, curState, transitionLogProbabilities);
-                if (logProbability > maxLogProbability) {
-                    maxLogProbability = logProbability;
-                    maxPrevState = prevState;
-                }
-            }
-            // Throws NullPointerException if curState is not stored in the map.
-            result.newMessage.put(curState, maxLogProbability
-                    + emissionLogProbabilities.get(curState));
-
-            // Note that maxPrevState == null if there is no transition with non-zero probability.
-            // In this case curState has zero probability and will not be part of the most likely
-            // sequence, so we don't need an ExtendedState.
-            if (maxPrevState != null) {
-                final Transition<S> transition = new Transition<>(maxPrevState, curState);
-                final ExtendedState<S, O, D> extendedState = new ExtendedState<>(curState,
-                        lastExtendedStates.get(maxPrevState), observation,
-                        transitionDescriptors.get(transition));
-                result.newExtendedStates.put(curState, extendedState);
+                throw new NullPointerException("No initial probability for "
+                        + initialCandidates.get(j));
             }
+            initialMessage[j] = logProbability;
         }
-        return result;
-    }
 
-    private double transitionLogProbability(S prevState, S curState, Map<Transition<S>,
-            Double> transitionLogProbabilities) {
-        final Double transitionLogProbability =
-                transitionLogProbabilities.get(new Transition<S>(prevState, curState));
-        if (transitionLogProbability == null) {
-            return Double.NEGATIVE_INFINITY; // Transition has zero probability.
-        } else {
-            return transitionLogProbability;
-        }
+        viterbi.startWithInitialObservation(initialMessage);
+        if (viterbi.isBroken()) return;
+        addTimeStep(observation, initialCandidates, null);
     }
 
-    /**
-     * Retrieves the first state of the current forward message with maximum probability.
-     */
-    private S mostLikelyState() {
-        // Otherwise an HMM break would have occurred and message would be null.
-        assert !message.isEmpty();
-
-        S result = null;
-        double maxLogProbability = Double.NEGATIVE_INFINITY;
-        for (Map.Entry<S, Double> entry : message.entrySet()) {
-            if (entry.getValue() > maxLogProbability) {
-                result = entry.getKey();
-                maxLogProbability = entry.getValue();
+    private void addTimeStep(O observation, List<S> candidates, List<D> descriptors) {
+        candidatesPerStep.add(candidates);
+        observations.add(observation);
+        descriptorsPerStep.add(descriptors);
+        if (messageHistory != null) {
+            final double[] message = viterbi.getMessage();
+            final Map<S, Double> messageMap = new LinkedHashMap<>(
+                    Utils.initialHashMapCapacity(candidates.size()));
+            for (int j = 0; j < candidates.size(); j++) {
+                messageMap.put(candidates.get(j), message[j]);
             }
+            messageHistory.add(messageMap);
         }
-
-        assert result != null; // Otherwise an HMM break would have occurred.
-        return result;
     }
 
-    /**
-     * Retrieves most likely sequence from the internal back pointer sequence.
-     */
-    private List<SequenceState<S, O, D>> retrieveMostLikelySequence() {
-        // Otherwise an HMM break would have occurred and message would be null.
-        assert !message.isEmpty();
-
-        final S lastState = mostLikelyState();
-
-        // Retrieve most likely state sequence in reverse order
-        final List<SequenceState<S, O, D>> result = new ArrayList<>();
-        ExtendedState<S, O, D> es = lastExtendedStates.get(lastState);
-        while(es != null) {
-            final SequenceState<S, O, D> ss = new SequenceState<>(es.state, es.observation,
-                    es.transitionDescriptor);
-            result.add(ss);
-            es = es.backPointer;
-        }
-
-        Collections.reverse(result);
-        return result;
-    }
-
-
 }
@@ -0,0 +1,145 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.bmw.hmm;
+
+import org.junit.jupiter.api.Test;
+
+import static java.lang.Math.log;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexedViterbiAlgorithmTest {
+
+    private static final double DELTA = 1e-8;
+    // candidate 0 is rain, candidate 1 is sun, see ViterbiAlgorithmTest.testComputeMostLikelySequence
+    private static final double[] UMBRELLA = {log(0.9), log(0.2)};
+    private static final double[] NO_UMBRELLA = {log(0.1), log(0.8)};
+    private static final double[][] TRANSITIONS = {{log(0.7), log(0.3)}, {log(0.3), log(0.7)}};
+
+    @Test
+    public void testComputeMostLikelySequence() {
+        IndexedViterbiAlgorithm viterbi = new IndexedViterbiAlgorithm();
+        viterbi.startWithInitialObservation(UMBRELLA);
+        viterbi.nextStep(UMBRELLA, TRANSITIONS);
+        viterbi.nextStep(NO_UMBRELLA, TRANSITIONS);
+        viterbi.nextStep(UMBRELLA, TRANSITIONS);
+
+        assertFalse(viterbi.isBroken());
+        assertEquals(4, viterbi.getTimeSteps());
+        assertArrayEquals(new int[]{0, 0, 1, 0}, viterbi.computeMostLikelySequence());
+        assertArrayEquals(new int[]{1, 1}, viterbi.getBackPointers());
+        assertEquals(log(0.9) + log(0.7) + log(0.9) + log(0.3) + log(0.8) + log(0.3) + log(0.9),
+                viterbi.getMessage()[0], DELTA);
+    }
+
+    @Test
+    public void testMissingTransitionsAndTies() {
+        // differently sized time steps with missing transitions and ties
+        double[][] emissions = {{-1, -2, -1}, {-3, -1}, {-2, -2, -0.5, -1}, {-1}};
+        double[][][] transitions = {
+                {{-1, Double.NEGATIVE_INFINITY}, {-0.5, -2}, {-1, -1}},
+                {{-1, -1, Double.NEGATIVE_INFINITY, -3}, {-2, -0.5, -1, Double.NEGATIVE_INFINITY}},
+                {{-1}, {-0.5}, {-3}, {Double.NEGATIVE_INFINITY}}};
+        // the expected messages and back pointers were calculated by hand
+        double[][] expectedMessages = {{-1, -2, -1}, {-5, -3}, {-7, -5.5, -4.5, -9}, {-7}};
+        // candidate 0 of the second time step is reached from candidate 0 and 2 with the same probability, the first
+        // previous candidate wins
+        int[][] expectedBackPointers = {{0, 2}, {1, 1, 1, 0}, {1}};
+
+        IndexedViterbiAlgorithm viterbi = new IndexedViterbiAlgorithm();
+        viterbi.startWithInitialObservation(emissions[0]);
+        assertArrayEquals(expectedMessages[0], viterbi.getMessage(), DELTA);
+        for (int t = 1; t < emissions.length; t++) {
+            viterbi.nextStep(emissions[t], transitions[t - 1]);
+            assertArrayEquals(expectedMessages[t], viterbi.getMessage(), DELTA);
+            assertArrayEquals(expectedBackPointers[t - 1], viterbi.getBackPointers());
+        }
+
+        assertFalse(viterbi.isBroken());
+        assertArrayEquals(new int[]{2, 1, 1, 0}, viterbi.computeMostLikelySequence());
+        // the probability of this sequence
+        assertEquals(-1 - 1 - 1 - 0.5 - 2 - 0.5 - 1, viterbi.getMessage()[0], DELTA);
+    }
+
+    @Test
+    public void testRemoveConvergedTimeSteps() {
+        IndexedViterbiAlgorithm viterbi = new IndexedViterbiAlgorithm();
+        viterbi.startWithInitialObservation(UMBRELLA);
+        assertEquals(0, viterbi.removeConvergedTimeSteps(10).length);
+        viterbi.nextStep(UMBRELLA, TRANSITIONS);
+        // the most likely sequences ending in both candidates start with rain
+        assertArrayEquals(new int[]{0}, viterbi.removeConvergedTimeSteps(10));
+        assertEquals(1, viterbi.getTimeSteps());
+        viterbi.nextStep(NO_UMBRELLA, TRANSITIONS);
+        assertArrayEquals(new int[]{0}, viterbi.removeConvergedTimeSteps(10));
+        viterbi.nextStep(UMBRELLA, TRANSITIONS);
+        assertArrayEquals(new int[]{1}, viterbi.removeConvergedTimeSteps(10));
+        assertArrayEquals(new int[]{0}, viterbi.computeMostLikelySequence());
+    }
+
+    @Test
+    public void testRemoveTimeStepsWithFixedLag() {
+        // the candidates alternate between the two states, so the sequences never converge
+        double[][] transitions = {{Double.NEGATIVE_INFINITY, -1}, {-1, Double.NEGATIVE_INFINITY}};
+        IndexedViterbiAlgorithm viterbi = new IndexedViterbiAlgorithm();
+        viterbi.startWithInitialObservation(new double[]{-1, -2});
+        for (int t = 1; t < 5; t++) {
+            viterbi.nextStep(new double[]{-1, -1}, transitions);
+            assertEquals(0, viterbi.removeConvergedTimeSteps(10).length);
+        }
+        assertArrayEquals(new int[]{0, 1, 0, 1, 0}, viterbi.computeMostLikelySequence());
+
+        assertArrayEquals(new int[]{0, 1, 0}, viterbi.removeConvergedTimeSteps(2));
+        assertEquals(2, viterbi.getTimeSteps());
+        // the other candidate of the last time step is not consistent with the removed time steps
+        assertEquals(Double.NEGATIVE_INFINITY, viterbi.getMessage()[1]);
+        assertArrayEquals(new int[]{1, 0}, viterbi.computeMostLikelySequence());
+        // ... but there is nothing to remove anymore, the sequences have converged
+        assertArrayEquals(new int[]{1}, viterbi.removeConvergedTimeSteps(2));
+        assertArrayEquals(new int[]{0}, viterbi.computeMostLikelySequence());
+    }
+
+    @Test
+    public void testBrokenChain() {
+        IndexedViterbiAlgorithm viterbi = new IndexedViterbiAlgorithm();
+        viterbi.startWithInitialObservation(new double[]{-1, -2});
+        viterbi.nextStep(new double[]{-1}, new double[][]{{-1}, {-1}});
+        viterbi.nextStep(new double[]{-1, -1}, new double[][]{{Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY}});
+
+        assertTrue(viterbi.isBroken());
+        // the broken time step is not part of the sequence
+        assertArrayEquals(new int[]{0, 0}, viterbi.computeMostLikelySequence());
+        assertThrows(IllegalStateException.class, () -> viterbi.nextStep(new double[]{-1}, new double[][]{{-1}}));
+    }
+
+    @Test
+    public void testBrokenInitialObservation() {
+        IndexedViterbiAlgorithm viterbi = new IndexedViterbiAlgorithm();
+        viterbi.startWithInitialObservation(new double[0]);
+        assertTrue(viterbi.isBroken());
+        assertEquals(0, viterbi.computeMostLikelySequence().length);
+    }
+
+    @Test
+    public void testIllegalArguments() {
+        IndexedViterbiAlgorithm viterbi = new IndexedViterbiAlgorithm();
+        assertThrows(IllegalStateException.class, () -> viterbi.nextStep(new double[]{-1}, new double[][]{{-1}}));
+        viterbi.startWithInitialObservation(new double[]{-1, -2});
+        assertThrows(IllegalStateException.class, () -> viterbi.startWithInitialObservation(new double[]{-1}));
+        assertThrows(IllegalArgumentException.class, () -> viterbi.nextStep(new double[]{-1}, new double[][]{{-1}}));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns the states and transitions of the most likely sequence into edge matches, i.e. a list of directed edges
+ * (EdgeIteratorState instances turned the right way), each associated with 0 or more of the observations.
+ * These directed edges are edges of the real street graph, where nodes are intersections.
+ * So in _this_ representation, the path that you get when you just look at the edges goes from
+ * an intersection to an intersection.
+ * <p>
+ * The sequence can be added in several parts and the edge matches can be polled in between, which is what
+ * {@link OnlineMapMatching} does. The edge match of the last edge is only complete when the next edge starts or when
+ * {@link #finish()} was called.
+ */
+class EdgeMatchCollector {
+    private final BaseGraph graph;
+    private List<EdgeMatch> edgeMatches = new ArrayList<>();
+    private List<State> states = new ArrayList<>();
+    private EdgeIteratorState currentDirectedRealEdge;
+
+    EdgeMatchCollector(BaseGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * @param transition the path from the previous state to this state or null for the first state
+     */
+    void add(State state, Path transition) {
+        // Implementation note: We have to look at both states _and_ transitions, since we can have e.g. just one state,
+        // or two states with a transition that is an empty path (observations snapped to the same node in the query graph),
+        // but these states still happen on an edge, and for this representation, we want to have that edge.
+        // (Whereas in the ResponsePath representation, we would just see an empty path.)
+
+        // Note that the result can be empty, even when the input is not. Observations can be on nodes as well as on
+        // edges, and when all observations are on the same node, we get no edge at all.
+        // But apart from that corner case, all observations that go in here are also in the result.
+
+        // (Consider totally forbidding candidate states to be snapped to a point, and make them all be on directed
+        // edges, then that corner case goes away.)
+        if (transition != null) {
+            for (EdgeIteratorState edge : transition.calcEdges()) {
+                setCurrentEdge(resolveToRealEdge(edge));
+            }
+        }
+        if (state.isOnDirectedEdge()) { // as opposed to on a node
+            setCurrentEdge(resolveToRealEdge(state.getOutgoingVirtualEdge()));
+        }
+        states.add(state);
+    }
+
+    private void setCurrentEdge(EdgeIteratorState newDirectedRealEdge) {
+        if (currentDirectedRealEdge != null && !equalEdges(currentDirectedRealEdge, newDirectedRealEdge)) {
+            edgeMatches.add(new EdgeMatch(currentDirectedRealEdge, states));
+            states = new ArrayList<>();
+        }
+        currentDirectedRealEdge = newDirectedRealEdge;
+    }
+
+    /**
+     * Returns the edge matches that are complete and removes them from this collector.
+     */
+    List<EdgeMatch> poll() {
+        List<EdgeMatch> result = edgeMatches;
+        edgeMatches = new ArrayList<>();
+        return result;
+    }
+
+    /**
+     * Completes the edge match of the last edge, e.g. at the end of the sequence. The next state will start a new edge
+     * match even if it is on the same edge.
+     */
+    void finish() {
+        if (currentDirectedRealEdge != null)
+            edgeMatches.add(new EdgeMatch(currentDirectedRealEdge, states));
+        states = new ArrayList<>();
+        currentDirectedRealEdge = null;
+    }
+
+    private boolean equalEdges(EdgeIteratorState edge1, EdgeIteratorState edge2) {
+        return edge1.getEdge() == edge2.getEdge()
+                && edge1.getBaseNode() == edge2.getBaseNode()
+                && edge1.getAdjNode() == edge2.getAdjNode();
+    }
+
+    private EdgeIteratorState resolveToRealEdge(EdgeIteratorState edgeIteratorState) {
+        // the query graph might already be gone, but its virtual nodes are those with an id that is too large for the
+        // base graph
+        if (edgeIteratorState.getBaseNode() >= graph.getNodes() || edgeIteratorState.getAdjNode() >= graph.getNodes()) {
+            return graph.getEdgeIteratorStateForKey(((VirtualEdgeIteratorState) edgeIteratorState).getOriginalEdgeKey());
+        } else {
+            return edgeIteratorState;
+        }
+    }
+}
@@ -17,9 +17,8 @@
  */
 package com.graphhopper.matching;
 
+import com.bmw.hmm.IndexedViterbiAlgorithm;
 import com.bmw.hmm.SequenceState;
-import com.bmw.hmm.Transition;
-import com.bmw.hmm.ViterbiAlgorithm;
 import com.carrotsearch.hppc.IntHashSet;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.config.Profile;
@@ -80,6 +79,9 @@ public class MapMatching {
     private double measurementErrorSigma = 50.0;
     private double transitionProbabilityBeta = 2.0;
     private final int maxVisitedNodes;
+    private final CancellationToken requestCancellation;
+    private final long timeoutMillis;
+    private CancellationToken cancellation = CancellationToken.NONE;
     private final DistanceCalc distanceCalc = new DistancePlaneProjection();
     private final Weighting unwrappedWeighting;
     private Weighting weighting;
@@ -133,6 +135,9 @@ public class MapMatching {
         unwrappedWeighting = graphHopper.createWeighting(profile, hints);
         inSubnetworkEnc = graphHopper.getEncodingManager().getBooleanEncodedValue(Subnetwork.key(profileStr));
         this.maxVisitedNodes = hints.getInt(Parameters.Routing.MAX_VISITED_NODES, Integer.MAX_VALUE);
+        this.requestCancellation = CancellationToken.fromHints(hints);
+        this.timeoutMillis = CancellationToken.limitTimeout(hints.getLong(Parameters.Routing.TIMEOUT_MS, 0),
+                graphHopper.getRouterConfig().getTimeoutMillis());
     }
 
     /**
@@ -151,7 +156,32 @@ public class MapMatching {
         this.measurementErrorSigma = measurementErrorSigma;
     }
 
+    double getMeasurementErrorSigma() {
+        return measurementErrorSigma;
+    }
+
+    BaseGraph getGraph() {
+        return graph;
+    }
+
+    HmmProbabilities createProbabilities() {
+        return new HmmProbabilities(measurementErrorSigma, transitionProbabilityBeta);
+    }
+
+    /**
+     * The time budget is for every match, or for every observation in case of {@link OnlineMapMatching}.
+     */
+    CancellationToken createCancellation() {
+        return requestCancellation.withTimeout(timeoutMillis);
+    }
+
+    Weighting createWeighting(QueryGraph queryGraph) {
+        return queryGraph.wrapWeighting(unwrappedWeighting);
+    }
+
     public MatchResult match(List<Observation> observations) {
+        // the time budget is for every match, not for the lifetime of this object
+        cancellation = createCancellation();
         List<Observation> filteredObservations = filterObservations(observations);
 
         // Snap observations to links. Generates multiple candidate snaps per observation.
@@ -162,7 +192,7 @@ public class MapMatching {
         // Create the query graph, containing split edges so that all the places where an observation might have happened
         // are a node. This modifies the Snap objects and puts the new node numbers into them.
         queryGraph = QueryGraph.create(graph, snapsPerObservation.stream().flatMap(Collection::stream).collect(Collectors.toList()));
-        weighting = queryGraph.wrapWeighting(unwrappedWeighting);
+        weighting = createWeighting(queryGraph);
 
         // Creates candidates from the Snaps of all observations (a candidate is basically a
         // Snap + direction).
@@ -264,81 +294,72 @@ public class MapMatching {
         final List<ObservationWithCandidateStates> timeSteps = new ArrayList<>();
         for (int i = 0; i < filteredObservations.size(); i++) {
             Observation observation = filteredObservations.get(i);
-            Collection<Snap> splits = splitsPerObservation.get(i);
-            List<State> candidates = new ArrayList<>();
-            for (Snap split : splits) {
-                if (queryGraph.isVirtualNode(split.getClosestNode())) {
-                    List<VirtualEdgeIteratorState> virtualEdges = new ArrayList<>();
-                    EdgeIterator iter = queryGraph.createEdgeExplorer().setBaseNode(split.getClosestNode());
-                    while (iter.next()) {
-                        if (!queryGraph.isVirtualEdge(iter.getEdge())) {
-                            throw new RuntimeException("Virtual nodes must only have virtual edges "
-                                    + "to adjacent nodes.");
-                        }
-                        virtualEdges.add((VirtualEdgeIteratorState) queryGraph.getEdgeIteratorState(iter.getEdge(), iter.getAdjNode()));
-                    }
-                    if (virtualEdges.size() != 2) {
-                        throw new RuntimeException("Each virtual node must have exactly 2 "
-                                + "virtual edges (reverse virtual edges are not returned by the "
-                                + "EdgeIterator");
-                    }
+            timeSteps.add(new ObservationWithCandidateStates(observation, createCandidates(queryGraph, observation, splitsPerObservation.get(i))));
+        }
+        return timeSteps;
+    }
 
-                    // Create a directed candidate for each of the two possible directions through
-                    // the virtual node. We need to add candidates for both directions because
-                    // we don't know yet which is the correct one. This will be figured
-                    // out by the Viterbi algorithm.
-                    candidates.add(new State(observation, split, virtualEdges.get(0), virtualEdges.get(1)));
-                    candidates.add(new State(observation, split, virtualEdges.get(1), virtualEdges.get(0)));
-                } else {
-                    // Create an undirected candidate for the real node.
-                    candidates.add(new State(observation, split));
+    /**
+     * Creates directed candidates for virtual nodes and undirected candidates for real nodes. For the same snaps the
+     * candidates are created in the same order for every query graph.
+     */
+    List<State> createCandidates(QueryGraph queryGraph, Observation observation, Collection<Snap> splits) {
+        List<State> candidates = new ArrayList<>();
+        for (Snap split : splits) {
+            if (queryGraph.isVirtualNode(split.getClosestNode())) {
+                List<VirtualEdgeIteratorState> virtualEdges = new ArrayList<>();
+                EdgeIterator iter = queryGraph.createEdgeExplorer().setBaseNode(split.getClosestNode());
+                while (iter.next()) {
+                    if (!queryGraph.isVirtualEdge(iter.getEdge())) {
+                        throw new RuntimeException("Virtual nodes must only have virtual edges "
+                                + "to adjacent nodes.");
+                    }
+                    virtualEdges.add((VirtualEdgeIteratorState) queryGraph.getEdgeIteratorState(iter.getEdge(), iter.getAdjNode()));
+                }
+                if (virtualEdges.size() != 2) {
+                    throw new RuntimeException("Each virtual node must have exactly 2 "
+                            + "virtual edges (reverse virtual edges are not returned by the "
+                            + "EdgeIterator");
                 }
-            }
 
-            timeSteps.add(new ObservationWithCandidateStates(observation, candidates));
+                // Create a directed candidate for each of the two possible directions through
+                // the virtual node. We need to add candidates for both directions because
+                // we don't know yet which is the correct one. This will be figured
+                // out by the Viterbi algorithm.
+                candidates.add(new State(observation, split, virtualEdges.get(0), virtualEdges.get(1)));
+                candidates.add(new State(observation, split, virtualEdges.get(1), virtualEdges.get(0)));
+            } else {
+                // Create an undirected candidate for the real node.
+                candidates.add(new State(observation, split));
+            }
         }
-        return timeSteps;
+        return candidates;
     }
 
     /**
      * Computes the most likely state sequence for the observations.
      */
     private List<SequenceState<State, Observation, Path>> computeViterbiSequence(List<ObservationWithCandidateStates> timeSteps) {
-        final HmmProbabilities probabilities = new HmmProbabilities(measurementErrorSigma, transitionProbabilityBeta);
-        final ViterbiAlgorithm<State, Observation, Path> viterbi = new ViterbiAlgorithm<>();
+        final HmmProbabilities probabilities = createProbabilities();
+        final IndexedViterbiAlgorithm viterbi = new IndexedViterbiAlgorithm();
+        // the road paths of the back pointers of every time step, the other paths are not needed anymore
+        final List<Path[]> roadPaths = new ArrayList<>(timeSteps.size());
 
         int timeStepCounter = 0;
         ObservationWithCandidateStates prevTimeStep = null;
         for (ObservationWithCandidateStates timeStep : timeSteps) {
-            final Map<State, Double> emissionLogProbabilities = new HashMap<>();
-            Map<Transition<State>, Double> transitionLogProbabilities = new HashMap<>();
-            Map<Transition<State>, Path> roadPaths = new HashMap<>();
-            for (State candidate : timeStep.candidates) {
-                // distance from observation to road in meters
-                final double distance = candidate.getSnap().getQueryDistance();
-                emissionLogProbabilities.put(candidate, probabilities.emissionLogProbability(distance));
-            }
-
+            cancellation.check();
+            final double[] emissionLogProbabilities = computeEmissionLogProbabilities(probabilities, timeStep);
             if (prevTimeStep == null) {
-                viterbi.startWithInitialObservation(timeStep.observation, timeStep.candidates, emissionLogProbabilities);
+                viterbi.startWithInitialObservation(emissionLogProbabilities);
+                roadPaths.add(null);
             } else {
-                final double linearDistance = distanceCalc.calcDist(prevTimeStep.observation.getPoint().lat,
-                        prevTimeStep.observation.getPoint().lon, timeStep.observation.getPoint().lat, timeStep.observation.getPoint().lon);
-
-                for (State from : prevTimeStep.candidates) {
-                    for (State to : timeStep.candidates) {
-                        final Path path = createRouter().calcPath(from.getSnap().getClosestNode(), to.getSnap().getClosestNode(), from.isOnDirectedEdge() ? from.getOutgoingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE, to.isOnDirectedEdge() ? to.getIncomingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE);
-                        if (path.isFound()) {
-                            double transitionLogProbability = probabilities.transitionLogProbability(path.getDistance(), linearDistance);
-                            Transition<State> transition = new Transition<>(from, to);
-                            roadPaths.put(transition, path);
-                            transitionLogProbabilities.put(transition, transitionLogProbability);
-                        }
-                    }
-                }
-                viterbi.nextStep(timeStep.observation, timeStep.candidates,
-                        emissionLogProbabilities, transitionLogProbabilities,
-                        roadPaths);
+                final Path[][] paths = new Path[prevTimeStep.candidates.size()][timeStep.candidates.size()];
+                final double[][] transitionLogProbabilities = computeTransitionLogProbabilities(probabilities,
+                        queryGraph, weighting, cancellation, prevTimeStep, timeStep, paths);
+                viterbi.nextStep(emissionLogProbabilities, transitionLogProbabilities);
+                if (!viterbi.isBroken())
+                    roadPaths.add(selectBackPointerPaths(viterbi, paths));
             }
             if (viterbi.isBroken()) {
                 fail(timeStepCounter, prevTimeStep, timeStep);
@@ -348,7 +369,66 @@ public class MapMatching {
             prevTimeStep = timeStep;
         }
 
-        return viterbi.computeMostLikelySequence();
+        final int[] sequence = viterbi.computeMostLikelySequence();
+        final List<SequenceState<State, Observation, Path>> result = new ArrayList<>(sequence.length);
+        for (int t = 0; t < sequence.length; t++) {
+            ObservationWithCandidateStates timeStep = timeSteps.get(t);
+            Path[] paths = roadPaths.get(t);
+            result.add(new SequenceState<>(timeStep.candidates.get(sequence[t]), timeStep.observation,
+                    paths == null ? null : paths[sequence[t]]));
+        }
+        return result;
+    }
+
+    double[] computeEmissionLogProbabilities(HmmProbabilities probabilities, ObservationWithCandidateStates timeStep) {
+        final double[] emissionLogProbabilities = new double[timeStep.candidates.size()];
+        for (int j = 0; j < timeStep.candidates.size(); j++) {
+            // distance from observation to road in meters
+            final double distance = timeStep.candidates.get(j).getSnap().getQueryDistance();
+            emissionLogProbabilities[j] = probabilities.emissionLogProbability(distance);
+        }
+        return emissionLogProbabilities;
+    }
+
+    /**
+     * Routes between all candidates of two consecutive time steps. paths[i][j] is set to the path from candidate i of
+     * the previous time step to candidate j if there is one, otherwise the transition is impossible.
+     */
+    double[][] computeTransitionLogProbabilities(HmmProbabilities probabilities, QueryGraph queryGraph, Weighting weighting,
+                                                 CancellationToken cancellation, ObservationWithCandidateStates prevTimeStep,
+                                                 ObservationWithCandidateStates timeStep, Path[][] paths) {
+        final double linearDistance = distanceCalc.calcDist(prevTimeStep.observation.getPoint().lat,
+                prevTimeStep.observation.getPoint().lon, timeStep.observation.getPoint().lat, timeStep.observation.getPoint().lon);
+
+        final double[][] transitionLogProbabilities = new double[prevTimeStep.candidates.size()][timeStep.candidates.size()];
+        for (int i = 0; i < prevTimeStep.candidates.size(); i++) {
+            State from = prevTimeStep.candidates.get(i);
+            for (int j = 0; j < timeStep.candidates.size(); j++) {
+                State to = timeStep.candidates.get(j);
+                final Path path = createRouter(queryGraph, weighting, cancellation).calcPath(from.getSnap().getClosestNode(), to.getSnap().getClosestNode(), from.isOnDirectedEdge() ? from.getOutgoingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE, to.isOnDirectedEdge() ? to.getIncomingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE);
+                if (path.isFound()) {
+                    transitionLogProbabilities[i][j] = probabilities.transitionLogProbability(path.getDistance(), linearDistance);
+                    paths[i][j] = path;
+                } else {
+                    transitionLogProbabilities[i][j] = Double.NEGATIVE_INFINITY;
+                }
+            }
+        }
+        return transitionLogProbabilities;
+    }
+
+    /**
+     * @return the paths of the back pointers of the last time step, i.e. the paths that can be part of the most likely
+     * sequence
+     */
+    static Path[] selectBackPointerPaths(IndexedViterbiAlgorithm viterbi, Path[][] paths) {
+        int[] backPointers = viterbi.getBackPointers();
+        Path[] chosenPaths = new Path[backPointers.length];
+        for (int j = 0; j < backPointers.length; j++) {
+            if (backPointers[j] >= 0)
+                chosenPaths[j] = paths[backPointers[j]][j];
+        }
+        return chosenPaths;
     }
 
     private void fail(int timeStepCounter, ObservationWithCandidateStates prevTimeStep, ObservationWithCandidateStates timeStep) {
@@ -369,7 +449,7 @@ public class MapMatching {
                 + ". If a match is expected consider increasing max_visited_nodes.");
     }
 
-    private BidirRoutingAlgorithm createRouter() {
+    private BidirRoutingAlgorithm createRouter(QueryGraph queryGraph, Weighting weighting, CancellationToken cancellation) {
         BidirRoutingAlgorithm router;
         if (landmarks != null) {
             AStarBidirection algo = new AStarBidirection(queryGraph, weighting, TraversalMode.EDGE_BASED) {
@@ -381,6 +461,7 @@ public class MapMatching {
             int activeLM = Math.min(8, landmarks.getLandmarkCount());
             algo.setApproximation(LMApproximator.forLandmarks(queryGraph, landmarks, activeLM));
             algo.setMaxVisitedNodes(maxVisitedNodes);
+            algo.setCancellation(cancellation);
             router = algo;
         } else {
             router = new DijkstraBidirectionRef(queryGraph, weighting, TraversalMode.EDGE_BASED) {
@@ -390,65 +471,18 @@ public class MapMatching {
                 }
             };
             router.setMaxVisitedNodes(maxVisitedNodes);
+            router.setCancellation(cancellation);
         }
         return router;
     }
 
     private List<EdgeMatch> prepareEdgeMatches(List<SequenceState<State, Observation, Path>> seq) {
-        // This creates a list of directed edges (EdgeIteratorState instances turned the right way),
-        // each associated with 0 or more of the observations.
-        // These directed edges are edges of the real street graph, where nodes are intersections.
-        // So in _this_ representation, the path that you get when you just look at the edges goes from
-        // an intersection to an intersection.
-
-        // Implementation note: We have to look at both states _and_ transitions, since we can have e.g. just one state,
-        // or two states with a transition that is an empty path (observations snapped to the same node in the query graph),
-        // but these states still happen on an edge, and for this representation, we want to have that edge.
-        // (Whereas in the ResponsePath representation, we would just see an empty path.)
-
-        // Note that the result can be empty, even when the input is not. Observations can be on nodes as well as on
-        // edges, and when all observations are on the same node, we get no edge at all.
-        // But apart from that corner case, all observations that go in here are also in the result.
-
-        // (Consider totally forbidding candidate states to be snapped to a point, and make them all be on directed
-        // edges, then that corner case goes away.)
-        List<EdgeMatch> edgeMatches = new ArrayList<>();
-        List<State> states = new ArrayList<>();
-        EdgeIteratorState currentDirectedRealEdge = null;
+        EdgeMatchCollector collector = new EdgeMatchCollector(graph);
         for (SequenceState<State, Observation, Path> transitionAndState : seq) {
-            // transition (except before the first state)
-            if (transitionAndState.transitionDescriptor != null) {
-                for (EdgeIteratorState edge : transitionAndState.transitionDescriptor.calcEdges()) {
-                    EdgeIteratorState newDirectedRealEdge = resolveToRealEdge(edge);
-                    if (currentDirectedRealEdge != null) {
-                        if (!equalEdges(currentDirectedRealEdge, newDirectedRealEdge)) {
-                            EdgeMatch edgeMatch = new EdgeMatch(currentDirectedRealEdge, states);
-                            edgeMatches.add(edgeMatch);
-                            states = new ArrayList<>();
-                        }
-                    }
-                    currentDirectedRealEdge = newDirectedRealEdge;
-                }
-            }
-            // state
-            if (transitionAndState.state.isOnDirectedEdge()) { // as opposed to on a node
-                EdgeIteratorState newDirectedRealEdge = resolveToRealEdge(transitionAndState.state.getOutgoingVirtualEdge());
-                if (currentDirectedRealEdge != null) {
-                    if (!equalEdges(currentDirectedRealEdge, newDirectedRealEdge)) {
-                        EdgeMatch edgeMatch = new EdgeMatch(currentDirectedRealEdge, states);
-                        edgeMatches.add(edgeMatch);
-                        states = new ArrayList<>();
-                    }
-                }
-                currentDirectedRealEdge = newDirectedRealEdge;
-            }
-            states.add(transitionAndState.state);
+            collector.add(transitionAndState.state, transitionAndState.transitionDescriptor);
         }
-        if (currentDirectedRealEdge != null) {
-            EdgeMatch edgeMatch = new EdgeMatch(currentDirectedRealEdge, states);
-            edgeMatches.add(edgeMatch);
-        }
-        return edgeMatches;
+        collector.finish();
+        return collector.poll();
     }
 
     private double gpxLength(List<Observation> gpxList) {
@@ -466,20 +500,6 @@ public class MapMatching {
         }
     }
 
-    private boolean equalEdges(EdgeIteratorState edge1, EdgeIteratorState edge2) {
-        return edge1.getEdge() == edge2.getEdge()
-                && edge1.getBaseNode() == edge2.getBaseNode()
-                && edge1.getAdjNode() == edge2.getAdjNode();
-    }
-
-    private EdgeIteratorState resolveToRealEdge(EdgeIteratorState edgeIteratorState) {
-        if (queryGraph.isVirtualNode(edgeIteratorState.getBaseNode()) || queryGraph.isVirtualNode(edgeIteratorState.getAdjNode())) {
-            return graph.getEdgeIteratorStateForKey(((VirtualEdgeIteratorState) edgeIteratorState).getOriginalEdgeKey());
-        } else {
-            return edgeIteratorState;
-        }
-    }
-
     private String getSnappedCandidates(Collection<State> candidates) {
         String str = "";
         for (State gpxe : candidates) {
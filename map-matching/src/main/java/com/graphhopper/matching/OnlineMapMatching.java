@@ -0,0 +1,204 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.bmw.hmm.IndexedViterbiAlgorithm;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.CancellationToken;
+import com.graphhopper.util.DistanceCalc;
+import com.graphhopper.util.DistancePlaneProjection;
+import com.graphhopper.util.PMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Matches a stream of observations, e.g. the live GPS positions of a vehicle, to the road network one observation at
+ * a time. It uses the same hidden Markov model as {@link MapMatching}, but the matched edges are returned as soon as
+ * they are final, i.e. once the most likely sequences ending in all candidates of the latest observation agree on
+ * them. If this does not happen within {@link #setMaxLag(int) maxLag} observations, the edges are finalized according
+ * to the currently most likely sequence. Older observations are discarded, so the memory usage does not grow with the
+ * length of the stream.
+ * <p>
+ * Unlike MapMatching this class does not fail if the sequence breaks, e.g. because of a gap in the observations, but
+ * finalizes the sequence so far and starts a new one.
+ * <p>
+ * Every instance matches a single stream and is not thread-safe.
+ */
+public class OnlineMapMatching {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final MapMatching mapMatching;
+    private final DistanceCalc distanceCalc = new DistancePlaneProjection();
+    private final EdgeMatchCollector collector;
+    private int maxLag = 20;
+    private IndexedViterbiAlgorithm viterbi = new IndexedViterbiAlgorithm();
+    // the time steps that are not final yet, in the same order as the time steps kept by the Viterbi algorithm
+    private final List<TimeStep> timeSteps = new ArrayList<>();
+    private Observation prevObservation;
+    private Observation skippedObservation;
+
+    public OnlineMapMatching(GraphHopper graphHopper, PMap hints) {
+        mapMatching = new MapMatching(graphHopper, hints);
+        collector = new EdgeMatchCollector(mapMatching.getGraph());
+    }
+
+    /**
+     * Beta parameter of the exponential distribution for modeling transition
+     * probabilities.
+     */
+    public void setTransitionProbabilityBeta(double transitionProbabilityBeta) {
+        mapMatching.setTransitionProbabilityBeta(transitionProbabilityBeta);
+    }
+
+    /**
+     * Standard deviation of the normal distribution [m] used for modeling the
+     * GPS error.
+     */
+    public void setMeasurementErrorSigma(double measurementErrorSigma) {
+        mapMatching.setMeasurementErrorSigma(measurementErrorSigma);
+    }
+
+    /**
+     * The maximum number of observations that are kept before the matched edges are finalized even if the most likely
+     * sequences did not converge. A larger value gives the same result as {@link MapMatching} more often, but delays
+     * the result and uses more memory.
+     */
+    public void setMaxLag(int maxLag) {
+        if (maxLag < 1)
+            throw new IllegalArgumentException("max_lag must be at least 1 but was " + maxLag);
+        this.maxLag = maxLag;
+    }
+
+    /**
+     * Adds the next observation and returns the edge matches that became final. The observation is ignored if it is
+     * too close to the previous one, like in {@link MapMatching#match(List)}, unless it is the last one.
+     */
+    public List<EdgeMatch> add(Observation observation) {
+        if (prevObservation != null && distanceCalc.calcDist(prevObservation.getPoint().lat, prevObservation.getPoint().lon,
+                observation.getPoint().lat, observation.getPoint().lon) <= 2 * mapMatching.getMeasurementErrorSigma()) {
+            skippedObservation = observation;
+            return Collections.emptyList();
+        }
+        skippedObservation = null;
+        prevObservation = observation;
+        process(observation);
+        return collector.poll();
+    }
+
+    /**
+     * Finalizes the remaining observations at the end of the stream and returns their edge matches. The next observation
+     * starts a new sequence.
+     */
+    public List<EdgeMatch> finish() {
+        if (skippedObservation != null)
+            process(skippedObservation);
+        finishSequence();
+        skippedObservation = null;
+        prevObservation = null;
+        return collector.poll();
+    }
+
+    private void process(Observation observation) {
+        CancellationToken cancellation = mapMatching.createCancellation();
+        HmmProbabilities probabilities = mapMatching.createProbabilities();
+        List<Snap> snaps = mapMatching.findCandidateSnaps(observation.getPoint().lat, observation.getPoint().lon);
+        TimeStep prev = timeSteps.isEmpty() ? null : timeSteps.get(timeSteps.size() - 1);
+
+        // Every transition gets its own query graph that only contains the candidates of the two time steps. The snaps
+        // of the previous time step are used again, they are assigned to the virtual nodes of the new query graph.
+        List<Snap> allSnaps = new ArrayList<>(snaps);
+        if (prev != null)
+            allSnaps.addAll(prev.snaps);
+        QueryGraph queryGraph = QueryGraph.create(mapMatching.getGraph(), allSnaps);
+        ObservationWithCandidateStates timeStep = new ObservationWithCandidateStates(observation,
+                mapMatching.createCandidates(queryGraph, observation, snaps));
+        double[] emissionLogProbabilities = mapMatching.computeEmissionLogProbabilities(probabilities, timeStep);
+        if (prev == null) {
+            startSequence(snaps, timeStep, emissionLogProbabilities);
+            return;
+        }
+
+        // the candidates of the previous time step are created in the same order as before
+        ObservationWithCandidateStates prevTimeStep = new ObservationWithCandidateStates(prev.timeStep.observation,
+                mapMatching.createCandidates(queryGraph, prev.timeStep.observation, prev.snaps));
+        Weighting weighting = mapMatching.createWeighting(queryGraph);
+        Path[][] paths = new Path[prevTimeStep.candidates.size()][timeStep.candidates.size()];
+        double[][] transitionLogProbabilities = mapMatching.computeTransitionLogProbabilities(probabilities, queryGraph,
+                weighting, cancellation, prevTimeStep, timeStep, paths);
+        viterbi.nextStep(emissionLogProbabilities, transitionLogProbabilities);
+        if (viterbi.isBroken()) {
+            logger.debug("Sequence is broken at observation {}, starting a new one", observation);
+            finishSequence();
+            startSequence(snaps, timeStep, emissionLogProbabilities);
+            return;
+        }
+        timeSteps.add(new TimeStep(snaps, timeStep, MapMatching.selectBackPointerPaths(viterbi, paths)));
+        addToCollector(viterbi.removeConvergedTimeSteps(maxLag));
+    }
+
+    private void startSequence(List<Snap> snaps, ObservationWithCandidateStates timeStep, double[] emissionLogProbabilities) {
+        viterbi = new IndexedViterbiAlgorithm();
+        viterbi.startWithInitialObservation(emissionLogProbabilities);
+        if (viterbi.isBroken()) {
+            // there is no candidate for this observation, we try again with the next one
+            logger.debug("No candidates for observation {}", timeStep.observation);
+            return;
+        }
+        timeSteps.add(new TimeStep(snaps, timeStep, null));
+    }
+
+    private void finishSequence() {
+        addToCollector(viterbi.computeMostLikelySequence());
+        collector.finish();
+        timeSteps.clear();
+        viterbi = new IndexedViterbiAlgorithm();
+    }
+
+    /**
+     * Adds the specified candidates of the first time steps to the collector and removes these time steps.
+     */
+    private void addToCollector(int[] sequence) {
+        for (int t = 0; t < sequence.length; t++) {
+            TimeStep timeStep = timeSteps.get(t);
+            collector.add(timeStep.timeStep.candidates.get(sequence[t]), timeStep.paths == null ? null : timeStep.paths[sequence[t]]);
+        }
+        timeSteps.subList(0, sequence.length).clear();
+    }
+
+    private static class TimeStep {
+        final List<Snap> snaps;
+        final ObservationWithCandidateStates timeStep;
+        // the paths of the back pointers, null for the first time step of a sequence
+        final Path[] paths;
+
+        TimeStep(List<Snap> snaps, ObservationWithCandidateStates timeStep, Path[] paths) {
+            this.snaps = snaps;
+            this.timeStep = timeStep;
+            this.paths = paths;
+        }
+    }
+}
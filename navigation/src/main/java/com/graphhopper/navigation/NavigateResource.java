@@ -21,6 +21,7 @@ import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.ResponsePath;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.Parameters;
 import com.graphhopper.util.StopWatch;
@@ -50,6 +51,10 @@ import static com.graphhopper.util.Parameters.Routing.*;
  * The baseurl of this endpoint is: [YOUR-IP/HOST]/navigate
  * The version of this endpoint is: v5
  * The user of this endpoint is: gh
+ * <p>
+ * When the driver left the route, the client can pass the uuid of the previous response via the route_uuid parameter
+ * together with the current position and the remaining waypoints. The new route then joins the previous route as
+ * early as possible, see {@link Rerouter}, or is calculated from scratch if this is not possible.
  *
  * @author Robin Boldt
  */
@@ -61,10 +66,14 @@ public class NavigateResource {
     private final GraphHopper graphHopper;
     private final TranslationMap translationMap;
     private final Map<String, String> resolverMap;
+    private final RouteStore routeStore;
+    private final int rerouteMaxVisitedNodes;
 
     @Inject
-    public NavigateResource(GraphHopper graphHopper, TranslationMap translationMap, GraphHopperConfig config) {
+    public NavigateResource(GraphHopper graphHopper, TranslationMap translationMap, GraphHopperConfig config, RouteStore routeStore) {
         this.graphHopper = graphHopper;
+        this.routeStore = routeStore;
+        rerouteMaxVisitedNodes = config.getInt("navigation.reroute.max_visited_nodes", 10_000);
         resolverMap = config.asPMap().getObject("profiles_mapbox", new HashMap<>());
         if (resolverMap.isEmpty()) {
             resolverMap.put("driving", "car");
@@ -92,6 +101,7 @@ public class NavigateResource {
             @QueryParam("geometries") @DefaultValue("polyline") String geometries,
             @QueryParam("bearings") @DefaultValue("") String bearings,
             @QueryParam("language") @DefaultValue("en") String localeStr,
+            @QueryParam("route_uuid") String routeUuid,
             @PathParam("profile") String mapboxProfile) {
 
         /*
@@ -129,22 +139,34 @@ public class NavigateResource {
         }
 
         StopWatch sw = new StopWatch().start();
+        Locale locale = Helper.getLocale(localeStr);
+
+        ResponsePath rerouted = null;
+        if (!Helper.isEmpty(routeUuid))
+            rerouted = new Rerouter(graphHopper, routeStore).setMaxVisitedNodes(rerouteMaxVisitedNodes).
+                    reroute(routeUuid, ghProfile, requestPoints, favoredHeadings.isEmpty() ? Double.NaN : favoredHeadings.get(0),
+                            minPathPrecision, locale);
 
-        GHResponse ghResponse = calcRoute(favoredHeadings, requestPoints, ghProfile, localeStr, enableInstructions, minPathPrecision);
+        GHResponse ghResponse;
+        if (rerouted != null) {
+            ghResponse = new GHResponse();
+            ghResponse.add(rerouted);
+        } else {
+            ghResponse = calcRoute(favoredHeadings, requestPoints, ghProfile, localeStr, enableInstructions, minPathPrecision);
 
-        // Only do this, when there are more than 2 points, otherwise we use alternative routes
-        if (!ghResponse.hasErrors() && favoredHeadings.size() > 0) {
-            GHResponse noHeadingResponse = calcRoute(Collections.EMPTY_LIST, requestPoints, ghProfile, localeStr, enableInstructions, minPathPrecision);
-            if (ghResponse.getBest().getDistance() != noHeadingResponse.getBest().getDistance()) {
-                ghResponse.getAll().add(noHeadingResponse.getBest());
+            // Only do this, when there are more than 2 points, otherwise we use alternative routes
+            if (!ghResponse.hasErrors() && favoredHeadings.size() > 0) {
+                GHResponse noHeadingResponse = calcRoute(Collections.EMPTY_LIST, requestPoints, ghProfile, localeStr, enableInstructions, minPathPrecision);
+                if (ghResponse.getBest().getDistance() != noHeadingResponse.getBest().getDistance()) {
+                    ghResponse.getAll().add(noHeadingResponse.getBest());
+                }
             }
         }
 
         float took = sw.stop().getSeconds();
         String infoStr = httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent");
         String logStr = httpReq.getQueryString() + " " + infoStr + " " + requestPoints + ", took:"
-                + took + ", " + ghProfile;
-        Locale locale = Helper.getLocale(localeStr);
+                + took + ", " + ghProfile + (rerouted != null ? ", rerouted" : "");
         DistanceConfig config = new DistanceConfig(unit, translationMap, locale);
 
         if (ghResponse.hasErrors()) {
@@ -155,7 +177,8 @@ public class NavigateResource {
                     build();
         } else {
             logger.info(logStr);
-            return Response.ok(NavigateResponseConverter.convertFromGHResponse(ghResponse, translationMap, locale, config)).
+            String uuid = routeStore.put(ghProfile, requestPoints, ghResponse.getBest());
+            return Response.ok(NavigateResponseConverter.convertFromGHResponse(ghResponse, translationMap, locale, config, uuid)).
                     header("X-GH-Took", "" + Math.round(took * 1000)).
                     build();
         }
@@ -173,7 +196,9 @@ public class NavigateResource {
                 putHint(INSTRUCTIONS, enableInstructions).
                 putHint(WAY_POINT_MAX_DISTANCE, minPathPrecision).
                 putHint(Parameters.CH.DISABLE, true).
-                putHint(Parameters.Routing.PASS_THROUGH, false);
+                putHint(Parameters.Routing.PASS_THROUGH, false).
+                // the edge ids are needed to join this route when the driver leaves it
+                setPathDetails(Collections.singletonList(Parameters.Details.EDGE_ID));
 
         return graphHopper.route(request);
     }
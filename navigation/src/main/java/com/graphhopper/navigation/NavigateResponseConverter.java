@@ -37,6 +37,16 @@ public class NavigateResponseConverter {
      * Converts a GHResponse into a json that follows the Mapbox API specification
      */
     public static ObjectNode convertFromGHResponse(GHResponse ghResponse, TranslationMap translationMap, Locale locale, DistanceConfig distanceConfig) {
+        // TODO: Maybe we need a different format... uuid: "cji4ja4f8004o6xrsta8w4p4h"
+        return convertFromGHResponse(ghResponse, translationMap, locale, distanceConfig, UUID.randomUUID().toString().replaceAll("-", ""));
+    }
+
+    /**
+     * Converts a GHResponse into a json that follows the Mapbox API specification
+     *
+     * @param uuid the identifier of the response, see {@link RouteStore#put}
+     */
+    public static ObjectNode convertFromGHResponse(GHResponse ghResponse, TranslationMap translationMap, Locale locale, DistanceConfig distanceConfig, String uuid) {
         ObjectNode json = JsonNodeFactory.instance.objectNode();
 
         if (ghResponse.hasErrors())
@@ -64,8 +74,7 @@ public class NavigateResponseConverter {
         }
 
         json.put("code", "Ok");
-        // TODO: Maybe we need a different format... uuid: "cji4ja4f8004o6xrsta8w4p4h"
-        json.put("uuid", UUID.randomUUID().toString().replaceAll("-", ""));
+        json.put("uuid", uuid);
 
         return json;
     }
@@ -0,0 +1,339 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.navigation;
+
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.config.Profile;
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.HeadingResolver;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.ev.Subnetwork;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.DefaultSnapFilter;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+import com.graphhopper.util.shapes.GHPoint;
+
+import java.util.*;
+
+import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
+import static com.graphhopper.util.Parameters.Details.EDGE_ID;
+
+/**
+ * Calculates a re-route for a driver that left the route of a previous navigate request. Instead of calculating the
+ * whole route again this runs a bounded Dijkstra from the current position that stops at the first node of the
+ * remaining route it reaches. The instructions are only calculated for the new part up to the next maneuver of the
+ * remaining route, all instructions after it are taken from the previous route.
+ * <p>
+ * The previous route must contain the {@link Parameters.Details#EDGE_ID} path details. If the route cannot be joined,
+ * e.g. because the driver is too far away or the destination changed, {@link #reroute} returns null and the caller
+ * has to calculate a full route.
+ */
+public class Rerouter {
+    // the remaining waypoints of a re-route request must match the ones of the previous request
+    private static final double MAX_WAYPOINT_DIFF = 1e-5;
+    private final GraphHopper hopper;
+    private final RouteStore routeStore;
+    private int maxVisitedNodes = 10_000;
+
+    public Rerouter(GraphHopper hopper, RouteStore routeStore) {
+        this.hopper = hopper;
+        this.routeStore = routeStore;
+    }
+
+    /**
+     * Limits the search for the remaining route. A smaller value makes failed joins cheaper, but requires a full
+     * route more often.
+     */
+    public Rerouter setMaxVisitedNodes(int maxVisitedNodes) {
+        this.maxVisitedNodes = maxVisitedNodes;
+        return this;
+    }
+
+    /**
+     * @param token               the token of the previous route, see {@link RouteStore#put}
+     * @param points              the current position followed by the remaining waypoints of the previous route
+     * @param heading             the heading of the driver or NaN
+     * @param wayPointMaxDistance the tolerance used to simplify the geometry of the new part of the route
+     * @return the new route or null if the previous route is unknown or cannot be joined
+     */
+    public ResponsePath reroute(String token, String profileName, List<GHPoint> points, double heading,
+                                double wayPointMaxDistance, Locale locale) {
+        RouteStore.StoredRoute stored = routeStore.get(token);
+        if (stored == null || !stored.getProfile().equals(profileName) || points.size() < 2)
+            return null;
+        ResponsePath prev = stored.getPath();
+        List<PathDetail> edgeDetails = prev.getPathDetails().get(EDGE_ID);
+        if (edgeDetails == null || edgeDetails.isEmpty() || !remainingPointsMatch(stored.getRequestPoints(), points))
+            return null;
+
+        InstructionList instructions = prev.getInstructions();
+        int[] instructionStarts = new int[instructions.size()];
+        for (int i = 1; i < instructions.size(); i++)
+            instructionStarts[i] = instructionStarts[i - 1] + instructions.get(i - 1).getLength();
+
+        // the via points that are not part of the request anymore were already reached. we must only join the route
+        // on the leg to the first remaining waypoint, otherwise we would skip remaining via points.
+        PointList prevPoints = prev.getPoints();
+        int reachedVias = stored.getRequestPoints().size() - points.size();
+        int legStart = 0, legEnd = prevPoints.size() - 1, vias = 0;
+        for (int i = 0; i < instructions.size(); i++) {
+            if (instructions.get(i).getSign() != Instruction.REACHED_VIA)
+                continue;
+            vias++;
+            if (vias == reachedVias)
+                legStart = instructionStarts[i];
+            else if (vias == reachedVias + 1)
+                legEnd = instructionStarts[i];
+        }
+        if (vias != stored.getRequestPoints().size() - 2)
+            return null;
+
+        // we only join the route behind the point that is closest to the current position, otherwise we might send
+        // the driver back along the route
+        GHPoint current = points.get(0);
+        int closestPoint = legStart;
+        double closestDist = Double.MAX_VALUE;
+        for (int i = legStart; i <= legEnd; i++) {
+            double dist = DIST_PLANE.calcDist(current.lat, current.lon, prevPoints.getLat(i), prevPoints.getLon(i));
+            if (dist < closestDist) {
+                closestDist = dist;
+                closestPoint = i;
+            }
+        }
+
+        // the candidates to join the route are the start nodes of the remaining edges. the first edge starts at the
+        // (virtual) start of the route. we also skip the edges behind the last maneuver, because we need the real
+        // edges up to the next maneuver to calculate its instruction for the new incoming edge.
+        BaseGraph graph = hopper.getGraphHopperStorage().getBaseGraph();
+        NodeAccess na = graph.getNodeAccess();
+        IntIntHashMap joinNodes = new IntIntHashMap();
+        int instruction = 0;
+        for (int k = 1; k < edgeDetails.size(); k++) {
+            int first = edgeDetails.get(k).getFirst();
+            while (instruction + 1 < instructions.size() && instructionStarts[instruction + 1] <= first)
+                instruction++;
+            if (first < closestPoint)
+                continue;
+            if (first >= legEnd)
+                break;
+            if (instruction + 2 >= instructions.size() || !isManeuver(instructions.get(instruction + 1)))
+                continue;
+            EdgeIteratorState edge = graph.getEdgeIteratorState((Integer) edgeDetails.get(k).getValue(), Integer.MIN_VALUE);
+            int node = findNode(na, edge, prevPoints.getLat(first), prevPoints.getLon(first));
+            if (node >= 0 && !joinNodes.containsKey(node))
+                joinNodes.put(node, k);
+        }
+        if (joinNodes.isEmpty())
+            return null;
+
+        Profile profile = hopper.getProfile(profileName);
+        Weighting weighting = hopper.createWeighting(profile, new PMap());
+        Snap snap = hopper.getLocationIndex().findClosest(current.lat, current.lon, new DefaultSnapFilter(weighting,
+                hopper.getEncodingManager().getBooleanEncodedValue(Subnetwork.key(profileName))));
+        if (!snap.isValid())
+            return null;
+        QueryGraph queryGraph = QueryGraph.create(graph, snap);
+        if (!Double.isNaN(heading))
+            queryGraph.unfavorVirtualEdges(new HeadingResolver(queryGraph).getEdgesWithDifferentHeading(snap.getClosestNode(), heading));
+        Weighting queryWeighting = queryGraph.wrapWeighting(weighting);
+
+        JoinSearch search = new JoinSearch(queryGraph, queryWeighting,
+                profile.isTurnCosts() ? TraversalMode.EDGE_BASED : TraversalMode.NODE_BASED, joinNodes, edgeDetails);
+        search.setMaxVisitedNodes(maxVisitedNodes);
+        Path path = search.calcPath(snap.getClosestNode(), -1);
+        if (!path.isFound())
+            return null;
+
+        // continue on the remaining edges until the next maneuver
+        int joinDetail = joinNodes.get(path.getEndNode());
+        int nextManeuver = instructionIndex(instructionStarts, edgeDetails.get(joinDetail).getFirst()) + 1;
+        int nextManeuverStart = instructionStarts[nextManeuver];
+        int node = path.getEndNode();
+        int prevEdge = path.getEdgeCount() == 0 ? EdgeIterator.NO_EDGE : path.getEdges().get(path.getEdgeCount() - 1);
+        for (int k = joinDetail; edgeDetails.get(k).getFirst() < nextManeuverStart; k++) {
+            EdgeIteratorState edge = queryGraph.getEdgeIteratorState((Integer) edgeDetails.get(k).getValue(), Integer.MIN_VALUE);
+            int adjNode = edge.getBaseNode() == node ? edge.getAdjNode() : edge.getAdjNode() == node ? edge.getBaseNode() : -1;
+            if (adjNode < 0)
+                return null;
+            edge = queryGraph.getEdgeIteratorState(edge.getEdge(), adjNode);
+            path.addEdge(edge.getEdge());
+            path.addDistance(edge.getDistance());
+            path.addTime(GHUtility.calcMillisWithTurnMillis(queryWeighting, edge, false, prevEdge));
+            path.setWeight(path.getWeight() + GHUtility.calcWeightWithTurnWeight(queryWeighting, edge, false, prevEdge));
+            prevEdge = edge.getEdge();
+            node = adjNode;
+        }
+        path.setEndNode(node);
+        if (findNode(na, queryGraph.getEdgeIteratorState(prevEdge, node), prevPoints.getLat(nextManeuverStart),
+                prevPoints.getLon(nextManeuverStart)) != node)
+            return null;
+
+        PointList waypoints = new PointList(2, prevPoints.is3D());
+        waypoints.add(snap.getSnappedPoint());
+        waypoints.add(na, node);
+        PathMerger pathMerger = new PathMerger(queryGraph, weighting).
+                setDouglasPeucker(new DouglasPeucker().setMaxDistance(wayPointMaxDistance).
+                        setElevationMaxDistance(hopper.getRouterConfig().getElevationWayPointMaxDistance())).
+                setPathDetailsBuilders(hopper.getPathDetailsBuilderFactory(), Collections.singletonList(EDGE_ID)).
+                setSimplifyResponse(hopper.getRouterConfig().isSimplifyResponse() && wayPointMaxDistance > 0);
+        pathMerger.setFavoredHeading(heading);
+        Translation tr = hopper.getTranslationMap().getWithFallBack(locale);
+        ResponsePath head = pathMerger.doWork(waypoints, Collections.singletonList(path), hopper.getEncodingManager(), tr);
+        return concat(head, prev, nextManeuver, instructionStarts[nextManeuver], points.size() - 1, tr);
+    }
+
+    /**
+     * Appends the instructions and points of the previous route from the given instruction onwards to the new route,
+     * which ends where this instruction starts.
+     *
+     * @return the new route or null if the remaining route does not contain the expected number of waypoints
+     */
+    private static ResponsePath concat(ResponsePath head, ResponsePath prev, int instruction, int pointIndex,
+                                       int expectedWaypoints, Translation tr) {
+        InstructionList headInstructions = head.getInstructions();
+        InstructionList prevInstructions = prev.getInstructions();
+        InstructionList instructions = new InstructionList(headInstructions.size() + prevInstructions.size() - instruction, tr);
+        // the finish instruction is replaced by the next maneuver, which starts at the last point of the new part
+        for (int i = 0; i < headInstructions.size() - 1; i++)
+            instructions.add(headInstructions.get(i));
+        double distance = head.getDistance();
+        long time = head.getTime();
+        int remainingWaypoints = 0;
+        for (int i = instruction; i < prevInstructions.size(); i++) {
+            Instruction prevInstruction = prevInstructions.get(i);
+            instructions.add(prevInstruction);
+            distance += prevInstruction.getDistance();
+            time += prevInstruction.getTime();
+            if (prevInstruction.getSign() == Instruction.REACHED_VIA || prevInstruction.getSign() == Instruction.FINISH)
+                remainingWaypoints++;
+        }
+        if (remainingWaypoints != expectedWaypoints)
+            return null;
+
+        PointList headPoints = head.getPoints();
+        PointList prevPoints = prev.getPoints();
+        PointList points = new PointList(headPoints.size() + prevPoints.size() - pointIndex, headPoints.is3D());
+        points.add(headPoints.copy(0, headPoints.size() - 1));
+        points.add(prevPoints.copy(pointIndex, prevPoints.size()));
+
+        PointList prevWaypoints = prev.getWaypoints();
+        PointList waypoints = new PointList(1 + remainingWaypoints, prevWaypoints.is3D());
+        waypoints.add(head.getWaypoints(), 0);
+        for (int i = prevWaypoints.size() - remainingWaypoints; i < prevWaypoints.size(); i++)
+            waypoints.add(prevWaypoints, i);
+
+        int offset = headPoints.size() - 1 - pointIndex;
+        List<PathDetail> edgeDetails = new ArrayList<>(head.getPathDetails().get(EDGE_ID));
+        List<PathDetail> remainingDetails = new ArrayList<>();
+        for (PathDetail prevDetail : prev.getPathDetails().get(EDGE_ID)) {
+            if (prevDetail.getFirst() < pointIndex)
+                continue;
+            PathDetail detail = new PathDetail(prevDetail.getValue());
+            detail.setFirst(prevDetail.getFirst() + offset);
+            detail.setLast(prevDetail.getLast() + offset);
+            remainingDetails.add(detail);
+        }
+        ResponsePath.merge(edgeDetails, remainingDetails);
+
+        ResponsePath result = new ResponsePath();
+        result.setInstructions(instructions);
+        result.setWaypoints(waypoints);
+        result.addPathDetails(Collections.singletonMap(EDGE_ID, edgeDetails));
+        // the weight of the remaining part is not known, we estimate it via its travel time
+        double remainingWeight = prev.getTime() > 0 ? prev.getRouteWeight() * (time - head.getTime()) / prev.getTime() : 0;
+        return result.setPoints(points).
+                setDistance(distance).
+                setTime(time).
+                setRouteWeight(head.getRouteWeight() + remainingWeight).
+                setDescription(prev.getDescription());
+    }
+
+    private static boolean remainingPointsMatch(List<GHPoint> prevPoints, List<GHPoint> points) {
+        if (points.size() > prevPoints.size())
+            return false;
+        int offset = prevPoints.size() - points.size();
+        for (int i = 1; i < points.size(); i++) {
+            GHPoint prevPoint = prevPoints.get(offset + i);
+            GHPoint point = points.get(i);
+            if (Math.abs(prevPoint.lat - point.lat) > MAX_WAYPOINT_DIFF || Math.abs(prevPoint.lon - point.lon) > MAX_WAYPOINT_DIFF)
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isManeuver(Instruction instruction) {
+        return instruction.getSign() != Instruction.REACHED_VIA && instruction.getSign() != Instruction.FINISH;
+    }
+
+    private static int instructionIndex(int[] instructionStarts, int pointIndex) {
+        int index = 0;
+        while (index + 1 < instructionStarts.length && instructionStarts[index + 1] <= pointIndex)
+            index++;
+        return index;
+    }
+
+    /**
+     * @return the node of the given edge at the given coordinates or -1
+     */
+    private static int findNode(NodeAccess na, EdgeIteratorState edge, double lat, double lon) {
+        if (Math.abs(na.getLat(edge.getBaseNode()) - lat) < MAX_WAYPOINT_DIFF && Math.abs(na.getLon(edge.getBaseNode()) - lon) < MAX_WAYPOINT_DIFF)
+            return edge.getBaseNode();
+        if (Math.abs(na.getLat(edge.getAdjNode()) - lat) < MAX_WAYPOINT_DIFF && Math.abs(na.getLon(edge.getAdjNode()) - lon) < MAX_WAYPOINT_DIFF)
+            return edge.getAdjNode();
+        return -1;
+    }
+
+    /**
+     * A Dijkstra that stops at the first node of the remaining route that can be entered without a forbidden turn
+     * or a u-turn onto the route.
+     */
+    private static class JoinSearch extends Dijkstra {
+        private final IntIntHashMap joinNodes;
+        private final List<PathDetail> edgeDetails;
+
+        JoinSearch(QueryGraph graph, Weighting weighting, TraversalMode tMode, IntIntHashMap joinNodes, List<PathDetail> edgeDetails) {
+            super(graph, weighting, tMode);
+            this.joinNodes = joinNodes;
+            this.edgeDetails = edgeDetails;
+        }
+
+        @Override
+        protected boolean finished() {
+            int node = currEdge.adjNode;
+            if (!joinNodes.containsKey(node))
+                return false;
+            if (currEdge.edge == EdgeIterator.NO_EDGE)
+                return true;
+            int joinEdge = (Integer) edgeDetails.get(joinNodes.get(node)).getValue();
+            return currEdge.edge != joinEdge && Double.isFinite(weighting.calcTurnWeight(currEdge.edge, node, joinEdge));
+        }
+
+        @Override
+        public String getName() {
+            return "join_search";
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.navigation;
+
+import com.graphhopper.ResponsePath;
+import com.graphhopper.util.shapes.GHPoint;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps the most recent routes of the navigate endpoint, so that a re-route request can reuse the remaining part of
+ * the route the driver left instead of calculating everything again, see {@link Rerouter}. The least recently used
+ * routes are evicted when the store is full.
+ */
+public class RouteStore {
+    private final Map<String, StoredRoute> routes;
+
+    public RouteStore(int maxRoutes) {
+        if (maxRoutes < 1)
+            throw new IllegalArgumentException("maxRoutes must be positive, but was " + maxRoutes);
+        routes = new LinkedHashMap<String, StoredRoute>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredRoute> eldest) {
+                return size() > maxRoutes;
+            }
+        };
+    }
+
+    /**
+     * Stores the given route that was calculated for the given profile and requested points.
+     *
+     * @return the token of the route, i.e. the uuid of the navigate response
+     */
+    public String put(String profile, List<GHPoint> requestPoints, ResponsePath path) {
+        String token = UUID.randomUUID().toString().replaceAll("-", "");
+        synchronized (routes) {
+            routes.put(token, new StoredRoute(profile, requestPoints, path));
+        }
+        return token;
+    }
+
+    /**
+     * @return the route for the given token or null if it is unknown or was already evicted
+     */
+    public StoredRoute get(String token) {
+        synchronized (routes) {
+            return routes.get(token);
+        }
+    }
+
+    public int size() {
+        synchronized (routes) {
+            return routes.size();
+        }
+    }
+
+    public static class StoredRoute {
+        private final String profile;
+        private final List<GHPoint> requestPoints;
+        private final ResponsePath path;
+
+        StoredRoute(String profile, List<GHPoint> requestPoints, ResponsePath path) {
+            this.profile = profile;
+            this.requestPoints = requestPoints;
+            this.path = path;
+        }
+
+        public String getProfile() {
+            return profile;
+        }
+
+        public List<GHPoint> getRequestPoints() {
+            return requestPoints;
+        }
+
+        public ResponsePath getPath() {
+            return path;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.graphhopper.navigation;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.config.Profile;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.Instruction;
+import com.graphhopper.util.Parameters;
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.details.PathDetail;
+import com.graphhopper.util.shapes.GHPoint;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RerouterTest {
+
+    private static final String graphFolder = "target/graphhopper-test-reroute";
+    private static final String osmFile = "../core/files/andorra.osm.gz";
+    private static final String profile = "my_car";
+    private static final GHPoint from = new GHPoint(42.554851, 1.536198);
+    private static final GHPoint to = new GHPoint(42.510071, 1.548128);
+    private static GraphHopper hopper;
+
+    @BeforeAll
+    public static void beforeClass() {
+        Helper.removeDir(new File(graphFolder));
+        hopper = new GraphHopper().
+                setOSMFile(osmFile).
+                setGraphHopperLocation(graphFolder).
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest").setTurnCosts(false)).
+                importOrLoad();
+    }
+
+    @AfterAll
+    public static void afterClass() {
+        hopper.close();
+        Helper.removeDir(new File(graphFolder));
+    }
+
+    private static ResponsePath route(GHPoint... points) {
+        GHRequest request = new GHRequest(Arrays.asList(points)).setProfile(profile).
+                setPathDetails(Collections.singletonList(Parameters.Details.EDGE_ID));
+        GHResponse rsp = hopper.route(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        return rsp.getBest();
+    }
+
+    @ParameterizedTest
+    @CsvSource({"42.5405,1.537", "42.53,1.54", "42.52,1.542", "42.535,1.532"})
+    public void testJoinRemainingRoute(double lat, double lon) {
+        RouteStore routeStore = new RouteStore(10);
+        String token = routeStore.put(profile, Arrays.asList(from, to), route(from, to));
+        GHPoint current = new GHPoint(lat, lon);
+        ResponsePath rerouted = new Rerouter(hopper, routeStore).reroute(token, profile, Arrays.asList(current, to), Double.NaN, 1, Locale.ENGLISH);
+        assertNotNull(rerouted);
+
+        // in these cases the shortest way to the destination joins the previous route, so we get the same route as
+        // when calculating it from scratch
+        ResponsePath full = route(current, to);
+        assertEquals(full.getDistance(), rerouted.getDistance(), 1);
+        assertEquals(full.getTime(), rerouted.getTime(), 1000);
+        assertEquals(full.getInstructions().size(), rerouted.getInstructions().size());
+        for (int i = 0; i < full.getInstructions().size(); i++) {
+            Instruction expected = full.getInstructions().get(i);
+            Instruction instruction = rerouted.getInstructions().get(i);
+            assertEquals(expected.getSign(), instruction.getSign(), "instruction " + i);
+            assertEquals(expected.getName(), instruction.getName(), "instruction " + i);
+        }
+        assertEquals(full.getWaypoints().toString(), rerouted.getWaypoints().toString());
+
+        // instructions and path details must point into the point list, so the new route can be used for another
+        // re-route
+        int length = 0;
+        for (Instruction instruction : rerouted.getInstructions())
+            length += instruction.getLength();
+        assertEquals(rerouted.getPoints().size() - 1, length);
+        List<PathDetail> edgeIds = rerouted.getPathDetails().get(Parameters.Details.EDGE_ID);
+        assertEquals(0, edgeIds.get(0).getFirst());
+        for (int i = 1; i < edgeIds.size(); i++)
+            assertEquals(edgeIds.get(i - 1).getLast(), edgeIds.get(i).getFirst());
+        assertEquals(rerouted.getPoints().size() - 1, edgeIds.get(edgeIds.size() - 1).getLast());
+        List<PathDetail> expectedEdgeIds = full.getPathDetails().get(Parameters.Details.EDGE_ID);
+        assertEquals(expectedEdgeIds.get(expectedEdgeIds.size() - 1).getValue(), edgeIds.get(edgeIds.size() - 1).getValue());
+    }
+
+    @Test
+    public void testKeepRemainingViaPoint() {
+        PointList points = route(from, to).getPoints();
+        GHPoint via = points.get(points.size() * 5 / 6);
+        RouteStore routeStore = new RouteStore(10);
+        String token = routeStore.put(profile, Arrays.asList(from, via, to), route(from, via, to));
+        Rerouter rerouter = new Rerouter(hopper, routeStore);
+
+        // the driver left the route before the via point
+        GHPoint current = new GHPoint(42.5405, 1.537);
+        ResponsePath rerouted = rerouter.reroute(token, profile, Arrays.asList(current, via, to), Double.NaN, 1, Locale.ENGLISH);
+        assertNotNull(rerouted);
+        ResponsePath full = route(current, via, to);
+        assertEquals(full.getDistance(), rerouted.getDistance(), 1);
+        assertEquals(full.getWaypoints().toString(), rerouted.getWaypoints().toString());
+        assertEquals(1, rerouted.getInstructions().stream().filter(i -> i.getSign() == Instruction.REACHED_VIA).count());
+
+        // the driver is already behind the via point, but did not reach it. joining the route behind it would skip the
+        // via point, so a full route is required
+        current = new GHPoint(42.5113, 1.5493);
+        assertNull(rerouter.reroute(token, profile, Arrays.asList(current, via, to), Double.NaN, 1, Locale.ENGLISH));
+
+        // once the via point was reached the route is joined behind it
+        current = new GHPoint(42.52, 1.542);
+        rerouted = rerouter.reroute(token, profile, Arrays.asList(current, to), Double.NaN, 1, Locale.ENGLISH);
+        assertNotNull(rerouted);
+        full = route(current, to);
+        assertEquals(full.getDistance(), rerouted.getDistance(), 1);
+        assertEquals(full.getWaypoints().toString(), rerouted.getWaypoints().toString());
+        assertEquals(0, rerouted.getInstructions().stream().filter(i -> i.getSign() == Instruction.REACHED_VIA).count());
+    }
+
+    @Test
+    public void testFallback() {
+        RouteStore routeStore = new RouteStore(10);
+        String token = routeStore.put(profile, Arrays.asList(from, to), route(from, to));
+        GHPoint current = new GHPoint(42.5405, 1.537);
+        Rerouter rerouter = new Rerouter(hopper, routeStore);
+        assertNotNull(rerouter.reroute(token, profile, Arrays.asList(current, to), Double.NaN, 1, Locale.ENGLISH));
+
+        // unknown route
+        assertNull(rerouter.reroute("abc", profile, Arrays.asList(current, to), Double.NaN, 1, Locale.ENGLISH));
+        // the destination changed
+        assertNull(rerouter.reroute(token, profile, Arrays.asList(current, new GHPoint(42.51, 1.548)), Double.NaN, 1, Locale.ENGLISH));
+        // the search is stopped before it reaches the route
+        rerouter.setMaxVisitedNodes(5);
+        assertNull(rerouter.reroute(token, profile, Arrays.asList(current, to), Double.NaN, 1, Locale.ENGLISH));
+    }
+
+    @Test
+    public void testRouteStoreEvictsOldestRoute() {
+        RouteStore routeStore = new RouteStore(2);
+        ResponsePath path = new ResponsePath();
+        String first = routeStore.put(profile, Arrays.asList(from, to), path);
+        String second = routeStore.put(profile, Arrays.asList(from, to), path);
+        // access the first route, so the second one is the least recently used
+        assertNotNull(routeStore.get(first));
+        String third = routeStore.put(profile, Arrays.asList(from, to), path);
+        assertEquals(2, routeStore.size());
+        assertNotNull(routeStore.get(first));
+        assertNull(routeStore.get(second));
+        assertNotNull(routeStore.get(third));
+    }
+}
@@ -68,10 +68,10 @@ public final class GraphExplorer {
         this.walkSpeedKmH = walkSpeedKmh;
     }
 
-    Iterable<MultiModalEdge> exploreEdgesAround(Label label) {
+    Iterable<MultiModalEdge> exploreEdgesAround(Label.NodeId node, long currentTime) {
         return () -> {
-            Iterator<MultiModalEdge> ptEdges = label.node.ptNode != -1 ? ptEdgeStream(label.node.ptNode, label.currentTime).iterator() : Collections.emptyIterator();
-            Iterator<MultiModalEdge> streetEdges = label.node.streetNode != -1 ? streetEdgeStream(label.node.streetNode).iterator() : Collections.emptyIterator();
+            Iterator<MultiModalEdge> ptEdges = node.ptNode != -1 ? ptEdgeStream(node.ptNode, currentTime).iterator() : Collections.emptyIterator();
+            Iterator<MultiModalEdge> streetEdges = node.streetNode != -1 ? streetEdgeStream(node.streetNode).iterator() : Collections.emptyIterator();
             return Iterators.concat(ptEdges, streetEdges);
         };
     }
@@ -0,0 +1,79 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.gtfs;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the {@link LabelStore}s of finished searches so their arrays can be reused by the next searches instead of
+ * being allocated and grown again. Stores that grew beyond a limit are dropped to not keep their memory forever.
+ * This class is thread safe.
+ */
+public class LabelPool {
+    // a label takes about 80 bytes, so a pooled store can keep up to about 40MB
+    public static final int DEFAULT_MAX_LABELS_PER_STORE = 500_000;
+    private final Queue<LabelStore> stores = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+    private final int maxStores;
+    private final int maxLabelsPerStore;
+
+    public LabelPool() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_LABELS_PER_STORE);
+    }
+
+    /**
+     * @param maxStores         the maximum number of stores that are kept
+     * @param maxLabelsPerStore stores with a larger capacity are not kept
+     */
+    public LabelPool(int maxStores, int maxLabelsPerStore) {
+        this.maxStores = maxStores;
+        this.maxLabelsPerStore = maxLabelsPerStore;
+    }
+
+    public LabelStore acquire() {
+        LabelStore store = stores.poll();
+        if (store == null)
+            return new LabelStore();
+        pooled.decrementAndGet();
+        return store;
+    }
+
+    /**
+     * Returns the store to the pool. The labels of the store must not be used afterwards, but the Label objects
+     * created from them stay valid.
+     */
+    public void release(LabelStore store) {
+        store.clear();
+        if (store.getCapacity() > maxLabelsPerStore)
+            return;
+        if (pooled.incrementAndGet() > maxStores) {
+            pooled.decrementAndGet();
+            return;
+        }
+        stores.offer(store);
+    }
+
+    /**
+     * @return the number of stores that are currently kept for reuse
+     */
+    public int size() {
+        return pooled.get();
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.gtfs;
+
+import java.util.Arrays;
+
+/**
+ * Stores the labels of a {@link MultiCriteriaLabelSetting} in primitive arrays instead of linked {@link Label} objects.
+ * A label is referenced by its index and points to its parent by index. Label objects are only created for the labels
+ * that are handed out by {@link MultiCriteriaLabelSetting#calcLabels}. The arrays are kept when the store is cleared,
+ * so a store can be reused for many searches, see {@link LabelPool}.
+ */
+public class LabelStore {
+    static final long NO_DEPARTURE_TIME = Long.MIN_VALUE;
+
+    private int size;
+    private long[] currentTime;
+    private GraphExplorer.MultiModalEdge[] edge;
+    private Label.NodeId[] node;
+    private int[] nTransfers;
+    private long[] departureTime;
+    private long[] streetTime;
+    private long[] extraWeight;
+    private long[] residualDelay;
+    private boolean[] impossible;
+    private boolean[] deleted;
+    private int[] parent;
+    private long[] weight;
+    private Label[] labels;
+
+    public LabelStore() {
+        this(1024);
+    }
+
+    public LabelStore(int initialCapacity) {
+        initialCapacity = Math.max(1, initialCapacity);
+        currentTime = new long[initialCapacity];
+        edge = new GraphExplorer.MultiModalEdge[initialCapacity];
+        node = new Label.NodeId[initialCapacity];
+        nTransfers = new int[initialCapacity];
+        departureTime = new long[initialCapacity];
+        streetTime = new long[initialCapacity];
+        extraWeight = new long[initialCapacity];
+        residualDelay = new long[initialCapacity];
+        impossible = new boolean[initialCapacity];
+        deleted = new boolean[initialCapacity];
+        parent = new int[initialCapacity];
+        weight = new long[initialCapacity];
+        labels = new Label[initialCapacity];
+    }
+
+    /**
+     * @param departureTime the departure time or {@link #NO_DEPARTURE_TIME}
+     * @param parent        the index of the parent label or -1
+     * @return the index of the new label
+     */
+    int add(long currentTime, GraphExplorer.MultiModalEdge edge, Label.NodeId node, int nTransfers, long departureTime,
+            long streetTime, long extraWeight, long residualDelay, boolean impossible, int parent, long weight) {
+        if (size == this.currentTime.length)
+            grow();
+        int label = size++;
+        this.currentTime[label] = currentTime;
+        this.edge[label] = edge;
+        this.node[label] = node;
+        this.nTransfers[label] = nTransfers;
+        this.departureTime[label] = departureTime;
+        this.streetTime[label] = streetTime;
+        this.extraWeight[label] = extraWeight;
+        this.residualDelay[label] = residualDelay;
+        this.impossible[label] = impossible;
+        this.deleted[label] = false;
+        this.parent[label] = parent;
+        this.weight[label] = weight;
+        return label;
+    }
+
+    /**
+     * Removes the label that was added last, e.g. because it turned out to be dominated.
+     */
+    void removeLast() {
+        size--;
+        edge[size] = null;
+        node[size] = null;
+        labels[size] = null;
+    }
+
+    private void grow() {
+        int capacity = currentTime.length + (currentTime.length >> 1) + 1;
+        currentTime = Arrays.copyOf(currentTime, capacity);
+        edge = Arrays.copyOf(edge, capacity);
+        node = Arrays.copyOf(node, capacity);
+        nTransfers = Arrays.copyOf(nTransfers, capacity);
+        departureTime = Arrays.copyOf(departureTime, capacity);
+        streetTime = Arrays.copyOf(streetTime, capacity);
+        extraWeight = Arrays.copyOf(extraWeight, capacity);
+        residualDelay = Arrays.copyOf(residualDelay, capacity);
+        impossible = Arrays.copyOf(impossible, capacity);
+        deleted = Arrays.copyOf(deleted, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        weight = Arrays.copyOf(weight, capacity);
+        labels = Arrays.copyOf(labels, capacity);
+    }
+
+    /**
+     * Removes all labels but keeps the allocated arrays.
+     */
+    public void clear() {
+        Arrays.fill(edge, 0, size, null);
+        Arrays.fill(node, 0, size, null);
+        Arrays.fill(labels, 0, size, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of labels that fit into the arrays without growing them
+     */
+    public int getCapacity() {
+        return currentTime.length;
+    }
+
+    public long getCurrentTime(int label) {
+        return currentTime[label];
+    }
+
+    public GraphExplorer.MultiModalEdge getEdge(int label) {
+        return edge[label];
+    }
+
+    public Label.NodeId getNode(int label) {
+        return node[label];
+    }
+
+    public int getTransfers(int label) {
+        return nTransfers[label];
+    }
+
+    long getDepartureTime(int label) {
+        return departureTime[label];
+    }
+
+    public long getStreetTime(int label) {
+        return streetTime[label];
+    }
+
+    long getExtraWeight(int label) {
+        return extraWeight[label];
+    }
+
+    long getResidualDelay(int label) {
+        return residualDelay[label];
+    }
+
+    boolean isImpossible(int label) {
+        return impossible[label];
+    }
+
+    boolean isDeleted(int label) {
+        return deleted[label];
+    }
+
+    void setDeleted(int label) {
+        deleted[label] = true;
+        if (labels[label] != null)
+            labels[label].deleted = true;
+    }
+
+    public int getParent(int label) {
+        return parent[label];
+    }
+
+    long getWeight(int label) {
+        return weight[label];
+    }
+
+    /**
+     * @return the label as an object including the objects of its parents, which are created once and then reused
+     */
+    Label toLabel(int label) {
+        if (labels[label] != null)
+            return labels[label];
+        // find the closest parent that already exists as an object and create the missing ones from there
+        int first = label;
+        int count = 0;
+        while (parent[first] >= 0 && labels[parent[first]] == null) {
+            first = parent[first];
+            count++;
+        }
+        int[] chain = new int[count + 1];
+        for (int i = count, l = label; i >= 0; i--, l = parent[l]) {
+            chain[i] = l;
+        }
+        Label parentLabel = parent[first] >= 0 ? labels[parent[first]] : null;
+        for (int l : chain) {
+            Long departure = departureTime[l] == NO_DEPARTURE_TIME ? null : departureTime[l];
+            parentLabel = new Label(currentTime[l], edge[l], node[l], nTransfers[l], departure, streetTime[l],
+                    extraWeight[l], residualDelay[l], impossible[l], parentLabel);
+            parentLabel.deleted = deleted[l];
+            labels[l] = parentLabel;
+        }
+        return labels[label];
+    }
+}
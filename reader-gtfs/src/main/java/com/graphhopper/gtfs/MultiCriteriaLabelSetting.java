@@ -17,16 +17,25 @@
  */
 package com.graphhopper.gtfs;
 
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.util.CancellationToken;
+
 import java.time.Instant;
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.function.IntPredicate;
 import java.util.function.IntToLongFunction;
 import java.util.function.Predicate;
 
+import static com.graphhopper.gtfs.LabelStore.NO_DEPARTURE_TIME;
+
 /**
  * Implements a Multi-Criteria Label Setting (MLS) path finding algorithm
  * with the criteria earliest arrival time and number of transfers.
  * <p>
+ * The labels of the search are kept in a {@link LabelStore} and only the labels handed out by
+ * {@link #calcLabels(Label.NodeId, Instant)} are created as {@link Label} objects. Searches that only need the
+ * reached nodes and times, like isochrones, can use {@link #calcLabelIds} and a pooled store to avoid most allocations.
  *
  * @author Michael Zilske
  * @author Peter Karich
@@ -34,11 +43,11 @@ import java.util.function.Predicate;
  */
 public class MultiCriteriaLabelSetting {
 
-    private final Comparator<Label> queueComparator;
     private final List<Label> targetLabels;
     private long startTime;
-    private final Map<Label.NodeId, List<Label>> fromMap;
-    private final PriorityQueue<Label> fromHeap;
+    private final LabelStore store;
+    private final Map<Label.NodeId, IntArrayList> fromMap;
+    private final LabelHeap fromHeap;
     private final long maxProfileDuration;
     private final boolean reverse;
     private final boolean mindTransfers;
@@ -49,17 +58,26 @@ public class MultiCriteriaLabelSetting {
     private double betaStreetTime = 1.0;
     private long limitTripTime = Long.MAX_VALUE;
     private long limitStreetTime = Long.MAX_VALUE;
+    private CancellationToken cancellation = CancellationToken.NONE;
+    private int iterations;
 
     public MultiCriteriaLabelSetting(GraphExplorer explorer, boolean reverse, boolean mindTransfers, boolean profileQuery, long maxProfileDuration, List<Label> solutions) {
+        this(explorer, reverse, mindTransfers, profileQuery, maxProfileDuration, solutions, new LabelStore());
+    }
+
+    /**
+     * @param store the store for the labels of this search, which must not be used by another search at the same time
+     */
+    public MultiCriteriaLabelSetting(GraphExplorer explorer, boolean reverse, boolean mindTransfers, boolean profileQuery, long maxProfileDuration, List<Label> solutions, LabelStore store) {
         this.explorer = explorer;
         this.reverse = reverse;
         this.mindTransfers = mindTransfers;
         this.profileQuery = profileQuery;
         this.maxProfileDuration = maxProfileDuration;
         this.targetLabels = solutions;
+        this.store = store;
 
-        queueComparator = new LabelComparator();
-        fromHeap = new PriorityQueue<>(queueComparator);
+        fromHeap = new LabelHeap();
         fromMap = new HashMap<>();
     }
 
@@ -68,6 +86,33 @@ public class MultiCriteriaLabelSetting {
         return () -> Spliterators.iterator(new MultiCriteriaLabelSettingSpliterator(from));
     }
 
+    /**
+     * Like {@link #calcLabels(Label.NodeId, Instant)} but passes the settled labels as indices into
+     * {@link #getLabelStore()} and does not create Label objects.
+     *
+     * @param visitor is called for every settled label and stops the search when it returns false
+     */
+    public void calcLabelIds(Label.NodeId from, Instant startTime, IntPredicate visitor) {
+        this.startTime = startTime.toEpochMilli();
+        addStartLabel(from);
+        int label;
+        while ((label = pollAndRelax()) >= 0) {
+            if (!visitor.test(label))
+                return;
+        }
+    }
+
+    public LabelStore getLabelStore() {
+        return store;
+    }
+
+    /**
+     * Stops the search with a SearchCancelledException when the specified token is cancelled.
+     */
+    public void setCancellation(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+    }
+
     void setBetaTransfers(double betaTransfers) {
         this.betaTransfers = betaTransfers;
     }
@@ -84,115 +129,192 @@ public class MultiCriteriaLabelSetting {
 
         MultiCriteriaLabelSettingSpliterator(Label.NodeId from) {
             super(0, 0);
-            Label label = new Label(startTime, null, from, 0, null, 0, 0L, 0, false, null);
-            ArrayList<Label> labels = new ArrayList<>(1);
-            labels.add(label);
-            fromMap.put(from, labels);
-            fromHeap.add(label);
+            addStartLabel(from);
         }
 
         @Override
         public boolean tryAdvance(Consumer<? super Label> action) {
-            while (!fromHeap.isEmpty() && fromHeap.peek().deleted)
-                fromHeap.poll();
-            if (fromHeap.isEmpty()) {
+            int label = pollAndRelax();
+            if (label < 0)
                 return false;
+            action.accept(store.toLabel(label));
+            return true;
+        }
+    }
+
+    private void addStartLabel(Label.NodeId from) {
+        int label = addLabel(startTime, null, from, 0, NO_DEPARTURE_TIME, 0, 0L, 0, false, -1);
+        IntArrayList labels = new IntArrayList(1);
+        labels.add(label);
+        fromMap.put(from, labels);
+        fromHeap.add(label);
+    }
+
+    /**
+     * Settles the next label and inserts the labels of its outgoing edges.
+     *
+     * @return the settled label or -1 if there are no more labels
+     */
+    private int pollAndRelax() {
+        cancellation.check(++iterations);
+        while (!fromHeap.isEmpty() && store.isDeleted(fromHeap.peek()))
+            fromHeap.poll();
+        if (fromHeap.isEmpty())
+            return -1;
+        int label = fromHeap.poll();
+        long currentTime = store.getCurrentTime(label);
+        int labelTransfers = store.getTransfers(label);
+        long labelStreetTime = store.getStreetTime(label);
+        long labelResidualDelay = store.getResidualDelay(label);
+        GraphExplorer.MultiModalEdge labelEdge = store.getEdge(label);
+        for (GraphExplorer.MultiModalEdge edge : explorer.exploreEdgesAround(store.getNode(label), currentTime)) {
+            long nextTime;
+            if (reverse) {
+                nextTime = currentTime - explorer.calcTravelTimeMillis(edge, currentTime);
+            } else {
+                nextTime = currentTime + explorer.calcTravelTimeMillis(edge, currentTime);
+            }
+            int nTransfers = labelTransfers + edge.getTransfers();
+            long extraWeight = store.getExtraWeight(label);
+            long firstPtDepartureTime = store.getDepartureTime(label);
+            GtfsStorage.EdgeType edgeType = edge.getType();
+            if (!reverse && (edgeType == GtfsStorage.EdgeType.ENTER_PT) || reverse && (edgeType == GtfsStorage.EdgeType.EXIT_PT)) {
+                extraWeight += transferPenaltiesByRouteType.applyAsLong(edge.getRouteType());
+            }
+            if (edgeType == GtfsStorage.EdgeType.TRANSFER) {
+                extraWeight += transferPenaltiesByRouteType.applyAsLong(edge.getRouteType());
+            }
+            if (!reverse && (edgeType == GtfsStorage.EdgeType.ENTER_TIME_EXPANDED_NETWORK || edgeType == GtfsStorage.EdgeType.WAIT)) {
+                if (labelTransfers == 0) {
+                    firstPtDepartureTime = nextTime - labelStreetTime;
+                }
+            } else if (reverse && (edgeType == GtfsStorage.EdgeType.LEAVE_TIME_EXPANDED_NETWORK || edgeType == GtfsStorage.EdgeType.WAIT_ARRIVAL)) {
+                if (labelTransfers == 0) {
+                    firstPtDepartureTime = nextTime + labelStreetTime;
+                }
+            }
+            long walkTime = labelStreetTime + (edgeType == GtfsStorage.EdgeType.HIGHWAY || edgeType == GtfsStorage.EdgeType.ENTER_PT || edgeType == GtfsStorage.EdgeType.EXIT_PT ? ((reverse ? -1 : 1) * (nextTime - currentTime)) : 0);
+            if (walkTime > limitStreetTime)
+                continue;
+            if (Math.abs(nextTime - startTime) > limitTripTime)
+                continue;
+            boolean result = false;
+            if (labelEdge != null) {
+                result = labelEdge.getType() == GtfsStorage.EdgeType.EXIT_PT;
+            }
+            if (edgeType == GtfsStorage.EdgeType.ENTER_PT && result) {
+                continue;
+            }
+            boolean impossible = store.isImpossible(label)
+                    || explorer.isBlocked(edge)
+                    || (!reverse) && edgeType == GtfsStorage.EdgeType.BOARD && labelResidualDelay > 0
+                    || reverse && edgeType == GtfsStorage.EdgeType.ALIGHT && labelResidualDelay < explorer.getDelayFromAlightEdge(edge, currentTime);
+            long residualDelay;
+            if (!reverse) {
+                if (edgeType == GtfsStorage.EdgeType.WAIT || edgeType == GtfsStorage.EdgeType.TRANSFER) {
+                    residualDelay = Math.max(0, labelResidualDelay - explorer.calcTravelTimeMillis(edge, currentTime));
+                } else if (edgeType == GtfsStorage.EdgeType.ALIGHT) {
+                    residualDelay = labelResidualDelay + explorer.getDelayFromAlightEdge(edge, currentTime);
+                } else if (edgeType == GtfsStorage.EdgeType.BOARD) {
+                    residualDelay = -explorer.getDelayFromBoardEdge(edge, currentTime);
+                } else {
+                    residualDelay = labelResidualDelay;
+                }
             } else {
-                Label label = fromHeap.poll();
-                action.accept(label);
-                for (GraphExplorer.MultiModalEdge edge : explorer.exploreEdgesAround(label)) {
-                    long nextTime;
-                    if (reverse) {
-                        nextTime = label.currentTime - explorer.calcTravelTimeMillis(edge, label.currentTime);
-                    } else {
-                        nextTime = label.currentTime + explorer.calcTravelTimeMillis(edge, label.currentTime);
-                    }
-                    int nTransfers = label.nTransfers + edge.getTransfers();
-                    long extraWeight = label.extraWeight;
-                    Long firstPtDepartureTime = label.departureTime;
-                    GtfsStorage.EdgeType edgeType = edge.getType();
-                    if (!reverse && (edgeType == GtfsStorage.EdgeType.ENTER_PT) || reverse && (edgeType == GtfsStorage.EdgeType.EXIT_PT)) {
-                        extraWeight += transferPenaltiesByRouteType.applyAsLong(edge.getRouteType());
-                    }
-                    if (edgeType == GtfsStorage.EdgeType.TRANSFER) {
-                        extraWeight += transferPenaltiesByRouteType.applyAsLong(edge.getRouteType());
-                    }
-                    if (!reverse && (edgeType == GtfsStorage.EdgeType.ENTER_TIME_EXPANDED_NETWORK || edgeType == GtfsStorage.EdgeType.WAIT)) {
-                        if (label.nTransfers == 0) {
-                            firstPtDepartureTime = nextTime - label.streetTime;
-                        }
-                    } else if (reverse && (edgeType == GtfsStorage.EdgeType.LEAVE_TIME_EXPANDED_NETWORK || edgeType == GtfsStorage.EdgeType.WAIT_ARRIVAL)) {
-                        if (label.nTransfers == 0) {
-                            firstPtDepartureTime = nextTime + label.streetTime;
-                        }
-                    }
-                    long walkTime = label.streetTime + (edgeType == GtfsStorage.EdgeType.HIGHWAY || edgeType == GtfsStorage.EdgeType.ENTER_PT || edgeType == GtfsStorage.EdgeType.EXIT_PT ? ((reverse ? -1 : 1) * (nextTime - label.currentTime)) : 0);
-                    if (walkTime > limitStreetTime)
-                        continue;
-                    if (Math.abs(nextTime - startTime) > limitTripTime)
-                        continue;
-                    boolean result = false;
-                    if (label.edge != null) {
-                        result = label.edge.getType() == GtfsStorage.EdgeType.EXIT_PT;
-                    }
-                    if (edgeType == GtfsStorage.EdgeType.ENTER_PT && result) {
-                        continue;
-                    }
-                    boolean impossible = label.impossible
-                            || explorer.isBlocked(edge)
-                            || (!reverse) && edgeType == GtfsStorage.EdgeType.BOARD && label.residualDelay > 0
-                            || reverse && edgeType == GtfsStorage.EdgeType.ALIGHT && label.residualDelay < explorer.getDelayFromAlightEdge(edge, label.currentTime);
-                    long residualDelay;
-                    if (!reverse) {
-                        if (edgeType == GtfsStorage.EdgeType.WAIT || edgeType == GtfsStorage.EdgeType.TRANSFER) {
-                            residualDelay = Math.max(0, label.residualDelay - explorer.calcTravelTimeMillis(edge, label.currentTime));
-                        } else if (edgeType == GtfsStorage.EdgeType.ALIGHT) {
-                            residualDelay = label.residualDelay + explorer.getDelayFromAlightEdge(edge, label.currentTime);
-                        } else if (edgeType == GtfsStorage.EdgeType.BOARD) {
-                            residualDelay = -explorer.getDelayFromBoardEdge(edge, label.currentTime);
-                        } else {
-                            residualDelay = label.residualDelay;
-                        }
-                    } else {
-                        if (edgeType == GtfsStorage.EdgeType.WAIT || edgeType == GtfsStorage.EdgeType.TRANSFER) {
-                            residualDelay = label.residualDelay + explorer.calcTravelTimeMillis(edge, label.currentTime);
-                        } else {
-                            residualDelay = 0;
-                        }
-                    }
-                    if (!reverse && edgeType == GtfsStorage.EdgeType.LEAVE_TIME_EXPANDED_NETWORK && residualDelay > 0) {
-                        Label newImpossibleLabelForDelayedTrip = new Label(nextTime, edge, edge.getAdjNode(), nTransfers, firstPtDepartureTime, walkTime, extraWeight, residualDelay, true, label);
-                        insertIfNotDominated(newImpossibleLabelForDelayedTrip);
-                        nextTime += residualDelay;
-                        residualDelay = 0;
-                        Label newLabel = new Label(nextTime, edge, edge.getAdjNode(), nTransfers, firstPtDepartureTime, walkTime, extraWeight, residualDelay, impossible, label);
-                        insertIfNotDominated(newLabel);
-                    } else {
-                        Label newLabel = new Label(nextTime, edge, edge.getAdjNode(), nTransfers, firstPtDepartureTime, walkTime, extraWeight, residualDelay, impossible, label);
-                        insertIfNotDominated(newLabel);
-                    }
+                if (edgeType == GtfsStorage.EdgeType.WAIT || edgeType == GtfsStorage.EdgeType.TRANSFER) {
+                    residualDelay = labelResidualDelay + explorer.calcTravelTimeMillis(edge, currentTime);
+                } else {
+                    residualDelay = 0;
                 }
-                return true;
             }
+            if (!reverse && edgeType == GtfsStorage.EdgeType.LEAVE_TIME_EXPANDED_NETWORK && residualDelay > 0) {
+                insertIfNotDominated(addLabel(nextTime, edge, edge.getAdjNode(), nTransfers, firstPtDepartureTime, walkTime, extraWeight, residualDelay, true, label));
+                nextTime += residualDelay;
+                residualDelay = 0;
+            }
+            insertIfNotDominated(addLabel(nextTime, edge, edge.getAdjNode(), nTransfers, firstPtDepartureTime, walkTime, extraWeight, residualDelay, impossible, label));
         }
+        return label;
     }
 
+    private int addLabel(long currentTime, GraphExplorer.MultiModalEdge edge, Label.NodeId node, int nTransfers, long departureTime,
+                         long streetTime, long extraWeight, long residualDelay, boolean impossible, int parent) {
+        long weight = weight(currentTime, nTransfers, streetTime, extraWeight);
+        return store.add(currentTime, edge, node, nTransfers, departureTime, streetTime, extraWeight, residualDelay, impossible, parent, weight);
+    }
 
-    void insertIfNotDominated(Label me) {
-        Predicate<Label> filter;
-        if (profileQuery && me.departureTime != null) {
-            filter = (targetLabel) -> (!reverse ? prc(me, targetLabel) : rprc(me, targetLabel));
-        } else {
-            filter = label -> true;
-        }
-        if (isNotDominatedByAnyOf(me, targetLabels, filter)) {
-            List<Label> sptEntries = fromMap.computeIfAbsent(me.node, k -> new ArrayList<>(1));
-            if (isNotDominatedByAnyOf(me, sptEntries, filter)) {
-                removeDominated(me, sptEntries, filter);
+    /**
+     * Keeps the label, which must be the last one that was added to the store, if it is not dominated, and removes it
+     * from the store otherwise.
+     */
+    private void insertIfNotDominated(int me) {
+        boolean filtered = profileQuery && store.getDepartureTime(me) != NO_DEPARTURE_TIME;
+        if (isNotDominatedByAnyTarget(me, filtered)) {
+            IntArrayList sptEntries = fromMap.computeIfAbsent(store.getNode(me), k -> new IntArrayList(1));
+            if (isNotDominatedByAnyOf(me, sptEntries, filtered)) {
+                removeDominated(me, sptEntries, filtered);
                 sptEntries.add(me);
                 fromHeap.add(me);
+                return;
             }
         }
+        store.removeLast();
+    }
+
+    private boolean isNotDominatedByAnyTarget(int me, boolean filtered) {
+        long meDepartureTime = store.getDepartureTime(me);
+        for (Label they : targetLabels) {
+            if (filtered && !profileRangeContains(meDepartureTime, they.departureTime))
+                continue;
+            if (dominates(weight(they), they.nTransfers, they.impossible, they.streetTime, departureTime(they),
+                    store.getWeight(me), store.getTransfers(me), store.isImpossible(me), store.getStreetTime(me), meDepartureTime))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean isNotDominatedByAnyOf(int me, IntArrayList sptEntries, boolean filtered) {
+        long meDepartureTime = store.getDepartureTime(me);
+        int[] buffer = sptEntries.buffer;
+        for (int i = 0; i < sptEntries.size(); i++) {
+            int they = buffer[i];
+            if (filtered && !profileRangeContains(meDepartureTime, store.getDepartureTime(they)))
+                continue;
+            if (dominates(they, me))
+                return false;
+        }
+        return true;
+    }
+
+    private void removeDominated(int me, IntArrayList sptEntries, boolean filtered) {
+        long meDepartureTime = store.getDepartureTime(me);
+        int[] buffer = sptEntries.buffer;
+        int kept = 0;
+        for (int i = 0; i < sptEntries.size(); i++) {
+            int sptEntry = buffer[i];
+            if ((!filtered || profileRangeContains(meDepartureTime, store.getDepartureTime(sptEntry))) && dominates(me, sptEntry)) {
+                store.setDeleted(sptEntry);
+            } else {
+                buffer[kept++] = sptEntry;
+            }
+        }
+        sptEntries.elementsCount = kept;
+    }
+
+    private boolean profileRangeContains(long meDepartureTime, Long theyDepartureTime) {
+        return theyDepartureTime != null && profileRangeContains(meDepartureTime, (long) theyDepartureTime);
+    }
+
+    /**
+     * Same as {@link #prc} and {@link #rprc} for the departure times of two labels.
+     */
+    private boolean profileRangeContains(long meDepartureTime, long theyDepartureTime) {
+        if (theyDepartureTime == NO_DEPARTURE_TIME)
+            return false;
+        if (!reverse)
+            return theyDepartureTime >= meDepartureTime || theyDepartureTime >= startTime + maxProfileDuration;
+        else
+            return theyDepartureTime <= meDepartureTime || theyDepartureTime <= startTime - maxProfileDuration;
     }
 
     boolean rprc(Label me, Label they) {
@@ -223,24 +345,40 @@ public class MultiCriteriaLabelSetting {
     }
 
     private boolean dominates(Label me, Label they) {
-        if (weight(me) > weight(they))
+        return dominates(weight(me), me.nTransfers, me.impossible, me.streetTime, departureTime(me),
+                weight(they), they.nTransfers, they.impossible, they.streetTime, departureTime(they));
+    }
+
+    private boolean dominates(int me, int they) {
+        return dominates(store.getWeight(me), store.getTransfers(me), store.isImpossible(me), store.getStreetTime(me), store.getDepartureTime(me),
+                store.getWeight(they), store.getTransfers(they), store.isImpossible(they), store.getStreetTime(they), store.getDepartureTime(they));
+    }
+
+    private boolean dominates(long meWeight, int meTransfers, boolean meImpossible, long meStreetTime, long meDepartureTime,
+                              long theyWeight, int theyTransfers, boolean theyImpossible, long theyStreetTime, long theyDepartureTime) {
+        if (meWeight > theyWeight)
             return false;
 
-        if (mindTransfers && me.nTransfers > they.nTransfers)
+        if (mindTransfers && meTransfers > theyTransfers)
             return false;
-        if (me.impossible && !they.impossible)
+        if (meImpossible && !theyImpossible)
             return false;
 
-        if (weight(me) < weight(they))
+        if (meWeight < theyWeight)
             return true;
-        if (mindTransfers && me.nTransfers < they.nTransfers)
+        if (mindTransfers && meTransfers < theyTransfers)
             return true;
 
-        return queueComparator.compare(me, they) <= 0;
+        return compare(meWeight, meTransfers, meStreetTime, meDepartureTime, meImpossible,
+                theyWeight, theyTransfers, theyStreetTime, theyDepartureTime, theyImpossible) <= 0;
     }
 
     long weight(Label label) {
-        return timeSinceStartTime(label) + (long) (label.nTransfers * betaTransfers) + (long) (label.streetTime * (betaStreetTime - 1.0)) + label.extraWeight;
+        return weight(label.currentTime, label.nTransfers, label.streetTime, label.extraWeight);
+    }
+
+    private long weight(long currentTime, int nTransfers, long streetTime, long extraWeight) {
+        return (reverse ? -1 : 1) * (currentTime - startTime) + (long) (nTransfers * betaTransfers) + (long) (streetTime * (betaStreetTime - 1.0)) + extraWeight;
     }
 
     long timeSinceStartTime(Label label) {
@@ -251,6 +389,10 @@ public class MultiCriteriaLabelSetting {
         return label.departureTime != null ? (reverse ? -1 : 1) * (label.departureTime - startTime) : null;
     }
 
+    private static long departureTime(Label label) {
+        return label.departureTime != null ? label.departureTime : NO_DEPARTURE_TIME;
+    }
+
     public void setLimitTripTime(long limitTripTime) {
         this.limitTripTime = limitTripTime;
     }
@@ -259,27 +401,84 @@ public class MultiCriteriaLabelSetting {
         this.limitStreetTime = limitStreetTime;
     }
 
-    private class LabelComparator implements Comparator<Label> {
+    private int compare(long weight1, int transfers1, long streetTime1, long departureTime1, boolean impossible1,
+                        long weight2, int transfers2, long streetTime2, long departureTime2, boolean impossible2) {
+        int c = Long.compare(weight1, weight2);
+        if (c != 0)
+            return c;
+        c = Integer.compare(transfers1, transfers2);
+        if (c != 0)
+            return c;
 
-        @Override
-        public int compare(Label o1, Label o2) {
-            int c = Long.compare(weight(o1), weight(o2));
-            if (c != 0)
-                return c;
-            c = Integer.compare(o1.nTransfers, o2.nTransfers);
-            if (c != 0)
-                return c;
-
-            c = Long.compare(o1.streetTime, o2.streetTime);
-            if (c != 0)
-                return c;
-
-            c = Long.compare(o1.departureTime != null ? reverse ? o1.departureTime : -o1.departureTime : 0, o2.departureTime != null ? reverse ? o2.departureTime : -o2.departureTime : 0);
-            if (c != 0)
-                return c;
-
-            c = Integer.compare(o1.impossible ? 1 : 0, o2.impossible ? 1 : 0);
+        c = Long.compare(streetTime1, streetTime2);
+        if (c != 0)
             return c;
+
+        c = Long.compare(departureTime1 != NO_DEPARTURE_TIME ? reverse ? departureTime1 : -departureTime1 : 0, departureTime2 != NO_DEPARTURE_TIME ? reverse ? departureTime2 : -departureTime2 : 0);
+        if (c != 0)
+            return c;
+
+        c = Integer.compare(impossible1 ? 1 : 0, impossible2 ? 1 : 0);
+        return c;
+    }
+
+    private int compare(int label1, int label2) {
+        return compare(store.getWeight(label1), store.getTransfers(label1), store.getStreetTime(label1), store.getDepartureTime(label1), store.isImpossible(label1),
+                store.getWeight(label2), store.getTransfers(label2), store.getStreetTime(label2), store.getDepartureTime(label2), store.isImpossible(label2));
+    }
+
+    /**
+     * A binary min-heap of label indices. It sifts exactly like {@link PriorityQueue} so labels that compare equal
+     * are settled in the same order as before.
+     */
+    private class LabelHeap {
+        private int[] queue = new int[16];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int peek() {
+            return queue[0];
+        }
+
+        void add(int label) {
+            if (size == queue.length)
+                queue = Arrays.copyOf(queue, queue.length < 64 ? queue.length * 2 + 2 : queue.length + (queue.length >> 1));
+            int k = size++;
+            while (k > 0) {
+                int parent = (k - 1) >>> 1;
+                int e = queue[parent];
+                if (compare(label, e) >= 0)
+                    break;
+                queue[k] = e;
+                k = parent;
+            }
+            queue[k] = label;
+        }
+
+        int poll() {
+            int result = queue[0];
+            int n = --size;
+            if (n > 0) {
+                int label = queue[n];
+                int k = 0;
+                int half = n >>> 1;
+                while (k < half) {
+                    int child = (k << 1) + 1;
+                    int c = queue[child];
+                    int right = child + 1;
+                    if (right < n && compare(c, queue[right]) > 0)
+                        c = queue[child = right];
+                    if (compare(label, c) <= 0)
+                        break;
+                    queue[k] = c;
+                    k = child;
+                }
+                queue[k] = label;
+            }
+            return result;
         }
     }
 }
@@ -38,6 +38,7 @@ import com.graphhopper.util.*;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
 import com.graphhopper.util.exceptions.ConnectionNotFoundException;
 import com.graphhopper.util.exceptions.MaximumNodesExceededException;
+import com.graphhopper.util.exceptions.SearchCancelledException;
 
 import javax.inject.Inject;
 import java.time.Instant;
@@ -110,6 +111,7 @@ public final class PtRouterImpl implements PtRouter {
 
     private class RequestHandler {
         private final int maxVisitedNodesForRequest;
+        private final CancellationToken cancellation;
         private final int limitSolutions;
         private final long maxProfileDuration;
         private final Instant initialTime;
@@ -142,6 +144,7 @@ public final class PtRouterImpl implements PtRouter {
 
         RequestHandler(Request request) {
             maxVisitedNodesForRequest = request.getMaxVisitedNodes();
+            cancellation = request.getCancellation();
             profileQuery = request.isProfileQuery();
             ignoreTransfers = Optional.ofNullable(request.getIgnoreTransfers()).orElse(request.isProfileQuery());
             betaTransfers = request.getBetaTransfers();
@@ -182,7 +185,13 @@ public final class PtRouterImpl implements PtRouter {
                 startNode = result.nodes.get(0);
                 destNode = result.nodes.get(1);
             }
-            List<List<Label.Transition>> solutions = findPaths(startNode, destNode);
+            List<List<Label.Transition>> solutions;
+            try {
+                solutions = findPaths(startNode, destNode);
+            } catch (SearchCancelledException ex) {
+                response.addError(ex);
+                return response;
+            }
             parseSolutionsAndAddToResponse(solutions, result.points);
             return response;
         }
@@ -207,6 +216,7 @@ public final class PtRouterImpl implements PtRouter {
             final GraphExplorer accessEgressGraphExplorer = new GraphExplorer(queryGraph, ptGraph, isEgress ? egressWeighting : accessWeighting, gtfsStorage, realtimeFeed, isEgress, true, false, walkSpeedKmH, false, blockedRouteTypes);
             GtfsStorage.EdgeType edgeType = isEgress ? GtfsStorage.EdgeType.EXIT_PT : GtfsStorage.EdgeType.ENTER_PT;
             MultiCriteriaLabelSetting stationRouter = new MultiCriteriaLabelSetting(accessEgressGraphExplorer, isEgress, false, false, maxProfileDuration, new ArrayList<>());
+            stationRouter.setCancellation(cancellation);
             stationRouter.setBetaStreetTime(betaStreetTime);
             stationRouter.setLimitStreetTime(limitStreetTime);
             List<Label> stationLabels = new ArrayList<>();
@@ -228,6 +238,7 @@ public final class PtRouterImpl implements PtRouter {
             GraphExplorer graphExplorer = new GraphExplorer(queryGraph, ptGraph, arriveBy ? egressWeighting : accessWeighting, gtfsStorage, realtimeFeed, arriveBy, false, true, walkSpeedKmH, false, blockedRouteTypes);
             List<Label> discoveredSolutions = new ArrayList<>();
             router = new MultiCriteriaLabelSetting(graphExplorer, arriveBy, !ignoreTransfers, profileQuery, maxProfileDuration, discoveredSolutions);
+            router.setCancellation(cancellation);
             router.setBetaTransfers(betaTransfers);
             router.setBetaStreetTime(betaStreetTime);
             router.setBoardingPenaltyByRouteType(routeType -> transferPenaltiesByRouteType.getOrDefault(routeType, 0L));
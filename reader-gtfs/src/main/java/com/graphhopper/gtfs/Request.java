@@ -18,6 +18,7 @@
 
 package com.graphhopper.gtfs;
 
+import com.graphhopper.util.CancellationToken;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.shapes.GHPoint;
 
@@ -45,6 +46,7 @@ public class Request {
     private List<String> pathDetails = new ArrayList<>();
     private String accessProfile = "foot";
     private String egressProfile = "foot";
+    private CancellationToken cancellation = CancellationToken.NONE;
 
     public Request(List<GHLocation> points, Instant departureTime) {
         this.points = points;
@@ -63,6 +65,14 @@ public class Request {
         this.maxVisitedNodes = maxVisitedNodes;
     }
 
+    public CancellationToken getCancellation() {
+        return cancellation;
+    }
+
+    public void setCancellation(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+    }
+
     public boolean isProfileQuery() {
         return profileQuery;
     }
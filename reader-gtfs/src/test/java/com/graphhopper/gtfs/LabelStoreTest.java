@@ -0,0 +1,98 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.gtfs;
+
+import org.junit.jupiter.api.Test;
+
+import static com.graphhopper.gtfs.LabelStore.NO_DEPARTURE_TIME;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LabelStoreTest {
+
+    @Test
+    public void testToLabel() {
+        LabelStore store = new LabelStore(2);
+        Label.NodeId a = new Label.NodeId(0, -1);
+        Label.NodeId b = new Label.NodeId(1, -1);
+        Label.NodeId c = new Label.NodeId(-1, 5);
+        int first = store.add(1000, null, a, 0, NO_DEPARTURE_TIME, 0, 0, 0, false, -1, 0);
+        int second = store.add(2000, null, b, 0, NO_DEPARTURE_TIME, 1000, 0, 0, false, first, 1000);
+        int third = store.add(3000, null, c, 1, 1500, 1000, 7, 0, true, second, 2000);
+        assertEquals(3, store.size());
+        assertTrue(store.getCapacity() >= 3);
+
+        Label label = store.toLabel(third);
+        assertEquals(3000, label.currentTime);
+        assertEquals(c, label.node);
+        assertEquals(1, label.nTransfers);
+        assertEquals(1500L, label.departureTime);
+        assertEquals(7, label.extraWeight);
+        assertTrue(label.impossible);
+        assertEquals(b, label.parent.node);
+        assertNull(label.parent.departureTime);
+        assertEquals(a, label.parent.parent.node);
+        assertNull(label.parent.parent.parent);
+        // the objects are created only once
+        assertSame(label, store.toLabel(third));
+        assertSame(label.parent, store.toLabel(second));
+
+        store.setDeleted(second);
+        assertTrue(store.isDeleted(second));
+        assertTrue(label.parent.deleted);
+    }
+
+    @Test
+    public void testRemoveLastAndClear() {
+        LabelStore store = new LabelStore(1);
+        Label.NodeId node = new Label.NodeId(0, -1);
+        int first = store.add(1000, null, node, 0, NO_DEPARTURE_TIME, 0, 0, 0, false, -1, 0);
+        store.add(2000, null, node, 0, NO_DEPARTURE_TIME, 0, 0, 0, false, first, 1000);
+        store.removeLast();
+        assertEquals(1, store.size());
+        assertEquals(1, store.add(3000, null, node, 0, NO_DEPARTURE_TIME, 0, 0, 0, false, first, 2000));
+        assertEquals(3000, store.toLabel(1).currentTime);
+
+        int capacity = store.getCapacity();
+        store.clear();
+        assertEquals(0, store.size());
+        assertEquals(capacity, store.getCapacity());
+        assertEquals(0, store.add(4000, null, node, 0, NO_DEPARTURE_TIME, 0, 0, 0, false, -1, 0));
+        assertEquals(4000, store.toLabel(0).currentTime);
+        assertNull(store.toLabel(0).parent);
+    }
+
+    @Test
+    public void testPool() {
+        LabelPool pool = new LabelPool(1, 2000);
+        LabelStore store1 = pool.acquire();
+        LabelStore store2 = pool.acquire();
+        assertNotSame(store1, store2);
+        store1.add(1000, null, new Label.NodeId(0, -1), 0, NO_DEPARTURE_TIME, 0, 0, 0, false, -1, 0);
+        pool.release(store1);
+        assertEquals(0, store1.size());
+        // only one store is kept
+        pool.release(store2);
+        assertEquals(1, pool.size());
+        assertSame(store1, pool.acquire());
+        assertEquals(0, pool.size());
+
+        // stores that grew too much are dropped
+        pool.release(new LabelStore(3000));
+        assertEquals(0, pool.size());
+    }
+}
@@ -0,0 +1,482 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.util.Constants;
+import com.graphhopper.util.PMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Replays a request log against a running GraphHopper server and measures the latency and error rate per endpoint,
+ * e.g. for /route, /isochrone, /match and /mvt. Unlike {@link Measurement} this measures the whole request including
+ * serialization and can run requests concurrently at a given rate, so it shows how the server behaves under load.
+ * <p>
+ * Every line of the log is one request. It can be a line of the Jetty request log, where only the quoted request line
+ * is used, or just the method and the path like <code>GET /route?point=..&amp;point=..</code>. The method can be
+ * omitted for GET requests. POST requests need a body, which is read from the file specified after an @, e.g.
+ * <code>POST /match?profile=car @tracks/track1.gpx</code>. The file is resolved relative to the log.
+ * <p>
+ * Example: java -cp tools/target/graphhopper-tools-*-jar-with-dependencies.jar com.graphhopper.tools.LoadTest
+ * loadtest.log=requests.log loadtest.url=http://localhost:8989 loadtest.concurrency=8 loadtest.rate=50
+ */
+public class LoadTest {
+    private static final Logger logger = LoggerFactory.getLogger(LoadTest.class);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final Map<String, Object> properties = new TreeMap<>();
+    private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+    private String baseUrl;
+    private int timeoutMillis;
+
+    public static void main(String[] strs) throws Exception {
+        new LoadTest().start(PMap.read(strs));
+    }
+
+    void start(PMap args) throws Exception {
+        String logLocation = args.getString("loadtest.log", "");
+        if (logLocation.isEmpty())
+            throw new IllegalArgumentException("Specify the request log via loadtest.log");
+        baseUrl = args.getString("loadtest.url", "http://localhost:8989");
+        if (baseUrl.endsWith("/"))
+            baseUrl = baseUrl.substring(0, baseUrl.length() - 1);
+        int concurrency = args.getInt("loadtest.concurrency", 1);
+        // requests per second, 0 means as fast as possible
+        double rate = args.getDouble("loadtest.rate", 0);
+        int repeats = args.getInt("loadtest.repeats", 1);
+        int warmup = args.getInt("loadtest.warmup", 0);
+        int limit = args.getInt("loadtest.limit", Integer.MAX_VALUE);
+        timeoutMillis = args.getInt("loadtest.timeout_ms", 60_000);
+        String summaryLocation = args.getString("loadtest.summaryfile", "");
+        String timeStamp = new SimpleDateFormat("yyyy-MM-dd_HH_mm_ss").format(new Date());
+        String jsonLocation = args.getString("loadtest.json", "loadtest_" + timeStamp + ".json");
+
+        List<LoggedRequest> requests = readLog(Paths.get(logLocation));
+        if (requests.isEmpty())
+            throw new IllegalArgumentException("The request log " + logLocation + " contains no requests");
+        List<LoggedRequest> replay = new ArrayList<>();
+        for (int i = 0; i < repeats && replay.size() < limit; i++) {
+            replay.addAll(requests.subList(0, Math.min(requests.size(), limit - replay.size())));
+        }
+        logger.info("replaying " + replay.size() + " requests against " + baseUrl + " with concurrency " + concurrency
+                + (rate > 0 ? " at " + rate + " requests/s" : ""));
+
+        put("loadtest.name", args.getString("loadtest.name", "no_name"));
+        put("loadtest.log", logLocation);
+        put("loadtest.url", baseUrl);
+        put("loadtest.concurrency", concurrency);
+        put("loadtest.rate", rate);
+        put("loadtest.gitinfo", args.getString("loadtest.gitinfo", ""));
+        put("loadtest.timestamp", timeStamp);
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            if (warmup > 0) {
+                logger.info("warming up with " + warmup + " requests");
+                replay(executor, concurrency, 0, replay.subList(0, Math.min(warmup, replay.size())), false);
+            }
+            long timeNanos = replay(executor, concurrency, rate, replay, true);
+            put("loadtest.requests", replay.size());
+            put("loadtest.time", timeNanos / 1_000_000);
+            put("loadtest.throughput", replay.size() * 1e9 / timeNanos);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        EndpointStats total = new EndpointStats();
+        for (Map.Entry<String, EndpointStats> entry : new TreeMap<>(stats).entrySet()) {
+            entry.getValue().put(entry.getKey());
+            total.add(entry.getValue());
+        }
+        total.put("total");
+        for (Map.Entry<String, Object> entry : properties.entrySet()) {
+            logger.info(entry.getKey() + ": " + entry.getValue());
+        }
+        storeJson(jsonLocation);
+        if (!summaryLocation.isEmpty())
+            writeSummary(summaryLocation, jsonLocation);
+    }
+
+    /**
+     * Sends the requests with at most the specified number of requests at the same time. If a rate is specified the
+     * requests are started at fixed intervals and their latency is measured from the time they should have been
+     * started, so a server that falls behind cannot hide its queueing time (coordinated omission).
+     *
+     * @return the time it took to send all requests in nanoseconds
+     */
+    private long replay(ExecutorService executor, int concurrency, double rate, List<LoggedRequest> requests, boolean record)
+            throws InterruptedException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        long start = System.nanoTime();
+        for (int i = 0; i < requests.size(); i++) {
+            LoggedRequest request = requests.get(i);
+            long intendedStart = rate > 0 ? start + (long) (i * 1e9 / rate) : 0;
+            if (rate > 0) {
+                long sleepNanos = intendedStart - System.nanoTime();
+                if (sleepNanos > 0)
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            }
+            inFlight.acquire();
+            executor.execute(() -> {
+                try {
+                    long requestStart = rate > 0 ? intendedStart : System.nanoTime();
+                    int status = send(request);
+                    if (record)
+                        getStats(request.endpoint).record(System.nanoTime() - requestStart, status);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+        inFlight.acquire(concurrency);
+        inFlight.release(concurrency);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * @return the status code of the response or -1 if the request failed without a response
+     */
+    private int send(LoggedRequest request) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(baseUrl + request.path).openConnection();
+            connection.setRequestMethod(request.method);
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            if (request.body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", request.contentType);
+                try (OutputStream os = connection.getOutputStream()) {
+                    os.write(request.body);
+                }
+            }
+            int status = connection.getResponseCode();
+            // read the whole response, so the time includes the transfer and the connection can be reused
+            InputStream is = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (is != null) {
+                try (InputStream in = is) {
+                    byte[] buffer = new byte[8192];
+                    while (in.read(buffer) >= 0) {
+                        // discard
+                    }
+                }
+            }
+            return status;
+        } catch (IOException e) {
+            logger.debug("request failed: " + request.path, e);
+            if (connection != null)
+                connection.disconnect();
+            return -1;
+        }
+    }
+
+    private EndpointStats getStats(String endpoint) {
+        return stats.computeIfAbsent(endpoint, k -> new EndpointStats());
+    }
+
+    static List<LoggedRequest> readLog(Path logFile) throws IOException {
+        List<LoggedRequest> requests = new ArrayList<>();
+        Path folder = logFile.toAbsolutePath().getParent();
+        for (String line : Files.readAllLines(logFile, StandardCharsets.UTF_8)) {
+            LoggedRequest request = parseLine(line, folder);
+            if (request != null)
+                requests.add(request);
+        }
+        return requests;
+    }
+
+    /**
+     * @return the request of the line or null if the line is empty, a comment or not a request
+     */
+    static LoggedRequest parseLine(String line, Path folder) throws IOException {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#"))
+            return null;
+        // the request log of Jetty contains the request line in quotes: "GET /route?... HTTP/1.1"
+        int quote = line.indexOf('"');
+        if (quote >= 0) {
+            int end = line.indexOf('"', quote + 1);
+            if (end < 0)
+                return null;
+            line = line.substring(quote + 1, end);
+        }
+        String[] parts = line.split("\\s+");
+        int index = 0;
+        String method = "GET";
+        if (!parts[0].startsWith("/") && !parts[0].startsWith("http")) {
+            method = parts[0].toUpperCase(Locale.ROOT);
+            index++;
+        }
+        if (index >= parts.length)
+            return null;
+        String path = parts[index++];
+        if (path.startsWith("http://") || path.startsWith("https://")) {
+            int slash = path.indexOf('/', path.indexOf("//") + 2);
+            path = slash < 0 ? "/" : path.substring(slash);
+        }
+        if (!path.startsWith("/"))
+            return null;
+        byte[] body = null;
+        String contentType = null;
+        if (index < parts.length && parts[index].startsWith("@")) {
+            Path bodyFile = folder.resolve(parts[index].substring(1));
+            body = Files.readAllBytes(bodyFile);
+            String name = bodyFile.getFileName().toString();
+            contentType = name.endsWith(".gpx") ? "application/gpx+xml" : name.endsWith(".xml") ? "application/xml" : "application/json";
+        } else if (!method.equals("GET")) {
+            // the body of POST requests is not logged
+            return null;
+        }
+        return new LoggedRequest(method, path, body, contentType);
+    }
+
+    /**
+     * @return the first segment of the path, e.g. route for /route?point=.. and mvt for /mvt/14/8800/5373.mvt
+     */
+    static String getEndpoint(String path) {
+        int end = path.length();
+        for (char c : new char[]{'/', '?', ';'}) {
+            int i = path.indexOf(c, 1);
+            if (i >= 0)
+                end = Math.min(end, i);
+        }
+        return end > 1 ? path.substring(1, end) : "root";
+    }
+
+    void put(String key, Object val) {
+        properties.put(key, val);
+    }
+
+    private void storeJson(String jsonLocation) {
+        logger.info("storing load test json in " + jsonLocation);
+        Map<String, String> gitInfoMap = new HashMap<>();
+        if (Constants.GIT_INFO != null) {
+            gitInfoMap.put("commitHash", Constants.GIT_INFO.getCommitHash());
+            gitInfoMap.put("commitMessage", Constants.GIT_INFO.getCommitMessage());
+            gitInfoMap.put("commitTime", Constants.GIT_INFO.getCommitTime());
+            gitInfoMap.put("branch", Constants.GIT_INFO.getBranch());
+            gitInfoMap.put("dirty", String.valueOf(Constants.GIT_INFO.isDirty()));
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("measurementTime", new SimpleDateFormat("yyy-MM-dd'T'HH:mm:ssZ").format(new Date()));
+        result.put("gitinfo", gitInfoMap);
+        result.put("metrics", properties);
+        try {
+            new ObjectMapper()
+                    .writerWithDefaultPrettyPrinter()
+                    .writeValue(new File(jsonLocation), result);
+        } catch (IOException e) {
+            logger.error("Problem while storing json in: " + jsonLocation, e);
+        }
+    }
+
+    /**
+     * Appends the totals of this run as a single line to the summary file, like measurement.summaryfile does.
+     */
+    private void writeSummary(String summaryLocation, String jsonLocation) {
+        logger.info("writing summary to " + summaryLocation);
+        String[] columns = {
+                "loadtest.name",
+                "loadtest.concurrency",
+                "loadtest.rate",
+                "loadtest.throughput",
+                "total.count",
+                "total.error_rate",
+                "total.mean",
+                "total.p50",
+                "total.p90",
+                "total.p99",
+                "total.p99.9",
+                "total.max",
+                "loadtest.gitinfo",
+                "loadtest.timestamp"
+        };
+        File f = new File(summaryLocation);
+        boolean writeHeader = !f.exists();
+        try (FileWriter writer = new FileWriter(f, true)) {
+            StringBuilder sb = new StringBuilder();
+            if (writeHeader) {
+                sb.append('#');
+                for (String column : columns) {
+                    sb.append(String.format(Locale.US, "%" + Math.max(10, column.length()) + "s, ", column));
+                }
+                sb.append("jsonFile\n");
+            }
+            sb.append(' ');
+            for (String column : columns) {
+                Object value = properties.get(column);
+                String str = value == null ? "missing" : value instanceof Double || value instanceof Float
+                        ? String.format(Locale.US, "%.2f", ((Number) value).doubleValue()) : value.toString();
+                sb.append(String.format(Locale.US, "%" + Math.max(10, column.length()) + "s, ", str));
+            }
+            sb.append(jsonLocation).append('\n');
+            writer.write(sb.toString());
+        } catch (IOException e) {
+            logger.error("Could not write summary to file '{}'", summaryLocation, e);
+        }
+    }
+
+    static class LoggedRequest {
+        final String method;
+        final String path;
+        final String endpoint;
+        final byte[] body;
+        final String contentType;
+
+        LoggedRequest(String method, String path, byte[] body, String contentType) {
+            this.method = method;
+            this.path = path;
+            this.endpoint = getEndpoint(path);
+            this.body = body;
+            this.contentType = contentType;
+        }
+    }
+
+    private class EndpointStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong errors = new AtomicLong();
+        final Map<Integer, AtomicLong> statusCounts = new ConcurrentHashMap<>();
+
+        void record(long nanos, int status) {
+            latency.record(nanos / 1000);
+            if (status < 200 || status >= 400)
+                errors.incrementAndGet();
+            statusCounts.computeIfAbsent(status, k -> new AtomicLong()).incrementAndGet();
+        }
+
+        void add(EndpointStats other) {
+            latency.add(other.latency);
+            errors.addAndGet(other.errors.get());
+            other.statusCounts.forEach((status, count) -> statusCounts.computeIfAbsent(status, k -> new AtomicLong()).addAndGet(count.get()));
+        }
+
+        /**
+         * Stores the statistics with the specified prefix, the latencies are in milliseconds.
+         */
+        void put(String prefix) {
+            long count = latency.getCount();
+            LoadTest.this.put(prefix + ".count", count);
+            LoadTest.this.put(prefix + ".errors", errors.get());
+            LoadTest.this.put(prefix + ".error_rate", count == 0 ? 0 : (double) errors.get() / count);
+            LoadTest.this.put(prefix + ".mean", latency.getMean() / 1000);
+            for (double percentile : PERCENTILES) {
+                String name = percentile == (int) percentile ? Integer.toString((int) percentile) : Double.toString(percentile);
+                LoadTest.this.put(prefix + ".p" + name, latency.getValueAtPercentile(percentile) / 1000.0);
+            }
+            LoadTest.this.put(prefix + ".max", latency.getMax() / 1000.0);
+            new TreeMap<>(statusCounts).forEach((status, statusCount) ->
+                    LoadTest.this.put(prefix + ".status." + (status < 0 ? "failed" : status), statusCount.get()));
+        }
+    }
+
+    /**
+     * A concurrent histogram of non-negative values with a relative error of less than 2%, which is enough to report
+     * latency percentiles. Small values are counted exactly, larger values are counted in 64 buckets per power of two,
+     * similar to HdrHistogram with two significant digits.
+     */
+    static class LatencyHistogram {
+        private static final int SUB_BUCKET_BITS = 6;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long value) {
+            if (value < 0)
+                throw new IllegalArgumentException("Only non-negative values can be recorded: " + value);
+            counts.incrementAndGet(getIndex(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        void add(LatencyHistogram other) {
+            for (int i = 0; i < counts.length(); i++) {
+                long c = other.counts.get(i);
+                if (c > 0)
+                    counts.addAndGet(i, c);
+            }
+            count.addAndGet(other.count.get());
+            sum.addAndGet(other.sum.get());
+            max.accumulateAndGet(other.max.get(), Math::max);
+        }
+
+        static int getIndex(long value) {
+            if (value < 2 * SUB_BUCKETS)
+                return (int) value;
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+            return shift * SUB_BUCKETS + (int) (value >>> shift);
+        }
+
+        /**
+         * @return the largest value that is counted in the bucket with the specified index
+         */
+        static long getHighestValue(int index) {
+            if (index < 2 * SUB_BUCKETS)
+                return index;
+            int shift = index / SUB_BUCKETS - 1;
+            long subBucket = index - shift * SUB_BUCKETS;
+            return ((subBucket + 1) << shift) - 1;
+        }
+
+        long getCount() {
+            return count.get();
+        }
+
+        double getMean() {
+            long c = count.get();
+            return c == 0 ? 0 : (double) sum.get() / c;
+        }
+
+        long getMax() {
+            return max.get();
+        }
+
+        /**
+         * @return the value that is larger than or equal to the specified percentage of the recorded values
+         */
+        long getValueAtPercentile(double percentile) {
+            long c = count.get();
+            if (c == 0)
+                return 0;
+            long target = Math.max(1, (long) Math.ceil(percentile / 100 * c));
+            long cumulative = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                cumulative += counts.get(i);
+                if (cumulative >= target)
+                    return Math.min(getHighestValue(i), max.get());
+            }
+            return max.get();
+        }
+    }
+}
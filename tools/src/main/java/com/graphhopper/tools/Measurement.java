@@ -30,19 +30,23 @@ import com.graphhopper.jackson.Jackson;
 import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.ev.Subnetwork;
 import com.graphhopper.routing.lm.LMConfig;
+import com.graphhopper.routing.lm.LandmarkStorage;
 import com.graphhopper.routing.lm.PrepareLandmarks;
+import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomProfile;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
 import com.graphhopper.util.Parameters.Algorithms;
 import com.graphhopper.util.Parameters.CH;
 import com.graphhopper.util.Parameters.Landmark;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
+import com.graphhopper.util.shapes.GHPoint3D;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -190,6 +194,7 @@ public class Measurement {
             printGraphDetails(g, vehicle);
             measureGraphTraversal(g, encoder, count * 100);
             measureLocationIndex(g, hopper.getLocationIndex(), count);
+            measureQueryGraph(g, hopper.getLocationIndex(), Math.max(1, count / 20));
 
             if (runSlow) {
                 boolean isCH = false;
@@ -206,6 +211,10 @@ public class Measurement {
 
             if (hopper.getLMPreparationHandler().isEnabled()) {
                 gcAndWait();
+                // run the measurement with prepare.lm.compact=true and false to compare the memory with the query speed
+                LandmarkStorage lms = hopper.getLandmarks().get("profile_no_tc");
+                put(Landmark.PREPARE + "compact", lms.isCompact());
+                put(Landmark.PREPARE + "size_in_MB", lms.getCapacity() / MB);
                 boolean isCH = false;
                 boolean isLM = true;
                 Helper.parseList(args.getString("measurement.lm.active_counts", "[4,8,12,16]")).stream()
@@ -436,6 +445,66 @@ public class Measurement {
         print("location_index", miniPerf);
     }
 
+    /**
+     * Measures the creation of query graphs for many snaps along a track, like it happens for map matching, and the
+     * traversal of the virtual edges including their geometry.
+     */
+    private void measureQueryGraph(BaseGraph g, final LocationIndex idx, int count) {
+        final Random rand = new Random(seed);
+        // the snaps are modified when creating the query graph, so we need new snaps for every run
+        final List<List<Snap>> warmupTracks = new ArrayList<>();
+        final List<List<Snap>> tracks = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, count / 3); i++) {
+            warmupTracks.add(createTrackSnaps(g, idx, rand, 200));
+        }
+        for (int i = 0; i < count; i++) {
+            tracks.add(createTrackSnaps(g, idx, rand, 200));
+        }
+        MiniPerfTest miniPerf = new MiniPerfTest().setIterations(count).start((warmup, run) -> {
+            List<Snap> snaps = warmup ? warmupTracks.get(run) : tracks.get(run);
+            QueryGraph queryGraph = QueryGraph.create(g, snaps);
+            EdgeExplorer explorer = queryGraph.createEdgeExplorer();
+            int sum = 0;
+            for (int node = g.getNodes(); node < queryGraph.getNodes(); node++) {
+                EdgeIterator iter = explorer.setBaseNode(node);
+                while (iter.next()) {
+                    sum += iter.fetchWayGeometry(FetchMode.ALL).size();
+                }
+            }
+            return sum;
+        });
+        print("query_graph", miniPerf);
+    }
+
+    /**
+     * Follows a random walk through the graph and snaps the noisy points of its geometry, at most maxPoints.
+     */
+    private List<Snap> createTrackSnaps(Graph g, LocationIndex idx, Random rand, int maxPoints) {
+        EdgeExplorer explorer = g.createEdgeExplorer();
+        List<Snap> snaps = new ArrayList<>(maxPoints);
+        int node = rand.nextInt(g.getNodes());
+        for (int step = 0; step < maxPoints && snaps.size() < maxPoints; step++) {
+            List<EdgeIteratorState> edges = new ArrayList<>();
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                edges.add(iter.detach(false));
+            }
+            if (edges.isEmpty())
+                break;
+            EdgeIteratorState edge = edges.get(rand.nextInt(edges.size()));
+            for (GHPoint3D point : edge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ)) {
+                // roughly +-20m of noise
+                double lat = point.lat + (rand.nextDouble() - 0.5) * 0.0004;
+                double lon = point.lon + (rand.nextDouble() - 0.5) * 0.0004;
+                Snap snap = idx.findClosest(lat, lon, EdgeFilter.ALL_EDGES);
+                if (snap.isValid() && snaps.size() < maxPoints)
+                    snaps.add(snap);
+            }
+            node = edge.getAdjNode();
+        }
+        return snaps;
+    }
+
     private void measureGraphTraversal(final Graph graph, final FlagEncoder encoder, int count) {
         final Random rand = new Random(seed);
 
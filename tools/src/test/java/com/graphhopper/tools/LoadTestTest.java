@@ -0,0 +1,148 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.tools;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static com.graphhopper.tools.LoadTest.LatencyHistogram.getHighestValue;
+import static com.graphhopper.tools.LoadTest.LatencyHistogram.getIndex;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadTestTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    public void histogramBuckets() {
+        // small values get their own bucket
+        for (int value = 0; value < 128; value++) {
+            assertEquals(value, getIndex(value));
+            assertEquals(value, getHighestValue(value));
+        }
+
+        // the buckets are adjacent, i.e. every value belongs to exactly one bucket
+        for (int index = 0; index < 40 * 64; index++) {
+            assertEquals(index, getIndex(getHighestValue(index)), "index " + index);
+            assertEquals(index + 1, getIndex(getHighestValue(index) + 1), "index " + index);
+        }
+
+        Random rand = new Random(0);
+        for (int i = 0; i < 100_000; i++) {
+            long value = rand.nextLong() >>> (1 + rand.nextInt(63));
+            long highest = getHighestValue(getIndex(value));
+            assertTrue(highest >= value, value + " > " + highest);
+            assertTrue(highest - value <= value / 64, "relative error too large for " + value + ": " + highest);
+        }
+    }
+
+    @Test
+    public void histogramPercentiles() {
+        LoadTest.LatencyHistogram histogram = new LoadTest.LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        for (int value = 1; value <= 1000; value++)
+            histogram.record(value);
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500.5, histogram.getMean(), 1e-6);
+        assertEquals(1000, histogram.getMax());
+        assertEquals(1, histogram.getValueAtPercentile(0));
+        assertEquals(500, histogram.getValueAtPercentile(50), 500 / 64);
+        assertEquals(990, histogram.getValueAtPercentile(99), 990 / 64);
+        assertEquals(1000, histogram.getValueAtPercentile(100));
+
+        LoadTest.LatencyHistogram other = new LoadTest.LatencyHistogram();
+        for (int i = 0; i < 1000; i++)
+            other.record(100_000);
+        histogram.add(other);
+        assertEquals(2000, histogram.getCount());
+        assertEquals(100_000, histogram.getMax());
+        assertEquals(1000, histogram.getValueAtPercentile(50), 1000 / 64);
+        assertEquals(100_000, histogram.getValueAtPercentile(51), 100_000 / 64);
+
+        assertThrows(IllegalArgumentException.class, () -> histogram.record(-1));
+    }
+
+    @Test
+    public void parseJettyLine() throws IOException {
+        LoadTest.LoggedRequest request = LoadTest.parseLine("127.0.0.1 - - [19/Oct/2026:10:00:00 +0000] " +
+                "\"GET /route?point=42.5,1.5&point=42.6,1.6 HTTP/1.1\" 200 1234 \"-\" \"curl/7.68.0\" 12", folder);
+        assertEquals("GET", request.method);
+        assertEquals("/route?point=42.5,1.5&point=42.6,1.6", request.path);
+        assertEquals("route", request.endpoint);
+        assertNull(request.body);
+
+        // the body of POST requests is not part of the request log
+        assertNull(LoadTest.parseLine("127.0.0.1 - - [19/Oct/2026:10:00:00 +0000] \"POST /route HTTP/1.1\" 200 1234", folder));
+        assertNull(LoadTest.parseLine("127.0.0.1 - - [19/Oct/2026:10:00:00 +0000] \"GET /route", folder));
+    }
+
+    @Test
+    public void parseBareLine() throws IOException {
+        LoadTest.LoggedRequest request = LoadTest.parseLine("  /isochrone?point=42.5,1.5&time_limit=600  ", folder);
+        assertEquals("GET", request.method);
+        assertEquals("/isochrone?point=42.5,1.5&time_limit=600", request.path);
+        assertEquals("isochrone", request.endpoint);
+
+        request = LoadTest.parseLine("get http://localhost:8989/info", folder);
+        assertEquals("GET", request.method);
+        assertEquals("/info", request.path);
+        assertEquals("info", request.endpoint);
+
+        assertEquals("/", LoadTest.parseLine("https://localhost:8989", folder).path);
+        assertNull(LoadTest.parseLine("", folder));
+        assertNull(LoadTest.parseLine("# a comment", folder));
+        assertNull(LoadTest.parseLine("GET", folder));
+        assertNull(LoadTest.parseLine("GET route", folder));
+    }
+
+    @Test
+    public void parseLineWithBodyFile() throws IOException {
+        Files.write(folder.resolve("track.gpx"), "<gpx/>".getBytes(StandardCharsets.UTF_8));
+        Files.write(folder.resolve("request.json"), "{}".getBytes(StandardCharsets.UTF_8));
+
+        LoadTest.LoggedRequest request = LoadTest.parseLine("POST /match?profile=car @track.gpx", folder);
+        assertEquals("POST", request.method);
+        assertEquals("/match?profile=car", request.path);
+        assertEquals("match", request.endpoint);
+        assertEquals("application/gpx+xml", request.contentType);
+        assertArrayEquals("<gpx/>".getBytes(StandardCharsets.UTF_8), request.body);
+
+        request = LoadTest.parseLine("POST /route @request.json", folder);
+        assertEquals("application/json", request.contentType);
+        assertArrayEquals("{}".getBytes(StandardCharsets.UTF_8), request.body);
+
+        assertThrows(IOException.class, () -> LoadTest.parseLine("POST /route @missing.json", folder));
+    }
+
+    @Test
+    public void endpoint() {
+        assertEquals("route", LoadTest.getEndpoint("/route"));
+        assertEquals("route", LoadTest.getEndpoint("/route?point=42.5,1.5"));
+        assertEquals("match", LoadTest.getEndpoint("/match/stream?profile=car"));
+        assertEquals("isochrone", LoadTest.getEndpoint("/isochrone;jsessionid=1?point=42.5,1.5"));
+        assertEquals("root", LoadTest.getEndpoint("/"));
+        assertEquals("root", LoadTest.getEndpoint("/?point=42.5,1.5"));
+    }
+}
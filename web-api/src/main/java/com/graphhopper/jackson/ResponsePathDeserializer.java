@@ -268,6 +268,8 @@ public class ResponsePathDeserializer extends JsonDeserializer<ResponsePath> {
             } else if (exClass.equals(MaximumNodesExceededException.class.getName())) {
                 int maxVisitedNodes = error.get(MaximumNodesExceededException.NODES_KEY).asInt();
                 errors.add(new MaximumNodesExceededException(exMessage, maxVisitedNodes));
+            } else if (exClass.equals(SearchCancelledException.class.getName())) {
+                errors.add(new SearchCancelledException(exMessage));
             } else if (exClass.equals(PointNotFoundException.class.getName())) {
                 int pointIndex = error.get(PointNotFoundException.INDEX_KEY).asInt();
                 errors.add(new PointNotFoundException(exMessage, pointIndex));
@@ -18,6 +18,10 @@
 
 package com.graphhopper.jackson;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -26,10 +30,16 @@ import com.graphhopper.ResponsePath;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointList;
 
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+
+import static com.graphhopper.util.Helper.round2;
+import static com.graphhopper.util.Helper.round6;
 
 /**
  * Code which constructs the JSON response of the routing API, including polyline encoding.
@@ -52,6 +62,11 @@ public class ResponsePathSerializer {
 
     public static String encodePolyline(PointList poly, boolean includeElevation, double precision) {
         StringBuilder sb = new StringBuilder(Math.max(20, poly.size() * 3));
+        encodePolyline(sb, poly, includeElevation, precision);
+        return sb.toString();
+    }
+
+    private static void encodePolyline(StringBuilder sb, PointList poly, boolean includeElevation, double precision) {
         int size = poly.size();
         int prevLat = 0;
         int prevLon = 0;
@@ -69,7 +84,6 @@ public class ResponsePathSerializer {
                 prevEle = num;
             }
         }
-        return sb.toString();
     }
 
     private static void encodeNumber(StringBuilder sb, int num) {
@@ -121,4 +135,126 @@ public class ResponsePathSerializer {
         }
         return json;
     }
+
+    /**
+     * Returns an object that writes the same JSON as {@link #jsonObject} when it is serialized by Jackson, but streams
+     * it directly into the output instead of building a tree of the whole response first.
+     */
+    public static JsonSerializable jsonStreaming(GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation, boolean pointsEncoded, float took) {
+        return jsonStreaming(ghRsp, enableInstructions, calcPoints, enableElevation, pointsEncoded, took, Collections.emptyMap());
+    }
+
+    /**
+     * @param additionalFields written after the paths, in iteration order
+     */
+    public static JsonSerializable jsonStreaming(GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation, boolean pointsEncoded, float took,
+                                                 Map<String, Object> additionalFields) {
+        return new JsonSerializable.Base() {
+            @Override
+            public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+                writeJson(gen, ghRsp, enableInstructions, calcPoints, enableElevation, pointsEncoded, took, additionalFields);
+            }
+
+            @Override
+            public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer) throws IOException {
+                serialize(gen, serializers);
+            }
+        };
+    }
+
+    /**
+     * Writes the JSON of {@link #jsonObject} plus the additional fields into the generator. The generator needs a codec
+     * that knows the GraphHopper types like the ObjectMapper from {@link Jackson#newObjectMapper()}.
+     */
+    public static void writeJson(JsonGenerator gen, GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation, boolean pointsEncoded, float took,
+                                 Map<String, Object> additionalFields) throws IOException {
+        // reused for all encoded polylines of this response
+        PolylineBuffer buffer = new PolylineBuffer();
+        gen.writeStartObject();
+        gen.writeObjectField("hints", ghRsp.getHints().toMap());
+        gen.writeObjectFieldStart("info");
+        gen.writeObjectField("copyrights", COPYRIGHTS);
+        gen.writeNumberField("took", Math.round(took));
+        gen.writeEndObject();
+        gen.writeArrayFieldStart("paths");
+        for (ResponsePath p : ghRsp.getAll()) {
+            gen.writeStartObject();
+            gen.writeNumberField("distance", Helper.round(p.getDistance(), 3));
+            gen.writeNumberField("weight", Helper.round6(p.getRouteWeight()));
+            gen.writeNumberField("time", p.getTime());
+            gen.writeNumberField("transfers", p.getNumChanges());
+            if (!p.getDescription().isEmpty()) {
+                gen.writeObjectField("description", p.getDescription());
+            }
+            if (calcPoints) {
+                gen.writeBooleanField("points_encoded", pointsEncoded);
+                gen.writeObjectField("bbox", p.calcBBox2D());
+                gen.writeFieldName("points");
+                writePoints(gen, buffer, p.getPoints(), enableElevation, pointsEncoded);
+                if (enableInstructions) {
+                    gen.writeObjectField("instructions", p.getInstructions());
+                }
+                gen.writeObjectField("legs", p.getLegs());
+                gen.writeObjectField("details", p.getPathDetails());
+                gen.writeNumberField("ascend", p.getAscend());
+                gen.writeNumberField("descend", p.getDescend());
+            }
+            gen.writeFieldName("snapped_waypoints");
+            writePoints(gen, buffer, p.getWaypoints(), enableElevation, pointsEncoded);
+            if (p.getFare() != null) {
+                gen.writeStringField("fare", NumberFormat.getCurrencyInstance(Locale.ROOT).format(p.getFare()));
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+        for (Map.Entry<String, Object> field : additionalFields.entrySet()) {
+            gen.writeObjectField(field.getKey(), field.getValue());
+        }
+        gen.writeEndObject();
+    }
+
+    /**
+     * Writes the points either as encoded polyline or in the same format as the GeoJSON LineString of
+     * {@link PointList#toLineString(boolean)} but without creating the geometry.
+     */
+    private static void writePoints(JsonGenerator gen, PolylineBuffer buffer, PointList points, boolean includeElevation, boolean pointsEncoded) throws IOException {
+        if (pointsEncoded) {
+            buffer.sb.setLength(0);
+            encodePolyline(buffer.sb, points, includeElevation, 1e5);
+            gen.writeString(buffer.toChars(), 0, buffer.sb.length());
+            return;
+        }
+        gen.writeStartObject();
+        gen.writeStringField("type", "LineString");
+        gen.writeFieldName("coordinates");
+        gen.writeStartArray();
+        // special case as just 1 point is not supported in the specification #1412
+        int size = points.size() == 1 ? 2 : points.size();
+        for (int i = 0; i < size; i++) {
+            int index = Math.min(i, points.size() - 1);
+            gen.writeStartArray();
+            gen.writeNumber(round6(points.getLon(index)));
+            gen.writeNumber(round6(points.getLat(index)));
+            if (includeElevation) {
+                // the packed coordinates of the LineString store a missing elevation as 0
+                double ele = round2(points.getEle(index));
+                gen.writeNumber(Double.isNaN(ele) ? 0 : ele);
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static class PolylineBuffer {
+        final StringBuilder sb = new StringBuilder();
+        char[] chars = new char[0];
+
+        char[] toChars() {
+            if (chars.length < sb.length())
+                chars = new char[Math.max(sb.length(), chars.length * 2)];
+            sb.getChars(0, sb.length(), chars, 0);
+            return chars;
+        }
+    }
 }
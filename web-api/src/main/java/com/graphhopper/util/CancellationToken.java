@@ -0,0 +1,157 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.util;
+
+import com.graphhopper.util.exceptions.SearchCancelledException;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Stops long running searches when their time budget is used up or when they are cancelled explicitly, e.g. because
+ * the client disconnected. The searches call {@link #check()} every few hundred iterations and stop with a
+ * {@link SearchCancelledException} shortly after the token was cancelled.
+ * <p>
+ * Tokens are immutable apart from {@link #cancel(String)}. Use {@link #withTimeout(long)} and
+ * {@link #withCondition(BooleanSupplier, String)} to derive a token that is also cancelled when its parent is.
+ */
+public class CancellationToken {
+    /**
+     * A token that is never cancelled.
+     */
+    public static final CancellationToken NONE = new CancellationToken(null, Long.MAX_VALUE, 0, null, null) {
+        @Override
+        public void cancel(String reason) {
+            throw new UnsupportedOperationException("The token NONE cannot be cancelled");
+        }
+
+        @Override
+        public String getReason() {
+            return null;
+        }
+    };
+
+    private final CancellationToken parent;
+    private final long deadlineNanos;
+    private final long timeoutMillis;
+    private final BooleanSupplier condition;
+    private final String conditionReason;
+    private volatile String reason;
+
+    private CancellationToken(CancellationToken parent, long deadlineNanos, long timeoutMillis, BooleanSupplier condition, String conditionReason) {
+        this.parent = parent;
+        this.deadlineNanos = deadlineNanos;
+        this.timeoutMillis = timeoutMillis;
+        this.condition = condition;
+        this.conditionReason = conditionReason;
+    }
+
+    /**
+     * @return a new token that can only be cancelled via {@link #cancel(String)}
+     */
+    public static CancellationToken create() {
+        return new CancellationToken(NONE, Long.MAX_VALUE, 0, null, null);
+    }
+
+    /**
+     * @return the token stored in the specified hints under {@link Parameters.Routing#CANCELLATION} or NONE
+     */
+    public static CancellationToken fromHints(PMap hints) {
+        Object token = hints.getObject(Parameters.Routing.CANCELLATION, null);
+        return token instanceof CancellationToken ? (CancellationToken) token : NONE;
+    }
+
+    /**
+     * @return the token from the specified hints with the time budget from {@link Parameters.Routing#TIMEOUT_MS},
+     * limited to the specified maximum timeout, see {@link #limitTimeout(long, long)}
+     */
+    public static CancellationToken fromHints(PMap hints, long maxTimeoutMillis) {
+        return fromHints(hints).withTimeout(limitTimeout(hints.getLong(Parameters.Routing.TIMEOUT_MS, 0), maxTimeoutMillis));
+    }
+
+    /**
+     * @param requestedMillis  the timeout requested by the client, 0 or less if none was requested
+     * @param maxTimeoutMillis the configured timeout, 0 or less if there is no limit
+     * @return the configured timeout if no timeout was requested and otherwise the smaller of both. This way a client
+     * can only shorten the time budget but never remove or extend it.
+     */
+    public static long limitTimeout(long requestedMillis, long maxTimeoutMillis) {
+        if (requestedMillis <= 0)
+            return Math.max(0, maxTimeoutMillis);
+        return maxTimeoutMillis > 0 ? Math.min(requestedMillis, maxTimeoutMillis) : requestedMillis;
+    }
+
+    /**
+     * @return a token that is cancelled when this token is cancelled or when the specified time has passed. This
+     * token is returned for timeouts of 0 or less.
+     */
+    public CancellationToken withTimeout(long timeoutMillis) {
+        if (timeoutMillis <= 0)
+            return this;
+        return new CancellationToken(this, System.nanoTime() + timeoutMillis * 1_000_000L, timeoutMillis, null, null);
+    }
+
+    /**
+     * @return a token that is cancelled when this token is cancelled or when the specified condition is true. The
+     * condition is only evaluated in {@link #check()} and {@link #isCancelled()} and should be cheap.
+     */
+    public CancellationToken withCondition(BooleanSupplier condition, String reason) {
+        return new CancellationToken(this, Long.MAX_VALUE, 0, condition, reason);
+    }
+
+    public void cancel(String reason) {
+        this.reason = reason;
+    }
+
+    public boolean isCancelled() {
+        return getReason() != null;
+    }
+
+    /**
+     * @return the reason why this token was cancelled or null if it is not cancelled
+     */
+    public String getReason() {
+        if (reason != null)
+            return reason;
+        String parentReason = parent.getReason();
+        if (parentReason != null)
+            return reason = parentReason;
+        if (timeoutMillis > 0 && System.nanoTime() - deadlineNanos >= 0)
+            return reason = "Search exceeded the time budget of " + timeoutMillis + " ms";
+        if (condition != null && condition.getAsBoolean())
+            return reason = conditionReason;
+        return null;
+    }
+
+    /**
+     * @throws SearchCancelledException if this token is cancelled
+     */
+    public void check() {
+        String reason = getReason();
+        if (reason != null)
+            throw new SearchCancelledException(reason);
+    }
+
+    /**
+     * Calls {@link #check()} only for every 256th iteration of a search loop, to keep the costs of the check, e.g.
+     * reading the clock, negligible compared to the search.
+     */
+    public void check(int iteration) {
+        if ((iteration & 0xFF) == 0)
+            check();
+    }
+}
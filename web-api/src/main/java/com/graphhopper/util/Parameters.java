@@ -97,6 +97,19 @@ public class Parameters {
         public static final String U_TURN_COSTS = "u_turn_costs";
         public static final String MAX_VISITED_NODES = "max_visited_nodes";
         public static final String INIT_MAX_VISITED_NODES = ROUTING_INIT_PREFIX + "max_visited_nodes";
+        /**
+         * the time budget of a search in milliseconds, afterwards it stops with a SearchCancelledException
+         */
+        public static final String TIMEOUT_MS = "timeout_ms";
+        public static final String INIT_TIMEOUT_MS = ROUTING_INIT_PREFIX + "timeout_ms";
+        /**
+         * the number of threads used to calculate the legs of via routes concurrently
+         */
+        public static final String INIT_LEG_THREADS = ROUTING_INIT_PREFIX + "leg_threads";
+        /**
+         * the hint that holds the {@link CancellationToken} of a request
+         */
+        public static final String CANCELLATION = "cancellation";
         /**
          * if true the response will contain turn instructions
          */
@@ -132,6 +145,14 @@ public class Parameters {
          * a rectangle lat1,lon1,lat2,lon2
          */
         public static final String BLOCK_AREA = "block_area";
+        /**
+         * comma separated names of block areas that were configured on the server and resolved to edges up-front
+         */
+        public static final String BLOCK_AREA_NAMES = "block_area_names";
+        /**
+         * the prefix of the configuration keys of named block areas, e.g. routing.block_areas.city_center
+         */
+        public static final String INIT_BLOCK_AREAS = ROUTING_INIT_PREFIX + "block_areas.";
     }
 
     /**
@@ -17,10 +17,20 @@
  */
 package com.graphhopper.jackson;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
 import com.graphhopper.util.Helper;
+import com.graphhopper.util.InstructionList;
 import com.graphhopper.util.PointList;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
@@ -79,4 +89,32 @@ public class ResponsePathRepresentationTest {
     public void testEncode1e6() {
         assertEquals("ohdfzAgt}bVoEL", ResponsePathSerializer.encodePolyline(Helper.createPointList(47.827608, 12.123476, 47.827712, 12.123469), false, 1e6));
     }
+
+    @Test
+    public void testStreamingIsIdentical() throws IOException {
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        GHResponse rsp = new GHResponse();
+        rsp.getHints().putObject("visited_nodes.sum", 10);
+        ResponsePath path = new ResponsePath();
+        path.setPoints(Helper.createPointList3D(52.514, 13.349, 30, 52.5135, 13.35, 31.5, 52.514, 13.351, Double.NaN));
+        path.setWaypoints(Helper.createPointList3D(52.514, 13.349, 30));
+        path.setDistance(1234.5678).setTime(5000).setRouteWeight(3.1234567).setAscend(1.5).setDescend(0);
+        path.setDescription(Arrays.asList("a", "b"));
+        path.setFare(BigDecimal.valueOf(2.5));
+        path.setInstructions(new InstructionList(null));
+        rsp.add(path);
+
+        for (boolean pointsEncoded : new boolean[]{true, false}) {
+            for (boolean elevation : new boolean[]{true, false}) {
+                String expected = objectMapper.writeValueAsString(ResponsePathSerializer.jsonObject(rsp, true, true, elevation, pointsEncoded, 12.3f));
+                String actual = objectMapper.writeValueAsString(ResponsePathSerializer.jsonStreaming(rsp, true, true, elevation, pointsEncoded, 12.3f));
+                assertEquals(expected, actual);
+            }
+        }
+
+        ObjectNode expected = ResponsePathSerializer.jsonObject(rsp, false, false, false, true, 5);
+        expected.putPOJO("extra", Collections.singletonMap("key", 1));
+        assertEquals(objectMapper.writeValueAsString(expected), objectMapper.writeValueAsString(
+                ResponsePathSerializer.jsonStreaming(rsp, false, false, false, true, 5, Collections.singletonMap("extra", Collections.singletonMap("key", 1)))));
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.util;
+
+import com.graphhopper.util.exceptions.SearchCancelledException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CancellationTokenTest {
+
+    @Test
+    public void noneIsNeverCancelled() {
+        assertFalse(CancellationToken.NONE.isCancelled());
+        CancellationToken.NONE.check();
+        assertSame(CancellationToken.NONE, CancellationToken.NONE.withTimeout(0));
+        assertThrows(UnsupportedOperationException.class, () -> CancellationToken.NONE.cancel("test"));
+    }
+
+    @Test
+    public void cancelIsInheritedByDerivedTokens() {
+        CancellationToken parent = CancellationToken.create();
+        CancellationToken child = parent.withTimeout(60_000).withCondition(() -> false, "condition");
+        assertFalse(child.isCancelled());
+        parent.cancel("stop");
+        assertTrue(child.isCancelled());
+        SearchCancelledException ex = assertThrows(SearchCancelledException.class, child::check);
+        assertEquals("stop", ex.getMessage());
+    }
+
+    @Test
+    public void timeout() throws InterruptedException {
+        CancellationToken token = CancellationToken.create().withTimeout(1);
+        Thread.sleep(5);
+        assertTrue(token.isCancelled());
+        assertTrue(token.getReason().contains("1 ms"), token.getReason());
+    }
+
+    @Test
+    public void condition() {
+        AtomicBoolean disconnected = new AtomicBoolean();
+        CancellationToken token = CancellationToken.create().withCondition(disconnected::get, "Client disconnected");
+        token.check();
+        disconnected.set(true);
+        // only every 256th iteration is checked
+        token.check(1);
+        assertThrows(SearchCancelledException.class, () -> token.check(256));
+        // the reason is kept even if the condition changes again
+        disconnected.set(false);
+        assertEquals("Client disconnected", token.getReason());
+    }
+
+    @Test
+    public void fromHints() {
+        PMap hints = new PMap();
+        assertSame(CancellationToken.NONE, CancellationToken.fromHints(hints));
+        assertSame(CancellationToken.NONE, CancellationToken.fromHints(hints, 0));
+        CancellationToken token = CancellationToken.create();
+        hints.putObject(Parameters.Routing.CANCELLATION, token);
+        assertSame(token, CancellationToken.fromHints(hints));
+        hints.putObject(Parameters.Routing.TIMEOUT_MS, 1000);
+        assertNotSame(token, CancellationToken.fromHints(hints, 0));
+        // the client cannot remove the configured time budget
+        hints.putObject(Parameters.Routing.TIMEOUT_MS, 0);
+        assertNotSame(token, CancellationToken.fromHints(hints, 1000));
+    }
+
+    @Test
+    public void limitTimeout() {
+        assertEquals(0, CancellationToken.limitTimeout(0, 0));
+        assertEquals(500, CancellationToken.limitTimeout(500, 0));
+        assertEquals(1000, CancellationToken.limitTimeout(0, 1000));
+        assertEquals(1000, CancellationToken.limitTimeout(-1, 1000));
+        assertEquals(500, CancellationToken.limitTimeout(500, 1000));
+        assertEquals(1000, CancellationToken.limitTimeout(5000, 1000));
+    }
+}
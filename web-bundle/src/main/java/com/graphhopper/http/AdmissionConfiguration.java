@@ -0,0 +1,95 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.Valid;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configures the {@link AdmissionControl}. For every request class (ch_route, flex_route, isochrone, match, pt) you
+ * can limit the number of requests that are processed concurrently and the number of requests that wait for a slot.
+ * Request classes that are not configured are not limited.
+ */
+public class AdmissionConfiguration {
+
+    @Valid
+    @JsonProperty
+    private Map<String, Limit> limits = new LinkedHashMap<>();
+
+    public Map<String, Limit> getLimits() {
+        return limits;
+    }
+
+    public AdmissionConfiguration putLimit(String requestClass, Limit limit) {
+        limits.put(requestClass, limit);
+        return this;
+    }
+
+    public static class Limit {
+        @JsonProperty("max_concurrent")
+        private int maxConcurrent = Runtime.getRuntime().availableProcessors();
+
+        @JsonProperty("max_queued")
+        private int maxQueued = 0;
+
+        @JsonProperty("max_wait_ms")
+        private long maxWaitMillis = 1000;
+
+        @JsonProperty("retry_after_seconds")
+        private int retryAfterSeconds = 1;
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public Limit setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+            return this;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public Limit setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+            return this;
+        }
+
+        public long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        public Limit setMaxWaitMillis(long maxWaitMillis) {
+            this.maxWaitMillis = maxWaitMillis;
+            return this;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        public Limit setRetryAfterSeconds(int retryAfterSeconds) {
+            this.retryAfterSeconds = retryAfterSeconds;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.util.Helper;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.graphhopper.util.Parameters.Algorithms.ROUND_TRIP;
+import static com.graphhopper.util.Parameters.CH.DISABLE;
+
+/**
+ * Limits the number of requests of every request class that are processed concurrently. If all slots are taken a
+ * request waits for a limited time, but only if the number of waiting requests is below the configured limit.
+ * Otherwise it is rejected immediately with 503 Service Unavailable and a Retry-After header, so that a burst of
+ * expensive requests cannot starve the cheap ones, like CH routes, that are limited separately.
+ */
+public class AdmissionControl {
+
+    public enum RequestClass {
+        CH_ROUTE, FLEX_ROUTE, ISOCHRONE, MATCH, PT;
+
+        String getName() {
+            return Helper.toLowerCase(name());
+        }
+    }
+
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final Permit UNLIMITED = () -> {
+    };
+
+    private final Map<RequestClass, Bulkhead> bulkheads = new EnumMap<>(RequestClass.class);
+
+    public AdmissionControl(AdmissionConfiguration config) {
+        for (Map.Entry<String, AdmissionConfiguration.Limit> entry : config.getLimits().entrySet()) {
+            RequestClass requestClass;
+            try {
+                requestClass = RequestClass.valueOf(Helper.toUpperCase(entry.getKey()));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Unknown request class '" + entry.getKey() + "' in admission limits, supported: "
+                        + Arrays.stream(RequestClass.values()).map(RequestClass::getName).collect(Collectors.toList()));
+            }
+            bulkheads.put(requestClass, new Bulkhead(requestClass, entry.getValue()));
+        }
+    }
+
+    /**
+     * @return the class of a route request. Requests that cannot use CH, like round trips or requests with a custom
+     * model, are flex routes.
+     */
+    public static RequestClass classify(GraphHopper graphHopper, GHRequest request) {
+        if (graphHopper.getCHGraphs().isEmpty() || request.getHints().getBool(DISABLE, false)
+                || ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm()) || request.getCustomModel() != null)
+            return RequestClass.FLEX_ROUTE;
+        return RequestClass.CH_ROUTE;
+    }
+
+    /**
+     * Waits for a free slot of the specified request class. The returned permit must be closed when the request is
+     * processed.
+     *
+     * @throws WebApplicationException with status 503 if there is no free slot
+     */
+    public Permit acquire(RequestClass requestClass) {
+        Bulkhead bulkhead = bulkheads.get(requestClass);
+        return bulkhead == null ? UNLIMITED : bulkhead.acquire();
+    }
+
+    public void registerMetrics(MetricRegistry metrics) {
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            String prefix = "admission." + bulkhead.requestClass.getName();
+            metrics.register(prefix + ".wait", bulkhead.waitTimer);
+            metrics.register(prefix + ".rejected", bulkhead.rejected);
+            metrics.register(prefix + ".active", (Gauge<Integer>) () -> bulkhead.limit.getMaxConcurrent() - bulkhead.semaphore.availablePermits());
+            metrics.register(prefix + ".queued", (Gauge<Integer>) bulkhead.queued::get);
+        }
+    }
+
+    static class Bulkhead {
+        private final RequestClass requestClass;
+        private final AdmissionConfiguration.Limit limit;
+        private final Semaphore semaphore;
+        private final AtomicInteger queued = new AtomicInteger();
+        final Timer waitTimer = new Timer();
+        final Meter rejected = new Meter();
+
+        Bulkhead(RequestClass requestClass, AdmissionConfiguration.Limit limit) {
+            if (limit.getMaxConcurrent() <= 0)
+                throw new IllegalArgumentException("max_concurrent for " + requestClass.getName() + " must be positive but was " + limit.getMaxConcurrent());
+            this.requestClass = requestClass;
+            this.limit = limit;
+            // fair, so that waiting requests are served in order
+            this.semaphore = new Semaphore(limit.getMaxConcurrent(), true);
+        }
+
+        Permit acquire() {
+            try {
+                // unlike tryAcquire() this respects the fairness and does not overtake waiting requests
+                if (semaphore.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                    waitTimer.update(0, TimeUnit.NANOSECONDS);
+                    return createPermit();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw reject("Interrupted while waiting for a free slot for the " + requestClass.getName() + " request");
+            }
+            if (queued.incrementAndGet() > limit.getMaxQueued()) {
+                queued.decrementAndGet();
+                throw reject("Too many " + requestClass.getName() + " requests");
+            }
+            long start = System.nanoTime();
+            try {
+                if (!semaphore.tryAcquire(limit.getMaxWaitMillis(), TimeUnit.MILLISECONDS))
+                    throw reject("Timed out while waiting for a free slot for the " + requestClass.getName() + " request");
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw reject("Interrupted while waiting for a free slot for the " + requestClass.getName() + " request");
+            } finally {
+                queued.decrementAndGet();
+                waitTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            return createPermit();
+        }
+
+        private Permit createPermit() {
+            // closing a permit twice must not release two slots
+            AtomicBoolean closed = new AtomicBoolean();
+            return () -> {
+                if (closed.compareAndSet(false, true))
+                    semaphore.release();
+            };
+        }
+
+        private WebApplicationException reject(String message) {
+            rejected.mark();
+            return new WebApplicationException(Response.status(Response.Status.SERVICE_UNAVAILABLE).
+                    header("Retry-After", limit.getRetryAfterSeconds()).
+                    entity(new JsonErrorEntity(Collections.singletonList(message))).
+                    type(MediaType.APPLICATION_JSON).
+                    build());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.storage.NamedBlockAreas;
+import io.dropwizard.servlets.tasks.Task;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An admin task to add, replace or remove named block areas while the server is running, e.g.
+ * <pre>
+ * curl -X POST "localhost:8990/tasks/block_areas?name=marathon&area=42.5,1.5,42.51,1.52"
+ * curl -X POST "localhost:8990/tasks/block_areas?name=marathon&remove=true"
+ * </pre>
+ * Without parameters the task only lists the current areas. The route cache is cleared after every change, because
+ * cached routes might use an area that was changed.
+ */
+public class BlockAreaTask extends Task {
+    private final GraphHopper graphHopper;
+    private final RouteResponseCache routeCache;
+
+    public BlockAreaTask(GraphHopper graphHopper, RouteResponseCache routeCache) {
+        super("block_areas");
+        this.graphHopper = graphHopper;
+        this.routeCache = routeCache;
+    }
+
+    @Override
+    public void execute(Map<String, List<String>> parameters, PrintWriter output) {
+        NamedBlockAreas namedBlockAreas = graphHopper.getNamedBlockAreas();
+        String name = getParameter(parameters, "name");
+        String area = getParameter(parameters, "area");
+        boolean remove = Boolean.parseBoolean(getParameter(parameters, "remove"));
+        if (name != null) {
+            if (remove) {
+                if (namedBlockAreas.remove(name) == null)
+                    output.println("block area '" + name + "' does not exist");
+                else
+                    output.println("removed block area '" + name + "'");
+            } else if (area != null) {
+                output.println("put block area " + namedBlockAreas.put(name, area));
+            } else {
+                throw new IllegalArgumentException("Specify either area or remove=true for block area '" + name + "'");
+            }
+            routeCache.invalidate();
+        }
+        for (String n : namedBlockAreas.getNames()) {
+            NamedBlockAreas.Area a = namedBlockAreas.get(n);
+            // the area might have been removed concurrently
+            if (a != null)
+                output.println(a + ", " + a.getBlockAreaString());
+        }
+    }
+
+    private static String getParameter(Map<String, List<String>> parameters, String key) {
+        List<String> values = parameters.get(key);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+}
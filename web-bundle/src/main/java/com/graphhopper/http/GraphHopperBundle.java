@@ -18,6 +18,7 @@
 
 package com.graphhopper.http;
 
+import com.codahale.metrics.Meter;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
@@ -42,6 +43,7 @@ import org.glassfish.hk2.api.Factory;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
 
 import javax.inject.Inject;
+import java.util.concurrent.ExecutorService;
 
 public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConfiguration> {
 
@@ -217,9 +219,14 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         // If the "?type=gpx" parameter is present, sets a corresponding media type header
         environment.jersey().register(new TypeGPXFilter());
 
+        // Searches that were stopped via their CancellationToken, e.g. after their time budget,
+        // come out as 503 and are counted
+        final Meter cancelledSearches = environment.metrics().meter("search.cancelled");
+        environment.jersey().register(new SearchCancelledExceptionMapper(cancelledSearches));
+
         // Together, these two take care that MultiExceptions thrown from RouteResource
         // come out as JSON or GPX, depending on the media type
-        environment.jersey().register(new MultiExceptionMapper());
+        environment.jersey().register(new MultiExceptionMapper(cancelledSearches));
         environment.jersey().register(new MultiExceptionGPXMessageBodyWriter());
 
         // This makes an IllegalArgumentException come out as a MultiException with
@@ -229,11 +236,20 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration.getGraphHopperConfiguration());
         environment.lifecycle().manage(graphHopperManaged);
         final GraphHopper graphHopper = graphHopperManaged.getGraphHopper();
+        final RouteResponseCache routeCache = new RouteResponseCache(graphHopper, environment.getObjectMapper(),
+                configuration.getGraphHopperConfiguration().getLong("route_cache.max_bytes", 0));
+        if (routeCache.isEnabled())
+            routeCache.registerMetrics(environment.metrics());
+        environment.admin().addTask(new BlockAreaTask(graphHopper, routeCache));
+        final AdmissionControl admission = new AdmissionControl(configuration.getAdmissionConfiguration());
+        admission.registerMetrics(environment.metrics());
         environment.jersey().register(new AbstractBinder() {
             @Override
             protected void configure() {
                 bind(configuration.getGraphHopperConfiguration()).to(GraphHopperConfig.class);
                 bind(graphHopper).to(GraphHopper.class);
+                bind(routeCache).to(RouteResponseCache.class);
+                bind(admission).to(AdmissionControl.class);
 
                 bind(new JTSTriangulator(graphHopper.getRouterConfig())).to(Triangulator.class);
                 bindFactory(PathDetailsBuilderFactoryFactory.class).to(PathDetailsBuilderFactory.class);
@@ -252,10 +268,17 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(RouteResource.class);
         environment.jersey().register(IsochroneResource.class);
         environment.jersey().register(MapMatchingResource.class);
+        environment.jersey().register(MapMatchingStreamResource.class);
         if (configuration.getGraphHopperConfiguration().has("gtfs.file")) {
             // These are pt-specific implementations of /route and /isochrone, but the same API.
             // We serve them under different paths (/route-pt and /isochrone-pt), and forward
             // requests for ?vehicle=pt there.
+            int isochroneThreads = configuration.getGraphHopperConfiguration().getInt("gtfs.isochrone_threads", Runtime.getRuntime().availableProcessors());
+            // one store per thread is enough, larger stores are dropped after the search to free their memory
+            LabelPool labelPool = new LabelPool(isochroneThreads,
+                    configuration.getGraphHopperConfiguration().getInt("gtfs.isochrone_max_pooled_labels", LabelPool.DEFAULT_MAX_LABELS_PER_STORE));
+            ExecutorService ptIsochroneExecutor = environment.lifecycle().executorService("gh-pt-isochrone-%d")
+                    .minThreads(isochroneThreads).maxThreads(isochroneThreads).build();
             environment.jersey().register(new AbstractBinder() {
                 @Override
                 protected void configure() {
@@ -264,6 +287,8 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
                     } else {
                         bind(PtRouterImpl.class).to(PtRouter.class);
                     }
+                    bind(labelPool).to(LabelPool.class);
+                    bind(ptIsochroneExecutor).named(PtIsochroneResource.EXECUTOR).to(ExecutorService.class);
                 }
             });
             environment.jersey().register(PtRouteResource.class);
@@ -24,4 +24,11 @@ public interface GraphHopperBundleConfiguration {
 
     GraphHopperConfig getGraphHopperConfiguration();
 
+    /**
+     * @return the limits for the concurrent requests, by default there are no limits
+     */
+    default AdmissionConfiguration getAdmissionConfiguration() {
+        return new AdmissionConfiguration();
+    }
+
 }
@@ -18,8 +18,10 @@
 
 package com.graphhopper.http;
 
+import com.codahale.metrics.Meter;
 import com.graphhopper.jackson.MultiException;
 import com.graphhopper.util.Helper;
+import com.graphhopper.util.exceptions.SearchCancelledException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,9 +32,22 @@ import javax.ws.rs.ext.Provider;
 @Provider
 public class MultiExceptionMapper implements ExceptionMapper<MultiException> {
     private static final Logger logger = LoggerFactory.getLogger(MultiExceptionMapper.class);
+    private final Meter cancelledSearches;
+
+    public MultiExceptionMapper(Meter cancelledSearches) {
+        this.cancelledSearches = cancelledSearches;
+    }
 
     @Override
     public Response toResponse(MultiException e) {
+        // a cancelled search is not the fault of the client
+        if (e.getErrors().stream().anyMatch(t -> t instanceof SearchCancelledException)) {
+            cancelledSearches.mark();
+            logger.info("search cancelled: " + e.getErrors());
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity(e)
+                    .build();
+        }
         logger.info("bad request: " + (Helper.isEmpty(e.getMessage())
                 ? (e.getErrors().isEmpty() ? "unknown reason" : e.getErrors().toString())
                 : e.getErrors()));
@@ -0,0 +1,57 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.util.CancellationToken;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.server.Request;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Creates the {@link CancellationToken} for a request so that the search stops when the client has disconnected. The
+ * connection is only known to be closed once Jetty noticed it, e.g. after a failed write or an idle timeout, so this
+ * does not detect every disconnect immediately.
+ */
+public class RequestCancellation {
+
+    public static CancellationToken create(HttpServletRequest httpReq) {
+        Request request = Request.getBaseRequest(httpReq);
+        if (request == null || request.getHttpChannel() == null)
+            return CancellationToken.create();
+        EndPoint endPoint = request.getHttpChannel().getEndPoint();
+        return CancellationToken.create().withCondition(() -> !endPoint.isOpen(), "Client disconnected");
+    }
+
+    /**
+     * @return the token for the request with the time budget from the timeout_ms hint, limited to the specified
+     * maximum timeout, see {@link CancellationToken#limitTimeout(long, long)}
+     */
+    public static CancellationToken create(HttpServletRequest httpReq, PMap hints, long maxTimeoutMillis) {
+        return create(httpReq, hints.getLong(Parameters.Routing.TIMEOUT_MS, 0), maxTimeoutMillis);
+    }
+
+    /**
+     * @return the token for the request with the requested time budget, limited to the specified maximum timeout
+     */
+    public static CancellationToken create(HttpServletRequest httpReq, long requestedTimeoutMillis, long maxTimeoutMillis) {
+        return create(httpReq).withTimeout(CancellationToken.limitTimeout(requestedTimeoutMillis, maxTimeoutMillis));
+    }
+}
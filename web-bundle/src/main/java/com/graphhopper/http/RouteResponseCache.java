@@ -0,0 +1,243 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.config.Profile;
+import com.graphhopper.routing.ViaRouting;
+import com.graphhopper.routing.ev.Subnetwork;
+import com.graphhopper.routing.util.DefaultSnapFilter;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.CustomModel;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.shapes.GHPoint;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.graphhopper.util.Parameters.Routing.BLOCK_AREA;
+import static com.graphhopper.util.Parameters.Routing.BLOCK_AREA_NAMES;
+
+/**
+ * A cache for serialized route responses that is bounded by the number of bytes and evicts the least recently used
+ * entries. The key does not contain the requested coordinates, but the snapped point and edge of every point, so
+ * requests for nearby coordinates that snap to the same location share the same entry. Apart from the points the key
+ * contains all request parameters, a custom model is included via its SHA-256 hash.
+ * <p>
+ * The cache is cleared when GraphHopper uses a different graph, e.g. after a reload.
+ */
+public class RouteResponseCache {
+    // rough size of the key, the map entry and the linked list node
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final GraphHopper graphHopper;
+    private final ObjectMapper objectMapper;
+    private final long maxBytes;
+    private final LinkedHashMap<String, byte[]> map = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long bytes;
+    private GraphHopperStorage graph;
+
+    /**
+     * @param maxBytes the maximum size of all cached responses, 0 disables the cache
+     */
+    public RouteResponseCache(GraphHopper graphHopper, ObjectMapper objectMapper, long maxBytes) {
+        this.graphHopper = graphHopper;
+        this.objectMapper = objectMapper;
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Creates the key for the specified request by snapping its points.
+     *
+     * @return the key or null if this request cannot be cached
+     */
+    public String createKey(GHRequest request) {
+        if (!isEnabled())
+            return null;
+        Profile profile = graphHopper.getProfile(request.getProfile());
+        if (profile == null)
+            return null;
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(profile.getName()).append('|');
+        // headings, point hints and block areas change the snapping. We do not want to repeat the logic of the
+        // Router here and keep the requested coordinates in the key in this case.
+        if (!request.getHeadings().isEmpty() || !request.getPointHints().isEmpty() || request.getHints().has(BLOCK_AREA)
+                || request.getHints().has(BLOCK_AREA_NAMES)) {
+            for (GHPoint point : request.getPoints())
+                sb.append(point.lat).append(',').append(point.lon).append(';');
+        } else {
+            PMap hints = new PMap(request.getHints()).putObject(CustomModel.KEY, request.getCustomModel());
+            Weighting weighting;
+            List<Snap> snaps;
+            try {
+                weighting = graphHopper.createWeighting(profile, hints);
+                DefaultSnapFilter snapFilter = new DefaultSnapFilter(weighting, graphHopper.getEncodingManager().getBooleanEncodedValue(Subnetwork.key(profile.getName())));
+                snaps = ViaRouting.lookup(graphHopper.getEncodingManager(), request.getPoints(), snapFilter,
+                        graphHopper.getLocationIndex(), request.getSnapPreventions(), Collections.emptyList(), null, Collections.emptyList());
+            } catch (RuntimeException ex) {
+                // the router will report the error
+                return null;
+            }
+            for (Snap snap : snaps) {
+                sb.append(snap.getClosestEdge().getEdge()).append(',').append(snap.getWayIndex()).append(',').
+                        append(snap.getSnappedPosition()).append(',').
+                        append(snap.getSnappedPoint().lat).append(',').append(snap.getSnappedPoint().lon).append(';');
+            }
+        }
+        sb.append('|').append(request.getAlgorithm()).
+                append('|').append(request.getLocale()).
+                append('|').append(request.getHeadings()).
+                append('|').append(request.getPointHints()).
+                append('|').append(request.getCurbsides()).
+                append('|').append(request.getSnapPreventions()).
+                append('|').append(request.getPathDetails()).
+                append('|').append(new TreeMap<>(request.getHints().toMap()));
+        if (request.getCustomModel() != null)
+            sb.append('|').append(hash(request.getCustomModel()));
+        return sb.toString();
+    }
+
+    private String hash(CustomModel customModel) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(customModel));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException | JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * @return the cached response or null
+     */
+    public byte[] get(String key) {
+        byte[] value;
+        synchronized (map) {
+            checkGraph();
+            value = map.get(key);
+        }
+        if (value == null)
+            misses.increment();
+        else
+            hits.increment();
+        return value;
+    }
+
+    /**
+     * Serializes the specified response and stores it in the cache.
+     *
+     * @return the serialized response
+     */
+    public byte[] put(String key, Object response) {
+        byte[] value;
+        try {
+            value = objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot serialize response", ex);
+        }
+        long size = size(key, value);
+        if (size > maxBytes)
+            return value;
+        synchronized (map) {
+            checkGraph();
+            byte[] old = map.put(key, value);
+            if (old != null)
+                bytes -= size(key, old);
+            bytes += size;
+            Iterator<Map.Entry<String, byte[]>> iter = map.entrySet().iterator();
+            while (bytes > maxBytes && iter.hasNext()) {
+                Map.Entry<String, byte[]> eldest = iter.next();
+                bytes -= size(eldest.getKey(), eldest.getValue());
+                iter.remove();
+                evictions.increment();
+            }
+        }
+        return value;
+    }
+
+    private static long size(String key, byte[] value) {
+        return ENTRY_OVERHEAD + 2L * key.length() + value.length;
+    }
+
+    private void checkGraph() {
+        if (graph != graphHopper.getGraphHopperStorage()) {
+            map.clear();
+            bytes = 0;
+            graph = graphHopper.getGraphHopperStorage();
+        }
+    }
+
+    /**
+     * Removes all entries, e.g. when the graph was changed.
+     */
+    public void invalidate() {
+        synchronized (map) {
+            map.clear();
+            bytes = 0;
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getBytes() {
+        synchronized (map) {
+            return bytes;
+        }
+    }
+
+    public int getSize() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    public void registerMetrics(MetricRegistry metrics) {
+        metrics.register("route_cache.hits", (Gauge<Long>) this::getHits);
+        metrics.register("route_cache.misses", (Gauge<Long>) this::getMisses);
+        metrics.register("route_cache.evictions", (Gauge<Long>) this::getEvictions);
+        metrics.register("route_cache.bytes", (Gauge<Long>) this::getBytes);
+        metrics.register("route_cache.entries", (Gauge<Integer>) this::getSize);
+    }
+}
@@ -0,0 +1,30 @@
+package com.graphhopper.http;
+
+import com.codahale.metrics.Meter;
+import com.graphhopper.jackson.MultiException;
+import com.graphhopper.util.exceptions.SearchCancelledException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+@Provider
+public class SearchCancelledExceptionMapper implements ExceptionMapper<SearchCancelledException> {
+    private static final Logger logger = LoggerFactory.getLogger(SearchCancelledExceptionMapper.class);
+    private final Meter cancelledSearches;
+
+    public SearchCancelledExceptionMapper(Meter cancelledSearches) {
+        this.cancelledSearches = cancelledSearches;
+    }
+
+    @Override
+    public Response toResponse(SearchCancelledException e) {
+        cancelledSearches.mark();
+        logger.info("search cancelled: " + e.getMessage());
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(new MultiException(e))
+                .build();
+    }
+}
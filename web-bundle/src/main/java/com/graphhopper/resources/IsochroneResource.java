@@ -4,15 +4,20 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.config.Profile;
+import com.graphhopper.http.AdmissionControl;
 import com.graphhopper.http.GHPointParam;
+import com.graphhopper.http.RequestCancellation;
 import com.graphhopper.isochrone.algorithm.ContourBuilder;
+import com.graphhopper.isochrone.algorithm.PhastShortestPathTree;
 import com.graphhopper.isochrone.algorithm.ShortestPathTree;
+import com.graphhopper.isochrone.algorithm.ShortestPathTreeSearch;
 import com.graphhopper.isochrone.algorithm.Triangulator;
 import com.graphhopper.jackson.ResponsePathSerializer;
 import com.graphhopper.routing.ProfileResolver;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.Subnetwork;
 import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
 import com.graphhopper.routing.util.DefaultSnapFilter;
 import com.graphhopper.routing.util.FiniteWeightFilter;
 import com.graphhopper.routing.util.TraversalMode;
@@ -20,6 +25,7 @@ import com.graphhopper.routing.weighting.BlockAreaWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.GraphEdgeIdFinder;
+import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
@@ -31,6 +37,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
@@ -56,12 +63,14 @@ public class IsochroneResource {
     private final GraphHopper graphHopper;
     private final Triangulator triangulator;
     private final ProfileResolver profileResolver;
+    private final AdmissionControl admission;
 
     @Inject
-    public IsochroneResource(GraphHopper graphHopper, Triangulator triangulator, ProfileResolver profileResolver) {
+    public IsochroneResource(GraphHopper graphHopper, Triangulator triangulator, ProfileResolver profileResolver, AdmissionControl admission) {
         this.graphHopper = graphHopper;
         this.triangulator = triangulator;
         this.profileResolver = profileResolver;
+        this.admission = admission;
     }
 
     public enum ResponseType {json, geojson}
@@ -69,6 +78,7 @@ public class IsochroneResource {
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public Response doGet(
+            @Context HttpServletRequest httpReq,
             @Context UriInfo uriInfo,
             @QueryParam("profile") String profileName,
             @QueryParam("buckets") @Range(min = 1, max = 20) @DefaultValue("1") IntParam nBuckets,
@@ -83,6 +93,7 @@ public class IsochroneResource {
         StopWatch sw = new StopWatch().start();
         PMap hintsMap = new PMap();
         RouteResource.initHints(hintsMap, uriInfo.getQueryParameters());
+        boolean disableCH = hintsMap.getBool(Parameters.CH.DISABLE, false);
         hintsMap.putObject(Parameters.CH.DISABLE, true);
         hintsMap.putObject(Parameters.Landmark.DISABLE, true);
         if (Helper.isEmpty(profileName)) {
@@ -96,30 +107,32 @@ public class IsochroneResource {
             throw new IllegalArgumentException("The requested profile '" + profileName + "' does not exist");
         LocationIndex locationIndex = graphHopper.getLocationIndex();
         Graph graph = graphHopper.getGraphHopperStorage();
-        Weighting weighting = graphHopper.createWeighting(profile, hintsMap);
+        RoutingCHGraph chGraph = disableCH ? null : findPhastCHGraph(graphHopper, profileName, hintsMap);
+        int[] nodeOrder = chGraph == null ? null : PhastShortestPathTree.createNodeOrder(chGraph);
+        Weighting weighting = nodeOrder != null ? chGraph.getWeighting() : graphHopper.createWeighting(profile, hintsMap);
         BooleanEncodedValue inSubnetworkEnc = graphHopper.getEncodingManager().getBooleanEncodedValue(Subnetwork.key(profileName));
         if (hintsMap.has(Parameters.Routing.BLOCK_AREA)) {
             GraphEdgeIdFinder.BlockArea blockArea = GraphEdgeIdFinder.createBlockArea(graph, locationIndex,
                     Collections.singletonList(point.get()), hintsMap, new FiniteWeightFilter(weighting));
             weighting = new BlockAreaWeighting(weighting, blockArea);
         }
+        CancellationToken cancellation = RequestCancellation.create(httpReq, hintsMap, graphHopper.getRouterConfig().getTimeoutMillis());
         Snap snap = locationIndex.findClosest(point.get().lat, point.get().lon, new DefaultSnapFilter(weighting, inSubnetworkEnc));
         if (!snap.isValid())
             throw new IllegalArgumentException("Point not found:" + point);
         QueryGraph queryGraph = QueryGraph.create(graph, snap);
         TraversalMode traversalMode = profile.isTurnCosts() ? EDGE_BASED : NODE_BASED;
-        ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, traversalMode);
 
-        double limit;
+        double limit, searchLimit;
         if (weightLimit.get() > 0) {
             limit = weightLimit.get();
-            shortestPathTree.setWeightLimit(limit + Math.max(limit * 0.14, 2_000));
+            searchLimit = limit + Math.max(limit * 0.14, 2_000);
         } else if (distanceLimitInMeter.get() > 0) {
             limit = distanceLimitInMeter.get();
-            shortestPathTree.setDistanceLimit(limit + Math.max(limit * 0.14, 2_000));
+            searchLimit = limit + Math.max(limit * 0.14, 2_000);
         } else {
             limit = timeLimitInSeconds.get() * 1000;
-            shortestPathTree.setTimeLimit(limit + Math.max(limit * 0.14, 200_000));
+            searchLimit = limit + Math.max(limit * 0.14, 200_000);
         }
         ArrayList<Double> zs = new ArrayList<>();
         double delta = limit / nBuckets.get();
@@ -136,7 +149,22 @@ public class IsochroneResource {
             fz = l -> l.time;
         }
 
-        Triangulator.Result result = triangulator.triangulate(snap, queryGraph, shortestPathTree, fz, degreesFromMeters(toleranceInMeter));
+        Triangulator.Result result;
+        int visitedNodes;
+        try (AdmissionControl.Permit permit = admission.acquire(AdmissionControl.RequestClass.ISOCHRONE)) {
+            ShortestPathTreeSearch shortestPathTree = nodeOrder != null
+                    ? new PhastShortestPathTree(new QueryRoutingCHGraph(chGraph, queryGraph), nodeOrder, reverseFlow)
+                    : new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, traversalMode);
+            shortestPathTree.setCancellation(cancellation);
+            if (weightLimit.get() > 0)
+                shortestPathTree.setWeightLimit(searchLimit);
+            else if (distanceLimitInMeter.get() > 0)
+                shortestPathTree.setDistanceLimit(searchLimit);
+            else
+                shortestPathTree.setTimeLimit(searchLimit);
+            result = triangulator.triangulate(snap, queryGraph, shortestPathTree, fz, degreesFromMeters(toleranceInMeter));
+            visitedNodes = shortestPathTree.getVisitedNodes();
+        }
 
         ContourBuilder contourBuilder = new ContourBuilder(result.triangulation);
         ArrayList<Geometry> isochrones = new ArrayList<>();
@@ -178,11 +206,22 @@ public class IsochroneResource {
             finalJson = json;
         }
 
-        logger.info("took: " + sw.getSeconds() + ", visited nodes:" + shortestPathTree.getVisitedNodes());
+        logger.info("took: " + sw.getSeconds() + ", visited nodes:" + visitedNodes);
         return Response.ok(finalJson).header("X-GH-Took", "" + sw.getSeconds() * 1000).
                 build();
     }
 
+    /**
+     * Returns the CH graph of the given profile if it can be used for a PHAST search instead of a Dijkstra, i.e. if
+     * it is node-based and the request does not modify the weighting.
+     */
+    static RoutingCHGraph findPhastCHGraph(GraphHopper graphHopper, String profileName, PMap hintsMap) {
+        if (hintsMap.has(Parameters.Routing.BLOCK_AREA))
+            return null;
+        RoutingCHGraph chGraph = graphHopper.getCHGraphs().get(profileName);
+        return chGraph == null || chGraph.isEdgeBased() ? null : chGraph;
+    }
+
     private Polygon heuristicallyFindMainConnectedComponent(MultiPolygon multiPolygon, Point point) {
         int maxPoints = 0;
         Polygon maxPolygon = null;
@@ -4,6 +4,7 @@ import com.graphhopper.GraphHopper;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.PillarLevels;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
@@ -91,17 +92,20 @@ public class MVTResource {
         final MvtLayerProps layerProps = new MvtLayerProps();
         final VectorTile.Tile.Layer.Builder layerBuilder = MvtLayerBuild.newLayerBuilder("roads", layerParams);
 
+        final PillarLevels pillarLevels = graphHopper.getPillarLevels();
+        final double pixelMeters = getPixelMeters((nw.y + se.y) / 2, zInfo, layerParams.tileSize);
         locationIndex.query(bbox, edgeId -> {
             EdgeIteratorState edge = graphHopper.getGraphHopperStorage().getEdgeIteratorStateForKey(edgeId * 2);
             LineString lineString;
             RoadClass rc = edge.get(roadClassEnc);
-            if (zInfo >= 14) {
+            if (pillarLevels != null && (zInfo >= 14 || isVisible(rc, zInfo))) {
+                // only keep the pillar nodes that change the geometry by at least one pixel
+                PointList pl = pillarLevels.fetchWayGeometry(edge, pixelMeters);
+                lineString = pl.toLineString(false);
+            } else if (zInfo >= 14) {
                 PointList pl = edge.fetchWayGeometry(FetchMode.ALL);
                 lineString = pl.toLineString(false);
-            } else if (rc == RoadClass.MOTORWAY
-                    || zInfo > 10 && (rc == RoadClass.PRIMARY || rc == RoadClass.TRUNK)
-                    || zInfo > 11 && (rc == RoadClass.SECONDARY)
-                    || zInfo > 12) {
+            } else if (isVisible(rc, zInfo)) {
                 double lat = na.getLat(edge.getBaseNode());
                 double lon = na.getLon(edge.getBaseNode());
                 double toLat = na.getLat(edge.getAdjNode());
@@ -148,6 +152,20 @@ public class MVTResource {
                 .build();
     }
 
+    private static boolean isVisible(RoadClass rc, int zoom) {
+        return rc == RoadClass.MOTORWAY
+                || zoom > 10 && (rc == RoadClass.PRIMARY || rc == RoadClass.TRUNK)
+                || zoom > 11 && (rc == RoadClass.SECONDARY)
+                || zoom > 12;
+    }
+
+    /**
+     * @return the width of a pixel in meters at the given latitude and zoom
+     */
+    static double getPixelMeters(double lat, int zoom, int tileSize) {
+        return DistanceCalcEarth.C * Math.cos(Math.toRadians(lat)) / Math.pow(2, zoom) / tileSize;
+    }
+
     Coordinate num2deg(int xInfo, int yInfo, int zoom) {
         double n = Math.pow(2, zoom);
         double lonDeg = xInfo / n * 360.0 - 180.0;
@@ -25,6 +25,8 @@ import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.ResponsePath;
 import com.graphhopper.gpx.GpxConversions;
+import com.graphhopper.http.AdmissionControl;
+import com.graphhopper.http.RequestCancellation;
 import com.graphhopper.jackson.Gpx;
 import com.graphhopper.jackson.ResponsePathSerializer;
 import com.graphhopper.matching.*;
@@ -55,12 +57,14 @@ public class MapMatchingResource {
     private final GraphHopper graphHopper;
     private final ProfileResolver profileResolver;
     private final TranslationMap trMap;
+    private final AdmissionControl admission;
 
     @Inject
-    public MapMatchingResource(GraphHopper graphHopper, ProfileResolver profileResolver, TranslationMap trMap) {
+    public MapMatchingResource(GraphHopper graphHopper, ProfileResolver profileResolver, TranslationMap trMap, AdmissionControl admission) {
         this.graphHopper = graphHopper;
         this.profileResolver = profileResolver;
         this.trMap = trMap;
+        this.admission = admission;
     }
 
     @POST
@@ -100,6 +104,7 @@ public class MapMatchingResource {
         PMap hints = createHintsMap(uriInfo.getQueryParameters());
         // add values that are not in hints because they were explicitly listed in query params
         hints.putObject(MAX_VISITED_NODES, maxVisitedNodes);
+        hints.putObject(CANCELLATION, RequestCancellation.create(request));
         String weightingVehicleLogStr = "weighting: " + hints.getString("weighting", "") + ", vehicle: " + hints.getString("vehicle", "");
         if (Helper.isEmpty(profile)) {
             // resolve profile and remove legacy vehicle/weighting parameters
@@ -115,7 +120,10 @@ public class MapMatchingResource {
         matching.setMeasurementErrorSigma(gpsAccuracy);
 
         List<Observation> measurements = GpxConversions.getEntries(gpx.trk.get(0));
-        MatchResult matchResult = matching.match(measurements);
+        MatchResult matchResult;
+        try (AdmissionControl.Permit permit = admission.acquire(AdmissionControl.RequestClass.MATCH)) {
+            matchResult = matching.match(measurements);
+        }
 
         // TODO: Request logging and timing should perhaps be done somewhere outside
         float took = sw.stop().getSeconds();
@@ -153,13 +161,12 @@ public class MapMatchingResource {
                         header("X-GH-Took", "" + Math.round(took * 1000)).
                         build();
             } else {
-                ObjectNode map = ResponsePathSerializer.jsonObject(rsp, instructions, calcPoints, enableElevation, pointsEncoded, took);
-
+                Map<String, Object> additionalFields = new LinkedHashMap<>();
                 Map<String, Object> matchStatistics = new HashMap<>();
                 matchStatistics.put("distance", matchResult.getMatchLength());
                 matchStatistics.put("time", matchResult.getMatchMillis());
                 matchStatistics.put("original_distance", matchResult.getGpxEntriesLength());
-                map.putPOJO("map_matching", matchStatistics);
+                additionalFields.put("map_matching", matchStatistics);
 
                 if (enableTraversalKeys) {
                     List<Integer> traversalKeylist = new ArrayList<>();
@@ -168,21 +175,21 @@ public class MapMatchingResource {
                         // encode edges as traversal keys which includes orientation, decode simply by multiplying with 0.5
                         traversalKeylist.add(GHUtility.createEdgeKey(edge.getBaseNode(), edge.getAdjNode(), edge.getEdge(), false));
                     }
-                    map.putPOJO("traversal_keys", traversalKeylist);
+                    additionalFields.put("traversal_keys", traversalKeylist);
                 }
-                return Response.ok(map).
+                return Response.ok(ResponsePathSerializer.jsonStreaming(rsp, instructions, calcPoints, enableElevation, pointsEncoded, took, additionalFields)).
                         header("X-GH-Took", "" + Math.round(took * 1000)).
                         build();
             }
         }
     }
 
-    private void removeLegacyParameters(PMap hints) {
+    static void removeLegacyParameters(PMap hints) {
         hints.remove("vehicle");
         hints.remove("weighting");
     }
 
-    private static void errorIfLegacyParameters(PMap hints) {
+    static void errorIfLegacyParameters(PMap hints) {
         if (hints.has("weighting"))
             throw new IllegalArgumentException("Since you are using the 'profile' parameter, do not use the 'weighting' parameter." +
                     " You used 'weighting=" + hints.getString("weighting", "") + "'");
@@ -191,7 +198,7 @@ public class MapMatchingResource {
                     " You used 'vehicle=" + hints.getString("vehicle", "") + "'");
     }
 
-    private PMap createHintsMap(MultivaluedMap<String, String> queryParameters) {
+    static PMap createHintsMap(MultivaluedMap<String, String> queryParameters) {
         PMap m = new PMap();
         for (Map.Entry<String, List<String>> e : queryParameters.entrySet()) {
             if (e.getValue().size() == 1) {
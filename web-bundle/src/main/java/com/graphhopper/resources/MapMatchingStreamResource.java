@@ -0,0 +1,195 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.http.AdmissionControl;
+import com.graphhopper.http.RequestCancellation;
+import com.graphhopper.matching.EdgeMatch;
+import com.graphhopper.matching.Observation;
+import com.graphhopper.matching.OnlineMapMatching;
+import com.graphhopper.matching.State;
+import com.graphhopper.routing.ProfileResolver;
+import com.graphhopper.util.*;
+import com.graphhopper.util.exceptions.SearchCancelledException;
+import com.graphhopper.util.shapes.GHPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.*;
+import javax.ws.rs.core.*;
+import java.io.*;
+import java.util.List;
+
+import static com.graphhopper.resources.MapMatchingResource.*;
+import static com.graphhopper.util.Parameters.Routing.CANCELLATION;
+import static com.graphhopper.util.Parameters.Routing.MAX_VISITED_NODES;
+
+/**
+ * Resource to match a stream of GPS positions, e.g. of a vehicle, while it is being recorded. The request body contains
+ * one observation per line like {"lat": 51.34, "lon": 12.37} (newline delimited JSON). The response is written while
+ * the request is read and contains one line per matched edge as soon as the edge is final, see
+ * {@link OnlineMapMatching}.
+ */
+@javax.ws.rs.Path("match/stream")
+public class MapMatchingStreamResource {
+
+    public static final String NDJSON = "application/x-ndjson";
+    public static final int DEFAULT_MAX_LAG_LIMIT = 100;
+
+    private static final Logger logger = LoggerFactory.getLogger(MapMatchingStreamResource.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final GraphHopper graphHopper;
+    private final ProfileResolver profileResolver;
+    private final AdmissionControl admission;
+    private final int maxLagLimit;
+
+    @Inject
+    public MapMatchingStreamResource(GraphHopperConfig config, GraphHopper graphHopper, ProfileResolver profileResolver, AdmissionControl admission) {
+        this.graphHopper = graphHopper;
+        this.profileResolver = profileResolver;
+        this.admission = admission;
+        // the memory of a stream grows with max_lag, so the client must not pick an arbitrary value
+        this.maxLagLimit = config.getInt("map_matching.max_lag", DEFAULT_MAX_LAG_LIMIT);
+    }
+
+    @POST
+    @Consumes(NDJSON)
+    @Produces(NDJSON)
+    public Response match(
+            InputStream body,
+            @Context HttpServletRequest request,
+            @Context UriInfo uriInfo,
+            @QueryParam("profile") String profile,
+            @QueryParam("gps_accuracy") @DefaultValue("40") double gpsAccuracy,
+            @QueryParam("max_lag") @DefaultValue("20") int maxLag,
+            @QueryParam(MAX_VISITED_NODES) @DefaultValue("3000") int maxVisitedNodes) {
+        PMap hints = createHintsMap(uriInfo.getQueryParameters());
+        hints.putObject(MAX_VISITED_NODES, maxVisitedNodes);
+        hints.putObject(CANCELLATION, RequestCancellation.create(request));
+        if (Helper.isEmpty(profile)) {
+            PMap pMap = new PMap(hints).putObject(Parameters.CH.DISABLE, true);
+            profile = profileResolver.resolveProfile(pMap).getName();
+            removeLegacyParameters(hints);
+        }
+        hints.putObject("profile", profile);
+        errorIfLegacyParameters(hints);
+
+        OnlineMapMatching matching = new OnlineMapMatching(graphHopper, hints);
+        matching.setMeasurementErrorSigma(gpsAccuracy);
+        matching.setMaxLag(Math.min(maxLag, maxLagLimit));
+
+        String logStr = request.getQueryString() + ", " + request.getRemoteAddr() + ", profile: " + profile;
+        StreamingOutput out = output -> {
+            StopWatch sw = new StopWatch().start();
+            int observations = 0;
+            BufferedReader reader = new BufferedReader(new InputStreamReader(body, Helper.UTF_CS));
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, Helper.UTF_CS));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.trim().isEmpty())
+                        continue;
+                    Observation observation = parseObservation(line);
+                    observations++;
+                    // the permit is only held while the observation is matched, the stream itself can be open for long
+                    try (AdmissionControl.Permit permit = admission.acquire(AdmissionControl.RequestClass.MATCH)) {
+                        write(writer, matching.add(observation));
+                    }
+                }
+                write(writer, matching.finish());
+            } catch (IllegalArgumentException | WebApplicationException ex) {
+                // the status was already sent, so we can only report the error in the stream
+                writeError(writer, ex.getMessage());
+            } catch (SearchCancelledException ex) {
+                // timed out or the client disconnected, in which case there is nobody left to report the error to
+                logger.info(logStr + ", cancelled: " + ex.getMessage());
+                try {
+                    writeError(writer, ex.getMessage());
+                } catch (IOException ignored) {
+                }
+            } catch (RuntimeException ex) {
+                logger.error(logStr + ", error", ex);
+                writeError(writer, ex.getMessage());
+            } finally {
+                logger.info(logStr + ", took:" + sw.stop().getSeconds() + "s, entries:" + observations);
+            }
+        };
+        return Response.ok(out, NDJSON).build();
+    }
+
+    private static Observation parseObservation(String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Invalid observation: " + line);
+        }
+        if (!node.path("lat").isNumber() || !node.path("lon").isNumber())
+            throw new IllegalArgumentException("Observation must contain lat and lon: " + line);
+        return new Observation(new GHPoint(node.get("lat").asDouble(), node.get("lon").asDouble()));
+    }
+
+    private static void writeError(Writer writer, String message) throws IOException {
+        ObjectNode error = JsonNodeFactory.instance.objectNode();
+        error.put("message", message);
+        writer.write(objectMapper.writeValueAsString(error));
+        writer.write('\n');
+        writer.flush();
+    }
+
+    private static void write(Writer writer, List<EdgeMatch> edgeMatches) throws IOException {
+        for (EdgeMatch edgeMatch : edgeMatches) {
+            writer.write(objectMapper.writeValueAsString(convertToLink(edgeMatch)));
+            writer.write('\n');
+        }
+        // the client should see the matched edges now and not when the buffer is full
+        writer.flush();
+    }
+
+    private static ObjectNode convertToLink(EdgeMatch edgeMatch) {
+        EdgeIteratorState edge = edgeMatch.getEdgeState();
+        ObjectNode link = JsonNodeFactory.instance.objectNode();
+        link.put("id", edge.getEdge());
+        // see MapMatchingResource: decode the edge id by multiplying with 0.5
+        link.put("traversal_key", GHUtility.createEdgeKey(edge.getBaseNode(), edge.getAdjNode(), edge.getEdge(), false));
+        link.put("distance", Helper.round2(edge.getDistance()));
+        ObjectNode geometry = link.putObject("geometry");
+        geometry.put("type", "LineString");
+        ArrayNode coordinates = geometry.putArray("coordinates");
+        PointList pointList = edge.fetchWayGeometry(FetchMode.ALL);
+        for (int i = 0; i < pointList.size(); i++)
+            coordinates.addArray().add(Helper.round6(pointList.getLon(i))).add(Helper.round6(pointList.getLat(i)));
+        ArrayNode wpts = link.putArray("wpts");
+        for (State state : edgeMatch.getStates()) {
+            ObjectNode wpt = wpts.addObject();
+            wpt.put("x", state.getSnap().getSnappedPoint().lon);
+            wpt.put("y", state.getSnap().getSnappedPoint().lat);
+        }
+        return link;
+    }
+}
@@ -19,9 +19,9 @@
 package com.graphhopper.resources;
 
 import com.conveyal.gtfs.model.Stop;
+import com.graphhopper.GraphHopper;
 import com.graphhopper.gtfs.*;
-import com.graphhopper.http.GHLocationParam;
-import com.graphhopper.http.OffsetDateTimeParam;
+import com.graphhopper.http.*;
 import com.graphhopper.isochrone.algorithm.ContourBuilder;
 import com.graphhopper.isochrone.algorithm.ReadableTriangulation;
 import com.graphhopper.jackson.ResponsePathSerializer;
@@ -34,9 +34,13 @@ import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.GraphHopperStorage;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.util.CancellationToken;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.JsonFeature;
+import com.graphhopper.util.Parameters;
 import com.graphhopper.util.shapes.BBox;
+import io.dropwizard.jersey.params.IntParam;
+import org.hibernate.validator.constraints.Range;
 import org.locationtech.jts.geom.*;
 import org.locationtech.jts.triangulate.ConformingDelaunayTriangulator;
 import org.locationtech.jts.triangulate.ConstraintVertex;
@@ -46,28 +50,49 @@ import org.locationtech.jts.triangulate.quadedge.QuadEdgeSubdivision;
 import org.locationtech.jts.triangulate.quadedge.Vertex;
 
 import javax.inject.Inject;
+import javax.inject.Named;
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 @Path("isochrone-pt")
 public class PtIsochroneResource {
 
     private static final double JTS_TOLERANCE = 0.00001;
+    /**
+     * The name of the executor that calculates the searches for the departure times of a request in parallel.
+     */
+    public static final String EXECUTOR = "pt_isochrone_executor";
 
     private final GtfsStorage gtfsStorage;
     private final EncodingManager encodingManager;
     private final GraphHopperStorage graphHopperStorage;
     private final LocationIndex locationIndex;
+    private final AdmissionControl admission;
+    private final LabelPool labelPool;
+    private final ExecutorService executor;
+    private final long maxTimeoutMillis;
 
     @Inject
-    public PtIsochroneResource(GtfsStorage gtfsStorage, EncodingManager encodingManager, GraphHopperStorage graphHopperStorage, LocationIndex locationIndex) {
+    public PtIsochroneResource(GtfsStorage gtfsStorage, EncodingManager encodingManager, GraphHopperStorage graphHopperStorage, LocationIndex locationIndex,
+                               AdmissionControl admission, LabelPool labelPool, @Named(EXECUTOR) ExecutorService executor,
+                               GraphHopper graphHopper) {
+        this.maxTimeoutMillis = graphHopper.getRouterConfig().getTimeoutMillis();
         this.gtfsStorage = gtfsStorage;
         this.encodingManager = encodingManager;
         this.graphHopperStorage = graphHopperStorage;
         this.locationIndex = locationIndex;
+        this.admission = admission;
+        this.labelPool = labelPool;
+        this.executor = executor;
     }
 
     public static class Response {
@@ -82,12 +107,16 @@ public class PtIsochroneResource {
     @GET
     @Produces({MediaType.APPLICATION_JSON})
     public Response doGet(
+            @Context HttpServletRequest httpReq,
             @QueryParam("point") GHLocationParam sourceParam,
             @QueryParam("time_limit") @DefaultValue("600") long seconds,
             @QueryParam("reverse_flow") @DefaultValue("false") boolean reverseFlow,
             @QueryParam("pt.earliest_departure_time") @NotNull OffsetDateTimeParam departureTimeParam,
             @QueryParam("pt.blocked_route_types") @DefaultValue("0") int blockedRouteTypes,
-            @QueryParam("result") @DefaultValue("multipolygon") String format) {
+            @QueryParam("pt.departure_window") @DefaultValue("PT0S") DurationParam departureWindowParam,
+            @QueryParam("pt.departure_samples") @Range(min = 1, max = 20) @DefaultValue("1") IntParam departureSamples,
+            @QueryParam("result") @DefaultValue("multipolygon") String format,
+            @QueryParam(Parameters.Routing.TIMEOUT_MS) @DefaultValue("0") long timeoutMillis) {
         Instant initialTime = departureTimeParam.get().toInstant();
         GHLocation location = sourceParam.get();
 
@@ -99,24 +128,17 @@ public class PtIsochroneResource {
         DefaultSnapFilter snapFilter = new DefaultSnapFilter(weighting, graphHopperStorage.getEncodingManager().getBooleanEncodedValue(Subnetwork.key("foot")));
 
         PtLocationSnapper.Result snapResult = new PtLocationSnapper(graphHopperStorage, locationIndex, gtfsStorage).snapAll(Arrays.asList(location), Arrays.asList(snapFilter));
-        GraphExplorer graphExplorer = new GraphExplorer(snapResult.queryGraph, gtfsStorage.getPtGraph(), weighting, gtfsStorage, RealtimeFeed.empty(), reverseFlow, false, false, 5.0, reverseFlow, blockedRouteTypes);
-        MultiCriteriaLabelSetting router = new MultiCriteriaLabelSetting(graphExplorer, reverseFlow, false, false, 0, Collections.emptyList());
-
-        Map<Coordinate, Double> z1 = new HashMap<>();
+        CancellationToken cancellation = RequestCancellation.create(httpReq, timeoutMillis, maxTimeoutMillis);
         NodeAccess nodeAccess = snapResult.queryGraph.getNodeAccess();
 
-        for (Label label : router.calcLabels(snapResult.nodes.get(0), initialTime)) {
-            if (!((label.currentTime - initialTime.toEpochMilli()) * (reverseFlow ? -1 : 1) <= targetZ)) {
-                break;
-            }
-            if (label.node.streetNode != -1) {
-                Coordinate nodeCoordinate = new Coordinate(nodeAccess.getLon(label.node.streetNode), nodeAccess.getLat(label.node.streetNode));
-                z1.merge(nodeCoordinate, (double) (label.currentTime - initialTime.toEpochMilli()) * (reverseFlow ? -1 : 1), Math::min);
-            } else if (label.edge != null && (label.edge.getType() == GtfsStorage.EdgeType.EXIT_PT || label.edge.getType() == GtfsStorage.EdgeType.ENTER_PT)) {
-                GtfsStorage.PlatformDescriptor platformDescriptor = label.edge.getPlatformDescriptor();
-                Stop stop = gtfsStorage.getGtfsFeeds().get(platformDescriptor.feed_id).stops.get(platformDescriptor.stop_id);
-                Coordinate nodeCoordinate = new Coordinate(stop.stop_lon, stop.stop_lat);
-                z1.merge(nodeCoordinate, (double) (label.currentTime - initialTime.toEpochMilli()) * (reverseFlow ? -1 : 1), Math::min);
+        Map<Coordinate, Double> z1;
+        try (AdmissionControl.Permit permit = admission.acquire(AdmissionControl.RequestClass.PT)) {
+            Duration departureWindow = departureWindowParam.get();
+            int samples = departureWindow.isZero() ? 1 : departureSamples.get();
+            if (samples == 1) {
+                z1 = calcTravelTimes(snapResult, weighting, reverseFlow, blockedRouteTypes, initialTime, targetZ, cancellation);
+            } else {
+                z1 = calcTypicalTravelTimes(snapResult, weighting, reverseFlow, blockedRouteTypes, initialTime, departureWindow, samples, targetZ, cancellation);
             }
         }
 
@@ -198,6 +220,92 @@ public class PtIsochroneResource {
 
     }
 
+    /**
+     * Searches from the departure times that are evenly spread over the departure window in parallel and returns
+     * the median travel time for every coordinate, which describes what is typically reachable in this time window
+     * better than a single departure time that might just miss a connection.
+     */
+    private Map<Coordinate, Double> calcTypicalTravelTimes(PtLocationSnapper.Result snapResult, Weighting weighting, boolean reverseFlow, int blockedRouteTypes,
+                                                          Instant initialTime, Duration departureWindow, int samples, double targetZ,
+                                                          CancellationToken cancellation) {
+        List<Future<Map<Coordinate, Double>>> futures = new ArrayList<>(samples);
+        for (int i = 0; i < samples; i++) {
+            Instant departureTime = initialTime.plus(departureWindow.multipliedBy(i).dividedBy(samples));
+            futures.add(executor.submit(() -> calcTravelTimes(snapResult, weighting, reverseFlow, blockedRouteTypes, departureTime, targetZ, cancellation)));
+        }
+        List<Map<Coordinate, Double>> travelTimes = new ArrayList<>(samples);
+        try {
+            for (Future<Map<Coordinate, Double>> future : futures) {
+                travelTimes.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            if (travelTimes.size() < samples) {
+                // stop the remaining searches if one of them failed
+                cancellation.cancel("The search for another departure time failed");
+                futures.forEach(f -> f.cancel(false));
+            }
+        }
+
+        Set<Coordinate> reached = new HashSet<>();
+        travelTimes.forEach(t -> reached.addAll(t.keySet()));
+        Map<Coordinate, Double> result = new HashMap<>();
+        double[] times = new double[samples];
+        for (Coordinate coordinate : reached) {
+            for (int i = 0; i < samples; i++) {
+                times[i] = travelTimes.get(i).getOrDefault(coordinate, Double.MAX_VALUE);
+            }
+            Arrays.sort(times);
+            double median = samples % 2 == 1 ? times[samples / 2] : times[samples / 2 - 1] / 2 + times[samples / 2] / 2;
+            if (median <= targetZ)
+                result.put(coordinate, median);
+        }
+        return result;
+    }
+
+    /**
+     * @return the travel time in milliseconds to every coordinate that can be reached within targetZ
+     */
+    private Map<Coordinate, Double> calcTravelTimes(PtLocationSnapper.Result snapResult, Weighting weighting, boolean reverseFlow, int blockedRouteTypes,
+                                                    Instant departureTime, double targetZ, CancellationToken cancellation) {
+        GraphExplorer graphExplorer = new GraphExplorer(snapResult.queryGraph, gtfsStorage.getPtGraph(), weighting, gtfsStorage, RealtimeFeed.empty(), reverseFlow, false, false, 5.0, reverseFlow, blockedRouteTypes);
+        LabelStore store = labelPool.acquire();
+        try {
+            MultiCriteriaLabelSetting router = new MultiCriteriaLabelSetting(graphExplorer, reverseFlow, false, false, 0, Collections.emptyList(), store);
+            router.setCancellation(cancellation);
+            Map<Coordinate, Double> z1 = new HashMap<>();
+            NodeAccess nodeAccess = snapResult.queryGraph.getNodeAccess();
+            long startTime = departureTime.toEpochMilli();
+            router.calcLabelIds(snapResult.nodes.get(0), departureTime, label -> {
+                double time = (double) (store.getCurrentTime(label) - startTime) * (reverseFlow ? -1 : 1);
+                if (!(time <= targetZ)) {
+                    return false;
+                }
+                Label.NodeId node = store.getNode(label);
+                GraphExplorer.MultiModalEdge edge = store.getEdge(label);
+                if (node.streetNode != -1) {
+                    Coordinate nodeCoordinate = new Coordinate(nodeAccess.getLon(node.streetNode), nodeAccess.getLat(node.streetNode));
+                    z1.merge(nodeCoordinate, time, Math::min);
+                } else if (edge != null && (edge.getType() == GtfsStorage.EdgeType.EXIT_PT || edge.getType() == GtfsStorage.EdgeType.ENTER_PT)) {
+                    GtfsStorage.PlatformDescriptor platformDescriptor = edge.getPlatformDescriptor();
+                    Stop stop = gtfsStorage.getGtfsFeeds().get(platformDescriptor.feed_id).stops.get(platformDescriptor.stop_id);
+                    Coordinate nodeCoordinate = new Coordinate(stop.stop_lon, stop.stop_lat);
+                    z1.merge(nodeCoordinate, time, Math::min);
+                }
+                return true;
+            });
+            return z1;
+        } finally {
+            labelPool.release(store);
+        }
+    }
+
     private Response wrap(Geometry isoline) {
         JsonFeature feature = new JsonFeature();
         feature.setGeometry(isoline);
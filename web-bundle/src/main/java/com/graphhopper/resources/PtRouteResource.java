@@ -20,21 +20,29 @@ package com.graphhopper.resources;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.graphhopper.GHResponse;
+import com.graphhopper.GraphHopper;
 import com.graphhopper.gtfs.GHLocation;
 import com.graphhopper.gtfs.PtRouter;
 import com.graphhopper.gtfs.Request;
+import com.graphhopper.http.AdmissionControl;
 import com.graphhopper.http.DurationParam;
 import com.graphhopper.http.GHLocationParam;
 import com.graphhopper.http.OffsetDateTimeParam;
+import com.graphhopper.http.RequestCancellation;
+import com.graphhopper.jackson.MultiException;
 import com.graphhopper.jackson.ResponsePathSerializer;
 import com.graphhopper.util.Helper;
+import com.graphhopper.util.Parameters;
 import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.exceptions.SearchCancelledException;
 import io.dropwizard.jersey.params.AbstractParam;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import java.time.Instant;
 import java.util.List;
@@ -46,15 +54,20 @@ import static java.util.stream.Collectors.toList;
 public class PtRouteResource {
 
     private final PtRouter ptRouter;
+    private final AdmissionControl admission;
+    private final long maxTimeoutMillis;
 
     @Inject
-    public PtRouteResource(PtRouter ptRouter) {
+    public PtRouteResource(PtRouter ptRouter, AdmissionControl admission, GraphHopper graphHopper) {
         this.ptRouter = ptRouter;
+        this.maxTimeoutMillis = graphHopper.getRouterConfig().getTimeoutMillis();
+        this.admission = admission;
     }
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public ObjectNode route(@QueryParam("point") @Size(min=2,max=2) List<GHLocationParam> requestPoints,
+    public ObjectNode route(@Context HttpServletRequest httpReq,
+                            @QueryParam("point") @Size(min=2,max=2) List<GHLocationParam> requestPoints,
                             @QueryParam("pt.earliest_departure_time") @NotNull OffsetDateTimeParam departureTimeParam,
                             @QueryParam("pt.profile_duration") DurationParam profileDuration,
                             @QueryParam("pt.arrive_by") @DefaultValue("false") boolean arriveBy,
@@ -65,7 +78,8 @@ public class PtRouteResource {
                             @QueryParam("pt.limit_trip_time") DurationParam limitTripTime,
                             @QueryParam("pt.limit_street_time") DurationParam limitStreetTime,
                             @QueryParam("pt.access_profile") String accessProfile,
-                            @QueryParam("pt.egress_profile") String egressProfile) {
+                            @QueryParam("pt.egress_profile") String egressProfile,
+                            @QueryParam(Parameters.Routing.TIMEOUT_MS) @DefaultValue("0") long timeoutMillis) {
         StopWatch stopWatch = new StopWatch().start();
         List<GHLocation> points = requestPoints.stream().map(AbstractParam::get).collect(toList());
         Instant departureTime = departureTimeParam.get().toInstant();
@@ -81,8 +95,15 @@ public class PtRouteResource {
         Optional.ofNullable(limitStreetTime.get()).ifPresent(request::setLimitStreetTime);
         Optional.ofNullable(accessProfile).ifPresent(request::setAccessProfile);
         Optional.ofNullable(egressProfile).ifPresent(request::setEgressProfile);
+        request.setCancellation(RequestCancellation.create(httpReq, timeoutMillis, maxTimeoutMillis));
 
-        GHResponse route = ptRouter.route(request);
+        GHResponse route;
+        try (AdmissionControl.Permit permit = admission.acquire(AdmissionControl.RequestClass.PT)) {
+            route = ptRouter.route(request);
+        }
+        // other errors just lead to an empty response, but a cancelled search should not look like there is no route
+        if (route.getErrors().stream().anyMatch(e -> e instanceof SearchCancelledException))
+            throw new MultiException(route.getErrors());
         return ResponsePathSerializer.jsonObject(route, true, true, false, false, stopWatch.stop().getMillis());
     }
 
@@ -21,7 +21,10 @@ import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.gpx.GpxConversions;
+import com.graphhopper.http.AdmissionControl;
 import com.graphhopper.http.GHPointParam;
+import com.graphhopper.http.RequestCancellation;
+import com.graphhopper.http.RouteResponseCache;
 import com.graphhopper.jackson.MultiException;
 import com.graphhopper.jackson.ResponsePathSerializer;
 import com.graphhopper.routing.ProfileResolver;
@@ -59,12 +62,17 @@ public class RouteResource {
     private final GraphHopper graphHopper;
     private final ProfileResolver profileResolver;
     private final Boolean hasElevation;
+    private final RouteResponseCache routeCache;
+    private final AdmissionControl admission;
 
     @Inject
-    public RouteResource(GraphHopper graphHopper, ProfileResolver profileResolver, @Named("hasElevation") Boolean hasElevation) {
+    public RouteResource(GraphHopper graphHopper, ProfileResolver profileResolver, @Named("hasElevation") Boolean hasElevation,
+                         RouteResponseCache routeCache, AdmissionControl admission) {
         this.graphHopper = graphHopper;
         this.profileResolver = profileResolver;
         this.hasElevation = hasElevation;
+        this.routeCache = routeCache;
+        this.admission = admission;
     }
 
     @GET
@@ -127,7 +135,12 @@ public class RouteResource {
             request.getHints().putObject(ELEVATION_WAY_POINT_MAX_DISTANCE, minPathElevationPrecision);
         }
 
-        GHResponse ghResponse = graphHopper.route(request);
+        String cacheKey = writeGPX ? null : routeCache.createKey(request);
+        byte[] cached = cacheKey == null ? null : routeCache.get(cacheKey);
+        if (cached != null)
+            return cachedResponse(cached, sw, httpReq, points.size(), profileName);
+
+        GHResponse ghResponse = route(request, httpReq);
 
         long took = sw.stop().getNanos() / 1_000_000;
         String infoStr = httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent");
@@ -149,7 +162,7 @@ public class RouteResource {
                             header("X-GH-Took", "" + Math.round(took)).
                             build()
                     :
-                    Response.ok(ResponsePathSerializer.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
+                    Response.ok(cacheIfEnabled(cacheKey, ResponsePathSerializer.jsonStreaming(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took))).
                             header("X-GH-Took", "" + Math.round(took)).
                             type(MediaType.APPLICATION_JSON).
                             build();
@@ -174,7 +187,12 @@ public class RouteResource {
                 throw new IllegalArgumentException("The 'profile' parameter is required when you use the `custom_model` parameter");
         }
         errorIfLegacyParameters(request.getHints());
-        GHResponse ghResponse = graphHopper.route(request);
+        String cacheKey = routeCache.createKey(request);
+        byte[] cached = cacheKey == null ? null : routeCache.get(cacheKey);
+        if (cached != null)
+            return cachedResponse(cached, sw, httpReq, request.getPoints().size(), request.getProfile());
+
+        GHResponse ghResponse = route(request, httpReq);
         boolean instructions = request.getHints().getBool(INSTRUCTIONS, true);
         boolean enableElevation = request.getHints().getBool("elevation", false);
         boolean calcPoints = request.getHints().getBool(CALC_POINTS, true);
@@ -201,13 +219,37 @@ public class RouteResource {
                     + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
                     + ", points0: " + ghResponse.getBest().getPoints().size()
                     + ", debugInfo: " + ghResponse.getDebugInfo());
-            return Response.ok(ResponsePathSerializer.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
+            return Response.ok(cacheIfEnabled(cacheKey, ResponsePathSerializer.jsonStreaming(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took))).
                     header("X-GH-Took", "" + Math.round(took)).
                     type(MediaType.APPLICATION_JSON).
                     build();
         }
     }
 
+    private GHResponse route(GHRequest request, HttpServletRequest httpReq) {
+        // the Router adds the time budget
+        request.getHints().putObject(CANCELLATION, RequestCancellation.create(httpReq));
+        try (AdmissionControl.Permit permit = admission.acquire(AdmissionControl.classify(graphHopper, request))) {
+            return graphHopper.route(request);
+        }
+    }
+
+    private Object cacheIfEnabled(String cacheKey, Object json) {
+        // the serialized response is cached, which also avoids serializing it again for the next hit
+        return cacheKey == null ? json : routeCache.put(cacheKey, json);
+    }
+
+    private Response cachedResponse(byte[] cached, StopWatch sw, HttpServletRequest httpReq, int points, String profileName) {
+        // the 'took' value of the JSON body is from the original request, the header contains the actual time
+        long took = sw.stop().getNanos() / 1_000_000;
+        logger.info(httpReq.getQueryString() + " " + httpReq.getRemoteAddr() + " " + points + ", took: "
+                + String.format("%.1f", (double) took) + "ms, profile: " + profileName + ", cache hit");
+        return Response.ok(cached).
+                header("X-GH-Took", "" + Math.round(took)).
+                type(MediaType.APPLICATION_JSON).
+                build();
+    }
+
     private void enableEdgeBasedIfThereAreCurbsides(List<String> curbsides, GHRequest request) {
         if (!curbsides.isEmpty()) {
             if (!request.getHints().getBool(TURN_COSTS, true))
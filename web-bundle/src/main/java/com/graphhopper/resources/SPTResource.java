@@ -2,11 +2,16 @@ package com.graphhopper.resources;
 
 import com.graphhopper.GraphHopper;
 import com.graphhopper.config.Profile;
+import com.graphhopper.http.AdmissionControl;
 import com.graphhopper.http.GHPointParam;
+import com.graphhopper.http.RequestCancellation;
+import com.graphhopper.isochrone.algorithm.PhastShortestPathTree;
 import com.graphhopper.isochrone.algorithm.ShortestPathTree;
+import com.graphhopper.isochrone.algorithm.ShortestPathTreeSearch;
 import com.graphhopper.routing.ProfileResolver;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
 import com.graphhopper.routing.util.DefaultSnapFilter;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FiniteWeightFilter;
@@ -16,15 +21,18 @@ import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.GraphEdgeIdFinder;
 import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.GHPoint;
 import io.dropwizard.jersey.params.LongParam;
+import org.glassfish.jersey.server.CloseableService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
@@ -61,12 +69,14 @@ public class SPTResource {
     private final GraphHopper graphHopper;
     private final ProfileResolver profileResolver;
     private final EncodingManager encodingManager;
+    private final AdmissionControl admission;
 
     @Inject
-    public SPTResource(GraphHopper graphHopper, ProfileResolver profileResolver, EncodingManager encodingManager) {
+    public SPTResource(GraphHopper graphHopper, ProfileResolver profileResolver, EncodingManager encodingManager, AdmissionControl admission) {
         this.graphHopper = graphHopper;
         this.profileResolver = profileResolver;
         this.encodingManager = encodingManager;
+        this.admission = admission;
     }
 
     // Annotating this as application/json because errors come out as json, and
@@ -74,7 +84,9 @@ public class SPTResource {
     @GET
     @Produces({"text/csv", "application/json"})
     public Response doGet(
+            @Context HttpServletRequest httpReq,
             @Context UriInfo uriInfo,
+            @Context CloseableService closeableService,
             @QueryParam("profile") String profileName,
             @QueryParam("reverse_flow") @DefaultValue("false") boolean reverseFlow,
             @QueryParam("point") @NotNull GHPointParam point,
@@ -84,6 +96,7 @@ public class SPTResource {
         StopWatch sw = new StopWatch().start();
         PMap hintsMap = new PMap();
         RouteResource.initHints(hintsMap, uriInfo.getQueryParameters());
+        boolean disableCH = hintsMap.getBool(Parameters.CH.DISABLE, false);
         hintsMap.putObject(Parameters.CH.DISABLE, true);
         hintsMap.putObject(Parameters.Landmark.DISABLE, true);
         if (Helper.isEmpty(profileName)) {
@@ -97,27 +110,30 @@ public class SPTResource {
             throw new IllegalArgumentException("The requested profile '" + profileName + "' does not exist");
         LocationIndex locationIndex = graphHopper.getLocationIndex();
         Graph graph = graphHopper.getGraphHopperStorage();
-        Weighting weighting = graphHopper.createWeighting(profile, hintsMap);
+        RoutingCHGraph chGraph = disableCH ? null : IsochroneResource.findPhastCHGraph(graphHopper, profileName, hintsMap);
+        int[] nodeOrder = chGraph == null ? null : PhastShortestPathTree.createNodeOrder(chGraph);
+        Weighting weighting = nodeOrder != null ? chGraph.getWeighting() : graphHopper.createWeighting(profile, hintsMap);
         BooleanEncodedValue inSubnetworkEnc = graphHopper.getEncodingManager().getBooleanEncodedValue(Subnetwork.key(profileName));
         if (hintsMap.has(Parameters.Routing.BLOCK_AREA)) {
             GraphEdgeIdFinder.BlockArea blockArea = GraphEdgeIdFinder.createBlockArea(graph, locationIndex,
                     Collections.singletonList(point.get()), hintsMap, new FiniteWeightFilter(weighting));
             weighting = new BlockAreaWeighting(weighting, blockArea);
         }
+        CancellationToken cancellation = RequestCancellation.create(httpReq, hintsMap, graphHopper.getRouterConfig().getTimeoutMillis());
         Snap snap = locationIndex.findClosest(point.get().lat, point.get().lon, new DefaultSnapFilter(weighting, inSubnetworkEnc));
         if (!snap.isValid())
             throw new IllegalArgumentException("Point not found:" + point);
         QueryGraph queryGraph = QueryGraph.create(graph, snap);
         NodeAccess nodeAccess = queryGraph.getNodeAccess();
         TraversalMode traversalMode = profile.isTurnCosts() ? EDGE_BASED : NODE_BASED;
-        ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, traversalMode);
-
-        if (distanceInMeter.get() > 0) {
+        ShortestPathTreeSearch shortestPathTree = nodeOrder != null
+                ? new PhastShortestPathTree(new QueryRoutingCHGraph(chGraph, queryGraph), nodeOrder, reverseFlow)
+                : new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, traversalMode);
+        shortestPathTree.setCancellation(cancellation);
+        if (distanceInMeter.get() > 0)
             shortestPathTree.setDistanceLimit(distanceInMeter.get());
-        } else {
-            double limit = timeLimitInSeconds.get() * 1000;
-            shortestPathTree.setTimeLimit(limit);
-        }
+        else
+            shortestPathTree.setTimeLimit(timeLimitInSeconds.get() * 1000);
 
         final String COL_SEP = ",", LINE_SEP = "\n";
         List<String> columns;
@@ -135,8 +151,14 @@ public class SPTResource {
                 pathDetails.put(col, encodingManager.getEncodedValue(col, EncodedValue.class));
         }
 
+        // the search runs while the response is written, so the permit is released by the StreamingOutput. if the
+        // output is never written, e.g. because of an error or because the client aborted, it is released at the end
+        // of the request
+        AdmissionControl.Permit permit = admission.acquire(AdmissionControl.RequestClass.ISOCHRONE);
+        closeableService.add(permit::close);
         StreamingOutput out = output -> {
-            try (Writer writer = new BufferedWriter(new OutputStreamWriter(output, Helper.UTF_CS))) {
+            try (AdmissionControl.Permit p = permit;
+                 Writer writer = new BufferedWriter(new OutputStreamWriter(output, Helper.UTF_CS))) {
                 StringBuilder sb = new StringBuilder();
                 for (String col : columns) {
                     if (sb.length() > 0)
@@ -0,0 +1,97 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.WebApplicationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.graphhopper.http.AdmissionControl.RequestClass.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControlTest {
+
+    @Test
+    public void rejectWithoutQueue() {
+        AdmissionControl admission = new AdmissionControl(new AdmissionConfiguration().
+                putLimit("isochrone", new AdmissionConfiguration.Limit().setMaxConcurrent(1).setRetryAfterSeconds(3)));
+        MetricRegistry metrics = new MetricRegistry();
+        admission.registerMetrics(metrics);
+        try (AdmissionControl.Permit permit = admission.acquire(ISOCHRONE)) {
+            WebApplicationException ex = assertThrows(WebApplicationException.class, () -> admission.acquire(ISOCHRONE));
+            assertEquals(503, ex.getResponse().getStatus());
+            assertEquals("3", ex.getResponse().getHeaderString("Retry-After"));
+            assertEquals(1, metrics.meter("admission.isochrone.rejected").getCount());
+            assertEquals(1, metrics.getGauges().get("admission.isochrone.active").getValue());
+
+            // other request classes are not affected
+            admission.acquire(CH_ROUTE).close();
+        }
+        assertEquals(0, metrics.getGauges().get("admission.isochrone.active").getValue());
+        admission.acquire(ISOCHRONE).close();
+    }
+
+    @Test
+    public void closeTwice() {
+        AdmissionControl admission = new AdmissionControl(new AdmissionConfiguration().
+                putLimit("match", new AdmissionConfiguration.Limit().setMaxConcurrent(1)));
+        AdmissionControl.Permit permit = admission.acquire(MATCH);
+        permit.close();
+        permit.close();
+        try (AdmissionControl.Permit p = admission.acquire(MATCH)) {
+            assertThrows(WebApplicationException.class, () -> admission.acquire(MATCH));
+        }
+    }
+
+    @Test
+    public void waitInQueue() throws Exception {
+        AdmissionControl admission = new AdmissionControl(new AdmissionConfiguration().
+                putLimit("flex_route", new AdmissionConfiguration.Limit().setMaxConcurrent(1).setMaxQueued(1).setMaxWaitMillis(10_000)));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch acquired = new CountDownLatch(1);
+            Future<?> future;
+            try (AdmissionControl.Permit permit = admission.acquire(FLEX_ROUTE)) {
+                future = executor.submit(() -> {
+                    try (AdmissionControl.Permit p = admission.acquire(FLEX_ROUTE)) {
+                        acquired.countDown();
+                    }
+                });
+                assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+            }
+            // the queued request gets the slot as soon as it is released
+            assertTrue(acquired.await(10, TimeUnit.SECONDS));
+            future.get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void unknownRequestClass() {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> new AdmissionControl(
+                new AdmissionConfiguration().putLimit("routes", new AdmissionConfiguration.Limit())));
+        assertTrue(ex.getMessage().contains("routes"), ex.getMessage());
+    }
+}
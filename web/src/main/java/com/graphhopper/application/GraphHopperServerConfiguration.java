@@ -19,11 +19,13 @@ package com.graphhopper.application;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.http.AdmissionConfiguration;
 import com.graphhopper.http.GraphHopperBundleConfiguration;
 import com.graphhopper.http.RealtimeBundleConfiguration;
 import com.graphhopper.http.RealtimeConfiguration;
 import io.dropwizard.Configuration;
 
+import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 
 public class GraphHopperServerConfiguration extends Configuration implements GraphHopperBundleConfiguration, RealtimeBundleConfiguration {
@@ -35,6 +37,10 @@ public class GraphHopperServerConfiguration extends Configuration implements Gra
     @JsonProperty
     private final RealtimeConfiguration gtfsRealtime = new RealtimeConfiguration();
 
+    @Valid
+    @JsonProperty
+    private final AdmissionConfiguration admission = new AdmissionConfiguration();
+
     public GraphHopperServerConfiguration() {
     }
 
@@ -43,6 +49,11 @@ public class GraphHopperServerConfiguration extends Configuration implements Gra
         return graphhopper;
     }
 
+    @Override
+    public AdmissionConfiguration getAdmissionConfiguration() {
+        return admission;
+    }
+
     @Override
     public RealtimeConfiguration gtfsrealtime() {
         return gtfsRealtime;
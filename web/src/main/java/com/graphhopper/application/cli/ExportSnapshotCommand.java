@@ -0,0 +1,45 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.cli;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.http.GraphHopperManaged;
+import com.graphhopper.storage.GraphSnapshot;
+import io.dropwizard.cli.ConfiguredCommand;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+import java.io.File;
+
+public class ExportSnapshotCommand extends ConfiguredCommand<GraphHopperServerConfiguration> {
+
+    public ExportSnapshotCommand() {
+        super("export-snapshot", "imports the graph if necessary and writes it into a single snapshot file <graph.location>.ghs that can be loaded without extraction");
+    }
+
+    @Override
+    protected void run(Bootstrap<GraphHopperServerConfiguration> bootstrap, Namespace namespace, GraphHopperServerConfiguration configuration) {
+        final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration.getGraphHopperConfiguration());
+        GraphHopper graphHopper = graphHopperManaged.getGraphHopper();
+        graphHopper.importAndClose();
+        String location = graphHopper.getGraphHopperLocation();
+        GraphSnapshot.export(new File(location), new File(location + ".ghs"));
+    }
+
+}
@@ -26,6 +26,8 @@ import com.graphhopper.jackson.Gpx;
 import com.graphhopper.matching.EdgeMatch;
 import com.graphhopper.matching.MapMatching;
 import com.graphhopper.matching.MatchResult;
+import com.graphhopper.matching.Observation;
+import com.graphhopper.matching.OnlineMapMatching;
 import com.graphhopper.matching.State;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.Helper;
@@ -36,7 +38,10 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static com.graphhopper.application.MapMatchingTest.fetchStreets;
 import static org.junit.jupiter.api.Assertions.*;
@@ -124,6 +129,44 @@ public class MapMatching2Test {
         assertEquals(0, mr.getMatchMillis(), 50);
     }
 
+    @Test
+    public void testOnlineMatching() throws IOException {
+        GraphHopper hopper = new GraphHopper();
+        hopper.setOSMFile("../map-matching/files/map-issue13.osm.gz");
+        hopper.setGraphHopperLocation(GH_LOCATION);
+        hopper.setProfiles(new Profile("my_profile").setVehicle("car").setWeighting("fastest"));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("my_profile"));
+        hopper.importOrLoad();
+
+        Gpx gpx = xmlMapper.readValue(getClass().getResourceAsStream("/issue-13.gpx"), Gpx.class);
+        List<Observation> observations = GpxConversions.getEntries(gpx.trk.get(0));
+        // a small measurement error, so that only few observations are filtered
+        MapMatching mapMatching = new MapMatching(hopper, new PMap().putObject("profile", "my_profile"));
+        mapMatching.setMeasurementErrorSigma(10);
+        MatchResult mr = mapMatching.match(observations);
+
+        OnlineMapMatching onlineMatching = new OnlineMapMatching(hopper, new PMap().putObject("profile", "my_profile"));
+        onlineMatching.setMeasurementErrorSigma(10);
+        onlineMatching.setMaxLag(5);
+        List<EdgeMatch> edgeMatches = new ArrayList<>();
+        for (Observation observation : observations)
+            edgeMatches.addAll(onlineMatching.add(observation));
+        // most edges are final before the end of the track
+        assertTrue(edgeMatches.size() > mr.getEdgeMatches().size() / 2, "edge matches before finish: " + edgeMatches.size());
+        edgeMatches.addAll(onlineMatching.finish());
+
+        assertEquals(edges(mr.getEdgeMatches()), edges(edgeMatches));
+        for (EdgeMatch em : edgeMatches)
+            validateEdgeMatch(em);
+        // the observations are assigned to the same edges
+        assertEquals(mr.getEdgeMatches().stream().mapToInt(em -> em.getStates().size()).sum(),
+                edgeMatches.stream().mapToInt(em -> em.getStates().size()).sum());
+    }
+
+    private static List<Integer> edges(List<EdgeMatch> edgeMatches) {
+        return edgeMatches.stream().map(em -> em.getEdgeState().getEdge()).collect(Collectors.toList());
+    }
+
     private void validateEdgeMatch(EdgeMatch edgeMatch) {
         for (State state : edgeMatch.getStates()) {
             if (state.getSnap().getSnappedPosition() == Snap.Position.TOWER) {
@@ -0,0 +1,109 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.graphhopper.application.GraphHopperApplication;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.config.Profile;
+import com.graphhopper.gpx.GpxConversions;
+import com.graphhopper.jackson.Gpx;
+import com.graphhopper.matching.Observation;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class MapMatchingStreamResourceTest {
+
+    private static final String DIR = "../target/mapmatchingstreamtest";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    public static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.flag_encoders", "car").
+                putObject("datareader.file", "../map-matching/files/map-issue13.osm.gz").
+                putObject("graph.location", DIR).
+                setProfiles(Collections.singletonList(new Profile("fast_car").setVehicle("car").setWeighting("fastest")));
+        return config;
+    }
+
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testStream() throws IOException {
+        Gpx gpx = new XmlMapper().readValue(getClass().getResourceAsStream("/issue-13.gpx"), Gpx.class);
+        StringBuilder body = new StringBuilder();
+        for (Observation observation : GpxConversions.getEntries(gpx.trk.get(0)))
+            body.append("{\"lat\":").append(observation.getPoint().lat).append(",\"lon\":").append(observation.getPoint().lon).append("}\n");
+
+        List<JsonNode> links = post("fast_car", body.toString());
+        assertFalse(links.isEmpty());
+        int wpts = 0;
+        for (JsonNode link : links) {
+            assertFalse(link.has("message"), link.toString());
+            assertTrue(link.get("id").asInt() >= 0);
+            assertEquals(link.get("id").asInt(), link.get("traversal_key").asInt() / 2);
+            assertTrue(link.get("geometry").get("coordinates").size() >= 2);
+            wpts += link.get("wpts").size();
+        }
+        assertTrue(wpts > 0);
+    }
+
+    @Test
+    public void testInvalidObservation() throws IOException {
+        List<JsonNode> links = post("fast_car", "{\"lat\":51.358735,\"lon\":12.360574}\n{\"lat\":51.358,\"longitude\":12.36}\n");
+        JsonNode error = links.get(links.size() - 1);
+        assertTrue(error.get("message").asText().startsWith("Observation must contain lat and lon"), error.toString());
+    }
+
+    private List<JsonNode> post(String profile, String body) throws IOException {
+        final Response response = app.client().target("http://localhost:8080/match/stream?profile=" + profile)
+                .request()
+                .buildPost(Entity.entity(body, NDJSON))
+                .invoke();
+        assertEquals(200, response.getStatus());
+        List<JsonNode> result = new ArrayList<>();
+        for (String line : response.readEntity(String.class).split("\n")) {
+            if (!line.isEmpty())
+                result.add(objectMapper.readTree(line));
+        }
+        return result;
+    }
+}
@@ -42,6 +42,7 @@ import java.time.ZoneId;
 import java.util.Collections;
 
 import static com.graphhopper.application.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -114,6 +115,37 @@ public class PtIsochroneTest {
         assertFalse(isoline.covers(geometryFactory.createPoint(makePrecise(new Coordinate(-116.751677, 36.915682)))));
     }
 
+    @Test
+    public void testIsolineForDepartureWindow() {
+        // the first trip to NANAA leaves hours after midnight, so the travel time gets shorter the later we leave
+        WebTarget webTarget = clientTarget(app, "/isochrone")
+                .queryParam("vehicle", "pt")
+                .queryParam("point", "36.914893,-116.76821") // NADAV
+                .queryParam("pt.earliest_departure_time", LocalDateTime.of(2007, 1, 1, 0, 0, 0).atZone(zoneId).toInstant())
+                .queryParam("time_limit", 6 * 60 * 60 + 10 * 60);
+        Geometry isoline = webTarget.request().get(PtIsochroneResource.Response.class).polygons.get(0).getGeometry();
+        // NANAA is out when leaving at midnight
+        assertFalse(isoline.covers(geometryFactory.createPoint(makePrecise(new Coordinate(-116.761472, 36.914944)))));
+
+        // leaving every 24 minutes between 0:00 and 1:36 NANAA is reached after 6:49, 6:25, 6:01, 5:37 and 5:13
+        // hours, so it is typically reached within the time limit
+        isoline = webTarget
+                .queryParam("pt.departure_window", "PT2H")
+                .queryParam("pt.departure_samples", 5)
+                .request().get(PtIsochroneResource.Response.class).polygons.get(0).getGeometry();
+        assertTrue(isoline.covers(geometryFactory.createPoint(makePrecise(new Coordinate(-116.761472, 36.914944)))));
+    }
+
+    @Test
+    public void testTooManyDepartureSamples() {
+        WebTarget webTarget = clientTarget(app, "/isochrone-pt")
+                .queryParam("point", "36.914893,-116.76821")
+                .queryParam("pt.earliest_departure_time", LocalDateTime.of(2007, 1, 1, 0, 0, 0).atZone(zoneId).toInstant())
+                .queryParam("pt.departure_window", "PT2H")
+                .queryParam("pt.departure_samples", 21);
+        assertEquals(400, webTarget.request().get().getStatus());
+    }
+
     // Snap coordinate to GraphHopper's implicit grid of allowable points.
     // Otherwise, we can't reliably use coordinates from input data in tests.
     private Coordinate makePrecise(Coordinate coordinate) {
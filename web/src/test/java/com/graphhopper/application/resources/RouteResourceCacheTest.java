@@ -0,0 +1,118 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.resources;
+
+import com.codahale.metrics.Gauge;
+import com.graphhopper.application.GraphHopperApplication;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.routing.weighting.custom.CustomProfile;
+import com.graphhopper.util.CustomModel;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.Collections;
+
+import static com.graphhopper.application.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class RouteResourceCacheTest {
+    private static final String DIR = "./target/route-resource-cache-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.flag_encoders", "car").
+                putObject("prepare.min_network_size", 0).
+                putObject("datareader.file", "../core/files/monaco.osm.gz").
+                putObject("graph.encoded_values", "road_class,surface,road_environment,max_speed").
+                putObject("graph.location", DIR).
+                putObject("route_cache.max_bytes", 1_000_000).
+                setProfiles(Collections.singletonList(
+                        new CustomProfile("car").setCustomModel(new CustomModel()).setVehicle("car"))).
+                setCHProfiles(Collections.singletonList(new CHProfile("car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testCache() {
+        String url = "/route?profile=car&point=43.727879,7.409678&point=43.745987,7.429848";
+        String first = doGet(url);
+        assertEquals(0, getGauge("hits"));
+        assertEquals(1, getGauge("misses"));
+        assertEquals(1, getGauge("entries"));
+
+        assertEquals(first, doGet(url));
+        assertEquals(1, getGauge("hits"));
+
+        // other parameters must not use the cached response
+        String withoutInstructions = doGet(url + "&instructions=false");
+        assertNotEquals(first, withoutInstructions);
+        assertFalse(withoutInstructions.contains("\"instructions\""));
+        assertEquals(1, getGauge("hits"));
+        assertEquals(2, getGauge("entries"));
+
+        String body = "{\"points\": [[7.409678,43.727879], [7.429848, 43.745987]], \"profile\": \"car\", \"ch.disable\": true, " +
+                "\"custom_model\": {\"priority\": [{\"if\": \"road_class == PRIMARY\", \"multiply_by\": %s}]}}";
+        String post = doPost(String.format(body, "0.5"));
+        assertEquals(post, doPost(String.format(body, "0.5")));
+        assertEquals(2, getGauge("hits"));
+        doPost(String.format(body, "0.6"));
+        assertEquals(2, getGauge("hits"));
+        assertEquals(4, getGauge("entries"));
+        assertTrue(getGauge("bytes") > 0);
+    }
+
+    private String doGet(String url) {
+        Response response = clientTarget(app, url).request().buildGet().invoke();
+        String str = response.readEntity(String.class);
+        assertEquals(200, response.getStatus(), str);
+        return str;
+    }
+
+    private String doPost(String body) {
+        Response response = clientTarget(app, "/route").request().post(Entity.json(body));
+        String str = response.readEntity(String.class);
+        assertEquals(200, response.getStatus(), str);
+        // make sure the cached response is valid JSON
+        assertTrue(response.getMediaType().toString().startsWith("application/json"));
+        return str;
+    }
+
+    private long getGauge(String name) {
+        Gauge<?> gauge = app.getEnvironment().metrics().getGauges().get("route_cache." + name);
+        return ((Number) gauge.getValue()).longValue();
+    }
+}
@@ -152,6 +152,30 @@ public class RouteResourceTest {
         assertEquals(1256, json.get("routes").get(0).get("distance").asDouble(), 20);
     }
 
+    @Test
+    public void testNavigationReroute() {
+        String params = "?geometries=polyline6&steps=true&roundabout_exits=true&voice_instructions=true&banner_instructions=true";
+        Response response = clientTarget(app, "/navigate/directions/v5/gh/driving/1.536198,42.554851;1.548128,42.510071" + params).
+                request().get();
+        assertEquals(200, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        String uuid = json.get("uuid").asText();
+
+        // the driver left the route
+        response = clientTarget(app, "/navigate/directions/v5/gh/driving/1.537,42.5405;1.548128,42.510071" + params + "&route_uuid=" + uuid).
+                request().get();
+        assertEquals(200, response.getStatus());
+        json = response.readEntity(JsonNode.class);
+        assertNotEquals(uuid, json.get("uuid").asText());
+        assertEquals(9684, json.get("routes").get(0).get("distance").asDouble(), 20);
+
+        // an unknown uuid falls back to a full route
+        response = clientTarget(app, "/navigate/directions/v5/gh/driving/1.537,42.5405;1.548128,42.510071" + params + "&route_uuid=abc").
+                request().get();
+        assertEquals(200, response.getStatus());
+        assertEquals(9684, response.readEntity(JsonNode.class).get("routes").get(0).get("distance").asDouble(), 20);
+    }
+
     @Test
     public void testWrongPointFormat() {
         final Response response = clientTarget(app, "/route?profile=my_car&point=1234&point=42.510071,1.548128").request().buildGet().invoke();